@@ -11,6 +11,12 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
 import java.awt.image.ColorModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * A convenience class which implements those methods of BufferedImageOp which
@@ -18,6 +24,81 @@ import java.awt.image.ColorModel;
  */
 public abstract class AbstractBufferedImageOp implements BufferedImageOp {
 
+	/**
+	 * Images with at least this many pixels are filtered on several threads
+	 * by filters that support it.
+	 */
+	public static final int PARALLEL_PIXEL_THRESHOLD = 256 * 256;
+
+	/**
+	 * The number of pixels at which this filter switches to several threads.
+	 * This is {@link #PARALLEL_PIXEL_THRESHOLD} unless a test changes it.
+	 */
+	int parallelPixelThreshold = PARALLEL_PIXEL_THRESHOLD;
+
+	/**
+	 * A task that processes a range of rows.
+	 */
+	protected interface RowBand {
+		/**
+		 * Process rows [y1, y2).
+		 */
+		void run(int y1, int y2);
+	}
+
+	/**
+	 * Return true if an image is large enough that it should be filtered on
+	 * several threads.
+	 */
+	protected boolean isParallel(BufferedImage src) {
+		return ((long) src.getWidth()) * src.getHeight() >= parallelPixelThreshold
+				&& ForkJoinPool.getCommonPoolParallelism() > 1;
+	}
+
+	/**
+	 * Split a range of rows into bands and process them.
+	 * 
+	 * @param rowCount
+	 *            the number of rows to process.
+	 * @param parallel
+	 *            if true then bands are processed concurrently on the common
+	 *            ForkJoinPool, and this method returns when all bands are
+	 *            finished. If false then all rows are processed on this
+	 *            thread.
+	 * @param band
+	 *            the task that processes each band.
+	 */
+	protected static void runBands(int rowCount, boolean parallel,
+			RowBand band) {
+		int bandCount = parallel ? Math.min(rowCount,
+				ForkJoinPool.getCommonPoolParallelism() * 2) : 1;
+		if (bandCount <= 1) {
+			band.run(0, rowCount);
+			return;
+		}
+		List<Future<Void>> futures = new ArrayList<>(bandCount);
+		for (int a = 0; a < bandCount; a++) {
+			final int y1 = rowCount * a / bandCount;
+			final int y2 = rowCount * (a + 1) / bandCount;
+			Callable<Void> c = () -> {
+				band.run(y1, y2);
+				return null;
+			};
+			futures.add(ForkJoinPool.commonPool().submit(c));
+		}
+		try {
+			for (Future<Void> f : futures) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
 	public BufferedImage createCompatibleDestImage(BufferedImage src,
 			ColorModel dstCM) {
 		if (dstCM == null)
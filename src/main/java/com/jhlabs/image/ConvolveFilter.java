@@ -95,9 +95,20 @@ public class ConvolveFilter extends AbstractBufferedImageOp {
 			dst = createCompatibleDestImage(src, null);
 
 		int[] inPixels = new int[width * height];
-		int[] outPixels = new int[width * height];
 		getRGB(src, 0, 0, width, height, inPixels);
 
+		if (isParallel(src)) {
+			final int[] outPixels = new int[width * height];
+			final Kernel k = kernel;
+			final boolean a = alpha;
+			final int e = edgeAction;
+			runBands(height, true, (y1, y2) -> convolve(k, inPixels,
+					outPixels, width, height, a, e, y1, y2));
+			setRGB(dst, 0, 0, width, height, outPixels);
+			return dst;
+		}
+
+		int[] outPixels = new int[width * height];
 		convolve(kernel, inPixels, outPixels, width, height, alpha, edgeAction);
 
 		setRGB(dst, 0, 0, width, height, outPixels);
@@ -135,15 +146,26 @@ public class ConvolveFilter extends AbstractBufferedImageOp {
 
 	public static void convolve(Kernel kernel, int[] inPixels, int[] outPixels,
 			int width, int height, boolean alpha, int edgeAction) {
+		convolve(kernel, inPixels, outPixels, width, height, alpha,
+				edgeAction, 0, height);
+	}
+
+	/**
+	 * Convolve rows [y1, y2) of an image. Different row ranges write to
+	 * different output pixels, so ranges can be processed concurrently.
+	 */
+	public static void convolve(Kernel kernel, int[] inPixels, int[] outPixels,
+			int width, int height, boolean alpha, int edgeAction, int y1,
+			int y2) {
 		if (kernel.getHeight() == 1)
 			convolveH(kernel, inPixels, outPixels, width, height, alpha,
-					edgeAction);
+					edgeAction, y1, y2);
 		else if (kernel.getWidth() == 1)
 			convolveV(kernel, inPixels, outPixels, width, height, alpha,
-					edgeAction);
+					edgeAction, y1, y2);
 		else
 			convolveHV(kernel, inPixels, outPixels, width, height, alpha,
-					edgeAction);
+					edgeAction, y1, y2);
 	}
 
 	/**
@@ -167,14 +189,26 @@ public class ConvolveFilter extends AbstractBufferedImageOp {
 	public static void convolveHV(Kernel kernel, int[] inPixels,
 			int[] outPixels, int width, int height, boolean alpha,
 			int edgeAction) {
-		int index = 0;
+		convolveHV(kernel, inPixels, outPixels, width, height, alpha, edgeAction,
+				0, height);
+	}
+
+	/**
+	 * Convolve rows [y1, y2) of an image.
+	 * 
+	 * @see #convolveHV(Kernel, int[], int[], int, int, boolean, int)
+	 */
+	public static void convolveHV(Kernel kernel, int[] inPixels,
+			int[] outPixels, int width, int height, boolean alpha,
+			int edgeAction, int y1, int y2) {
+		int index = y1 * width;
 		float[] matrix = kernel.getKernelData(null);
 		int rows = kernel.getHeight();
 		int cols = kernel.getWidth();
 		int rows2 = rows / 2;
 		int cols2 = cols / 2;
 
-		for (int y = 0; y < height; y++) {
+		for (int y = y1; y < y2; y++) {
 			for (int x = 0; x < width; x++) {
 				float r = 0, g = 0, b = 0, a = 0;
 
@@ -241,12 +275,24 @@ public class ConvolveFilter extends AbstractBufferedImageOp {
 	public static void convolveH(Kernel kernel, int[] inPixels,
 			int[] outPixels, int width, int height, boolean alpha,
 			int edgeAction) {
-		int index = 0;
+		convolveH(kernel, inPixels, outPixels, width, height, alpha, edgeAction,
+				0, height);
+	}
+
+	/**
+	 * Convolve rows [y1, y2) of an image.
+	 * 
+	 * @see #convolveH(Kernel, int[], int[], int, int, boolean, int)
+	 */
+	public static void convolveH(Kernel kernel, int[] inPixels,
+			int[] outPixels, int width, int height, boolean alpha,
+			int edgeAction, int y1, int y2) {
+		int index = y1 * width;
 		float[] matrix = kernel.getKernelData(null);
 		int cols = kernel.getWidth();
 		int cols2 = cols / 2;
 
-		for (int y = 0; y < height; y++) {
+		for (int y = y1; y < y2; y++) {
 			int ioffset = y * width;
 			for (int x = 0; x < width; x++) {
 				float r = 0, g = 0, b = 0, a = 0;
@@ -304,12 +350,24 @@ public class ConvolveFilter extends AbstractBufferedImageOp {
 	public static void convolveV(Kernel kernel, int[] inPixels,
 			int[] outPixels, int width, int height, boolean alpha,
 			int edgeAction) {
-		int index = 0;
+		convolveV(kernel, inPixels, outPixels, width, height, alpha, edgeAction,
+				0, height);
+	}
+
+	/**
+	 * Convolve rows [y1, y2) of an image.
+	 * 
+	 * @see #convolveV(Kernel, int[], int[], int, int, boolean, int)
+	 */
+	public static void convolveV(Kernel kernel, int[] inPixels,
+			int[] outPixels, int width, int height, boolean alpha,
+			int edgeAction, int y1, int y2) {
+		int index = y1 * width;
 		float[] matrix = kernel.getKernelData(null);
 		int rows = kernel.getHeight();
 		int rows2 = rows / 2;
 
-		for (int y = 0; y < height; y++) {
+		for (int y = y1; y < y2; y++) {
 			for (int x = 0; x < width; x++) {
 				float r = 0, g = 0, b = 0, a = 0;
 
@@ -6,6 +6,9 @@ package com.jhlabs.image;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.Kernel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * A filter which applies Gaussian blur to an image. This is a subclass of
@@ -18,6 +21,40 @@ public class GaussianFilter extends ConvolveFilter {
 
 	static final long serialVersionUID = 5377089073023183684L;
 
+	/**
+	 * The maximum number of kernels kept in {@link #KERNEL_CACHE}.
+	 */
+	private static final int KERNEL_CACHE_SIZE = 32;
+
+	/**
+	 * Recently used kernels, keyed by radius. Kernels are immutable, so they
+	 * can be shared by any number of filters and threads.
+	 */
+	private static final Map<Float, Kernel> KERNEL_CACHE = Collections
+			.synchronizedMap(new LinkedHashMap<Float, Kernel>(16, .75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<Float, Kernel> eldest) {
+					return size() > KERNEL_CACHE_SIZE;
+				}
+			});
+
+	/**
+	 * Return a Gaussian blur kernel for a radius, creating it if it is not
+	 * already cached.
+	 */
+	public static Kernel getKernel(float radius) {
+		Float key = Float.valueOf(radius);
+		Kernel k = KERNEL_CACHE.get(key);
+		if (k == null) {
+			k = makeKernel(radius);
+			KERNEL_CACHE.put(key, k);
+		}
+		return k;
+	}
+
 	protected float radius;
 	protected Kernel kernel;
 
@@ -47,7 +84,7 @@ public class GaussianFilter extends ConvolveFilter {
 	 */
 	public void setRadius(float radius) {
 		this.radius = radius;
-		kernel = makeKernel(radius);
+		kernel = getKernel(radius);
 	}
 
 	/**
@@ -66,6 +103,9 @@ public class GaussianFilter extends ConvolveFilter {
 		if (dst == null)
 			dst = createCompatibleDestImage(src, null);
 
+		if (isParallel(src))
+			return filterParallel(src, dst);
+
 		int[] inPixels = new int[width * height];
 		int[] outPixels = new int[width * height];
 		src.getRGB(0, 0, width, height, inPixels, 0, width);
@@ -79,14 +119,50 @@ public class GaussianFilter extends ConvolveFilter {
 		return dst;
 	}
 
+	/**
+	 * Apply the horizontal and vertical passes on several threads. Each pass
+	 * is split into bands of rows; bands write to disjoint pixels, so the
+	 * result is identical to the single-threaded filter.
+	 */
+	protected BufferedImage filterParallel(BufferedImage src,
+			BufferedImage dst) {
+		final int width = src.getWidth();
+		final int height = src.getHeight();
+		final Kernel k = kernel;
+		final boolean a = alpha;
+
+		final int[] inPixels = new int[width * height];
+		final int[] tmpPixels = new int[width * height];
+		src.getRGB(0, 0, width, height, inPixels, 0, width);
+
+		runBands(height, true, (y1, y2) -> convolveAndTranspose(k, inPixels,
+				tmpPixels, width, height, a, CLAMP_EDGES, y1, y2));
+		runBands(width, true, (y1, y2) -> convolveAndTranspose(k, tmpPixels,
+				inPixels, height, width, a, CLAMP_EDGES, y1, y2));
+
+		setRGB(dst, 0, 0, width, height, inPixels);
+		return dst;
+	}
+
 	public static void convolveAndTranspose(Kernel kernel, int[] inPixels,
 			int[] outPixels, int width, int height, boolean alpha,
 			int edgeAction) {
+		convolveAndTranspose(kernel, inPixels, outPixels, width, height, alpha,
+				edgeAction, 0, height);
+	}
+
+	/**
+	 * Convolve rows [y1, y2) with a one-row kernel and write them as columns
+	 * of the output.
+	 */
+	public static void convolveAndTranspose(Kernel kernel, int[] inPixels,
+			int[] outPixels, int width, int height, boolean alpha,
+			int edgeAction, int y1, int y2) {
 		float[] matrix = kernel.getKernelData(null);
 		int cols = kernel.getWidth();
 		int cols2 = cols / 2;
 
-		for (int y = 0; y < height; y++) {
+		for (int y = y1; y < y2; y++) {
 			int index = y;
 			int ioffset = y * width;
 			for (int x = 0; x < width; x++) {
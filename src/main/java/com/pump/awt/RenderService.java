@@ -0,0 +1,397 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.awt;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BaseMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiResolutionImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Icon;
+
+/**
+ * This renders {@link Paintable Paintables} and Icons into BufferedImages on
+ * a thread pool, and caches the results.
+ * <p>
+ * Requests are identified by the Paintable or Icon (using its
+ * <code>equals()</code> and <code>hashCode()</code> methods), the requested
+ * size and the scale factor. Requests that overlap in time share one
+ * <code>Future</code>, so the same image is never rendered twice
+ * concurrently. Finished images are stored in an LRU cache that is bounded by
+ * the number of bytes the images occupy.
+ * <p>
+ * Because images may be returned to several callers, you should not modify
+ * them. And because results are cached, you should not modify a Paintable or
+ * Icon after you request an image of it (unless its <code>equals()</code>
+ * method accounts for that change).
+ * <p>
+ * This never shows anything on screen, so it can be used in a headless
+ * environment. Icons are painted with a null Component.
+ */
+public class RenderService {
+
+	/**
+	 * The default amount of memory (in bytes) the cache may use.
+	 */
+	public static final long MEMORY_LIMIT_DEFAULT = 32 * 1024 * 1024;
+
+	/**
+	 * This identifies a rendering request.
+	 */
+	static class Key {
+		final Object source;
+		final int width, height;
+		final double scale;
+
+		Key(Object source, int width, int height, double scale) {
+			this.source = source;
+			this.width = width;
+			this.height = height;
+			this.scale = scale;
+		}
+
+		@Override
+		public int hashCode() {
+			return (source.hashCode() * 31 + width) * 31 + height;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return width == other.width && height == other.height
+					&& Double.compare(scale, other.scale) == 0
+					&& source.equals(other.source);
+		}
+
+		@Override
+		public String toString() {
+			return source + " (" + width + "x" + height + " @" + scale + "x)";
+		}
+	}
+
+	/**
+	 * Return the approximate number of bytes an image's raster occupies.
+	 */
+	static long getByteCount(BufferedImage bi) {
+		DataBuffer dataBuffer = bi.getRaster().getDataBuffer();
+		long elementSize = DataBuffer.getDataTypeSize(dataBuffer.getDataType())
+				/ 8;
+		return ((long) dataBuffer.getSize()) * dataBuffer.getNumBanks()
+				* elementSize;
+	}
+
+	private static RenderService DEFAULT;
+
+	/**
+	 * Return a shared RenderService.
+	 */
+	public static synchronized RenderService get() {
+		if (DEFAULT == null) {
+			DEFAULT = new RenderService(
+					Runtime.getRuntime().availableProcessors(),
+					MEMORY_LIMIT_DEFAULT);
+		}
+		return DEFAULT;
+	}
+
+	protected final long memoryLimit;
+
+	private final ExecutorService executor;
+	private final Map<Key, CompletableFuture<BufferedImage>> pendingRequests = new ConcurrentHashMap<>();
+	private final LinkedHashMap<Key, BufferedImage> memoryCache = new LinkedHashMap<>(
+			16, .75f, true);
+	private long memoryCacheSize = 0;
+
+	/**
+	 * Create a RenderService.
+	 *
+	 * @param threadCount
+	 *            the maximum number of images that are rendered
+	 *            simultaneously.
+	 * @param memoryLimit
+	 *            the maximum number of bytes the cache may occupy.
+	 */
+	public RenderService(int threadCount, long memoryLimit) {
+		if (threadCount <= 0)
+			throw new IllegalArgumentException(
+					"threadCount (" + threadCount + ") must be positive");
+		if (memoryLimit < 0)
+			throw new IllegalArgumentException(
+					"memoryLimit (" + memoryLimit + ") must not be negative");
+		this.memoryLimit = memoryLimit;
+
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount,
+				threadCount, 5, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					int ctr = 0;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "RenderService-" + (ctr++));
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		pool.allowCoreThreadTimeOut(true);
+		executor = pool;
+	}
+
+	/**
+	 * Request an image of a Paintable.
+	 *
+	 * @param paintable
+	 *            the Paintable to render. This is stretched to fill the
+	 *            requested width and height.
+	 * @param width
+	 *            the width of the image, before the scale factor is applied.
+	 * @param height
+	 *            the height of the image, before the scale factor is applied.
+	 * @param scale
+	 *            the scale factor, such as 2 for a HiDPI display. The image
+	 *            is <code>ceil(width * scale)</code> pixels wide.
+	 */
+	public Future<BufferedImage> requestImage(Paintable paintable, int width,
+			int height, double scale) {
+		Objects.requireNonNull(paintable);
+		return request(new Key(paintable, width, height, scale));
+	}
+
+	/**
+	 * Request an image of an Icon at its own size.
+	 *
+	 * @param icon
+	 *            the Icon to render.
+	 * @param scale
+	 *            the scale factor, such as 2 for a HiDPI display. The image
+	 *            is <code>ceil(icon.getIconWidth() * scale)</code> pixels
+	 *            wide.
+	 */
+	public Future<BufferedImage> requestImage(Icon icon, double scale) {
+		Objects.requireNonNull(icon);
+		return request(new Key(icon, icon.getIconWidth(),
+				icon.getIconHeight(), scale));
+	}
+
+	/**
+	 * Request a MultiResolutionImage of a Paintable that contains one image
+	 * for each scale factor. Each scale factor is rendered (and cached)
+	 * separately, so they may be rendered in parallel.
+	 *
+	 * @see #requestImage(Paintable, int, int, double)
+	 */
+	public Future<MultiResolutionImage> requestImages(Paintable paintable,
+			int width, int height, double... scales) {
+		Objects.requireNonNull(paintable);
+		Key[] keys = new Key[scales.length];
+		for (int a = 0; a < scales.length; a++) {
+			keys[a] = new Key(paintable, width, height, scales[a]);
+		}
+		return request(keys);
+	}
+
+	/**
+	 * Request a MultiResolutionImage of an Icon that contains one image for
+	 * each scale factor. Each scale factor is rendered (and cached)
+	 * separately, so they may be rendered in parallel.
+	 *
+	 * @see #requestImage(Icon, double)
+	 */
+	public Future<MultiResolutionImage> requestImages(Icon icon,
+			double... scales) {
+		Objects.requireNonNull(icon);
+		Key[] keys = new Key[scales.length];
+		for (int a = 0; a < scales.length; a++) {
+			keys[a] = new Key(icon, icon.getIconWidth(), icon.getIconHeight(),
+					scales[a]);
+		}
+		return request(keys);
+	}
+
+	/**
+	 * Return an image of a Paintable, blocking until it is available.
+	 *
+	 * @see #requestImage(Paintable, int, int, double)
+	 */
+	public BufferedImage getImage(Paintable paintable, int width, int height,
+			double scale) {
+		return get(requestImage(paintable, width, height, scale));
+	}
+
+	/**
+	 * Return an image of an Icon, blocking until it is available.
+	 *
+	 * @see #requestImage(Icon, double)
+	 */
+	public BufferedImage getImage(Icon icon, double scale) {
+		return get(requestImage(icon, scale));
+	}
+
+	private static BufferedImage get(Future<BufferedImage> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * Remove all images from the cache.
+	 */
+	public void clearMemory() {
+		synchronized (memoryCache) {
+			memoryCache.clear();
+			memoryCacheSize = 0;
+		}
+	}
+
+	/**
+	 * Return the approximate number of bytes the cache currently occupies.
+	 */
+	public long getMemoryUsage() {
+		synchronized (memoryCache) {
+			return memoryCacheSize;
+		}
+	}
+
+	private Future<MultiResolutionImage> request(Key[] keys) {
+		if (keys.length == 0)
+			throw new IllegalArgumentException(
+					"at least one scale is required");
+		List<CompletableFuture<BufferedImage>> futures = new ArrayList<>(
+				keys.length);
+		for (Key key : keys) {
+			futures.add(request(key));
+		}
+		return CompletableFuture
+				.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+				.thenApply(v -> {
+					Image[] images = new Image[futures.size()];
+					for (int a = 0; a < images.length; a++) {
+						images[a] = futures.get(a).join();
+					}
+					return new BaseMultiResolutionImage(images);
+				});
+	}
+
+	private CompletableFuture<BufferedImage> request(Key key) {
+		if (key.width <= 0 || key.height <= 0)
+			throw new IllegalArgumentException("the size (" + key.width + "x"
+					+ key.height + ") must be positive");
+		if (!(key.scale > 0))
+			throw new IllegalArgumentException(
+					"the scale (" + key.scale + ") must be positive");
+
+		BufferedImage bi = getMemoryEntry(key);
+		if (bi != null)
+			return CompletableFuture.completedFuture(bi);
+
+		CompletableFuture<BufferedImage> newFuture = new CompletableFuture<>();
+		CompletableFuture<BufferedImage> future = pendingRequests
+				.putIfAbsent(key, newFuture);
+		if (future == null) {
+			future = newFuture;
+			executor.execute(() -> {
+				try {
+					BufferedImage image = getMemoryEntry(key);
+					if (image == null) {
+						image = render(key);
+						putMemoryEntry(key, image);
+					}
+					pendingRequests.remove(key);
+					newFuture.complete(image);
+				} catch (Throwable t) {
+					pendingRequests.remove(key);
+					newFuture.completeExceptionally(t);
+				}
+			});
+		}
+		return future;
+	}
+
+	/**
+	 * Render an image. This is invoked on a thread from this service's pool.
+	 */
+	protected BufferedImage render(Key key) {
+		int width = (int) Math.ceil(key.width * key.scale);
+		int height = (int) Math.ceil(key.height * key.scale);
+		BufferedImage bi = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = bi.createGraphics();
+		try {
+			g.scale(key.scale, key.scale);
+			if (key.source instanceof Icon) {
+				((Icon) key.source).paintIcon(null, g, 0, 0);
+			} else {
+				Paintable p = (Paintable) key.source;
+				if (p.getWidth() > 0 && p.getHeight() > 0) {
+					g.scale(((double) key.width) / p.getWidth(),
+							((double) key.height) / p.getHeight());
+					p.paint(g);
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+		return bi;
+	}
+
+	private BufferedImage getMemoryEntry(Key key) {
+		synchronized (memoryCache) {
+			return memoryCache.get(key);
+		}
+	}
+
+	private void putMemoryEntry(Key key, BufferedImage bi) {
+		long byteCount = getByteCount(bi);
+		if (byteCount > memoryLimit)
+			return;
+		synchronized (memoryCache) {
+			BufferedImage oldImage = memoryCache.put(key, bi);
+			if (oldImage != null)
+				memoryCacheSize -= getByteCount(oldImage);
+			memoryCacheSize += byteCount;
+
+			Iterator<BufferedImage> iter = memoryCache.values().iterator();
+			while (memoryCacheSize > memoryLimit && iter.hasNext()) {
+				BufferedImage eldest = iter.next();
+				iter.remove();
+				memoryCacheSize -= getByteCount(eldest);
+			}
+		}
+	}
+}
@@ -393,9 +393,9 @@ public class AddRulesTest extends BasicTestElement {
 
 		AreaXRules[] rules = new AreaXRules[] { new AreaXRules(),
 				new BoundsRules(true, false), new BoundsRules(false, true),
-				new BoundsRules(true, true) };
+				new BoundsRules(true, true), new ParallelUnionRules() };
 		String[] names = new String[] { "No Rules", "Inner", "Merging",
-				"Both" };
+				"Both", "Parallel" };
 
 		long[][] times = new long[cases.length][rules.length + 1];
 		long[] tempList = new long[5]; // how many times we repeat each method
@@ -97,6 +97,14 @@ import com.pump.geom.area.CurveX;
  * changed by calling: <code>myArea.setRules()</code>. However you can also
  * change the <i>default</i> rules for all future <code>AreaX</code> objects by
  * calling: <code>UIManager.put("AreaX.rules", myRules)</code>.
+ * <p>
+ * This class is thread-safe. Operations that modify this area are
+ * synchronized, and each modification publishes a new immutable
+ * <code>AreaXBody</code>. Queries (such as <code>contains()</code>,
+ * <code>intersects()</code> or <code>getPathIterator()</code>) read the
+ * current body without locking unless there are pending operations to
+ * process, so several threads can share the same <code>AreaX</code> (such as
+ * a clip) without contention.
  */
 public class AreaX implements Shape, Cloneable {
 	public static final int RELATIONSHIP_LHS_CONTAINS = 0;
@@ -130,7 +138,19 @@ public class AreaX implements Shape, Cloneable {
 		}
 	}
 
-	private AreaXBody body;
+	/**
+	 * The current geometry. <code>AreaXBody</code> objects are never modified
+	 * once they are published here, so readers can use this without
+	 * synchronizing. Every change to this area replaces this field with a new
+	 * body.
+	 */
+	private volatile AreaXBody body;
+
+	/**
+	 * This is true when the queue contains unprocessed operations. This is
+	 * only modified while synchronized on this object.
+	 */
+	private volatile boolean dirty = false;
 	private List<AreaXOperation> queue = new LinkedList<AreaXOperation>();
 	private AreaXRules rules = getDefaultRules();
 
@@ -166,8 +186,7 @@ public class AreaX implements Shape, Cloneable {
 	public AreaX(Shape s) {
 		if (s instanceof AreaX) {
 			AreaX area = (AreaX) s;
-			area.processQueue();
-			body = area.body;
+			body = area.getBody();
 		} else {
 			body = AreaXBody.create(s.getPathIterator(null), true);
 		}
@@ -196,6 +215,7 @@ public class AreaX implements Shape, Cloneable {
 		AreaXOperation[] ops = queue.toArray(new AreaXOperation[queueSize]);
 		queue.clear();
 		body = rules.execute(body, ops);
+		dirty = false;
 	}
 
 	/**
@@ -203,11 +223,17 @@ public class AreaX implements Shape, Cloneable {
 	 * in this <code>AreaX</code>. This object will constantly be replaced as
 	 * new operations are performed.
 	 * <p>
-	 * This forces any pending operations to be performed.
-	 */
-	public synchronized AreaXBody getBody() {
-		processQueue();
-		return body;
+	 * This forces any pending operations to be performed. If there are no
+	 * pending operations then this does not lock this object, so several
+	 * threads can query the same <code>AreaX</code> without contention.
+	 */
+	public AreaXBody getBody() {
+		if (!dirty)
+			return body;
+		synchronized (this) {
+			processQueue();
+			return body;
+		}
 	}
 
 	/**
@@ -244,6 +270,7 @@ public class AreaX implements Shape, Cloneable {
 	 */
 	public synchronized void add(Shape rhs) {
 		queue.add(new AreaXOperation(rhs, AreaXOperation.ADD));
+		dirty = true;
 	}
 
 	/**
@@ -254,7 +281,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return true whether the argument is completely contained inside this
 	 *         shape.
 	 */
-	public synchronized boolean contains(Shape shape) {
+	public boolean contains(Shape shape) {
 		return getRelationship(null, shape, null) == RELATIONSHIP_LHS_CONTAINS;
 	}
 
@@ -268,7 +295,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return true whether the argument (when transformed) is completely
 	 *         contained inside this shape.
 	 */
-	public synchronized boolean contains(Shape shape, AffineTransform transform) {
+	public boolean contains(Shape shape, AffineTransform transform) {
 		return getRelationship(null, shape, transform) == RELATIONSHIP_LHS_CONTAINS;
 	}
 
@@ -284,7 +311,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return true whether the argument (when transformed) is completely
 	 *         contained inside this shape.
 	 */
-	public synchronized boolean contains(AffineTransform lhsTransform,
+	public boolean contains(AffineTransform lhsTransform,
 			Shape shape, AffineTransform transform) {
 		return getRelationship(lhsTransform, shape, transform) == RELATIONSHIP_LHS_CONTAINS;
 	}
@@ -297,7 +324,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return true whether the argument (when transformed) intersects this
 	 *         shape.
 	 */
-	public synchronized boolean intersects(Shape shape) {
+	public boolean intersects(Shape shape) {
 		int r = getRelationship(null, shape, null);
 		return r != RELATIONSHIP_NONE;
 	}
@@ -312,7 +339,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return true whether the argument (when transformed) intersects this
 	 *         shape.
 	 */
-	public synchronized boolean intersects(Shape shape,
+	public boolean intersects(Shape shape,
 			AffineTransform transform) {
 		int r = getRelationship(null, shape, transform);
 		return r != RELATIONSHIP_NONE;
@@ -330,7 +357,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return true whether the argument (when transformed) intersects this
 	 *         shape.
 	 */
-	public synchronized boolean intersects(AffineTransform lhsTransform,
+	public boolean intersects(AffineTransform lhsTransform,
 			Shape shape, AffineTransform transform) {
 		int r = getRelationship(lhsTransform, shape, transform);
 		return r != RELATIONSHIP_NONE;
@@ -349,7 +376,7 @@ public class AreaX implements Shape, Cloneable {
 	 *         RELATIONSHIP_RHS_CONTAINS, RELATIONSHIP_NONE, or
 	 *         RELATIONSHIP_COMPLEX.
 	 */
-	public synchronized int getRelationship(AffineTransform lhsTransform,
+	public int getRelationship(AffineTransform lhsTransform,
 			Shape shape, AffineTransform transform) {
 		return getBody().getRelationship(lhsTransform, shape, transform);
 	}
@@ -424,6 +451,7 @@ public class AreaX implements Shape, Cloneable {
 	 */
 	public synchronized void subtract(Shape rhs) {
 		queue.add(new AreaXOperation(rhs, AreaXOperation.SUBTRACT));
+		dirty = true;
 	}
 
 	/**
@@ -498,6 +526,7 @@ public class AreaX implements Shape, Cloneable {
 	 */
 	public synchronized void intersect(Shape rhs) {
 		queue.add(new AreaXOperation(rhs, AreaXOperation.INTERSECT));
+		dirty = true;
 	}
 
 	/**
@@ -574,6 +603,7 @@ public class AreaX implements Shape, Cloneable {
 	 */
 	public synchronized void exclusiveOr(Shape rhs) {
 		queue.add(new AreaXOperation(rhs, AreaXOperation.XOR));
+		dirty = true;
 	}
 
 	/**
@@ -621,6 +651,7 @@ public class AreaX implements Shape, Cloneable {
 	public synchronized void reset() {
 		queue.clear();
 		body = emptyBody;
+		dirty = false;
 	}
 
 	/**
@@ -631,8 +662,8 @@ public class AreaX implements Shape, Cloneable {
 	 * @return <code>true</code> if this <code>AreaX</code> object represents an
 	 *         empty area; <code>false</code> otherwise.
 	 */
-	public synchronized boolean isEmpty() {
-		processQueue();
+	public boolean isEmpty() {
+		AreaXBody body = getBody();
 		return (body.size() == 0);
 	}
 
@@ -645,8 +676,8 @@ public class AreaX implements Shape, Cloneable {
 	 * @return <code>true</code> if the geometry of this <code>AreaX</code>
 	 *         consists entirely of line segments; <code>false</code> otherwise.
 	 */
-	public synchronized boolean isPolygonal() {
-		processQueue();
+	public boolean isPolygonal() {
+		AreaXBody body = getBody();
 		for (int a = 0; a < body.size(); a++) {
 			if (body.get(a).getOrder() > 1) {
 				return false;
@@ -663,8 +694,8 @@ public class AreaX implements Shape, Cloneable {
 	 * @return <code>true</code> if the geometry of this <code>AreaX</code> is
 	 *         rectangular in shape; <code>false</code> otherwise.
 	 */
-	public synchronized boolean isRectangular() {
-		processQueue();
+	public boolean isRectangular() {
+		AreaXBody body = getBody();
 		int size = body.size();
 		if (size == 0) {
 			return true;
@@ -700,8 +731,8 @@ public class AreaX implements Shape, Cloneable {
 	 * @return <code>true</code> if the <code>AreaX</code> is comprised of a
 	 *         single basic geometry; <code>false</code> otherwise.
 	 */
-	public synchronized boolean isSingular() {
-		processQueue();
+	public boolean isSingular() {
+		AreaXBody body = getBody();
 		if (body.size() < 3) {
 			return true;
 		}
@@ -726,8 +757,8 @@ public class AreaX implements Shape, Cloneable {
 	 * 
 	 * @return the bounding <code>Rectangle2D</code> for the <code>AreaX</code>.
 	 */
-	public synchronized Rectangle2D getBounds2D() {
-		processQueue();
+	public Rectangle2D getBounds2D() {
+		AreaXBody body = getBody();
 		return body.getBounds2D(null);
 	}
 
@@ -747,8 +778,8 @@ public class AreaX implements Shape, Cloneable {
 	 * 
 	 * @return the bounding <code>Rectangle</code> for the <code>AreaX</code>.
 	 */
-	public synchronized Rectangle getBounds() {
-		processQueue();
+	public Rectangle getBounds() {
+		AreaXBody body = getBody();
 		return body.getBounds(null);
 	}
 
@@ -760,8 +791,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return Created clone object
 	 */
 	@Override
-	public synchronized AreaX clone() {
-		processQueue();
+	public AreaX clone() {
 		return new AreaX(this);
 	}
 
@@ -777,7 +807,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return <code>true</code> if the two geometries are equal;
 	 *         <code>false</code> otherwise.
 	 */
-	public synchronized boolean equals(AreaX other) {
+	public boolean equals(AreaX other) {
 		return getBody().equals(other.getBody());
 	}
 
@@ -817,7 +847,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return a new <code>AreaX</code> object representing the transformed
 	 *         geometry.
 	 */
-	public synchronized AreaX createTransformedArea(AffineTransform t) {
+	public AreaX createTransformedArea(AffineTransform t) {
 		AreaX a = new AreaX(this);
 		a.transform(t);
 		return a;
@@ -828,7 +858,7 @@ public class AreaX implements Shape, Cloneable {
 	 * <p>
 	 * This forces any pending operations to be performed.
 	 */
-	public synchronized boolean contains(double x, double y) {
+	public boolean contains(double x, double y) {
 		return getBody().contains(x, y);
 	}
 
@@ -837,7 +867,7 @@ public class AreaX implements Shape, Cloneable {
 	 * <p>
 	 * This forces any pending operations to be performed.
 	 */
-	public synchronized boolean contains(Point2D p) {
+	public boolean contains(Point2D p) {
 		return contains(p.getX(), p.getY());
 	}
 
@@ -846,11 +876,11 @@ public class AreaX implements Shape, Cloneable {
 	 * <p>
 	 * This forces any pending operations to be performed.
 	 */
-	public synchronized boolean contains(double x, double y, double w, double h) {
+	public boolean contains(double x, double y, double w, double h) {
 		if (w < 0 || h < 0) {
 			return false;
 		}
-		processQueue();
+		AreaXBody body = getBody();
 		if (!body.boundsContains(x, y, w, h)) {
 			return false;
 		}
@@ -863,7 +893,7 @@ public class AreaX implements Shape, Cloneable {
 	 * <p>
 	 * This forces any pending operations to be performed.
 	 */
-	public synchronized boolean contains(Rectangle2D r) {
+	public boolean contains(Rectangle2D r) {
 		return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
 	}
 
@@ -872,12 +902,12 @@ public class AreaX implements Shape, Cloneable {
 	 * <p>
 	 * This forces any pending operations to be performed.
 	 */
-	public synchronized boolean intersects(double x, double y, double w,
+	public boolean intersects(double x, double y, double w,
 			double h) {
 		if (w < 0 || h < 0) {
 			return false;
 		}
-		processQueue();
+		AreaXBody body = getBody();
 		if (!body.boundsIntersects(x, y, w, h)) {
 			return false;
 		}
@@ -890,7 +920,7 @@ public class AreaX implements Shape, Cloneable {
 	 * <p>
 	 * This forces any pending operations to be performed.
 	 */
-	public synchronized boolean intersects(Rectangle2D r) {
+	public boolean intersects(Rectangle2D r) {
 		return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
 	}
 
@@ -907,8 +937,8 @@ public class AreaX implements Shape, Cloneable {
 	 * @return the <code>PathIterator</code> object that returns the geometry of
 	 *         the outline of this <code>AreaX</code>, one segment at a time.
 	 */
-	public synchronized PathIterator getPathIterator(AffineTransform at) {
-		processQueue();
+	public PathIterator getPathIterator(AffineTransform at) {
+		AreaXBody body = getBody();
 		return body.getPathIterator(at);
 	}
 
@@ -929,7 +959,7 @@ public class AreaX implements Shape, Cloneable {
 	 * @return the <code>PathIterator</code> object that returns the geometry of
 	 *         the outline of this <code>AreaX</code>, one segment at a time.
 	 */
-	public synchronized PathIterator getPathIterator(AffineTransform at,
+	public PathIterator getPathIterator(AffineTransform at,
 			double flatness) {
 		return new FlatteningPathIterator(getPathIterator(at), flatness);
 	}
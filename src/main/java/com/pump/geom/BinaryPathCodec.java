@@ -0,0 +1,274 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This converts paths to and from a compact binary format.
+ * <p>
+ * This is an alternative to {@link ShapeStringUtils} for large amounts of path
+ * data: the text format is easy to read and edit, but it is large and slow to
+ * parse. In the binary format every coordinate is rounded to a fixed grid
+ * (see {@link #DEFAULT_SCALE}), and then stored as the difference from the
+ * previous coordinate on the same axis. Those differences are usually small,
+ * so they are written as variable-length integers that often only require 1
+ * or 2 bytes.
+ * <p>
+ * The format is:
+ * <ul>
+ * <li>A header byte (<code>'P'</code>) and a version byte (<code>1</code>).
+ * </li>
+ * <li>The winding rule as 1 byte.</li>
+ * <li>The scale as a 4-byte float.</li>
+ * <li>For each segment: the segment type as 1 byte followed by its
+ * coordinates (zero, two, four or six zigzag-encoded varints).</li>
+ * <li>An end marker byte.</li>
+ * </ul>
+ * <p>
+ * Because coordinates are quantized this format is lossy: a coordinate may
+ * change by up to <code>0.5/scale</code>.
+ */
+public class BinaryPathCodec {
+
+	/**
+	 * The default number of grid units per pixel. With this scale every
+	 * coordinate is accurate to within 1/2048 of a pixel.
+	 */
+	public static final float DEFAULT_SCALE = 1024;
+
+	private static final byte HEADER = 'P';
+	private static final byte VERSION = 1;
+	private static final byte END = 5;
+
+	/**
+	 * Encode a shape using the default scale.
+	 */
+	public static byte[] encode(Shape shape) {
+		return encode(shape.getPathIterator(null), DEFAULT_SCALE);
+	}
+
+	/**
+	 * Encode a path.
+	 *
+	 * @param i
+	 *            the path to encode.
+	 * @param scale
+	 *            the number of grid units per unit of the path. Higher values
+	 *            are more accurate, and lower values are more compact.
+	 * @return the encoded path.
+	 */
+	public static byte[] encode(PathIterator i, float scale) {
+		if (!(scale > 0) || Float.isInfinite(scale))
+			throw new IllegalArgumentException("scale (" + scale
+					+ ") must be a positive number");
+		Encoder encoder = new Encoder(i.getWindingRule(), scale);
+		double[] coords = new double[6];
+		while (!i.isDone()) {
+			int k = i.currentSegment(coords);
+			encoder.write(k, coords);
+			i.next();
+		}
+		return encoder.finish();
+	}
+
+	/**
+	 * Decode a path into a new <code>Path2D</code>.
+	 */
+	public static Path2D decode(byte[] data) {
+		PathIterator i = createPathIterator(ByteBuffer.wrap(data));
+		Path2D path = new Path2D.Double(i.getWindingRule());
+		path.append(i, false);
+		return path;
+	}
+
+	/**
+	 * Create a <code>PathIterator</code> that decodes a path from a
+	 * <code>ByteBuffer</code>.
+	 * <p>
+	 * The path is decoded as it is iterated over, starting at the buffer's
+	 * current position. When the iterator is done the buffer's position is
+	 * immediately after the encoded path, so several paths can be read from
+	 * the same buffer consecutively.
+	 */
+	public static PathIterator createPathIterator(ByteBuffer buffer) {
+		return new BinaryPathIterator(buffer, null);
+	}
+
+	/**
+	 * Create a <code>PathIterator</code> that decodes a path from a
+	 * <code>ByteBuffer</code> and applies a transform.
+	 */
+	public static PathIterator createPathIterator(ByteBuffer buffer,
+			AffineTransform transform) {
+		return new BinaryPathIterator(buffer, transform);
+	}
+
+	static class Encoder {
+		byte[] data = new byte[64];
+		int size = 0;
+		final float scale;
+		long lastX = 0;
+		long lastY = 0;
+
+		Encoder(int windingRule, float scale) {
+			this.scale = scale;
+			writeByte(HEADER);
+			writeByte(VERSION);
+			writeByte(windingRule);
+			int bits = Float.floatToIntBits(scale);
+			writeByte(bits >>> 24);
+			writeByte(bits >>> 16);
+			writeByte(bits >>> 8);
+			writeByte(bits);
+		}
+
+		void write(int segmentType, double[] coords) {
+			writeByte(segmentType);
+			int n = PathArrayIterator.getCoordinateCount(segmentType);
+			for (int a = 0; a < n; a += 2) {
+				long x = Math.round(coords[a] * scale);
+				long y = Math.round(coords[a + 1] * scale);
+				writeVarLong(x - lastX);
+				writeVarLong(y - lastY);
+				lastX = x;
+				lastY = y;
+			}
+		}
+
+		byte[] finish() {
+			writeByte(END);
+			return Arrays.copyOf(data, size);
+		}
+
+		private void writeByte(int b) {
+			if (size == data.length)
+				data = Arrays.copyOf(data, size * 2);
+			data[size++] = (byte) b;
+		}
+
+		/**
+		 * Write a zigzag-encoded variable-length integer.
+		 */
+		private void writeVarLong(long v) {
+			long z = (v << 1) ^ (v >> 63);
+			while ((z & ~0x7FL) != 0) {
+				writeByte((int) ((z & 0x7F) | 0x80));
+				z >>>= 7;
+			}
+			writeByte((int) z);
+		}
+	}
+
+	static class BinaryPathIterator implements PathIterator {
+		final ByteBuffer buffer;
+		final int windingRule;
+		final double inverseScale;
+		final AffineTransform transform;
+		final double[] coords = new double[6];
+		long lastX = 0;
+		long lastY = 0;
+		int segmentType;
+
+		BinaryPathIterator(ByteBuffer buffer, AffineTransform transform) {
+			this.buffer = buffer;
+			this.transform = transform == null || transform.isIdentity() ? null
+					: new AffineTransform(transform);
+			try {
+				if (buffer.get() != HEADER)
+					throw new IllegalArgumentException(
+							"this data is not an encoded path");
+				int version = buffer.get();
+				if (version != VERSION)
+					throw new IllegalArgumentException(
+							"unsupported version: " + version);
+				windingRule = buffer.get();
+				if (windingRule != WIND_EVEN_ODD
+						&& windingRule != WIND_NON_ZERO)
+					throw new IllegalArgumentException(
+							"unsupported winding rule: " + windingRule);
+				inverseScale = 1.0 / buffer.getFloat();
+			} catch (BufferUnderflowException e) {
+				throw new IllegalArgumentException(
+						"this data is not an encoded path", e);
+			}
+			readSegment();
+		}
+
+		private void readSegment() {
+			segmentType = buffer.get();
+			if (segmentType == END)
+				return;
+			int n = PathArrayIterator.getCoordinateCount(segmentType);
+			for (int a = 0; a < n; a += 2) {
+				lastX += readVarLong();
+				lastY += readVarLong();
+				coords[a] = lastX * inverseScale;
+				coords[a + 1] = lastY * inverseScale;
+			}
+			if (transform != null)
+				transform.transform(coords, 0, coords, 0, n / 2);
+		}
+
+		private long readVarLong() {
+			long z = 0;
+			int shift = 0;
+			while (true) {
+				byte b = buffer.get();
+				z |= ((long) (b & 0x7F)) << shift;
+				if (b >= 0)
+					break;
+				shift += 7;
+				if (shift > 63)
+					throw new IllegalArgumentException("malformed varint");
+			}
+			return (z >>> 1) ^ -(z & 1);
+		}
+
+		@Override
+		public int getWindingRule() {
+			return windingRule;
+		}
+
+		@Override
+		public boolean isDone() {
+			return segmentType == END;
+		}
+
+		@Override
+		public void next() {
+			if (segmentType != END)
+				readSegment();
+		}
+
+		@Override
+		public int currentSegment(float[] dest) {
+			int n = PathArrayIterator.getCoordinateCount(segmentType);
+			for (int a = 0; a < n; a++) {
+				dest[a] = (float) coords[a];
+			}
+			return segmentType;
+		}
+
+		@Override
+		public int currentSegment(double[] dest) {
+			System.arraycopy(coords, 0, dest, 0,
+					PathArrayIterator.getCoordinateCount(segmentType));
+			return segmentType;
+		}
+	}
+}
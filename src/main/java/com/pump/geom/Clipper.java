@@ -17,12 +17,10 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.geom.CubicCurve2D;
 import java.awt.geom.GeneralPath;
-import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.Arrays;
-import java.util.Stack;
 
 /**
  * This class lets you clip/intersect an arbitrary shape to a Rectangle2D.
@@ -63,17 +61,24 @@ public abstract class Clipper {
 	 * smaller interval from an arbitrary [t0,t1].
 	 */
 	static class ClippedPath {
-		public final GeneralPath g;
-		private Stack<float[]> uncommittedPoints = new Stack<float[]>();
+		PathWriter dest;
+
+		/**
+		 * The uncommitted points, stored as (x,y) pairs. The first pending
+		 * point is at <code>2*head</code> and the last is at
+		 * <code>2*(tail-1)</code>.
+		 */
+		private float[] uncommittedPoints = new float[32];
+		private int head, tail;
 		private float initialX, initialY;
 
-		public ClippedPath(int windingRule) {
-			g = new GeneralPath(windingRule);
+		public ClippedPath(PathWriter dest) {
+			this.dest = dest;
 		}
 
 		public void moveTo(float x, float y) {
 			flush();
-			g.moveTo(x, y);
+			dest.moveTo(x, y);
 			initialX = x;
 			initialY = y;
 		}
@@ -102,7 +107,7 @@ public abstract class Clipper {
 			double y0 = yf.evaluate(t0);
 			double y1 = yf.evaluate(t1);
 
-			g.curveTo((float) (x0 + dx0 / 3), (float) (y0 + dy0 / 3),
+			dest.curveTo((float) (x0 + dx0 / 3), (float) (y0 + dy0 / 3),
 					(float) (x1 - dx1 / 3), (float) (y1 - dy1 / 3),
 					(float) (x1), (float) (y1));
 		}
@@ -119,52 +124,62 @@ public abstract class Clipper {
 		 * method is aimed at clipping to (non-rotated) rectangles.
 		 */
 		public void lineTo(float x, float y) {
-
-			if (uncommittedPoints.size() > 0) {
-				float[] last = uncommittedPoints.peek();
+			if (tail > head) {
 				// are we adding the same point?
-				if (Math.abs(last[0] - x) < TOLERANCE
-						&& Math.abs(last[1] - y) < TOLERANCE)
+				if (Math.abs(uncommittedPoints[2 * tail - 2] - x) < TOLERANCE
+						&& Math.abs(uncommittedPoints[2 * tail - 1] - y) < TOLERANCE)
 					return;
 			}
 
-			float[] f = new float[2];
-			f[0] = x;
-			f[1] = y;
-			uncommittedPoints.push(f);
+			if (2 * tail == uncommittedPoints.length) {
+				if (head > 0) {
+					System.arraycopy(uncommittedPoints, 2 * head,
+							uncommittedPoints, 0, 2 * (tail - head));
+					tail -= head;
+					head = 0;
+				} else {
+					uncommittedPoints = Arrays.copyOf(uncommittedPoints,
+							uncommittedPoints.length * 2);
+				}
+			}
+			uncommittedPoints[2 * tail] = x;
+			uncommittedPoints[2 * tail + 1] = y;
+			tail++;
 		}
 
 		public void closePath() {
 			lineTo(initialX, initialY);
 			flush();
-			g.closePath();
+			dest.closePath();
 		}
 
-		/** Flush out the stack of uncommitted points. */
+		/** Flush out the queue of uncommitted points. */
 		public void flush() {
-			while (uncommittedPoints.size() > 0) {
-				identifyLines: while (uncommittedPoints.size() >= 3) {
-					float[] first = uncommittedPoints.get(0);
-					float[] middle = uncommittedPoints.get(1);
-					float[] last = uncommittedPoints.get(2);
-
-					if (Math.abs(first[0] - middle[0]) < TOLERANCE
-							&& Math.abs(first[0] - last[0]) < TOLERANCE) {
-						// everything has the same x, so we have a vertical line
-						float[] array = uncommittedPoints.remove(1);
-					} else if (Math.abs(first[1] - middle[1]) < TOLERANCE
-							&& Math.abs(first[1] - last[1]) < TOLERANCE) {
-						// everything has the same y, so we have a horizontal
-						// line
-						float[] array = uncommittedPoints.remove(1);
+			float[] p = uncommittedPoints;
+			while (tail > head) {
+				while (tail - head >= 3) {
+					int first = 2 * head;
+					int middle = first + 2;
+					int last = first + 4;
+					if ((Math.abs(p[first] - p[middle]) < TOLERANCE && Math
+							.abs(p[first] - p[last]) < TOLERANCE)
+							|| (Math.abs(p[first + 1] - p[middle + 1]) < TOLERANCE && Math
+									.abs(p[first + 1] - p[last + 1]) < TOLERANCE)) {
+						// everything has the same x (a vertical line) or the
+						// same y (a horizontal line), so remove the middle
+						// point by sliding the first point forward:
+						p[middle] = p[first];
+						p[middle + 1] = p[first + 1];
+						head++;
 					} else {
-						break identifyLines;
+						break;
 					}
 				}
 
-				float[] point = uncommittedPoints.remove(0);
-				g.lineTo(point[0], point[1]);
+				dest.lineTo(p[2 * head], p[2 * head + 1]);
+				head++;
 			}
+			head = tail = 0;
 		}
 	}
 
@@ -374,6 +389,44 @@ public abstract class Clipper {
 		return clipper.clip(s, t);
 	}
 
+	/**
+	 * This writes <code>s</code> clipped to <code>r</code> to a
+	 * <code>PathWriter</code>.
+	 * <p>
+	 * Unlike the other <code>clipToRect</code> methods this does not create a
+	 * <code>GeneralPath</code>: clipped segments are streamed to
+	 * <code>dest</code> as they are identified. This does not call
+	 * <code>dest.flush()</code>.
+	 * 
+	 * @param s
+	 *            a shape that you want clipped
+	 * @param t
+	 *            the optional transform to transform <code>s</code> by.
+	 * @param r
+	 *            the rectangle to clip to
+	 * @param dest
+	 *            the destination to write the clipped shape to.
+	 */
+	public static void clipToRect(Shape s, AffineTransform t, Rectangle2D r,
+			PathWriter dest) {
+		new RectangleClipper(r).clip(s.getPathIterator(t), dest);
+	}
+
+	/**
+	 * Create a <code>Clipper</code> that clips to a rectangle.
+	 * <p>
+	 * A <code>Clipper</code> recycles all of its internal buffers between
+	 * calls to {@link #clip(PathIterator, PathWriter)}, so when a large number
+	 * of paths need to be clipped to the same rectangle you should reuse one
+	 * instance. Clippers are not thread-safe.
+	 * 
+	 * @param r
+	 *            the rectangle to clip to.
+	 */
+	public static Clipper createRectangleClipper(Rectangle2D r) {
+		return new RectangleClipper(r);
+	}
+
 	private static class RectangleClipper extends Clipper {
 		final float rTop;
 		final float rLeft;
@@ -435,31 +488,56 @@ public abstract class Clipper {
 	abstract int collectIntersectionTimes(Function xf, Function yf,
 			double[] intersectionTimes);
 
+	// create 1 copy of objects and recycle them
+	// to reduce memory allocation:
+	private final LFunction lxf = new LFunction();
+	private final LFunction lyf = new LFunction();
+	private final QFunction qxf = new QFunction();
+	private final QFunction qyf = new QFunction();
+	private final CFunction cxf = new CFunction();
+	private final CFunction cyf = new CFunction();
+	private final Point2D.Float point = new Point2D.Float();
+	private final double[] intersectionTimes = new double[16];
+	private final float[] f = new float[6];
+	private final ClippedPath p = new ClippedPath(null);
+
 	GeneralPath clip(Shape incomingShape, AffineTransform transform) {
 		PathIterator i = incomingShape.getPathIterator(transform);
-		ClippedPath p = new ClippedPath(i.getWindingRule());
+		GeneralPath path = new GeneralPath(i.getWindingRule());
+		GeneralPathWriter writer = new GeneralPathWriter(path);
+		writer.setEliminateRedundantLines(false);
+		clip(i, writer);
+		return path;
+	}
+
+	/**
+	 * Clip a path and stream the results to a <code>PathWriter</code>.
+	 * <p>
+	 * This does not allocate memory (other than to occasionally grow internal
+	 * buffers), and this does not call <code>dest.flush()</code>.
+	 * 
+	 * @param i
+	 *            the path to clip.
+	 * @param dest
+	 *            the destination to write the clipped path to.
+	 */
+	public void clip(PathIterator i, PathWriter dest) {
+		ClippedPath p = this.p;
+		p.dest = dest;
 		float initialX = 0;
 		float initialY = 0;
 		int k;
-		float[] f = new float[6];
+		float[] f = this.f;
 		boolean shouldClose = false;
 		float lastX = 0;
 		float lastY = 0;
 		boolean lastValueWasCapped, thisValueIsCapped, midValueInvalid;
 		float x, y, x2, y2;
 
-		// create 1 copy of objects and recycle them
-		// to reduce memory allocation:
-		LFunction lxf = new LFunction();
-		LFunction lyf = new LFunction();
-		QFunction qxf = new QFunction();
-		QFunction qyf = new QFunction();
-		CFunction cxf = new CFunction();
-		CFunction cyf = new CFunction();
 		Function xf = null;
 		Function yf = null;
-		Point2D.Float point = new Point2D.Float();
-		double[] intersectionTimes = new double[16];
+		Point2D.Float point = this.point;
+		double[] intersectionTimes = this.intersectionTimes;
 		int tCtr;
 
 		while (i.isDone() == false) {
@@ -566,7 +644,7 @@ public abstract class Clipper {
 			i.next();
 		}
 		p.flush();
-		return p.g;
+		p.dest = null;
 	}
 
 	/**
@@ -646,14 +724,9 @@ public abstract class Clipper {
 		} else if (r2 != null) {
 			returnValue = clipToRect(shape1, r2);
 		} else {
-			PathIterator iter1 = shape1.getPathIterator(null, flatness);
-			PathIterator iter2 = shape2.getPathIterator(null, flatness);
-			Path2D p1 = new Path2D.Float(iter1.getWindingRule());
-			Path2D p2 = new Path2D.Float(iter2.getWindingRule());
-			p1.append(iter1, false);
-			p2.append(iter2, false);
-			Area a1 = new Area(p1);
-			Area a2 = new Area(p2);
+			PathFlattener flattener = new PathFlattener(flatness);
+			Area a1 = new Area(flattener.flatten(shape1));
+			Area a2 = new Area(flattener.flatten(shape2));
 			a1.intersect(a2);
 			returnValue = a1;
 		}
@@ -14,8 +14,8 @@ import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -37,11 +37,21 @@ import java.util.List;
  * 
  */
 public final class CubicPath extends AbstractShape {
-	private List<WeakReference<CubicPathIterator>> iterators = new ArrayList<WeakReference<CubicPathIterator>>();
 	private int windingRule = PathIterator.WIND_EVEN_ODD;
 	private final List<List<CubicNode>> paths = new ArrayList<List<CubicNode>>();
 	private double scaleFactor = 1;
 
+	/**
+	 * The segments of this shape, or null if they need to be recalculated.
+	 * This is stored as a pair of primitive arrays (see
+	 * {@link PathArrayIterator}) so iterating over this shape doesn't require
+	 * any locking or allocation per segment. These arrays are never modified
+	 * once they are created, so several iterators can share them.
+	 */
+	private byte[] segmentTypes;
+	private double[] segmentCoords;
+	private int segmentCount;
+
 	/**
 	 * Creates an empty <code>CubicPath</code>.
 	 * 
@@ -67,7 +77,7 @@ public final class CubicPath extends AbstractShape {
 			List<CubicNode> in_nodes = in_paths.get(a);
 			List<CubicNode> nodes = new ArrayList<>(in_nodes.size());
 			for (int b = 0; b < in_nodes.size(); b++) {
-				CubicNode in_node = in_nodes.get(a);
+				CubicNode in_node = in_nodes.get(b);
 				nodes.add((CubicNode) in_node.clone());
 			}
 			paths.add(nodes);
@@ -99,14 +109,14 @@ public final class CubicPath extends AbstractShape {
 		return scaleFactor;
 	}
 
+	/**
+	 * Discard the cached segments. This must be called whenever this shape is
+	 * modified. (Iterators that already exist keep a reference to the
+	 * previous segments, so they are unaffected.)
+	 */
 	private synchronized void releaseIterators() {
-		while (iterators.size() > 0) {
-			WeakReference<CubicPathIterator> ref = iterators.remove(iterators
-					.size() - 1);
-			CubicPathIterator i = ref.get();
-			if (i != null)
-				i.release();
-		}
+		segmentTypes = null;
+		segmentCoords = null;
 	}
 
 	/**
@@ -334,6 +344,7 @@ public final class CubicPath extends AbstractShape {
 
 	/** Removes a node from a specified path. */
 	public synchronized void removeNode(int pathIndex, int nodeIndex) {
+		releaseIterators();
 		List<CubicNode> nodes = paths.get(pathIndex);
 		nodes.remove(nodeIndex);
 	}
@@ -724,6 +735,7 @@ public final class CubicPath extends AbstractShape {
 	 */
 	public synchronized boolean setPrevControlForNode(int pathIndex,
 			int nodeIndex, double x, double y) {
+		releaseIterators();
 		List<CubicNode> nodes = paths.get(pathIndex);
 		CubicNode node = nodes.get(nodeIndex);
 		return node.setPrevControl(x, y, scaleFactor);
@@ -760,6 +772,7 @@ public final class CubicPath extends AbstractShape {
 	 */
 	public synchronized boolean setNextControlForNode(int pathIndex,
 			int nodeIndex, double x, double y) {
+		releaseIterators();
 		List<CubicNode> nodes = paths.get(pathIndex);
 		CubicNode node = nodes.get(nodeIndex);
 		return node.setNextControl(x, y, scaleFactor);
@@ -1223,9 +1236,30 @@ public final class CubicPath extends AbstractShape {
 	 * 
 	 */
 	public synchronized PathIterator getPathIterator(AffineTransform transform) {
-		CubicPathIterator i = new CubicPathIterator(this, transform);
-		iterators.add(new WeakReference<CubicPathIterator>(i));
-		return i;
+		if (segmentTypes == null) {
+			byte[] types = new byte[16];
+			double[] coords = new double[16 * PathArrayIterator.STRIDE];
+			int count = 0;
+			double[] c = new double[6];
+			CubicPathIterator i = new CubicPathIterator(this, null);
+			while (!i.isDone()) {
+				if (count == types.length) {
+					types = Arrays.copyOf(types, count * 2);
+					coords = Arrays.copyOf(coords, count * 2
+							* PathArrayIterator.STRIDE);
+				}
+				types[count] = (byte) i.currentSegment(c);
+				System.arraycopy(c, 0, coords, count
+						* PathArrayIterator.STRIDE, 6);
+				count++;
+				i.next();
+			}
+			segmentTypes = types;
+			segmentCoords = coords;
+			segmentCount = count;
+		}
+		return new PathArrayIterator(segmentTypes, segmentCoords,
+				segmentCount, windingRule, transform);
 	}
 
 	static class CubicNode {
@@ -1435,11 +1469,6 @@ public final class CubicPath extends AbstractShape {
 			}
 		}
 
-		public void release() {
-			if (src != null)
-				src = (CubicPath) src.clone();
-		}
-
 		private double[] d;
 
 		public int currentSegment(float[] coords) {
@@ -17,6 +17,7 @@ import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -24,13 +25,19 @@ import java.util.List;
  * <P>
  * This object can trace arbitrary amounts of itself using the
  * <code>writeShape()</code> methods.
+ * <P>
+ * Internally the segments are stored in flat arrays along with a cumulative
+ * table of their lengths, so a distance along the shape is located with a
+ * binary search instead of walking every segment. Because measuring a curved
+ * shape is expensive, animations that trace the same shape every frame should
+ * use {@link #getCached(Shape)} or {@link #getCachedSubpaths(Shape)}.
  * 
  * @see <a
  *      href="https://javagraphics.blogspot.com/2009/02/shapes-measuring-length.html">Shapes:
  *      Measuring Length</a>
  */
 public class MeasuredShape implements Serializable {
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 
 	/**
 	 * Because a MeasuredShape must be exactly 1 subpath, this method will
@@ -60,6 +67,52 @@ public class MeasuredShape implements Serializable {
 		return getSubpaths(s.getPathIterator(null), spacing);
 	}
 
+	private static final ShapeCache<MeasuredShape[]> SUBPATH_CACHE = new ShapeCache<>();
+
+	/**
+	 * Return the <code>MeasuredShapes</code> for every subpath in a shape,
+	 * using the default spacing.
+	 * <p>
+	 * The results are memoized by the identity of the shape (not its
+	 * <code>equals()</code> method), so repeatedly tracing the same shape (for
+	 * example: once per frame of an animation) only measures it once. The
+	 * shape must not be modified after it is passed to this method, and the
+	 * cache does not prevent the shape from being garbage collected.
+	 * 
+	 * @param s
+	 *            a path, possibly containing multiple subpaths
+	 * @return a MeasuredShape object for each subpath in <code>s</code>
+	 */
+	public static MeasuredShape[] getCachedSubpaths(Shape s) {
+		MeasuredShape[] subpaths = SUBPATH_CACHE.get(s);
+		if (subpaths == null) {
+			subpaths = getSubpaths(s);
+			SUBPATH_CACHE.put(s, subpaths);
+		}
+		return subpaths.clone();
+	}
+
+	/**
+	 * Return a <code>MeasuredShape</code> for a shape, using the default
+	 * spacing.
+	 * <p>
+	 * Like {@link #getCachedSubpaths(Shape)}, this is memoized by the identity
+	 * of the shape, and the shape must not be modified after it is passed to
+	 * this method.
+	 * 
+	 * @param s
+	 *            the shape data
+	 * @throws IllegalArgumentException
+	 *             if the shape has more than 1 path.
+	 */
+	public static MeasuredShape getCached(Shape s) {
+		MeasuredShape[] subpaths = getCachedSubpaths(s);
+		if (subpaths.length != 1)
+			throw new IllegalArgumentException(
+					"this object can only contain 1 subpath");
+		return subpaths[0];
+	}
+
 	/**
 	 * Because a MeasuredShape must be exactly 1 subpath, this method will
 	 * safely break up a path into separate subpaths and create one
@@ -114,217 +167,11 @@ public class MeasuredShape implements Serializable {
 		return v.toArray(new MeasuredShape[v.size()]);
 	}
 
-	static class Segment implements Serializable {
-		private static final long serialVersionUID = 1L;
-
-		int type;
-		float[] data;
-		float realDistance;
-		float normalizedDistance;
-
-		public void write(PathWriter path, float t0, float t1) {
-			if (t0 == 0 && t1 == 1) {
-				if (type == PathIterator.SEG_MOVETO) {
-					path.moveTo(data[0], data[1]);
-				} else if (type == PathIterator.SEG_LINETO) {
-					path.lineTo(data[2], data[3]);
-				} else if (type == PathIterator.SEG_QUADTO) {
-					path.quadTo(data[2], data[3], data[4], data[5]);
-				} else if (type == PathIterator.SEG_CUBICTO) {
-					path.curveTo(data[2], data[3], data[4], data[5], data[6],
-							data[7]);
-				} else {
-					throw new RuntimeException();
-				}
-				return;
-			} else if (t0 == 1 && t1 == 0) {
-				if (type == PathIterator.SEG_MOVETO) {
-					path.moveTo(data[0], data[1]);
-				} else if (type == PathIterator.SEG_LINETO) {
-					path.lineTo(data[0], data[1]);
-				} else if (type == PathIterator.SEG_QUADTO) {
-					path.quadTo(data[2], data[3], data[0], data[1]);
-				} else if (type == PathIterator.SEG_CUBICTO) {
-					path.curveTo(data[4], data[5], data[2], data[3], data[0],
-							data[1]);
-				} else {
-					throw new RuntimeException();
-				}
-				return;
-			}
-			if (type == PathIterator.SEG_MOVETO) {
-				path.moveTo(data[0], data[1]); // not sure what this means?
-			} else if (type == PathIterator.SEG_LINETO) {
-				path.lineTo(getX(t1), getY(t1));
-			} else if (type == PathIterator.SEG_QUADTO) {
-				float ax = data[0] - 2 * data[2] + data[4];
-				float bx = -2 * data[0] + 2 * data[2];
-				float cx = data[0];
-				float ay = data[1] - 2 * data[3] + data[5];
-				float by = -2 * data[1] + 2 * data[3];
-				float cy = data[1];
-
-				PathWriter.quadTo(path, t0, t1, ax, bx, cx, ay, by, cy);
-			} else if (type == PathIterator.SEG_CUBICTO) {
-				float ax = -data[0] + 3 * data[2] - 3 * data[4] + data[6];
-				float bx = 3 * data[0] - 6 * data[2] + 3 * data[4];
-				float cx = -3 * data[0] + 3 * data[2];
-				float dx = data[0];
-				float ay = -data[1] + 3 * data[3] - 3 * data[5] + data[7];
-				float by = 3 * data[1] - 6 * data[3] + 3 * data[5];
-				float cy = -3 * data[1] + 3 * data[3];
-				float dy = data[1];
-				PathWriter
-						.cubicTo(path, t0, t1, ax, bx, cx, dx, ay, by, cy, dy);
-			} else if (type == PathIterator.SEG_CLOSE) {
-				path.closePath();
-			} else {
-				throw new RuntimeException();
-			}
-		}
-
-		public float getTangentSlope(float t) {
-			if (type == PathIterator.SEG_LINETO) {
-				float ax = data[2] - data[0];
-				float ay = data[3] - data[1];
-				return (float) Math.atan2(ay, ax);
-			} else if (type == PathIterator.SEG_QUADTO) {
-				float ax = data[0] - 2 * data[2] + data[4];
-				float bx = -2 * data[0] + 2 * data[2];
-				float ay = data[1] - 2 * data[3] + data[5];
-				float by = -2 * data[1] + 2 * data[3];
-				return (float) Math.atan2(2 * ay * t + by, 2 * ax * t + bx);
-			} else if (type == PathIterator.SEG_CUBICTO) {
-				float ax = -data[0] + 3 * data[2] - 3 * data[4] + data[6];
-				float bx = 3 * data[0] - 6 * data[2] + 3 * data[4];
-				float cx = -3 * data[0] + 3 * data[2];
-				float ay = -data[1] + 3 * data[3] - 3 * data[5] + data[7];
-				float by = 3 * data[1] - 6 * data[3] + 3 * data[5];
-				float cy = -3 * data[1] + 3 * data[3];
-				return (float) Math.atan2(3 * ay * t * t + 2 * by * t + cy, 3
-						* ax * t * t + 2 * bx * t + cx);
-			} else if (type == PathIterator.SEG_MOVETO) {
-				return data[0];
-			} else if (type == PathIterator.SEG_CLOSE) {
-				throw new RuntimeException();
-			} else {
-				throw new RuntimeException();
-			}
-		}
-
-		public float getX(float t) {
-			if (type == PathIterator.SEG_LINETO) {
-				float ax = data[2] - data[0];
-				return ax * t + data[0];
-			} else if (type == PathIterator.SEG_QUADTO) {
-				float ax = data[0] - 2 * data[2] + data[4];
-				float bx = -2 * data[0] + 2 * data[2];
-				float cx = data[0];
-				return (ax * t + bx) * t + cx;
-			} else if (type == PathIterator.SEG_CUBICTO) {
-				float ax = -data[0] + 3 * data[2] - 3 * data[4] + data[6];
-				float bx = 3 * data[0] - 6 * data[2] + 3 * data[4];
-				float cx = -3 * data[0] + 3 * data[2];
-				float dx = data[0];
-				return ((ax * t + bx) * t + cx) * t + dx;
-			} else if (type == PathIterator.SEG_MOVETO) {
-				return data[0];
-			} else if (type == PathIterator.SEG_CLOSE) {
-				throw new RuntimeException();
-			} else {
-				throw new RuntimeException();
-			}
-		}
-
-		public float getY(float t) {
-			if (type == PathIterator.SEG_LINETO) {
-				float ay = data[3] - data[1];
-				return ay * t + data[1];
-			} else if (type == PathIterator.SEG_QUADTO) {
-				float ay = data[1] - 2 * data[3] + data[5];
-				float by = -2 * data[1] + 2 * data[3];
-				float cy = data[1];
-				return (ay * t + by) * t + cy;
-			} else if (type == PathIterator.SEG_CUBICTO) {
-				float ay = -data[1] + 3 * data[3] - 3 * data[5] + data[7];
-				float by = 3 * data[1] - 6 * data[3] + 3 * data[5];
-				float cy = -3 * data[1] + 3 * data[3];
-				float dy = data[1];
-				return ((ay * t + by) * t + cy) * t + dy;
-			} else if (type == PathIterator.SEG_MOVETO) {
-				return data[1];
-			} else if (type == PathIterator.SEG_CLOSE) {
-				throw new RuntimeException();
-			} else {
-				throw new RuntimeException();
-			}
-		}
-
-		public Segment(int type, float lastX, float lastY, float[] coords,
-				float spacing) {
-			this.type = type;
-			if (type == PathIterator.SEG_MOVETO) {
-				data = new float[] { coords[0], coords[1] };
-				realDistance = 0;
-			} else if (type == PathIterator.SEG_LINETO) {
-				data = new float[] { lastX, lastY, coords[0], coords[1] };
-				realDistance = (float) (Math.sqrt((coords[0] - lastX)
-						* (coords[0] - lastX) + (coords[1] - lastY)
-						* (coords[1] - lastY)));
-			} else if (type == PathIterator.SEG_CLOSE) {
-				data = new float[0];
-			} else {
-				double ax, bx, cx, dx, ay, by, cy, dy;
-				if (type == PathIterator.SEG_QUADTO) {
-					ay = 0;
-					by = lastY - 2 * coords[1] + coords[3];
-					cy = -2 * lastY + 2 * coords[1];
-					dy = lastY;
-
-					ax = 0;
-					bx = lastX - 2 * coords[0] + coords[2];
-					cx = -2 * lastX + 2 * coords[0];
-					dx = lastX;
-					data = new float[] { lastX, lastY, coords[0], coords[1],
-							coords[2], coords[3] };
-				} else if (type == PathIterator.SEG_CUBICTO) {
-					ay = -lastY + 3 * coords[1] - 3 * coords[3] + coords[5];
-					by = 3 * lastY - 6 * coords[1] + 3 * coords[3];
-					cy = -3 * lastY + 3 * coords[1];
-					dy = lastY;
-
-					ax = -lastX + 3 * coords[0] - 3 * coords[2] + coords[4];
-					bx = 3 * lastX - 6 * coords[0] + 3 * coords[2];
-					cx = -3 * lastX + 3 * coords[0];
-					dx = lastX;
-					data = new float[] { lastX, lastY, coords[0], coords[1],
-							coords[2], coords[3], coords[4], coords[5] };
-				} else {
-					throw new RuntimeException("Unrecognized type: " + type);
-				}
-				realDistance = calculateDistance(ax, bx, cx, dx, ay, by, cy,
-						dy, spacing);
-			}
-		}
-
-		private float calculateDistance(double ax, double bx, double cx,
-				double dx, double ay, double by, double cy, double dy,
-				float spacing) {
-			double x0 = dx;
-			double y0 = dy;
-			double x1, y1;
-
-			double sum = 0;
-			for (double t = spacing; t < 1; t += spacing) {
-				x1 = ((ax * t + bx) * t + cx) * t + dx;
-				y1 = ((ay * t + by) * t + cy) * t + dy;
-				sum += Math.sqrt((x0 - x1) * (x0 - x1) + (y0 - y1) * (y0 - y1));
-				x0 = x1;
-				y0 = y1;
-			}
-			return (float) sum;
-		}
-	}
+	/**
+	 * The number of floats stored for every segment in {@link #data}: the
+	 * starting point followed by up to 6 coordinates.
+	 */
+	static final int STRIDE = 8;
 
 	/**
 	 * This is the increments t goes throw as each shape segment is traversed.
@@ -335,7 +182,21 @@ public class MeasuredShape implements Serializable {
 	 */
 	public static final float DEFAULT_SPACING = .05f;
 
-	Segment[] segments;
+	/**
+	 * The number of segments. Every segment is a SEG_LINETO, SEG_QUADTO or
+	 * SEG_CUBICTO.
+	 */
+	int segmentCount = 0;
+	byte[] types = new byte[8];
+	float[] data = new float[8 * STRIDE];
+
+	/**
+	 * The cumulative length of the segments, where
+	 * <code>lengths[i]</code> is the distance from the beginning of the shape
+	 * to the beginning of segment <code>i</code>. This contains
+	 * <code>segmentCount+1</code> elements.
+	 */
+	float[] lengths;
 	float closedDistance = 0;
 	float originalDistance;
 
@@ -392,7 +253,7 @@ public class MeasuredShape implements Serializable {
 	 *             if the shape has more than 1 path.
 	 */
 	public MeasuredShape(PathIterator i, float spacing) {
-		List<Segment> v = new ArrayList<Segment>();
+		List<Float> segmentLengths = new ArrayList<Float>();
 		float lastX = 0;
 		float lastY = 0;
 		float moveX = 0;
@@ -420,25 +281,24 @@ public class MeasuredShape implements Serializable {
 				if (pathCount != 1)
 					throw new IllegalArgumentException(
 							"this shape data did not begin with a moveTo");
-				Segment s = new Segment(k, lastX, lastY, coords, spacing);
-				lastX = s.data[s.data.length - 2];
-				lastY = s.data[s.data.length - 1];
-				v.add(s);
-				closedDistance += s.realDistance;
+				float length = addSegment(k, lastX, lastY, coords, spacing);
+				lastX = getEndX(segmentCount - 1);
+				lastY = getEndY(segmentCount - 1);
+				segmentLengths.add(length);
+				closedDistance += length;
 			}
 			i.next();
 		}
 		float t = closedDistance;
-		if (v.size() > 0) {
-			Segment last = v.get(v.size() - 1);
-			if (Math.abs(last.data[last.data.length - 2] - moveX) > .001
-					|| Math.abs(last.data[last.data.length - 1] - moveY) > .001) {
+		if (segmentCount > 0) {
+			if (Math.abs(lastX - moveX) > .001
+					|| Math.abs(lastY - moveY) > .001) {
 				coords[0] = moveX;
 				coords[1] = moveY;
-				Segment s = new Segment(PathIterator.SEG_LINETO, lastX, lastY,
-						coords, spacing);
-				v.add(s);
-				closedDistance += s.realDistance;
+				float length = addSegment(PathIterator.SEG_LINETO, lastX,
+						lastY, coords, spacing);
+				segmentLengths.add(length);
+				closedDistance += length;
 			}
 		}
 		if (!closed) {
@@ -447,12 +307,229 @@ public class MeasuredShape implements Serializable {
 			originalDistance = closedDistance;
 		}
 
-		segments = v.toArray(new Segment[v.size()]);
-		// normalize everything:
-		for (int a = 0; a < segments.length; a++) {
-			segments[a].normalizedDistance = segments[a].realDistance
-					/ closedDistance;
+		types = Arrays.copyOf(types, segmentCount);
+		data = Arrays.copyOf(data, segmentCount * STRIDE);
+		lengths = new float[segmentCount + 1];
+		for (int a = 0; a < segmentCount; a++) {
+			lengths[a + 1] = lengths[a] + segmentLengths.get(a);
+		}
+	}
+
+	/**
+	 * Append a segment to {@link #types} and {@link #data}.
+	 * 
+	 * @return the length of the new segment.
+	 */
+	private float addSegment(int type, float lastX, float lastY,
+			float[] coords, float spacing) {
+		if (segmentCount == types.length) {
+			types = Arrays.copyOf(types, segmentCount * 2);
+			data = Arrays.copyOf(data, segmentCount * 2 * STRIDE);
+		}
+		int offset = segmentCount * STRIDE;
+		types[segmentCount] = (byte) type;
+		data[offset] = lastX;
+		data[offset + 1] = lastY;
+		segmentCount++;
+
+		if (type == PathIterator.SEG_LINETO) {
+			data[offset + 2] = coords[0];
+			data[offset + 3] = coords[1];
+			return (float) (Math.sqrt((coords[0] - lastX)
+					* (coords[0] - lastX) + (coords[1] - lastY)
+					* (coords[1] - lastY)));
+		}
+
+		double ax, bx, cx, dx, ay, by, cy, dy;
+		if (type == PathIterator.SEG_QUADTO) {
+			ay = 0;
+			by = lastY - 2 * coords[1] + coords[3];
+			cy = -2 * lastY + 2 * coords[1];
+			dy = lastY;
+
+			ax = 0;
+			bx = lastX - 2 * coords[0] + coords[2];
+			cx = -2 * lastX + 2 * coords[0];
+			dx = lastX;
+			System.arraycopy(coords, 0, data, offset + 2, 4);
+		} else if (type == PathIterator.SEG_CUBICTO) {
+			ay = -lastY + 3 * coords[1] - 3 * coords[3] + coords[5];
+			by = 3 * lastY - 6 * coords[1] + 3 * coords[3];
+			cy = -3 * lastY + 3 * coords[1];
+			dy = lastY;
+
+			ax = -lastX + 3 * coords[0] - 3 * coords[2] + coords[4];
+			bx = 3 * lastX - 6 * coords[0] + 3 * coords[2];
+			cx = -3 * lastX + 3 * coords[0];
+			dx = lastX;
+			System.arraycopy(coords, 0, data, offset + 2, 6);
+		} else {
+			throw new RuntimeException("Unrecognized type: " + type);
+		}
+		return calculateDistance(ax, bx, cx, dx, ay, by, cy, dy, spacing);
+	}
+
+	private static float calculateDistance(double ax, double bx, double cx,
+			double dx, double ay, double by, double cy, double dy,
+			float spacing) {
+		double x0 = dx;
+		double y0 = dy;
+		double x1, y1;
+
+		double sum = 0;
+		for (double t = spacing; t < 1; t += spacing) {
+			x1 = ((ax * t + bx) * t + cx) * t + dx;
+			y1 = ((ay * t + by) * t + cy) * t + dy;
+			sum += Math.sqrt((x0 - x1) * (x0 - x1) + (y0 - y1) * (y0 - y1));
+			x0 = x1;
+			y0 = y1;
+		}
+		return (float) sum;
+	}
+
+	/**
+	 * Return the length of a segment.
+	 */
+	private float getLength(int segmentIndex) {
+		return lengths[segmentIndex + 1] - lengths[segmentIndex];
+	}
+
+	private float getEndX(int segmentIndex) {
+		int offset = segmentIndex * STRIDE;
+		int type = types[segmentIndex];
+		if (type == PathIterator.SEG_LINETO)
+			return data[offset + 2];
+		if (type == PathIterator.SEG_QUADTO)
+			return data[offset + 4];
+		return data[offset + 6];
+	}
+
+	private float getEndY(int segmentIndex) {
+		int offset = segmentIndex * STRIDE;
+		int type = types[segmentIndex];
+		if (type == PathIterator.SEG_LINETO)
+			return data[offset + 3];
+		if (type == PathIterator.SEG_QUADTO)
+			return data[offset + 5];
+		return data[offset + 7];
+	}
+
+	/**
+	 * Write a segment (or a portion of a segment) to a PathWriter.
+	 */
+	private void writeSegment(PathWriter path, int segmentIndex, float t0,
+			float t1) {
+		int type = types[segmentIndex];
+		int o = segmentIndex * STRIDE;
+		float[] d = data;
+		if (t0 == 0 && t1 == 1) {
+			if (type == PathIterator.SEG_LINETO) {
+				path.lineTo(d[o + 2], d[o + 3]);
+			} else if (type == PathIterator.SEG_QUADTO) {
+				path.quadTo(d[o + 2], d[o + 3], d[o + 4], d[o + 5]);
+			} else {
+				path.curveTo(d[o + 2], d[o + 3], d[o + 4], d[o + 5], d[o + 6],
+						d[o + 7]);
+			}
+			return;
+		} else if (t0 == 1 && t1 == 0) {
+			if (type == PathIterator.SEG_LINETO) {
+				path.lineTo(d[o], d[o + 1]);
+			} else if (type == PathIterator.SEG_QUADTO) {
+				path.quadTo(d[o + 2], d[o + 3], d[o], d[o + 1]);
+			} else {
+				path.curveTo(d[o + 4], d[o + 5], d[o + 2], d[o + 3], d[o],
+						d[o + 1]);
+			}
+			return;
+		}
+		if (type == PathIterator.SEG_LINETO) {
+			path.lineTo(getX(segmentIndex, t1), getY(segmentIndex, t1));
+		} else if (type == PathIterator.SEG_QUADTO) {
+			float ax = d[o] - 2 * d[o + 2] + d[o + 4];
+			float bx = -2 * d[o] + 2 * d[o + 2];
+			float cx = d[o];
+			float ay = d[o + 1] - 2 * d[o + 3] + d[o + 5];
+			float by = -2 * d[o + 1] + 2 * d[o + 3];
+			float cy = d[o + 1];
+
+			PathWriter.quadTo(path, t0, t1, ax, bx, cx, ay, by, cy);
+		} else {
+			float ax = -d[o] + 3 * d[o + 2] - 3 * d[o + 4] + d[o + 6];
+			float bx = 3 * d[o] - 6 * d[o + 2] + 3 * d[o + 4];
+			float cx = -3 * d[o] + 3 * d[o + 2];
+			float dx = d[o];
+			float ay = -d[o + 1] + 3 * d[o + 3] - 3 * d[o + 5] + d[o + 7];
+			float by = 3 * d[o + 1] - 6 * d[o + 3] + 3 * d[o + 5];
+			float cy = -3 * d[o + 1] + 3 * d[o + 3];
+			float dy = d[o + 1];
+			PathWriter.cubicTo(path, t0, t1, ax, bx, cx, dx, ay, by, cy, dy);
+		}
+	}
+
+	private float getTangentSlope(int segmentIndex, float t) {
+		int type = types[segmentIndex];
+		int o = segmentIndex * STRIDE;
+		float[] d = data;
+		if (type == PathIterator.SEG_LINETO) {
+			float ax = d[o + 2] - d[o];
+			float ay = d[o + 3] - d[o + 1];
+			return (float) Math.atan2(ay, ax);
+		} else if (type == PathIterator.SEG_QUADTO) {
+			float ax = d[o] - 2 * d[o + 2] + d[o + 4];
+			float bx = -2 * d[o] + 2 * d[o + 2];
+			float ay = d[o + 1] - 2 * d[o + 3] + d[o + 5];
+			float by = -2 * d[o + 1] + 2 * d[o + 3];
+			return (float) Math.atan2(2 * ay * t + by, 2 * ax * t + bx);
+		}
+		float ax = -d[o] + 3 * d[o + 2] - 3 * d[o + 4] + d[o + 6];
+		float bx = 3 * d[o] - 6 * d[o + 2] + 3 * d[o + 4];
+		float cx = -3 * d[o] + 3 * d[o + 2];
+		float ay = -d[o + 1] + 3 * d[o + 3] - 3 * d[o + 5] + d[o + 7];
+		float by = 3 * d[o + 1] - 6 * d[o + 3] + 3 * d[o + 5];
+		float cy = -3 * d[o + 1] + 3 * d[o + 3];
+		return (float) Math.atan2(3 * ay * t * t + 2 * by * t + cy, 3 * ax
+				* t * t + 2 * bx * t + cx);
+	}
+
+	private float getX(int segmentIndex, float t) {
+		int type = types[segmentIndex];
+		int o = segmentIndex * STRIDE;
+		float[] d = data;
+		if (type == PathIterator.SEG_LINETO) {
+			float ax = d[o + 2] - d[o];
+			return ax * t + d[o];
+		} else if (type == PathIterator.SEG_QUADTO) {
+			float ax = d[o] - 2 * d[o + 2] + d[o + 4];
+			float bx = -2 * d[o] + 2 * d[o + 2];
+			float cx = d[o];
+			return (ax * t + bx) * t + cx;
+		}
+		float ax = -d[o] + 3 * d[o + 2] - 3 * d[o + 4] + d[o + 6];
+		float bx = 3 * d[o] - 6 * d[o + 2] + 3 * d[o + 4];
+		float cx = -3 * d[o] + 3 * d[o + 2];
+		float dx = d[o];
+		return ((ax * t + bx) * t + cx) * t + dx;
+	}
+
+	private float getY(int segmentIndex, float t) {
+		int type = types[segmentIndex];
+		int o = segmentIndex * STRIDE;
+		float[] d = data;
+		if (type == PathIterator.SEG_LINETO) {
+			float ay = d[o + 3] - d[o + 1];
+			return ay * t + d[o + 1];
+		} else if (type == PathIterator.SEG_QUADTO) {
+			float ay = d[o + 1] - 2 * d[o + 3] + d[o + 5];
+			float by = -2 * d[o + 1] + 2 * d[o + 3];
+			float cy = d[o + 1];
+			return (ay * t + by) * t + cy;
 		}
+		float ay = -d[o + 1] + 3 * d[o + 3] - 3 * d[o + 5] + d[o + 7];
+		float by = 3 * d[o + 1] - 6 * d[o + 3] + 3 * d[o + 5];
+		float cy = -3 * d[o + 1] + 3 * d[o + 3];
+		float dy = d[o + 1];
+		return ((ay * t + by) * t + cy) * t + dy;
 	}
 
 	/**
@@ -462,9 +539,9 @@ public class MeasuredShape implements Serializable {
 	 *            the destination to write to
 	 */
 	public void writeShape(PathWriter w) {
-		w.moveTo(segments[0].getX(0), segments[0].getY(0));
-		for (int a = 0; a < segments.length; a++) {
-			segments[a].write(w, 0, 1);
+		w.moveTo(data[0], data[1]);
+		for (int a = 0; a < segmentCount; a++) {
+			writeSegment(w, a, 0, 1);
 		}
 		w.closePath();
 	}
@@ -500,10 +577,9 @@ public class MeasuredShape implements Serializable {
 	 *            the destination to write to
 	 */
 	public void writeShapeBackwards(PathWriter w) {
-		w.moveTo(segments[segments.length - 1].getX(1),
-				segments[segments.length - 1].getY(1));
-		for (int a = segments.length - 1; a >= 0; a--) {
-			segments[a].write(w, 1, 0);
+		w.moveTo(getEndX(segmentCount - 1), getEndY(segmentCount - 1));
+		for (int a = segmentCount - 1; a >= 0; a--) {
+			writeSegment(w, a, 1, 0);
 		}
 		w.closePath();
 	}
@@ -517,8 +593,7 @@ public class MeasuredShape implements Serializable {
 	 * @return the x-value of where this path begins.
 	 */
 	public float getMoveToX() {
-		Segment s = segments[0];
-		return s.getX(0);
+		return data[0];
 	}
 
 	/**
@@ -530,8 +605,7 @@ public class MeasuredShape implements Serializable {
 	 * @return the y-value of where this path begins.
 	 */
 	public float getMoveToY() {
-		Segment s = segments[0];
-		return s.getY(0);
+		return data[1];
 	}
 
 	/**
@@ -579,41 +653,44 @@ public class MeasuredShape implements Serializable {
 			return;
 		}
 
-		Position i1 = getIndexOfPosition(position);
-		Position i2 = getIndexOfPosition(position + length);
+		float d1 = getDistanceOfPosition(position);
+		float d2 = getDistanceOfPosition(position + length);
+		int i1 = getSegmentIndex(d1, position);
+		int i2 = getSegmentIndex(d2, position + length);
+		float inner1 = (d1 - lengths[i1]) / getLength(i1);
+		float inner2 = (d2 - lengths[i2]) / getLength(i2);
 
 		if (includeMoveTo) {
-			w.moveTo(segments[i1.i].getX(i1.innerPosition),
-					segments[i1.i].getY(i1.innerPosition));
+			w.moveTo(getX(i1, inner1), getY(i1, inner1));
 		}
-		if (i1.i == i2.i
-				&& ((length > 0 && i2.innerPosition > i1.innerPosition) || (length < 0 && i2.innerPosition < i1.innerPosition))) {
-			segments[i1.i].write(w, i1.innerPosition, i2.innerPosition);
+		if (i1 == i2
+				&& ((length > 0 && inner2 > inner1) || (length < 0 && inner2 < inner1))) {
+			writeSegment(w, i1, inner1, inner2);
 		} else {
 			if (length > 0) {
-				segments[i1.i].write(w, i1.innerPosition, 1);
-				int i = i1.i + 1;
-				if (i >= segments.length)
+				writeSegment(w, i1, inner1, 1);
+				int i = i1 + 1;
+				if (i >= segmentCount)
 					i = 0;
-				while (i != i2.i) {
-					segments[i].write(w, 0, 1);
+				while (i != i2) {
+					writeSegment(w, i, 0, 1);
 					i++;
-					if (i >= segments.length)
+					if (i >= segmentCount)
 						i = 0;
 				}
-				segments[i2.i].write(w, 0, i2.innerPosition);
+				writeSegment(w, i2, 0, inner2);
 			} else {
-				segments[i1.i].write(w, i1.innerPosition, 0);
-				int i = i1.i - 1;
+				writeSegment(w, i1, inner1, 0);
+				int i = i1 - 1;
 				if (i < 0)
-					i = segments.length - 1;
-				while (i != i2.i) {
-					segments[i].write(w, 1, 0);
+					i = segmentCount - 1;
+				while (i != i2) {
+					writeSegment(w, i, 1, 0);
 					i--;
 					if (i < 0)
-						i = segments.length - 1;
+						i = segmentCount - 1;
 				}
-				segments[i2.i].write(w, 1, i2.innerPosition);
+				writeSegment(w, i2, 1, inner2);
 			}
 		}
 
@@ -632,34 +709,17 @@ public class MeasuredShape implements Serializable {
 	 *         non-null.
 	 */
 	public Point2D getPoint(float distance, Point2D dest) {
-		if (distance < 0)
-			throw new IllegalArgumentException("distance (" + distance
-					+ ") must not be negative");
-		if (distance > closedDistance)
-			throw new IllegalArgumentException(
-					"distance ("
-							+ distance
-							+ ") must not be greater than the total distance of this shape ("
-							+ closedDistance + ")");
+		validateDistance(distance);
 		if (dest == null)
 			dest = new Point2D.Float();
-		for (int a = 0; a < segments.length; a++) {
-			float t = distance / segments[a].realDistance;
-			if (t >= 1) {
-				distance = distance - segments[a].realDistance;
-			} else {
-				dest.setLocation(segments[a].getX(t), segments[a].getY(t));
-				return dest;
-			}
+		int i = findSegment(distance);
+		if (i == segmentCount) {
+			// a fluke case, where we're basically at the end of the shape
+			dest.setLocation(data[0], data[1]);
+		} else {
+			float t = (distance - lengths[i]) / getLength(i);
+			dest.setLocation(getX(i, t), getY(i, t));
 		}
-		dest.setLocation(segments[0].getX(0), segments[0].getY(0)); // a fluke
-																	// case,
-																	// where
-																	// we're
-																	// basically
-																	// at the
-																	// end of
-																	// the shape
 		return dest;
 	}
 
@@ -674,6 +734,17 @@ public class MeasuredShape implements Serializable {
 	 * @return the tangent slope (in radians) at a specific position
 	 */
 	public float getTangentSlope(float distance) {
+		validateDistance(distance);
+		int i = findSegment(distance);
+		if (i == segmentCount) {
+			// a fluke case, where we're basically at the end of the shape
+			return getTangentSlope(0, 0);
+		}
+		float t = (distance - lengths[i]) / getLength(i);
+		return getTangentSlope(i, t);
+	}
+
+	private void validateDistance(float distance) {
 		if (distance < 0)
 			throw new IllegalArgumentException("distance (" + distance
 					+ ") must not be negative");
@@ -683,17 +754,27 @@ public class MeasuredShape implements Serializable {
 							+ distance
 							+ ") must not be greater than the total distance of this shape ("
 							+ closedDistance + ")");
-		for (int a = 0; a < segments.length; a++) {
-			float t = distance / segments[a].realDistance;
-			if (t >= 1) {
-				distance = distance - segments[a].realDistance;
+	}
+
+	/**
+	 * Return the index of the segment that contains a distance, where the
+	 * beginning of a segment is inclusive and the end is exclusive. This
+	 * returns <code>segmentCount</code> if the distance is at (or past) the
+	 * end of this shape.
+	 */
+	private int findSegment(float distance) {
+		// find the last index where lengths[index] <= distance
+		int low = 0;
+		int high = segmentCount;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (lengths[mid] <= distance) {
+				low = mid;
 			} else {
-				return segments[a].getTangentSlope(t);
+				high = mid - 1;
 			}
 		}
-		return segments[0].getTangentSlope(0); // a fluke case, where we're
-												// basically at the end of the
-												// shape
+		return low;
 	}
 
 	private static boolean equal(float f1, float f2) {
@@ -712,27 +793,15 @@ public class MeasuredShape implements Serializable {
 	 */
 	public float getCommonDistance(MeasuredShape s) {
 		float distance = 0;
-		int m = Math.min(segments.length, s.segments.length);
+		int m = Math.min(segmentCount, s.segmentCount);
 		for (int a = 0; a < m; a++) {
-			if (segments[a].type != PathIterator.SEG_MOVETO
-					&& s.segments[a].type != PathIterator.SEG_MOVETO) {
-				if (equal(segments[a].data[0], s.segments[a].data[0])
-						&& equal(segments[a].data[1], s.segments[a].data[1])
-						&& equal(
-								segments[a].data[segments[a].data.length - 2],
-								s.segments[a].data[s.segments[a].data.length - 2])
-						&& equal(
-								segments[a].data[segments[a].data.length - 1],
-								s.segments[a].data[s.segments[a].data.length - 1])
-						&& equal(segments[a].realDistance,
-								s.segments[a].realDistance)) {
-					distance += segments[a].realDistance;
-				} else {
-					return distance;
-				}
-			} else if (segments[a].type == PathIterator.SEG_MOVETO
-					&& s.segments[a].type == PathIterator.SEG_MOVETO) {
-				// skip
+			float length = getLength(a);
+			if (equal(data[a * STRIDE], s.data[a * STRIDE])
+					&& equal(data[a * STRIDE + 1], s.data[a * STRIDE + 1])
+					&& equal(getEndX(a), s.getEndX(a))
+					&& equal(getEndY(a), s.getEndY(a))
+					&& equal(length, s.getLength(a))) {
+				distance += length;
 			} else {
 				return distance;
 			}
@@ -758,41 +827,47 @@ public class MeasuredShape implements Serializable {
 		return dest;
 	}
 
-	static class Position {
-		int i;
-		float innerPosition;
-
-		public Position(int segmentIndex, float p) {
-			this.i = segmentIndex;
-			this.innerPosition = p;
-		}
-
-		@Override
-		public String toString() {
-			return "Position[ i=" + i + " t=" + innerPosition + "]";
-		}
-	}
-
-	private Position getIndexOfPosition(float p) {
+	/**
+	 * Convert a fraction of the closed distance into a distance, wrapping it
+	 * into the range [0, 1).
+	 */
+	private float getDistanceOfPosition(float p) {
 		while (p < 0)
 			p += 1;
 		while (p > 1)
 			p -= 1;
 		if (p > .99999f)
 			p = 0;
+		return p * closedDistance;
+	}
 
-		int i = 0;
-		float original = p;
-		while (i < segments.length) {
-			if (p <= segments[i].normalizedDistance
-					&& segments[i].normalizedDistance != 0) {
-				return new Position(i, p / segments[i].normalizedDistance);
+	/**
+	 * Return the first segment with a nonzero length that ends at or after a
+	 * distance.
+	 * 
+	 * @param distance
+	 *            a distance returned by {@link #getDistanceOfPosition(float)}.
+	 * @param position
+	 *            the original position, used for error reporting.
+	 */
+	private int getSegmentIndex(float distance, float position) {
+		// find the first index where lengths[index + 1] >= distance
+		int low = 0;
+		int high = segmentCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (lengths[mid + 1] >= distance) {
+				high = mid;
+			} else {
+				low = mid + 1;
 			}
-			p -= segments[i].normalizedDistance;
-			i++;
 		}
-		System.err.println("p = " + p);
-		throw new RuntimeException("the position " + original
-				+ " could not be found.");
+		while (low < segmentCount && !(getLength(low) > 0)) {
+			low++;
+		}
+		if (low == segmentCount)
+			throw new RuntimeException("the position " + position
+					+ " could not be found.");
+		return low;
 	}
-}
\ No newline at end of file
+}
@@ -1,10 +1,10 @@
 /**
  * This software is released as part of the Pumpernickel project.
- * 
+ *
  * All com.pump resources in the Pumpernickel project are distributed under the
  * MIT License:
  * https://github.com/mickleness/pumpernickel/raw/master/License.txt
- * 
+ *
  * More information about the Pumpernickel project is available here:
  * https://mickleness.github.io/pumpernickel/
  */
@@ -13,10 +13,7 @@ package com.pump.geom;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.PathIterator;
-import java.lang.ref.WeakReference;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A shape that lets you modify individual segments.
@@ -31,12 +28,34 @@ import java.util.List;
  * of the thorough verification that happens as you manipulate this object:
  * subclasses shouldn't let you position anything other than a SEG_MOVETO after
  * a SEG_CLOSE, for example.
+ * <P>
+ * Segments are stored in primitive arrays: one <code>byte</code> for the type
+ * of each segment and 6 <code>doubles</code> for its coordinates. The
+ * <code>PathIterators</code> this object returns share these arrays; if this
+ * path is modified while an iterator is in use then this path copies its
+ * arrays first (copy-on-write), so iterators never need to lock or copy
+ * anything.
  */
 public class MutablePath extends AbstractShape {
 
-	private List<List<MutablePathSegment>> paths = new ArrayList<>();
+	private static final int STRIDE = PathArrayIterator.STRIDE;
+
+	private byte[] types = new byte[16];
+	private double[] coords = new double[16 * STRIDE];
+	private int segmentCount = 0;
+
+	/**
+	 * The index of the SEG_MOVETO that starts each path.
+	 */
+	private int[] pathStarts = new int[4];
+	private int pathCount = 0;
+
+	/**
+	 * This is true if an iterator may be reading the current arrays.
+	 */
+	private boolean shared = false;
+
 	int windingRule = PathIterator.WIND_NON_ZERO;
-	private List<WeakReference<MutablePathIterator>> iterators = new ArrayList<>();
 
 	public MutablePath(Shape s) {
 		append(s);
@@ -52,51 +71,65 @@ public class MutablePath extends AbstractShape {
 		windingRule = newRule;
 	}
 
+	/**
+	 * Return the type of the last segment in a path.
+	 */
+	protected synchronized int getTailType(int pathIndex) {
+		return types[getPathEnd(pathIndex) - 1];
+	}
+
+	/**
+	 * Return a copy of the last segment in a path, or null if this path is
+	 * empty.
+	 *
+	 * @deprecated this allocates a new segment on every call; use
+	 *             {@link #getTailType(int)} or
+	 *             {@link #getSegment(int, int, double[])} instead.
+	 */
+	@Deprecated
 	protected synchronized MutablePathSegment peek(int pathIndex) {
-		if (paths.size() == 0)
+		if (pathCount == 0)
 			return null;
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		return segments.get(segments.size() - 1);
+		int index = getPathEnd(pathIndex) - 1;
+		int type = types[index];
+		double[] data = Arrays.copyOfRange(coords, index * STRIDE, index
+				* STRIDE + PathArrayIterator.getCoordinateCount(type));
+		return new MutablePathSegment(type, data);
 	}
 
 	public synchronized void close() {
-		int i = paths.size();
+		int i = pathCount;
 		if (i == 0)
 			throw new RuntimeException(
 					"all paths must begin with a moveTo statement");
-		close(paths.size() - 1);
+		close(pathCount - 1);
 	}
 
 	public synchronized void close(int pathIndex) {
-		releaseIterators();
-
-		MutablePathSegment tail = peek(pathIndex);
-		if (tail.type == PathIterator.SEG_CLOSE) {
+		if (getTailType(pathIndex) == PathIterator.SEG_CLOSE) {
 			throw new RuntimeException(
 					"all paths must begin with a moveTo statement.  Two close instructions cannot be adjacent.");
 		}
-
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		segments.add(new MutablePathSegment());
+		insert(pathIndex, PathIterator.SEG_CLOSE, 0, 0, 0, 0, 0, 0);
 	}
 
 	/**
-	 * 
+	 *
 	 * @param x
 	 * @param y
 	 * @return the index of this new path
 	 */
 	public synchronized int moveTo(double x, double y) {
-		releaseIterators();
-
-		List<MutablePathSegment> newSegments = new ArrayList<MutablePathSegment>();
-		newSegments.add(new MutablePathSegment(PathIterator.SEG_MOVETO, x, y));
-		paths.add(newSegments);
-		return paths.size() - 1;
+		ensureSegmentCapacity(segmentCount + 1);
+		if (pathCount == pathStarts.length)
+			pathStarts = copyOf(pathStarts, pathCount * 2);
+		pathStarts[pathCount++] = segmentCount;
+		setRaw(segmentCount++, PathIterator.SEG_MOVETO, x, y, 0, 0, 0, 0);
+		return pathCount - 1;
 	}
 
 	public synchronized void lineTo(double x, double y) {
-		int i = paths.size() - 1;
+		int i = pathCount - 1;
 		if (i < 0)
 			throw new RuntimeException(
 					"all paths must begin with a moveTo statement");
@@ -104,18 +137,14 @@ public class MutablePath extends AbstractShape {
 	}
 
 	public synchronized void lineTo(int pathIndex, double x, double y) {
-		releaseIterators();
-
-		MutablePathSegment tail = peek(pathIndex);
-		if (tail.type == PathIterator.SEG_CLOSE)
+		if (getTailType(pathIndex) == PathIterator.SEG_CLOSE)
 			throw new RuntimeException(
 					"all paths must begin with a moveTo statement");
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		segments.add(new MutablePathSegment(PathIterator.SEG_LINETO, x, y));
+		insert(pathIndex, PathIterator.SEG_LINETO, x, y, 0, 0, 0, 0);
 	}
 
 	public synchronized void quadTo(double cx, double cy, double x, double y) {
-		int i = paths.size() - 1;
+		int i = pathCount - 1;
 		if (i < 0)
 			throw new RuntimeException(
 					"all paths must begin with a moveTo statement");
@@ -124,19 +153,15 @@ public class MutablePath extends AbstractShape {
 
 	public synchronized void quadTo(int pathIndex, double cx, double cy,
 			double x, double y) {
-		releaseIterators();
-
-		MutablePathSegment tail = peek(pathIndex);
-		if (tail.type == PathIterator.SEG_CLOSE)
+		if (getTailType(pathIndex) == PathIterator.SEG_CLOSE)
 			throw new RuntimeException(
 					"all paths must begin with a moveTo statement");
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		segments.add(new MutablePathSegment(cx, cy, x, y));
+		insert(pathIndex, PathIterator.SEG_QUADTO, cx, cy, x, y, 0, 0);
 	}
 
 	public synchronized void curveTo(double cx0, double cy0, double cx1,
 			double cy1, double x, double y) {
-		int i = paths.size() - 1;
+		int i = pathCount - 1;
 		if (i < 0)
 			throw new RuntimeException(
 					"all paths must begin with a moveTo statement");
@@ -145,40 +170,41 @@ public class MutablePath extends AbstractShape {
 
 	public synchronized void curveTo(int pathIndex, double cx0, double cy0,
 			double cx1, double cy1, double x, double y) {
-		releaseIterators();
-
-		MutablePathSegment tail = peek(pathIndex);
-		if (tail.type == PathIterator.SEG_CLOSE)
+		if (getTailType(pathIndex) == PathIterator.SEG_CLOSE)
 			throw new RuntimeException(
 					"all paths must begin with a moveTo statement");
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		segments.add(new MutablePathSegment(cx0, cy0, cx1, cy1, x, y));
+		insert(pathIndex, PathIterator.SEG_CUBICTO, cx0, cy0, cx1, cy1, x, y);
 	}
 
 	public synchronized void delete(int pathIndex, int segmentIndex) {
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		if (segmentIndex == 0 && segments.size() > 1) {
-			MutablePathSegment newHead = segments.get(1);
-			if (newHead.type == PathIterator.SEG_CLOSE) {
-				segments.remove(1);
-			} else if (newHead.type == PathIterator.SEG_LINETO) {
-				newHead.setData(PathIterator.SEG_MOVETO, newHead.data);
-			} else if (newHead.type == PathIterator.SEG_QUADTO) {
-				newHead.setData(PathIterator.SEG_MOVETO, new double[] {
-						newHead.data[2], newHead.data[3] });
-			} else if (newHead.type == PathIterator.SEG_CUBICTO) {
-				newHead.setData(PathIterator.SEG_MOVETO, new double[] {
-						newHead.data[4], newHead.data[5] });
+		int start = getPathStart(pathIndex);
+		int size = getPathEnd(pathIndex) - start;
+		if (segmentIndex < 0 || segmentIndex >= size)
+			throw new IndexOutOfBoundsException("segmentIndex = "
+					+ segmentIndex + ", size = " + size);
+		releaseIterators();
+		if (segmentIndex == 0 && size > 1) {
+			int newHead = start + 1;
+			int newHeadType = types[newHead];
+			if (newHeadType == PathIterator.SEG_CLOSE) {
+				removeRaw(newHead);
+				shiftPathStarts(pathIndex + 1, -1);
+				size--;
 			} else {
-				throw new RuntimeException("unexpected segment type: "
-						+ newHead.type);
+				int k = PathArrayIterator.getCoordinateCount(newHeadType);
+				int i = newHead * STRIDE;
+				setRaw(newHead, PathIterator.SEG_MOVETO, coords[i + k - 2],
+						coords[i + k - 1], 0, 0, 0, 0);
 			}
 		}
-		segments.remove(segmentIndex);
+		removeRaw(start + segmentIndex);
+		shiftPathStarts(pathIndex + 1, -1);
 
 		// housekeeping:
-		if (segments.size() == 0) {
-			paths.remove(pathIndex);
+		if (size == 1) {
+			System.arraycopy(pathStarts, pathIndex + 1, pathStarts, pathIndex,
+					pathCount - pathIndex - 1);
+			pathCount--;
 		}
 	}
 
@@ -210,111 +236,198 @@ public class MutablePath extends AbstractShape {
 		}
 	}
 
+	/**
+	 * Append several segments at once.
+	 *
+	 * @param segmentTypes
+	 *            the type of each segment.
+	 * @param segmentCoordinates
+	 *            the coordinates of every segment, packed together the same
+	 *            way <code>ShapeMapConverter</code> stores them: 2 values for
+	 *            every SEG_MOVETO or SEG_LINETO, 4 for every SEG_QUADTO, 6 for
+	 *            every SEG_CUBICTO and 0 for every SEG_CLOSE.
+	 * @param count
+	 *            the number of segments to append.
+	 */
+	public synchronized void append(byte[] segmentTypes,
+			double[] segmentCoordinates, int count) {
+		ensureSegmentCapacity(segmentCount + count);
+		int offset = 0;
+		for (int a = 0; a < count; a++) {
+			int type = segmentTypes[a];
+			int k = PathArrayIterator.getCoordinateCount(type);
+			double[] c = segmentCoordinates;
+			if (type == PathIterator.SEG_MOVETO) {
+				moveTo(c[offset], c[offset + 1]);
+			} else if (type == PathIterator.SEG_CLOSE) {
+				close();
+			} else {
+				if (pathCount == 0 || types[segmentCount - 1] == PathIterator.SEG_CLOSE)
+					throw new RuntimeException(
+							"all paths must begin with a moveTo statement");
+				setRaw(segmentCount++, type, c[offset], c[offset + 1],
+						k > 2 ? c[offset + 2] : 0, k > 2 ? c[offset + 3] : 0,
+						k > 4 ? c[offset + 4] : 0, k > 4 ? c[offset + 5] : 0);
+			}
+			offset += k;
+		}
+	}
+
+	/**
+	 * Replace a range of segments with new segments.
+	 * <p>
+	 * This is much faster than replacing segments one at a time, because the
+	 * segments after the replaced range are only shifted once.
+	 *
+	 * @param startIndex
+	 *            the index of the first segment to replace.
+	 * @param endIndex
+	 *            the index after the last segment to replace.
+	 * @param segmentTypes
+	 *            the type of each new segment.
+	 * @param segmentCoordinates
+	 *            the coordinates of the new segments, packed together as
+	 *            described in {@link #append(byte[], double[], int)}.
+	 * @param count
+	 *            the number of new segments.
+	 * @throws IllegalArgumentException
+	 *             if the resulting path does not begin with a SEG_MOVETO, or
+	 *             if anything except a SEG_MOVETO follows a SEG_CLOSE. In this
+	 *             case this path is not modified.
+	 */
+	public synchronized void replace(int startIndex, int endIndex,
+			byte[] segmentTypes, double[] segmentCoordinates, int count) {
+		if (startIndex < 0 || endIndex > segmentCount || startIndex > endIndex)
+			throw new IndexOutOfBoundsException("startIndex = " + startIndex
+					+ ", endIndex = " + endIndex + ", segment count = "
+					+ segmentCount);
+
+		int newCount = segmentCount - (endIndex - startIndex) + count;
+		byte[] newTypes = new byte[Math.max(16, newCount)];
+		double[] newCoords = new double[newTypes.length * STRIDE];
+		System.arraycopy(types, 0, newTypes, 0, startIndex);
+		System.arraycopy(coords, 0, newCoords, 0, startIndex * STRIDE);
+		int offset = 0;
+		for (int a = 0; a < count; a++) {
+			int type = segmentTypes[a];
+			int k = PathArrayIterator.getCoordinateCount(type);
+			newTypes[startIndex + a] = (byte) type;
+			System.arraycopy(segmentCoordinates, offset, newCoords,
+					(startIndex + a) * STRIDE, k);
+			offset += k;
+		}
+		System.arraycopy(types, endIndex, newTypes, startIndex + count,
+				segmentCount - endIndex);
+		System.arraycopy(coords, endIndex * STRIDE, newCoords,
+				(startIndex + count) * STRIDE, (segmentCount - endIndex)
+						* STRIDE);
+
+		// validate and rebuild the path table:
+		int[] newPathStarts = new int[Math.max(4, pathCount + count)];
+		int newPathCount = 0;
+		for (int a = 0; a < newCount; a++) {
+			if (newTypes[a] == PathIterator.SEG_MOVETO) {
+				if (newPathCount == newPathStarts.length)
+					newPathStarts = copyOf(newPathStarts, newPathCount * 2);
+				newPathStarts[newPathCount++] = a;
+			} else if (a == 0) {
+				throw new IllegalArgumentException(
+						"the first segment must be a MOVETO segment.");
+			} else if (newTypes[a - 1] == PathIterator.SEG_CLOSE) {
+				throw new IllegalArgumentException(
+						"only a MOVETO segment can follow a CLOSE segment");
+			}
+		}
+
+		// we made new arrays, so there's no need to release iterators
+		types = newTypes;
+		coords = newCoords;
+		segmentCount = newCount;
+		pathStarts = newPathStarts;
+		pathCount = newPathCount;
+		shared = false;
+	}
+
+	/**
+	 * If any iterators may be reading this path's data, then this replaces
+	 * the data with a copy so this path can be modified.
+	 */
 	protected synchronized void releaseIterators() {
-		while (iterators.size() > 0) {
-			WeakReference<MutablePathIterator> ref = iterators.remove(iterators
-					.size() - 1);
-			MutablePathIterator mpi = ref.get();
-			if (mpi != null)
-				mpi.release();
+		if (shared) {
+			types = copyOf(types, types.length);
+			coords = copyOf(coords, coords.length);
+			shared = false;
 		}
 	}
 
 	public synchronized int getPathCount() {
-		return paths.size();
+		return pathCount;
 	}
 
 	public synchronized int getSegmentCount(int pathIndex) {
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		return segments.size();
+		return getPathEnd(pathIndex) - getPathStart(pathIndex);
 	}
 
 	public synchronized int getSegmentCount() {
-		int sum = 0;
-		for (int a = 0; a < paths.size(); a++) {
-			List<MutablePathSegment> segments = paths.get(a);
-			sum += segments.size();
-		}
-		return sum;
+		return segmentCount;
 	}
 
 	public synchronized int getSegment(int pathIndex, int segmentIndex,
 			double[] coords) {
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		MutablePathSegment s = segments.get(segmentIndex);
-		for (int b = 0; b < s.data.length; b++) {
-			coords[b] = s.data[b];
-		}
-		return s.type;
+		return getSegment(getIndex(pathIndex, segmentIndex), coords);
 	}
 
 	public synchronized int getSegment(int pathIndex, int segmentIndex,
 			float[] coords) {
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		MutablePathSegment s = segments.get(segmentIndex);
-		for (int b = 0; b < s.data.length; b++) {
-			coords[b] = (float) s.data[b];
-		}
-		return s.type;
+		return getSegment(getIndex(pathIndex, segmentIndex), coords);
 	}
 
 	public synchronized int getSegment(int index, double[] coords) {
-		final int originalIndex = index;
-		for (int pathIndex = 0; pathIndex < paths.size(); pathIndex++) {
-			List<MutablePathSegment> segments = paths.get(pathIndex);
-			int segmentCount = segments.size();
-			if (index < segmentCount) {
-				return getSegment(pathIndex, index, coords);
-			}
-			index -= segmentCount;
-		}
-		throw new IllegalArgumentException("no segment available at index "
-				+ originalIndex);
+		checkIndex(index);
+		int type = types[index];
+		System.arraycopy(this.coords, index * STRIDE, coords, 0,
+				PathArrayIterator.getCoordinateCount(type));
+		return type;
 	}
 
 	public synchronized int getSegmentType(int pathIndex, int segmentIndex) {
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		MutablePathSegment s = segments.get(segmentIndex);
-		return s.type;
+		return types[getIndex(pathIndex, segmentIndex)];
 	}
 
 	public synchronized int getSegmentType(int index) {
-		final int originalIndex = index;
-		for (int pathIndex = 0; pathIndex < paths.size(); pathIndex++) {
-			List<MutablePathSegment> segments = paths.get(pathIndex);
-			int segmentCount = segments.size();
-			if (index < segmentCount) {
-				return getSegmentType(pathIndex, index);
-			}
-			index -= segmentCount;
-		}
-		throw new IllegalArgumentException("no segment available at index "
-				+ originalIndex);
+		checkIndex(index);
+		return types[index];
 	}
 
 	public synchronized int getSegment(int index, float[] coords) {
-		final int originalIndex = index;
-		for (int pathIndex = 0; pathIndex < paths.size(); pathIndex++) {
-			List<MutablePathSegment> segments = paths.get(pathIndex);
-			int segmentCount = segments.size();
-			if (index < segmentCount) {
-				return getSegment(pathIndex, index, coords);
-			}
-			index -= segmentCount;
+		checkIndex(index);
+		int type = types[index];
+		int k = PathArrayIterator.getCoordinateCount(type);
+		for (int a = 0; a < k; a++) {
+			coords[a] = (float) this.coords[index * STRIDE + a];
 		}
-		throw new IllegalArgumentException("no segment available at index "
-				+ originalIndex);
+		return type;
 	}
 
 	public synchronized boolean setSegment(int pathIndex, int segmentIndex,
 			int type, double[] coords) {
-		List<MutablePathSegment> segments = paths.get(pathIndex);
-		MutablePathSegment s = segments.get(segmentIndex);
-		if (s.equals(type, coords))
-			return false;
+		int index = getIndex(pathIndex, segmentIndex);
+		int k = PathArrayIterator.getCoordinateCount(type);
+		if (coords.length < k)
+			throw new IllegalArgumentException("segment type " + type
+					+ " requires " + k + " coordinates");
+		int oldType = types[index];
+		if (oldType == type) {
+			boolean equal = true;
+			for (int a = 0; a < k && equal; a++) {
+				if (this.coords[index * STRIDE + a] != coords[a])
+					equal = false;
+			}
+			if (equal)
+				return false;
+		}
 
 		releaseIterators();
-		int oldType = s.type;
 		if (oldType == PathIterator.SEG_MOVETO
 				&& type != PathIterator.SEG_MOVETO) {
 			// this used to mark the start of a new list of segments,
@@ -323,34 +436,33 @@ public class MutablePath extends AbstractShape {
 				throw new IllegalArgumentException(
 						"the first segment must be a MOVETO segment.");
 			} else {
-				List<MutablePathSegment> previousSegments = paths
-						.get(pathIndex - 1);
-				MutablePathSegment tail = previousSegments.get(previousSegments
-						.size() - 1);
-				if (tail.type == PathIterator.SEG_CLOSE) {
+				if (types[index - 1] == PathIterator.SEG_CLOSE) {
 					throw new IllegalArgumentException(
 							"only a MOVETO segment can follow a CLOSE segment");
 				}
-				previousSegments.addAll(segments);
-				paths.remove(pathIndex);
+				System.arraycopy(pathStarts, pathIndex + 1, pathStarts,
+						pathIndex, pathCount - pathIndex - 1);
+				pathCount--;
 			}
 		} else if (oldType != PathIterator.SEG_MOVETO
 				&& type == PathIterator.SEG_MOVETO) {
-			// this used to be a regular segment, but not it needs to mark the
-			// beginning
-			// of a new list of segments:
-			List<MutablePathSegment> newSegments = new ArrayList<MutablePathSegment>();
-			for (int b = segmentIndex; b < segments.size(); b++) {
-				newSegments.add(segments.remove(segmentIndex));
-			}
-			paths.add(pathIndex, newSegments);
+			// this used to be a regular segment, but now it needs to mark the
+			// beginning of a new list of segments:
+			if (pathCount == pathStarts.length)
+				pathStarts = copyOf(pathStarts, pathCount * 2);
+			System.arraycopy(pathStarts, pathIndex + 1, pathStarts,
+					pathIndex + 2, pathCount - pathIndex - 1);
+			pathStarts[pathIndex + 1] = index;
+			pathCount++;
 		} else if (oldType != PathIterator.SEG_CLOSE
 				&& type == PathIterator.SEG_CLOSE) {
-			if (segmentIndex != segments.size() - 1)
+			if (index != getPathEnd(pathIndex) - 1)
 				throw new IllegalArgumentException(
 						"only a MOVETO segment can follow a CLOSE segment");
 		}
-		s.setData(type, coords);
+		setRaw(index, type, k > 0 ? coords[0] : 0, k > 0 ? coords[1] : 0,
+				k > 2 ? coords[2] : 0, k > 2 ? coords[3] : 0,
+				k > 4 ? coords[4] : 0, k > 4 ? coords[5] : 0);
 		return true;
 	}
 
@@ -358,30 +470,23 @@ public class MutablePath extends AbstractShape {
 	 * Redefine a segment. This lets you do anything without an exception: you
 	 * could technically make a path begin a SEG_CLOSE, or place ten SEG_MOVETOs
 	 * next to each other.
-	 * 
+	 *
 	 * @param index
 	 * @param type
 	 * @param coords
 	 */
 	public synchronized boolean setSegment(int index, int type, double[] coords) {
-		final int originalIndex = index;
-		for (int pathIndex = 0; pathIndex < paths.size(); pathIndex++) {
-			List<MutablePathSegment> segments = paths.get(pathIndex);
-			int segmentCount = segments.size();
-			if (index < segmentCount) {
-				setSegment(pathIndex, index, type, coords);
-			}
-			index -= segmentCount;
-		}
-		throw new IllegalArgumentException("no segment available at index "
-				+ originalIndex);
+		checkIndex(index);
+		int pathIndex = getPathIndex(index);
+		return setSegment(pathIndex, index - pathStarts[pathIndex], type,
+				coords);
 	}
 
 	/**
 	 * Redefine a segment. This lets you do anything without an exception: you
 	 * could technically make a path begin a SEG_CLOSE, or place ten SEG_MOVETOs
 	 * next to each other.
-	 * 
+	 *
 	 * @param index
 	 * @param type
 	 * @param coords
@@ -396,12 +501,7 @@ public class MutablePath extends AbstractShape {
 	}
 
 	public synchronized boolean isEmpty() {
-		for (int a = 0; a < paths.size(); a++) {
-			List<MutablePathSegment> segments = paths.get(a);
-			if (segments.size() > 0)
-				return false;
-		}
-		return true;
+		return segmentCount == 0;
 	}
 
 	public synchronized void transform(AffineTransform transform) {
@@ -410,18 +510,20 @@ public class MutablePath extends AbstractShape {
 
 		releaseIterators();
 
-		for (int a = 0; a < paths.size(); a++) {
-			List<MutablePathSegment> segments = paths.get(a);
-			for (int b = 0; b < segments.size(); b++) {
-				MutablePathSegment s = segments.get(b);
-				transform.transform(s.data, 0, s.data, 0, s.data.length / 2);
-			}
+		for (int a = 0; a < segmentCount; a++) {
+			int k = PathArrayIterator.getCoordinateCount(types[a]);
+			transform.transform(coords, a * STRIDE, coords, a * STRIDE, k / 2);
 		}
 	}
 
 	public synchronized void reset() {
-		releaseIterators();
-		paths.clear();
+		if (shared) {
+			types = new byte[16];
+			coords = new double[16 * STRIDE];
+			shared = false;
+		}
+		segmentCount = 0;
+		pathCount = 0;
 	}
 
 	@Override
@@ -430,281 +532,130 @@ public class MutablePath extends AbstractShape {
 	}
 
 	public synchronized PathIterator getPathIterator(AffineTransform at) {
-		MutablePathIterator i = new MutablePathIterator(paths, windingRule, at,
-				this);
-		iterators.add(new WeakReference<MutablePathIterator>(i));
-		return i;
-	}
-}
-
-class MutablePathSegment {
-	private static final double[] EMPTY_ARRAY = new double[0];
-
-	private static boolean equals(double[] array1, double[] array2) {
-		if (array1 == null && array2 == null)
-			return true;
-		if (array1 == null || array2 == null)
-			return false;
-		if (array1.length != array2.length)
-			return false;
-		for (int a = 0; a < array1.length; a++) {
-			if (array1[a] != array2[a])
-				return false;
-		}
-		return true;
-	}
-
-	private static String toString(double[] array) {
-		StringBuffer sb = new StringBuffer(array.length * 8);
-		sb.append("[ ");
-		for (int a = 0; a < array.length; a++) {
-			if (a != 0) {
-				sb.append(", ");
-			}
-			sb.append(Double.toString(array[a]));
-		}
-		sb.append(" ]");
-		return sb.toString();
-	}
-
-	double[] data;
-	int type;
-
-	public MutablePathSegment() {
-		setData(PathIterator.SEG_CLOSE, EMPTY_ARRAY);
-	}
-
-	public boolean equals(int type, double[] data) {
-		if (this.type != type)
-			return false;
-		for (int a = 0; a < this.data.length; a++) {
-			if (data[a] != this.data[a])
-				return false;
-		}
-		return true;
+		shared = true;
+		return new PathArrayIterator(types, coords, segmentCount, windingRule,
+				at);
 	}
 
-	@Override
-	public boolean equals(Object obj) {
-		if (!(obj instanceof MutablePathSegment))
-			return false;
-		MutablePathSegment s = (MutablePathSegment) obj;
-		return equals(s.type, s.data);
-	}
-
-	@Override
-	public Object clone() {
-		return cloneSegment();
-	}
-
-	public MutablePathSegment cloneSegment() {
-		double[] array = new double[data.length];
-		System.arraycopy(data, 0, array, 0, data.length);
-		return new MutablePathSegment(type, data);
-	}
-
-	public boolean setData(int type, double[] data) {
-		if (!(type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_CLOSE
-				|| type == PathIterator.SEG_CUBICTO
-				|| type == PathIterator.SEG_LINETO || type == PathIterator.SEG_QUADTO)) {
+	private void checkIndex(int index) {
+		if (index < 0 || index >= segmentCount)
 			throw new IllegalArgumentException(
-					"type must be SEG_MOVETO, SEG_CLOSE, SEG_CUBICTO, SEG_LINETO or SEG_QUADTO");
-		}
-		if (this.type == type && equals(this.data, data)) {
-			return false;
-		}
-		this.type = type;
-		this.data = data;
-
-		if (type == PathIterator.SEG_CLOSE) {
-			if (data.length > 0)
-				throw new IllegalArgumentException(
-						"close segments cannot have data (" + toString(data)
-								+ ")");
-		} else if (type == PathIterator.SEG_MOVETO) {
-			if (data.length < 2)
-				throw new IllegalArgumentException(
-						"moveTo segments must have 2 coordinates ("
-								+ toString(data) + ")");
-		} else if (type == PathIterator.SEG_LINETO) {
-			if (data.length < 2)
-				throw new IllegalArgumentException(
-						"lineTo segments must have 2 coordinates ("
-								+ toString(data) + ")");
-		} else if (type == PathIterator.SEG_QUADTO) {
-			if (data.length < 4)
-				throw new IllegalArgumentException(
-						"quadTo segments must have 4 coordinates ("
-								+ toString(data) + ")");
-		} else if (type == PathIterator.SEG_CUBICTO) {
-			if (data.length < 6)
-				throw new IllegalArgumentException(
-						"cubicTo segments must have 6 coordinates ("
-								+ toString(data) + ")");
-		}
-		return true;
+					"no segment available at index " + index);
 	}
 
-	public MutablePathSegment(int type, double[] array) {
-		setData(type, array);
+	private int getPathStart(int pathIndex) {
+		if (pathIndex < 0 || pathIndex >= pathCount)
+			throw new IndexOutOfBoundsException("pathIndex = " + pathIndex
+					+ ", path count = " + pathCount);
+		return pathStarts[pathIndex];
 	}
 
-	public MutablePathSegment(int type, double x, double y) {
-		setData(type, new double[] { x, y });
+	private int getPathEnd(int pathIndex) {
+		if (pathIndex < 0 || pathIndex >= pathCount)
+			throw new IndexOutOfBoundsException("pathIndex = " + pathIndex
+					+ ", path count = " + pathCount);
+		return pathIndex + 1 < pathCount ? pathStarts[pathIndex + 1]
+				: segmentCount;
 	}
 
-	public MutablePathSegment(double cx, double cy, double x, double y) {
-		setData(PathIterator.SEG_QUADTO, new double[] { cx, cy, x, y });
+	private int getIndex(int pathIndex, int segmentIndex) {
+		int start = getPathStart(pathIndex);
+		if (segmentIndex < 0 || start + segmentIndex >= getPathEnd(pathIndex))
+			throw new IndexOutOfBoundsException("segmentIndex = "
+					+ segmentIndex);
+		return start + segmentIndex;
 	}
 
-	public MutablePathSegment(double cx0, double cy0, double cx1, double cy1,
-			double x, double y) {
-		setData(PathIterator.SEG_CUBICTO, new double[] { cx0, cy0, cx1, cy1, x,
-				y });
-	}
-
-	public int get(double[] coords) {
-		for (int a = 0; a < data.length; a++) {
-			coords[a] = data[a];
+	/**
+	 * Return the path that contains a segment.
+	 */
+	private int getPathIndex(int index) {
+		int low = 0;
+		int high = pathCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) / 2;
+			if (pathStarts[mid] <= index) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
 		}
-		return type;
+		return low;
 	}
-}
 
-/**
- * This iterates over a <code>MutablePath</code>.
- * <P>
- * This uses a peculiar approach to accessing the path data: the data is not
- * cloned unless <code>release()</code> is called. Until then this points to the
- * data in the <code>MutablePath</code> it was created from. This is designed to
- * avoid large memory demands unless absolutely necessary.
- * <P>
- * (<code>release()</code> is called when the parent <code>MutablePath</code> is
- * modified. So as long as the parent remains unchanged there is no need to
- * clone all its segment data.)
- */
-class MutablePathIterator implements PathIterator {
-	final AffineTransform t;
-	final int winding;
-	int pathPtr = 0;
-	int segPtr = 0;
-	List<List<MutablePathSegment>> paths;
-	List<MutablePathSegment> linkedList;
-
-	Object synchronizeAgainst;
-
-	public MutablePathIterator(List<List<MutablePathSegment>> pathList,
-			int windingRule, AffineTransform transform, Object syncLock) {
-		winding = windingRule;
-		if (transform != null) {
-			t = (AffineTransform) transform.clone();
-		} else {
-			t = null;
+	/**
+	 * Insert a segment at the end of a path.
+	 */
+	private void insert(int pathIndex, int type, double c0, double c1,
+			double c2, double c3, double c4, double c5) {
+		int index = getPathEnd(pathIndex);
+		ensureSegmentCapacity(segmentCount + 1);
+		if (index < segmentCount) {
+			// appending to the last path doesn't change anything an iterator
+			// can see, but shifting data does:
+			releaseIterators();
+			System.arraycopy(types, index, types, index + 1, segmentCount
+					- index);
+			System.arraycopy(coords, index * STRIDE, coords, (index + 1)
+					* STRIDE, (segmentCount - index) * STRIDE);
 		}
-		synchronizeAgainst = syncLock;
-		paths = pathList;
+		segmentCount++;
+		setRaw(index, type, c0, c1, c2, c3, c4, c5);
+		shiftPathStarts(pathIndex + 1, 1);
 	}
 
-	public synchronized void release() {
-		// have we already released?
-		if (synchronizeAgainst == null)
-			return;
-
-		synchronized (synchronizeAgainst) {
-			linkedList = new LinkedList<MutablePathSegment>();
-			for (int p = pathPtr; p < paths.size(); p++) {
-				int start = (p == pathPtr) ? segPtr : 0;
-				List<MutablePathSegment> segments = paths.get(p);
-				for (int s = start; s < segments.size(); s++) {
-					MutablePathSegment segment = segments.get(s);
-					linkedList.add(segment.cloneSegment());
-				}
-			}
-			synchronizeAgainst = null;
-			paths = null;
-			pathPtr = -1;
-			segPtr = 0;
-		}
+	private void removeRaw(int index) {
+		System.arraycopy(types, index + 1, types, index, segmentCount - index
+				- 1);
+		System.arraycopy(coords, (index + 1) * STRIDE, coords, index * STRIDE,
+				(segmentCount - index - 1) * STRIDE);
+		segmentCount--;
 	}
 
-	public int currentSegment(float[] coords) {
-		int type;
-		if (synchronizeAgainst != null) {
-			synchronized (synchronizeAgainst) {
-				List<MutablePathSegment> segments = paths.get(pathPtr);
-				MutablePathSegment s = segments.get(segPtr);
-				for (int a = 0; a < s.data.length; a++) {
-					coords[a] = (float) s.data[a];
-				}
-				type = s.type;
-			}
-		} else {
-			MutablePathSegment s = linkedList.get(segPtr);
-			for (int a = 0; a < s.data.length; a++) {
-				coords[a] = (float) s.data[a];
-			}
-			type = s.type;
-		}
-		if (t != null) {
-			t.transform(coords, 0, coords, 0, 3);
+	private void shiftPathStarts(int firstPathIndex, int delta) {
+		for (int a = firstPathIndex; a < pathCount; a++) {
+			pathStarts[a] += delta;
 		}
-		return type;
 	}
 
-	public int currentSegment(double[] coords) {
-		int type;
-		if (synchronizeAgainst != null) {
-			synchronized (synchronizeAgainst) {
-				List<MutablePathSegment> segments = paths.get(pathPtr);
-				MutablePathSegment s = segments.get(segPtr);
-				for (int a = 0; a < s.data.length; a++) {
-					coords[a] = s.data[a];
-				}
-				type = s.type;
-			}
-		} else {
-			MutablePathSegment s = linkedList.get(segPtr);
-			for (int a = 0; a < s.data.length; a++) {
-				coords[a] = s.data[a];
-			}
-			type = s.type;
-		}
-		if (t != null) {
-			t.transform(coords, 0, coords, 0, 3);
+	private void setRaw(int index, int type, double c0, double c1, double c2,
+			double c3, double c4, double c5) {
+		types[index] = (byte) type;
+		int i = index * STRIDE;
+		coords[i] = c0;
+		coords[i + 1] = c1;
+		coords[i + 2] = c2;
+		coords[i + 3] = c3;
+		coords[i + 4] = c4;
+		coords[i + 5] = c5;
+	}
+
+	private void ensureSegmentCapacity(int capacity) {
+		if (capacity > types.length) {
+			int newCapacity = Math.max(capacity, types.length * 2);
+			// iterators keep their own reference to the old arrays, so we
+			// don't need to release them here.
+			types = copyOf(types, newCapacity);
+			coords = copyOf(coords, newCapacity * STRIDE);
+			shared = false;
 		}
-		return type;
 	}
 
-	public int getWindingRule() {
-		return winding;
+	private static byte[] copyOf(byte[] array, int length) {
+		byte[] copy = new byte[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(length, array.length));
+		return copy;
 	}
 
-	public synchronized boolean isDone() {
-		return linkedList == null && paths == null;
+	private static double[] copyOf(double[] array, int length) {
+		double[] copy = new double[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(length, array.length));
+		return copy;
 	}
 
-	public synchronized void next() {
-		if (linkedList != null) {
-			linkedList.remove(0);
-			if (linkedList.size() == 0)
-				linkedList = null;
-		}
-		if (synchronizeAgainst != null) {
-			synchronized (synchronizeAgainst) {
-				if (paths != null) {
-					List<MutablePathSegment> segments = paths.get(pathPtr);
-					segPtr++;
-					if (segPtr == segments.size()) {
-						segPtr = 0;
-						pathPtr++;
-						if (pathPtr == paths.size()) {
-							// we're all done:
-							paths = null;
-							synchronizeAgainst = null;
-						}
-					}
-				}
-			}
-		}
+	private static int[] copyOf(int[] array, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(length, array.length));
+		return copy;
 	}
-}
\ No newline at end of file
+}
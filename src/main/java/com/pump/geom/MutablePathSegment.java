@@ -0,0 +1,48 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.util.Arrays;
+
+/**
+ * A single segment of a <code>MutablePath</code>.
+ * <p>
+ * <code>MutablePath</code> no longer stores its data as a list of these
+ * objects, so this is only a read-only snapshot returned by the deprecated
+ * {@link MutablePath#peek(int)} method.
+ */
+class MutablePathSegment {
+	final double[] data;
+	final int type;
+
+	MutablePathSegment(int type, double[] data) {
+		this.type = type;
+		this.data = data;
+	}
+
+	public int get(double[] coords) {
+		System.arraycopy(data, 0, coords, 0, data.length);
+		return type;
+	}
+
+	@Override
+	public int hashCode() {
+		return type + 31 * Arrays.hashCode(data);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof MutablePathSegment))
+			return false;
+		MutablePathSegment s = (MutablePathSegment) obj;
+		return type == s.type && Arrays.equals(data, s.data);
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.pump.geom.area.AreaXBody;
+
+/**
+ * These are <code>AreaXRules</code> designed for adding a large number of
+ * shapes (such as thousands of map tiles or glyph outlines).
+ * <p>
+ * Adding shapes one at a time means each new operand is combined with an
+ * ever-growing body, so the total cost grows quadratically. Instead these
+ * rules collect each run of consecutive <code>ADD</code> operations and
+ * combine them as a balanced tree: operands are added in pairs, then those
+ * results are added in pairs, etc. Each addition in the tree involves bodies
+ * of similar complexity, and independent branches of the tree are executed in
+ * parallel on a <code>ForkJoinPool</code>.
+ * <p>
+ * When two branches of the tree have bounds that do not touch they are
+ * merged (see {@link AreaXBody#merge(AreaXBody)}) instead of added.
+ * <p>
+ * All other operations are executed sequentially in their original order.
+ */
+public class ParallelUnionRules extends AreaXRules {
+
+	/**
+	 * The default minimum length of a run of <code>ADD</code> operations that
+	 * is combined as a tree. Shorter runs are executed sequentially.
+	 */
+	public static final int MIN_RUN_LENGTH_DEFAULT = 4;
+
+	/**
+	 * The default number of operands at which a branch of the tree is
+	 * executed in the current thread.
+	 */
+	public static final int SEQUENTIAL_THRESHOLD_DEFAULT = 2;
+
+	private final ForkJoinPool pool;
+	private final int minRunLength, sequentialThreshold;
+
+	/**
+	 * Create rules that use the common <code>ForkJoinPool</code>.
+	 */
+	public ParallelUnionRules() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create rules that use a specific <code>ForkJoinPool</code>.
+	 */
+	public ParallelUnionRules(ForkJoinPool pool) {
+		this(pool, MIN_RUN_LENGTH_DEFAULT, SEQUENTIAL_THRESHOLD_DEFAULT);
+	}
+
+	/**
+	 * Create rules that use a specific <code>ForkJoinPool</code>.
+	 * 
+	 * @param minRunLength
+	 *            runs of <code>ADD</code> operations shorter than this are
+	 *            executed sequentially.
+	 * @param sequentialThreshold
+	 *            when a branch of the tree has this many operands or fewer it
+	 *            is executed in the current thread. This must be at least 1.
+	 */
+	public ParallelUnionRules(ForkJoinPool pool, int minRunLength,
+			int sequentialThreshold) {
+		if (pool == null)
+			throw new NullPointerException();
+		if (sequentialThreshold < 1)
+			throw new IllegalArgumentException("sequentialThreshold ("
+					+ sequentialThreshold + ") must be at least 1");
+		this.pool = pool;
+		this.minRunLength = minRunLength;
+		this.sequentialThreshold = sequentialThreshold;
+	}
+
+	@Override
+	public AreaXBody execute(AreaXBody body, int startIndex, int endIndex,
+			AreaXOperation[] ops) {
+		int a = startIndex;
+		while (a <= endIndex) {
+			if (ops[a] == null || ops[a].getOperator() != AreaXOperation.ADD) {
+				body = super.execute(body, a, a, ops);
+				a++;
+				continue;
+			}
+
+			// collect a run of ADD operations (skipping nulls):
+			int runCount = 0;
+			int b = a;
+			while (b <= endIndex
+					&& (ops[b] == null || ops[b].getOperator() == AreaXOperation.ADD)) {
+				if (ops[b] != null)
+					runCount++;
+				b++;
+			}
+
+			if (runCount < minRunLength) {
+				body = super.execute(body, a, b - 1, ops);
+			} else {
+				Shape[] operands = new Shape[runCount];
+				int k = 0;
+				for (int c = a; c < b; c++) {
+					if (ops[c] != null)
+						operands[k++] = ops[c].getOperand();
+				}
+				AreaXBody sum = pool.invoke(new UnionTask(operands, 0,
+						runCount, sequentialThreshold));
+				body = union(body, sum);
+			}
+			a = b;
+		}
+		return body;
+	}
+
+	static class UnionTask extends RecursiveTask<AreaXBody> {
+		private static final long serialVersionUID = 1L;
+
+		final Shape[] operands;
+		final int start, end, sequentialThreshold;
+
+		/**
+		 * @param operands
+		 *            the shapes to add.
+		 * @param start
+		 *            the first index (inclusive) to add.
+		 * @param end
+		 *            the last index (exclusive) to add.
+		 * @param sequentialThreshold
+		 *            the number of operands at which this task no longer
+		 *            forks.
+		 */
+		UnionTask(Shape[] operands, int start, int end,
+				int sequentialThreshold) {
+			this.operands = operands;
+			this.start = start;
+			this.end = end;
+			this.sequentialThreshold = sequentialThreshold;
+		}
+
+		@Override
+		protected AreaXBody compute() {
+			if (end - start <= sequentialThreshold) {
+				AreaXBody body = getBody(operands[start]);
+				for (int a = start + 1; a < end; a++) {
+					body = union(body, getBody(operands[a]));
+				}
+				return body;
+			}
+			int mid = (start + end) / 2;
+			UnionTask left = new UnionTask(operands, start, mid,
+					sequentialThreshold);
+			UnionTask right = new UnionTask(operands, mid, end,
+					sequentialThreshold);
+			right.fork();
+			AreaXBody leftBody = left.compute();
+			AreaXBody rightBody = right.join();
+			return union(leftBody, rightBody);
+		}
+	}
+
+	private static AreaXBody getBody(Shape shape) {
+		if (shape instanceof AreaX)
+			return ((AreaX) shape).getBody();
+		return AreaXBody.create(shape.getPathIterator(null), true);
+	}
+
+	/**
+	 * Add two bodies, or merge them if their bounds are strictly separated.
+	 */
+	private static AreaXBody union(AreaXBody lhs, AreaXBody rhs) {
+		if (lhs.isEmpty())
+			return rhs;
+		if (rhs.isEmpty())
+			return lhs;
+		Rectangle2D r1 = lhs.getBounds2D(null);
+		Rectangle2D r2 = rhs.getBounds2D(null);
+		// shapes that share an edge still need to be added, so we only merge
+		// when there is a gap between the bounds:
+		if (r1.getMaxX() < r2.getMinX() || r2.getMaxX() < r1.getMinX()
+				|| r1.getMaxY() < r2.getMinY() || r2.getMaxY() < r1.getMinY())
+			return lhs.merge(rhs);
+		return lhs.add(rhs);
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+
+/**
+ * A <code>PathIterator</code> that reads segments from primitive arrays.
+ * <p>
+ * Every segment occupies one <code>byte</code> in the type array and 6
+ * <code>doubles</code> in the coordinate array (unused coordinates are
+ * ignored). This iterator does not allocate anything while it iterates, and
+ * it assumes the arrays it is given are not modified while it is in use.
+ */
+class PathArrayIterator implements PathIterator {
+
+	/**
+	 * The number of coordinates reserved for every segment.
+	 */
+	static final int STRIDE = 6;
+
+	/**
+	 * Return the number of coordinates a segment type uses.
+	 */
+	static int getCoordinateCount(int segmentType) {
+		switch (segmentType) {
+		case SEG_MOVETO:
+		case SEG_LINETO:
+			return 2;
+		case SEG_QUADTO:
+			return 4;
+		case SEG_CUBICTO:
+			return 6;
+		case SEG_CLOSE:
+			return 0;
+		}
+		throw new IllegalArgumentException("unexpected segment type ("
+				+ segmentType + ")");
+	}
+
+	final byte[] types;
+	final double[] coords;
+	final int segmentCount;
+	final int windingRule;
+	final AffineTransform transform;
+	int index = 0;
+
+	/**
+	 * @param types
+	 *            the segment types.
+	 * @param coords
+	 *            the coordinates, using 6 doubles per segment.
+	 * @param segmentCount
+	 *            the number of segments to iterate over.
+	 * @param windingRule
+	 *            the winding rule.
+	 * @param transform
+	 *            an optional transform to apply to the coordinates.
+	 */
+	PathArrayIterator(byte[] types, double[] coords, int segmentCount,
+			int windingRule, AffineTransform transform) {
+		this.types = types;
+		this.coords = coords;
+		this.segmentCount = segmentCount;
+		this.windingRule = windingRule;
+		this.transform = transform == null || transform.isIdentity() ? null
+				: new AffineTransform(transform);
+	}
+
+	@Override
+	public int getWindingRule() {
+		return windingRule;
+	}
+
+	@Override
+	public boolean isDone() {
+		return index >= segmentCount;
+	}
+
+	@Override
+	public void next() {
+		index++;
+	}
+
+	@Override
+	public int currentSegment(float[] dest) {
+		int type = types[index];
+		int count = getCoordinateCount(type);
+		int offset = index * STRIDE;
+		if (transform != null) {
+			transform.transform(coords, offset, dest, 0, count / 2);
+		} else {
+			for (int a = 0; a < count; a++) {
+				dest[a] = (float) coords[offset + a];
+			}
+		}
+		return type;
+	}
+
+	@Override
+	public int currentSegment(double[] dest) {
+		int type = types[index];
+		int count = getCoordinateCount(type);
+		int offset = index * STRIDE;
+		if (transform != null) {
+			transform.transform(coords, offset, dest, 0, count / 2);
+		} else {
+			System.arraycopy(coords, offset, dest, 0, count);
+		}
+		return type;
+	}
+}
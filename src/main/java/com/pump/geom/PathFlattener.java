@@ -0,0 +1,447 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * This converts paths into polylines one subpath at a time.
+ * <p>
+ * This is an alternative to <code>Shape.getPathIterator(transform,
+ * flatness)</code> when an entire path needs to be flattened. Each subpath is
+ * collected in a primitive array: every curve is split using adaptive
+ * subdivision, and then runs of nearly collinear points are collapsed into a
+ * single line. The result is usually much smaller than the output of a
+ * <code>FlatteningPathIterator</code>, so it is cheaper for the
+ * {@link Clipper}, <code>Areas</code> and other consumers that work one line at
+ * a time.
+ * <p>
+ * The error is bounded: every point of the output is within
+ * <code>flatness</code> of the original path, and every point of the original
+ * path is within <code>flatness</code> of the output (unless the recursion
+ * limit is reached first).
+ * <p>
+ * A <code>PathFlattener</code> reuses its internal buffers, so it is not
+ * thread-safe. Use separate instances in separate threads.
+ */
+public class PathFlattener {
+
+	/** The default number of times a curve may be subdivided. */
+	public static final int DEFAULT_LIMIT = 10;
+
+	/**
+	 * Flatten a shape.
+	 *
+	 * @param shape
+	 *            the shape to flatten.
+	 * @param flatness
+	 *            the maximum distance between the shape and the polyline.
+	 * @return a path that only contains MOVETO, LINETO and CLOSE segments.
+	 */
+	public static GeneralPath flatten(Shape shape, float flatness) {
+		return new PathFlattener(flatness).flatten(shape);
+	}
+
+	private final float flatness;
+	private final int limit;
+
+	/**
+	 * The squared distance control points may be from a chord. The maximum
+	 * distance between a cubic curve and its chord is 3/4 of the distance of
+	 * its control points, so this leaves 1/4 of the flatness for collapsing
+	 * points.
+	 */
+	private final double curveToleranceSq;
+
+	/**
+	 * The squared distance points may be from a line to be collapsed into
+	 * that line. Collapsed points may end up twice this distance from the
+	 * line that replaces them.
+	 */
+	private final double lineToleranceSq;
+
+	/** The points of the current subpath, as (x,y) pairs. */
+	private double[] points = new double[256];
+	private int pointCount;
+
+	/** The subdivision stack: 8 coordinates per cubic curve. */
+	private final double[] stack;
+	private final int[] levels;
+
+	private final double[] coords = new double[6];
+
+	/** The destination of the current call to flatten(). */
+	private PathWriter writerDest;
+	private Path2D pathDest;
+	private final PolylineIterator polylineIterator = new PolylineIterator();
+
+	/**
+	 * Create a <code>PathFlattener</code> with the default recursion limit.
+	 *
+	 * @param flatness
+	 *            the maximum distance between a path and its polyline.
+	 */
+	public PathFlattener(float flatness) {
+		this(flatness, DEFAULT_LIMIT);
+	}
+
+	/**
+	 * Create a <code>PathFlattener</code>.
+	 *
+	 * @param flatness
+	 *            the maximum distance between a path and its polyline.
+	 * @param limit
+	 *            the maximum number of times a curve may be subdivided.
+	 */
+	public PathFlattener(float flatness, int limit) {
+		if (!(flatness > 0))
+			throw new IllegalArgumentException("flatness (" + flatness
+					+ ") must be positive");
+		if (limit < 0)
+			throw new IllegalArgumentException("limit (" + limit
+					+ ") must not be negative");
+		this.flatness = flatness;
+		this.limit = limit;
+		double d = flatness;
+		curveToleranceSq = d * d;
+		d = flatness / 8.0;
+		lineToleranceSq = d * d;
+		stack = new double[8 * (limit + 2)];
+		levels = new int[limit + 2];
+	}
+
+	/** Return the maximum distance between a path and its polyline. */
+	public float getFlatness() {
+		return flatness;
+	}
+
+	/** Return the maximum number of times a curve may be subdivided. */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Flatten a shape into a new <code>GeneralPath</code>.
+	 */
+	public GeneralPath flatten(Shape shape) {
+		PathIterator i = shape.getPathIterator(null);
+		GeneralPath dest = new GeneralPath(i.getWindingRule());
+		flatten(i, dest);
+		return dest;
+	}
+
+	/**
+	 * Flatten a path and append it to a <code>Path2D</code>.
+	 * <p>
+	 * This is faster than writing to a {@link GeneralPathWriter}, because each
+	 * polyline is appended in one call.
+	 *
+	 * @param i
+	 *            the path to flatten.
+	 * @param dest
+	 *            the path to append the polylines to.
+	 */
+	public void flatten(PathIterator i, Path2D dest) {
+		pathDest = dest;
+		try {
+			flatten(i);
+		} finally {
+			pathDest = null;
+		}
+	}
+
+	/**
+	 * Flatten a path.
+	 * <p>
+	 * This only calls <code>moveTo()</code>, <code>lineTo()</code> and
+	 * <code>closePath()</code>. It does not flush the destination.
+	 *
+	 * @param i
+	 *            the path to flatten.
+	 * @param dest
+	 *            the destination to write the polylines to.
+	 */
+	public void flatten(PathIterator i, PathWriter dest) {
+		writerDest = dest;
+		try {
+			flatten(i);
+		} finally {
+			writerDest = null;
+		}
+	}
+
+	private void flatten(PathIterator i) {
+		pointCount = 0;
+		double moveX = 0;
+		double moveY = 0;
+		boolean open = false;
+		while (!i.isDone()) {
+			int k = i.currentSegment(coords);
+			if (k == PathIterator.SEG_MOVETO) {
+				writeSubpath(false);
+				moveX = coords[0];
+				moveY = coords[1];
+				addPoint(moveX, moveY);
+				open = true;
+			} else if (k == PathIterator.SEG_CLOSE) {
+				if (open)
+					writeSubpath(true);
+				open = false;
+			} else {
+				if (!open) {
+					// a segment that follows a CLOSE starts at the last MOVETO
+					addPoint(moveX, moveY);
+					open = true;
+				}
+				double lastX = points[2 * pointCount - 2];
+				double lastY = points[2 * pointCount - 1];
+				if (k == PathIterator.SEG_LINETO) {
+					addPoint(coords[0], coords[1]);
+				} else if (k == PathIterator.SEG_QUADTO) {
+					// degree elevation is exact, so only cubics are flattened:
+					addCubic(lastX, lastY,
+							lastX + 2 * (coords[0] - lastX) / 3,
+							lastY + 2 * (coords[1] - lastY) / 3,
+							coords[2] + 2 * (coords[0] - coords[2]) / 3,
+							coords[3] + 2 * (coords[1] - coords[3]) / 3,
+							coords[2], coords[3]);
+				} else if (k == PathIterator.SEG_CUBICTO) {
+					addCubic(lastX, lastY, coords[0], coords[1], coords[2],
+							coords[3], coords[4], coords[5]);
+				} else {
+					throw new RuntimeException("Unexpected segment: " + k);
+				}
+			}
+			i.next();
+		}
+		writeSubpath(false);
+	}
+
+	private void addPoint(double x, double y) {
+		if (2 * pointCount + 2 > points.length)
+			points = Arrays.copyOf(points, points.length * 2);
+		points[2 * pointCount] = x;
+		points[2 * pointCount + 1] = y;
+		pointCount++;
+	}
+
+	/**
+	 * Add the end points of the lines that approximate a cubic curve. This
+	 * subdivides the curve (without recursion) until each piece is close
+	 * enough to its chord.
+	 */
+	private void addCubic(double x0, double y0, double cx0, double cy0,
+			double cx1, double cy1, double x1, double y1) {
+		double[] s = stack;
+		s[0] = x0;
+		s[1] = y0;
+		s[2] = cx0;
+		s[3] = cy0;
+		s[4] = cx1;
+		s[5] = cy1;
+		s[6] = x1;
+		s[7] = y1;
+		levels[0] = 0;
+		int top = 1;
+		while (top > 0) {
+			int b = 8 * (top - 1);
+			int level = levels[top - 1];
+			if (level < limit && !isFlat(s, b)) {
+				// split at t=.5: the right half stays in this slot and the left
+				// half goes on top of the stack, so it is processed first.
+				double mx0 = (s[b] + s[b + 2]) / 2;
+				double my0 = (s[b + 1] + s[b + 3]) / 2;
+				double mx1 = (s[b + 2] + s[b + 4]) / 2;
+				double my1 = (s[b + 3] + s[b + 5]) / 2;
+				double mx2 = (s[b + 4] + s[b + 6]) / 2;
+				double my2 = (s[b + 5] + s[b + 7]) / 2;
+				double nx0 = (mx0 + mx1) / 2;
+				double ny0 = (my0 + my1) / 2;
+				double nx1 = (mx1 + mx2) / 2;
+				double ny1 = (my1 + my2) / 2;
+				double x = (nx0 + nx1) / 2;
+				double y = (ny0 + ny1) / 2;
+
+				int l = b + 8;
+				s[l] = s[b];
+				s[l + 1] = s[b + 1];
+				s[l + 2] = mx0;
+				s[l + 3] = my0;
+				s[l + 4] = nx0;
+				s[l + 5] = ny0;
+				s[l + 6] = x;
+				s[l + 7] = y;
+				levels[top] = level + 1;
+
+				s[b] = x;
+				s[b + 1] = y;
+				s[b + 2] = nx1;
+				s[b + 3] = ny1;
+				s[b + 4] = mx2;
+				s[b + 5] = my2;
+				levels[top - 1] = level + 1;
+
+				top++;
+			} else {
+				addPoint(s[b + 6], s[b + 7]);
+				top--;
+			}
+		}
+	}
+
+	/**
+	 * Return true if both control points of the cubic curve at an offset in
+	 * an array are close enough to the line between its end points.
+	 */
+	private boolean isFlat(double[] s, int b) {
+		double x0 = s[b];
+		double y0 = s[b + 1];
+		double dx = s[b + 6] - x0;
+		double dy = s[b + 7] - y0;
+		double lengthSq = dx * dx + dy * dy;
+		double ux = s[b + 2] - x0;
+		double uy = s[b + 3] - y0;
+		double vx = s[b + 4] - x0;
+		double vy = s[b + 5] - y0;
+		if (lengthSq == 0)
+			return ux * ux + uy * uy <= curveToleranceSq
+					&& vx * vx + vy * vy <= curveToleranceSq;
+		// the distance to the chord's line is |cross| / length:
+		double cu = ux * dy - uy * dx;
+		double cv = vx * dy - vy * dx;
+		double limit = curveToleranceSq * lengthSq;
+		if (cu * cu > limit || cv * cv > limit)
+			return false;
+		// control points beyond the end points also bulge the curve:
+		double pu = ux * dx + uy * dy;
+		double pv = vx * dx + vy * dy;
+		return pu >= 0 && pu <= lengthSq && pv >= 0 && pv <= lengthSq;
+	}
+
+	/**
+	 * Collapse runs of nearly collinear points in place.
+	 * <p>
+	 * Each run starts at the last point that was kept (the anchor) and the
+	 * next distinct point, which defines a direction. The run continues as
+	 * long as points stay close to that line and keep moving forward along
+	 * it, and then only the last point of the run is kept.
+	 *
+	 * @return the number of points that remain.
+	 */
+	private int collapse() {
+		double[] p = points;
+		int n = pointCount;
+		if (n < 3)
+			return n;
+		int w = 1;
+		int i = 1;
+		while (i < n) {
+			double ax = p[2 * w - 2];
+			double ay = p[2 * w - 1];
+			double dx = p[2 * i] - ax;
+			double dy = p[2 * i + 1] - ay;
+			double lengthSq = dx * dx + dy * dy;
+			if (lengthSq == 0) {
+				i++;
+				continue;
+			}
+			int end = i;
+			double endProjection = lengthSq;
+			double maxCrossSq = lineToleranceSq * lengthSq;
+			for (int j = i + 1; j < n; j++) {
+				double vx = p[2 * j] - ax;
+				double vy = p[2 * j + 1] - ay;
+				double cross = vx * dy - vy * dx;
+				double projection = vx * dx + vy * dy;
+				if (cross * cross > maxCrossSq || projection < endProjection)
+					break;
+				end = j;
+				endProjection = projection;
+			}
+			p[2 * w] = p[2 * end];
+			p[2 * w + 1] = p[2 * end + 1];
+			w++;
+			i = end + 1;
+		}
+		return w;
+	}
+
+	private void writeSubpath(boolean close) {
+		if (pointCount == 0)
+			return;
+		int n = collapse();
+		if (pathDest != null) {
+			polylineIterator.reset(n, close);
+			pathDest.append(polylineIterator, false);
+		} else {
+			double[] p = points;
+			writerDest.moveTo((float) p[0], (float) p[1]);
+			for (int a = 1; a < n; a++) {
+				writerDest.lineTo((float) p[2 * a], (float) p[2 * a + 1]);
+			}
+			if (close)
+				writerDest.closePath();
+		}
+		pointCount = 0;
+	}
+
+	/**
+	 * Iterates over the polyline in the points array.
+	 */
+	private class PolylineIterator implements PathIterator {
+		int size;
+		boolean close;
+		int index;
+
+		void reset(int size, boolean close) {
+			this.size = size;
+			this.close = close;
+			index = 0;
+		}
+
+		@Override
+		public int getWindingRule() {
+			return WIND_NON_ZERO;
+		}
+
+		@Override
+		public boolean isDone() {
+			return index >= (close ? size + 1 : size);
+		}
+
+		@Override
+		public void next() {
+			index++;
+		}
+
+		@Override
+		public int currentSegment(float[] dest) {
+			if (index == size)
+				return SEG_CLOSE;
+			dest[0] = (float) points[2 * index];
+			dest[1] = (float) points[2 * index + 1];
+			return index == 0 ? SEG_MOVETO : SEG_LINETO;
+		}
+
+		@Override
+		public int currentSegment(double[] dest) {
+			if (index == size)
+				return SEG_CLOSE;
+			dest[0] = points[2 * index];
+			dest[1] = points[2 * index + 1];
+			return index == 0 ? SEG_MOVETO : SEG_LINETO;
+		}
+	}
+}
@@ -14,6 +14,10 @@ import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class features an efficient and accurate <code>getBounds()</code>
@@ -29,6 +33,26 @@ import java.awt.geom.Rectangle2D;
  *      Calculating Bounds</a>
  */
 public class ShapeBounds {
+
+	/**
+	 * Arrays of at least this many shapes are measured in parallel by
+	 * {@link #getBounds(Shape[])}.
+	 */
+	public static final int PARALLEL_SHAPE_THRESHOLD = 64;
+
+	/**
+	 * When {@link #getBoundsParallel(PathIterator)} measures a path, each task
+	 * handles up to this many segments.
+	 */
+	public static final int PARALLEL_SEGMENT_THRESHOLD = 4096;
+
+	/**
+	 * This is stored in the cache for shapes that are empty.
+	 */
+	private static final float[] EMPTY = new float[0];
+
+	private static final ShapeCache<float[]> CACHE = new ShapeCache<>();
+
 	/**
 	 * This calculates the precise bounds of a shape.
 	 * 
@@ -44,22 +68,321 @@ public class ShapeBounds {
 		return getBounds(shape, null, null);
 	}
 
+	/**
+	 * This calculates the precise bounds of several shapes.
+	 * <p>
+	 * Large arrays (see {@link #PARALLEL_SHAPE_THRESHOLD}) are measured in
+	 * parallel.
+	 * 
+	 * @param shapes
+	 *            the shapes to measure.
+	 * @return the union of the bounds of all the shapes, or null if every
+	 *         shape is empty.
+	 */
 	public static Rectangle2D getBounds(Shape[] shapes) {
+		Rectangle2D[] allBounds = shapes.length >= PARALLEL_SHAPE_THRESHOLD ? getBoundsParallel(
+				shapes, false) : null;
 		Rectangle2D r = null;
 		for (int a = 0; a < shapes.length; a++) {
-			try {
-				Rectangle2D t = getBounds(shapes[a]);
-				if (r == null) {
-					r = t;
-				} else {
-					r.add(t);
+			Rectangle2D t;
+			if (allBounds != null) {
+				t = allBounds[a];
+			} else {
+				try {
+					t = getBounds(shapes[a]);
+				} catch (EmptyPathException e) {
+					t = null;
 				}
-			} catch (EmptyPathException e) {
+			}
+			if (t == null) {
+				// skip empty shapes
+			} else if (r == null) {
+				r = t;
+			} else {
+				r.add(t);
 			}
 		}
 		return r;
 	}
 
+	/**
+	 * Calculate the precise bounds of every shape in an array in parallel.
+	 * 
+	 * @param shapes
+	 *            the shapes to measure.
+	 * @param useCache
+	 *            if true then results are memoized as described in
+	 *            {@link #getCachedBounds(Shape)}.
+	 * @return the bounds of each shape. An element is null if the shape at
+	 *         that index is empty.
+	 */
+	public static Rectangle2D[] getBoundsParallel(Shape[] shapes,
+			boolean useCache) {
+		Rectangle2D[] returnValue = new Rectangle2D[shapes.length];
+		ForkJoinPool.commonPool().invoke(
+				new ShapesTask(shapes, useCache, returnValue, 0, shapes.length));
+		return returnValue;
+	}
+
+	private static class ShapesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final Shape[] shapes;
+		final boolean useCache;
+		final Rectangle2D[] dest;
+		final int start, end;
+
+		ShapesTask(Shape[] shapes, boolean useCache, Rectangle2D[] dest,
+				int start, int end) {
+			this.shapes = shapes;
+			this.useCache = useCache;
+			this.dest = dest;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= 16) {
+				for (int a = start; a < end; a++) {
+					float[] points = useCache ? getCachedEdgePoints(shapes[a])
+							: getEdgePointsOrEmpty(shapes[a]
+									.getPathIterator(null));
+					dest[a] = points == EMPTY ? null : toRectangle(points,
+							null);
+				}
+				return;
+			}
+			int mid = (start + end) / 2;
+			invokeAll(new ShapesTask(shapes, useCache, dest, start, mid),
+					new ShapesTask(shapes, useCache, dest, mid, end));
+		}
+	}
+
+	/**
+	 * This calculates the precise bounds of a shape, and memoizes the result
+	 * based on the identity of the shape.
+	 * <p>
+	 * This is useful when the same shape objects are measured repeatedly. The
+	 * cache uses weak references, so it does not prevent shapes from being
+	 * garbage collected. The shape must not be modified after it is passed to
+	 * this method, or this may return stale results.
+	 * 
+	 * @param shape
+	 *            the shape you want the bounds of.
+	 * @return a new rectangle containing the bounds of <code>shape</code>.
+	 * 
+	 * @throws EmptyPathException
+	 *             if the shape argument is empty.
+	 */
+	public static Rectangle2D getCachedBounds(Shape shape)
+			throws EmptyPathException {
+		float[] points = getCachedEdgePoints(shape);
+		if (points == EMPTY)
+			throw new EmptyPathException();
+		return toRectangle(points, null);
+	}
+
+	private static float[] getCachedEdgePoints(Shape shape) {
+		float[] points = CACHE.get(shape);
+		if (points == null) {
+			points = getEdgePointsOrEmpty(shape.getPathIterator(null));
+			CACHE.put(shape, points);
+		}
+		return points;
+	}
+
+	private static float[] getEdgePointsOrEmpty(PathIterator i) {
+		try {
+			return getEdgePoints(i);
+		} catch (EmptyPathException e) {
+			return EMPTY;
+		}
+	}
+
+	/**
+	 * This calculates the precise bounds of a very long path by splitting its
+	 * segments into chunks that are measured in parallel.
+	 * <p>
+	 * Reading the <code>PathIterator</code> is still sequential, but solving
+	 * for the extrema of each curve (which is the expensive part) is spread
+	 * across the common <code>ForkJoinPool</code>. This returns the same
+	 * result as {@link #getBounds(PathIterator)} (except that coordinates are
+	 * read as doubles, which may cause insignificant rounding differences).
+	 * 
+	 * @param i
+	 *            the path you want the bounds of.
+	 * @return the bounds of <code>i</code>.
+	 * 
+	 * @throws EmptyPathException
+	 *             if the path is empty.
+	 */
+	public static Rectangle2D getBoundsParallel(PathIterator i)
+			throws EmptyPathException {
+		return getBoundsParallel(i, PARALLEL_SEGMENT_THRESHOLD);
+	}
+
+	/**
+	 * This calculates the precise bounds of a very long path by splitting its
+	 * segments into chunks that are measured in parallel.
+	 * 
+	 * @param i
+	 *            the path you want the bounds of.
+	 * @param segmentsPerTask
+	 *            the maximum number of segments each task measures. Paths
+	 *            with fewer segments than this are measured in one task.
+	 * @return the bounds of <code>i</code>.
+	 * 
+	 * @throws EmptyPathException
+	 *             if the path is empty.
+	 * @see #getBoundsParallel(PathIterator)
+	 */
+	public static Rectangle2D getBoundsParallel(PathIterator i,
+			int segmentsPerTask) throws EmptyPathException {
+		if (segmentsPerTask < 1)
+			throw new IllegalArgumentException("segmentsPerTask ("
+					+ segmentsPerTask + ") must be at least 1");
+		byte[] types = new byte[64];
+		double[] coords = new double[64 * PathArrayIterator.STRIDE];
+		int count = 0;
+		double[] c = new double[6];
+		while (!i.isDone()) {
+			if (count == types.length) {
+				types = Arrays.copyOf(types, count * 2);
+				coords = Arrays.copyOf(coords, count * 2
+						* PathArrayIterator.STRIDE);
+			}
+			int k = i.currentSegment(c);
+			types[count] = (byte) k;
+			System.arraycopy(c, 0, coords, count * PathArrayIterator.STRIDE,
+					PathArrayIterator.getCoordinateCount(k));
+			count++;
+			i.next();
+		}
+
+		float[] points = ForkJoinPool.commonPool().invoke(
+				new SegmentsTask(types, coords, 0, count, segmentsPerTask));
+		if (points == null)
+			throw new EmptyPathException();
+		return toRectangle(points, null);
+	}
+
+	private static class SegmentsTask extends RecursiveTask<float[]> {
+		private static final long serialVersionUID = 1L;
+
+		final byte[] types;
+		final double[] coords;
+		final int start, end, segmentsPerTask;
+
+		SegmentsTask(byte[] types, double[] coords, int start, int end,
+				int segmentsPerTask) {
+			this.types = types;
+			this.coords = coords;
+			this.start = start;
+			this.end = end;
+			this.segmentsPerTask = segmentsPerTask;
+		}
+
+		@Override
+		protected float[] compute() {
+			if (end - start <= segmentsPerTask) {
+				return getEdgePoints(start, end);
+			}
+			int mid = (start + end) / 2;
+			SegmentsTask left = new SegmentsTask(types, coords, start, mid,
+					segmentsPerTask);
+			SegmentsTask right = new SegmentsTask(types, coords, mid, end,
+					segmentsPerTask);
+			right.fork();
+			float[] p1 = left.compute();
+			float[] p2 = right.join();
+			return merge(p1, p2);
+		}
+
+		/**
+		 * Return the edge points of a range of segments, or null if they
+		 * don't include any drawn segments.
+		 */
+		private float[] getEdgePoints(int start, int end) {
+			// each chunk begins with a moveTo to the current pen position,
+			// so the first segment is measured exactly as it would be if we
+			// iterated over the whole path
+			int penIndex = findPen(start);
+			byte[] chunkTypes = new byte[end - start + 1];
+			double[] chunkCoords = new double[chunkTypes.length
+					* PathArrayIterator.STRIDE];
+			chunkTypes[0] = PathIterator.SEG_MOVETO;
+			if (penIndex >= 0) {
+				int n = PathArrayIterator.getCoordinateCount(types[penIndex]);
+				int offset = penIndex * PathArrayIterator.STRIDE;
+				chunkCoords[0] = coords[offset + n - 2];
+				chunkCoords[1] = coords[offset + n - 1];
+			}
+			System.arraycopy(types, start, chunkTypes, 1, end - start);
+			System.arraycopy(coords, start * PathArrayIterator.STRIDE,
+					chunkCoords, PathArrayIterator.STRIDE, (end - start)
+							* PathArrayIterator.STRIDE);
+			float[] points = getEdgePointsOrEmpty(new PathArrayIterator(
+					chunkTypes, chunkCoords, chunkTypes.length,
+					PathIterator.WIND_NON_ZERO, null));
+			return points == EMPTY ? null : points;
+		}
+
+		/**
+		 * Return the index of the last segment before <code>index</code>
+		 * that defines the pen position, or -1.
+		 */
+		private int findPen(int index) {
+			for (int a = index - 1; a >= 0; a--) {
+				if (types[a] != PathIterator.SEG_CLOSE)
+					return a;
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Combine the edge points of two consecutive runs of segments. Just like
+	 * {@link #getEdgePoints(PathIterator)}, ties are resolved in favor of the
+	 * point that occurs first.
+	 */
+	private static float[] merge(float[] p1, float[] p2) {
+		if (p1 == null)
+			return p2;
+		if (p2 == null)
+			return p1;
+		if (p2[LEFTMOST_X] < p1[LEFTMOST_X]) {
+			p1[LEFTMOST_X] = p2[LEFTMOST_X];
+			p1[LEFTMOST_Y] = p2[LEFTMOST_Y];
+		}
+		if (p2[TOPMOST_Y] < p1[TOPMOST_Y]) {
+			p1[TOPMOST_X] = p2[TOPMOST_X];
+			p1[TOPMOST_Y] = p2[TOPMOST_Y];
+		}
+		if (p2[RIGHTMOST_X] > p1[RIGHTMOST_X]) {
+			p1[RIGHTMOST_X] = p2[RIGHTMOST_X];
+			p1[RIGHTMOST_Y] = p2[RIGHTMOST_Y];
+		}
+		if (p2[BOTTOMMOST_Y] > p1[BOTTOMMOST_Y]) {
+			p1[BOTTOMMOST_X] = p2[BOTTOMMOST_X];
+			p1[BOTTOMMOST_Y] = p2[BOTTOMMOST_Y];
+		}
+		return p1;
+	}
+
+	private static Rectangle2D toRectangle(float[] points, Rectangle2D r) {
+		float top = points[TOPMOST_Y];
+		float right = points[RIGHTMOST_X];
+		float bottom = points[BOTTOMMOST_Y];
+		float left = points[LEFTMOST_X];
+
+		if (r != null) {
+			r.setFrame(left, top, right - left, bottom - top);
+			return r;
+		}
+		return new Rectangle2D.Float(left, top, right - left, bottom - top);
+	}
+
 	/**
 	 * This calculates the precise bounds of a shape.
 	 * 
@@ -150,18 +473,7 @@ public class ShapeBounds {
 	 * @return the bounds of <code>i</code>.
 	 */
 	public static Rectangle2D getBounds(PathIterator i, Rectangle2D r) {
-		float[] points = getEdgePoints(i);
-
-		float top = points[1];
-		float right = points[2];
-		float bottom = points[5];
-		float left = points[6];
-
-		if (r != null) {
-			r.setFrame(left, top, right - left, bottom - top);
-			return r;
-		}
-		return new Rectangle2D.Float(left, top, right - left, bottom - top);
+		return toRectangle(getEdgePoints(i), r);
 	}
 
 	private static final int TOPMOST_X = 0;
@@ -0,0 +1,96 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This associates values with shapes based on the identity of each shape.
+ * <p>
+ * Many shapes (such as <code>Rectangles</code>) define
+ * <code>equals()</code> based on their current coordinates, so they can't be
+ * used as keys in a regular map if they might change. This map only compares
+ * keys with <code>==</code>, and it keeps weak references to its keys so
+ * cached values are discarded when their shapes are garbage collected.
+ * <p>
+ * Values must not keep a strong reference to their shape, or that shape will
+ * never be discarded.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <V>
+ *            the type of value to store.
+ */
+class ShapeCache<V> {
+
+	static class Key extends WeakReference<Shape> {
+		final int hashCode;
+
+		Key(Shape shape, ReferenceQueue<Shape> queue) {
+			super(shape, queue);
+			hashCode = System.identityHashCode(shape);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Shape shape = get();
+			return shape != null && shape == ((Key) obj).get();
+		}
+	}
+
+	private final Map<Key, V> map = new HashMap<>();
+	private final ReferenceQueue<Shape> queue = new ReferenceQueue<>();
+
+	/**
+	 * Return the value associated with a shape, or null.
+	 */
+	public synchronized V get(Shape shape) {
+		purge();
+		return map.get(new Key(shape, null));
+	}
+
+	/**
+	 * Associate a value with a shape.
+	 */
+	public synchronized void put(Shape shape, V value) {
+		purge();
+		map.put(new Key(shape, queue), value);
+	}
+
+	/**
+	 * Return the number of entries in this cache.
+	 */
+	public synchronized int size() {
+		purge();
+		return map.size();
+	}
+
+	private void purge() {
+		Reference<? extends Shape> ref;
+		while ((ref = queue.poll()) != null) {
+			map.remove(ref);
+		}
+	}
+}
@@ -20,6 +20,7 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.RectangularShape;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -55,12 +56,76 @@ public class ShapeUtils {
 		return true;
 	}
 
+	/**
+	 * The segments of a shape stored in primitive arrays, used by
+	 * {@link ShapeUtils#traceShape(Shape, float)} and
+	 * {@link ShapeUtils#getPoint(Shape, float)}.
+	 */
+	private static class TraceData {
+		private static final ShapeCache<TraceData> CACHE = new ShapeCache<>();
+
+		/**
+		 * Return the TraceData for a shape. This is memoized for
+		 * <code>ImmutableShapes</code>, so animations that trace the same
+		 * immutable shape every frame only iterate over it once.
+		 */
+		static TraceData get(Shape shape) {
+			if (!(shape instanceof ImmutableShape))
+				return new TraceData(shape);
+			TraceData data = CACHE.get(shape);
+			if (data == null) {
+				data = new TraceData(shape);
+				CACHE.put(shape, data);
+			}
+			return data;
+		}
+
+		byte[] types = new byte[16];
+		double[] coords = new double[16 * PathArrayIterator.STRIDE];
+		int segmentCount = 0;
+		/**
+		 * The number of segments that are not a SEG_MOVETO or SEG_CLOSE.
+		 */
+		int drawableCount = 0;
+		final int windingRule;
+
+		TraceData(Shape shape) {
+			PathIterator i = shape.getPathIterator(null);
+			windingRule = i.getWindingRule();
+			double[] c = new double[6];
+			while (!i.isDone()) {
+				int k = i.currentSegment(c);
+				if (segmentCount == types.length) {
+					types = Arrays.copyOf(types, segmentCount * 2);
+					coords = Arrays.copyOf(coords, segmentCount * 2
+							* PathArrayIterator.STRIDE);
+				}
+				types[segmentCount] = (byte) k;
+				System.arraycopy(c, 0, coords, segmentCount
+						* PathArrayIterator.STRIDE,
+						PathArrayIterator.getCoordinateCount(k));
+				segmentCount++;
+				if (k != PathIterator.SEG_MOVETO && k != PathIterator.SEG_CLOSE)
+					drawableCount++;
+				i.next();
+			}
+		}
+
+		PathIterator getPathIterator() {
+			return new PathArrayIterator(types, coords, segmentCount,
+					windingRule, null);
+		}
+	}
+
 	/**
 	 * This traces the shape provided. This can be used to create a "drawing"
 	 * effect.
 	 * <P>
 	 * This assumes every segment is equally important/long, which is not always
 	 * the case.
+	 * <P>
+	 * If the shape is an {@link ImmutableShape} then its segments are cached,
+	 * so tracing the same shape repeatedly does not iterate over it each time.
 	 * 
 	 * @param shape
 	 * @param progress
@@ -86,18 +151,12 @@ public class ShapeUtils {
 				progress = 1;
 		}
 		float[] f = new float[6];
-		PathIterator i = shape.getPathIterator(null);
-		float ctr = 0;
+		TraceData data = TraceData.get(shape);
+		float ctr = data.drawableCount;
 		int k;
-		while (i.isDone() == false) {
-			k = i.currentSegment(f);
-			if (k != PathIterator.SEG_MOVETO && k != PathIterator.SEG_CLOSE)
-				ctr++;
-			i.next();
-		}
+		PathIterator i = data.getPathIterator();
 
 		GeneralPath path = new GeneralPath(i.getWindingRule());
-		i = shape.getPathIterator(null);
 		float lastX = 0;
 		float lastY = 0;
 		float ctr2 = 0;
@@ -252,17 +311,10 @@ public class ShapeUtils {
 				progress = 1;
 		}
 		float[] f = new float[6];
-		PathIterator i = shape.getPathIterator(null);
-		float ctr = 0;
+		TraceData data = TraceData.get(shape);
+		float ctr = data.drawableCount;
 		int k;
-		while (i.isDone() == false) {
-			k = i.currentSegment(f);
-			if (k != PathIterator.SEG_MOVETO && k != PathIterator.SEG_CLOSE)
-				ctr++;
-			i.next();
-		}
-
-		i = shape.getPathIterator(null);
+		PathIterator i = data.getPathIterator();
 		float lastX = 0;
 		float lastY = 0;
 		float ctr2 = 0;
@@ -612,12 +664,10 @@ public class ShapeUtils {
 	 *            the maximum distance that the line segments used to
 	 *            approximate the curved segments are allowed to deviate from
 	 *            any point on the original curve
+	 * @see PathFlattener
 	 */
 	public static Shape flatten(Shape shape, float flatness) {
-		PathIterator pi = shape.getPathIterator(null, flatness);
-		Path2D.Float returnValue = new Path2D.Float(pi.getWindingRule());
-		returnValue.append(pi, false);
-		return returnValue;
+		return PathFlattener.flatten(shape, flatness);
 	}
 
 	public static List<Point2D> getEndPoints(Shape path) {
@@ -62,8 +62,6 @@ public class SimplifiedPathIterator implements PathIterator {
 		return Math.abs(determinant) < TOL * TOL;
 	}
 
-	private static double[] doubleArray = new double[6];
-
 	/**
 	 * This possibly reduces the degree of a segment, if possible.
 	 * 
@@ -79,16 +77,16 @@ public class SimplifiedPathIterator implements PathIterator {
 	 *         if nothing was modified.
 	 */
 	public static int simplify(int type, float lastX, float lastY, float[] data) {
-		synchronized (doubleArray) {
-			for (int a = 0; a < data.length; a++) {
-				doubleArray[a] = data[a];
-			}
-			int returnValue = simplify(type, lastX, lastY, doubleArray);
-			for (int a = 0; a < data.length; a++) {
-				data[a] = (float) doubleArray[a];
-			}
-			return returnValue;
+		int n = Math.min(6, data.length);
+		double[] d = new double[6];
+		for (int a = 0; a < n; a++) {
+			d[a] = data[a];
+		}
+		int returnValue = simplify(type, lastX, lastY, d);
+		for (int a = 0; a < n; a++) {
+			data[a] = (float) d[a];
 		}
+		return returnValue;
 	}
 
 	/**
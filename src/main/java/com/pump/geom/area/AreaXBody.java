@@ -16,7 +16,6 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 import com.pump.geom.AreaX;
 import com.pump.geom.EmptyPathException;
@@ -62,7 +61,19 @@ public class AreaXBody extends CurveList {
 
 	private Rectangle2D bounds = new Rectangle2D.Double();
 	private final AreaOpX validationOperator;
-	private AreaXBody validatedBody;
+	private volatile AreaXBody validatedBody;
+
+	/**
+	 * Bodies with at least this many curves build a {@link CurveIndex} the
+	 * first time they are queried.
+	 */
+	static int INDEX_THRESHOLD = 32;
+
+	/**
+	 * This is lazily created by {@link #getIndex()}, and reset if curves are
+	 * added to this body.
+	 */
+	private volatile CurveIndex index;
 
 	/** Used only for the merge method. */
 	private AreaXBody() {
@@ -91,6 +102,10 @@ public class AreaXBody extends CurveList {
 		if (bounds.contains(x, y) == false)
 			return false;
 
+		CurveIndex index = getIndex();
+		if (index != null)
+			return (index.crossingsFor(x, y) & 1) == 1;
+
 		int crossings = 0;
 		int size = size();
 		for (int a = 0; a < size; a++) {
@@ -377,6 +392,11 @@ public class AreaXBody extends CurveList {
 
 	private boolean intersectsLine(double x0, double y0, double x1, double y1,
 			AreaXIterator axi, AffineTransform axiTx) {
+		if (axiTx == null || axiTx.isIdentity()) {
+			CurveIndex index = getIndex();
+			if (index != null)
+				return index.intersectsLine(x0, y0, x1, y1);
+		}
 		axi.reset(this, axiTx);
 		double lastX = 0;
 		double lastY = 0;
@@ -422,6 +442,11 @@ public class AreaXBody extends CurveList {
 
 	private boolean intersectsQuad(double x0, double y0, double cx, double cy,
 			double x1, double y1, AreaXIterator axi, AffineTransform axiTx) {
+		if (axiTx == null || axiTx.isIdentity()) {
+			CurveIndex index = getIndex();
+			if (index != null)
+				return index.intersectsQuad(x0, y0, cx, cy, x1, y1);
+		}
 		axi.reset(this, axiTx);
 		double lastX = 0;
 		double lastY = 0;
@@ -468,6 +493,12 @@ public class AreaXBody extends CurveList {
 	private boolean intersectsCubic(double x0, double y0, double cx0,
 			double cy0, double cx1, double cy1, double x1, double y1,
 			AreaXIterator axi, AffineTransform axiTx) {
+		if (axiTx == null || axiTx.isIdentity()) {
+			CurveIndex index = getIndex();
+			if (index != null)
+				return index.intersectsCubic(x0, y0, cx0, cy0, cx1, cy1, x1,
+						y1);
+		}
 		axi.reset(this, axiTx);
 		double lastX = 0;
 		double lastY = 0;
@@ -522,6 +553,28 @@ public class AreaXBody extends CurveList {
 		}
 		super.add(o);
 		o.enlarge(bounds);
+		index = null;
+	}
+
+	/**
+	 * Return the spatial index used to accelerate point-in-area and
+	 * intersection tests, or null if this body is too small to benefit from
+	 * an index.
+	 * <p>
+	 * The index is created the first time it is needed. Because every
+	 * geometric operation produces a new <code>AreaXBody</code>, each new body
+	 * gets its own index (if any).
+	 */
+	CurveIndex getIndex() {
+		if (elementCount < INDEX_THRESHOLD)
+			return null;
+		CurveIndex i = index;
+		if (i == null) {
+			// two threads may race to create this; that is harmless
+			i = new CurveIndex(this);
+			index = i;
+		}
+		return i;
 	}
 
 	/**
@@ -1033,105 +1086,3 @@ public class AreaXBody extends CurveList {
 	}
 
 }
-
-class AreaXIterator implements PathIterator {
-	private AffineTransform transform;
-	protected AreaXBody curves;
-	private int index;
-	private CurveX prevcurve;
-	private CurveX curve;
-
-	/**
-	 * This creates an empty iterator. This is generally useless unless you call
-	 * <code>reset()</code> to define a body to iterate over.
-	 */
-	protected AreaXIterator() {
-	}
-
-	/**
-	 * Creates a <code>AreaXIterator</code> for a given <code>AreaXBody</code>.
-	 * 
-	 */
-	public AreaXIterator(AreaXBody curves, AffineTransform at) {
-		reset(curves, at);
-	}
-
-	protected void reset(AreaXBody curves, AffineTransform at) {
-		this.curves = curves;
-		this.transform = at;
-		if (curves.size() >= 1) {
-			curve = curves.get(0);
-		} else {
-			curve = null;
-		}
-		prevcurve = null;
-		index = 0;
-	}
-
-	public int getWindingRule() {
-		// REMIND: Which is better, EVEN_ODD or NON_ZERO?
-		// The paths calculated could be classified either way.
-		// return WIND_EVEN_ODD;
-		return WIND_NON_ZERO;
-	}
-
-	public boolean isDone() {
-		return (prevcurve == null && curve == null);
-	}
-
-	public void next() {
-		if (prevcurve != null) {
-			prevcurve = null;
-		} else {
-			prevcurve = curve;
-			index++;
-			if (index < curves.size()) {
-				curve = curves.get(index);
-				if (curve.getOrder() != 0 && prevcurve.getX1() == curve.getX0()
-						&& prevcurve.getY1() == curve.getY0()) {
-					prevcurve = null;
-				}
-			} else {
-				curve = null;
-			}
-		}
-	}
-
-	public int currentSegment(float coords[]) {
-		double dcoords[] = new double[6];
-		int segtype = currentSegment(dcoords);
-		int numpoints = (segtype == SEG_CLOSE ? 0 : (segtype == SEG_QUADTO ? 2
-				: (segtype == SEG_CUBICTO ? 3 : 1)));
-		for (int i = 0; i < numpoints * 2; i++) {
-			coords[i] = (float) dcoords[i];
-		}
-		return segtype;
-	}
-
-	public int currentSegment(double coords[]) {
-		int segtype;
-		int numpoints;
-		if (prevcurve != null) {
-			// Need to finish off junction between curves
-			if (curve == null || curve.getOrder() == 0) {
-				return SEG_CLOSE;
-			}
-			coords[0] = curve.getX0();
-			coords[1] = curve.getY0();
-			segtype = SEG_LINETO;
-			numpoints = 1;
-		} else if (curve == null) {
-			throw new NoSuchElementException("area iterator out of bounds");
-		} else {
-			segtype = curve.getSegment(coords);
-			numpoints = curve.getOrder();
-			if (numpoints == 0) {
-				numpoints = 1;
-			}
-		}
-		if (transform != null) {
-			transform.transform(coords, 0, coords, 0, numpoints);
-		}
-		return segtype;
-	}
-}
\ No newline at end of file
@@ -0,0 +1,117 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.area;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.NoSuchElementException;
+
+class AreaXIterator implements PathIterator {
+	private AffineTransform transform;
+	protected AreaXBody curves;
+	private int index;
+	private CurveX prevcurve;
+	private CurveX curve;
+
+	/**
+	 * This creates an empty iterator. This is generally useless unless you call
+	 * <code>reset()</code> to define a body to iterate over.
+	 */
+	protected AreaXIterator() {
+	}
+
+	/**
+	 * Creates a <code>AreaXIterator</code> for a given <code>AreaXBody</code>.
+	 * 
+	 */
+	public AreaXIterator(AreaXBody curves, AffineTransform at) {
+		reset(curves, at);
+	}
+
+	protected void reset(AreaXBody curves, AffineTransform at) {
+		this.curves = curves;
+		this.transform = at;
+		if (curves.size() >= 1) {
+			curve = curves.get(0);
+		} else {
+			curve = null;
+		}
+		prevcurve = null;
+		index = 0;
+	}
+
+	public int getWindingRule() {
+		// REMIND: Which is better, EVEN_ODD or NON_ZERO?
+		// The paths calculated could be classified either way.
+		// return WIND_EVEN_ODD;
+		return WIND_NON_ZERO;
+	}
+
+	public boolean isDone() {
+		return (prevcurve == null && curve == null);
+	}
+
+	public void next() {
+		if (prevcurve != null) {
+			prevcurve = null;
+		} else {
+			prevcurve = curve;
+			index++;
+			if (index < curves.size()) {
+				curve = curves.get(index);
+				if (curve.getOrder() != 0 && prevcurve.getX1() == curve.getX0()
+						&& prevcurve.getY1() == curve.getY0()) {
+					prevcurve = null;
+				}
+			} else {
+				curve = null;
+			}
+		}
+	}
+
+	public int currentSegment(float coords[]) {
+		double dcoords[] = new double[6];
+		int segtype = currentSegment(dcoords);
+		int numpoints = (segtype == SEG_CLOSE ? 0 : (segtype == SEG_QUADTO ? 2
+				: (segtype == SEG_CUBICTO ? 3 : 1)));
+		for (int i = 0; i < numpoints * 2; i++) {
+			coords[i] = (float) dcoords[i];
+		}
+		return segtype;
+	}
+
+	public int currentSegment(double coords[]) {
+		int segtype;
+		int numpoints;
+		if (prevcurve != null) {
+			// Need to finish off junction between curves
+			if (curve == null || curve.getOrder() == 0) {
+				return SEG_CLOSE;
+			}
+			coords[0] = curve.getX0();
+			coords[1] = curve.getY0();
+			segtype = SEG_LINETO;
+			numpoints = 1;
+		} else if (curve == null) {
+			throw new NoSuchElementException("area iterator out of bounds");
+		} else {
+			segtype = curve.getSegment(coords);
+			numpoints = curve.getOrder();
+			if (numpoints == 0) {
+				numpoints = 1;
+			}
+		}
+		if (transform != null) {
+			transform.transform(coords, 0, coords, 0, numpoints);
+		}
+		return segtype;
+	}
+}
@@ -0,0 +1,335 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.area;
+
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+
+import com.pump.geom.Intersections;
+
+/**
+ * A bucketed edge table for an <code>AreaXBody</code>.
+ * <p>
+ * The vertical span of the body is divided into horizontal bands. Each band
+ * records which curves (for point-in-area tests) and which path segments (for
+ * intersection tests) overlap it. A query then only consults the curves and
+ * segments in the band(s) it touches instead of scanning every curve in the
+ * body.
+ * <p>
+ * This object is immutable once constructed, and it describes the body
+ * exactly as it existed when this index was created.
+ */
+class CurveIndex {
+
+	/**
+	 * The maximum number of bands an index uses.
+	 */
+	static final int MAX_BANDS = 1024;
+
+	private final double minY;
+	private final double bandHeight;
+	private final int bandCount;
+
+	private final CurveX[] curves;
+	/**
+	 * The curves in band k are <code>curves[curveBands[curveBandStart[k]]]</code>
+	 * through <code>curves[curveBands[curveBandStart[k+1]-1]]</code>.
+	 */
+	private final int[] curveBandStart, curveBands;
+
+	/**
+	 * The PathIterator segment type of each segment.
+	 */
+	private final int[] segmentTypes;
+	/**
+	 * 8 doubles per segment: the starting point followed by up to 3 points.
+	 */
+	private final double[] segmentCoords;
+	/**
+	 * 4 doubles per segment: minX, minY, maxX, maxY.
+	 */
+	private final double[] segmentBounds;
+	private final int[] segmentBandStart, segmentBands;
+
+	CurveIndex(AreaXBody body) {
+		Rectangle2D bounds = body.getBounds2D(null);
+		int size = body.size();
+		minY = bounds.getMinY();
+		if (bounds.getHeight() > 0) {
+			bandCount = Math.max(1, Math.min(MAX_BANDS, size / 4));
+			bandHeight = bounds.getHeight() / bandCount;
+		} else {
+			bandCount = 1;
+			bandHeight = 1;
+		}
+
+		curves = new CurveX[size];
+		double[] curveYRanges = new double[2 * size];
+		for (int a = 0; a < size; a++) {
+			CurveX c = body.get(a);
+			curves[a] = c;
+			curveYRanges[2 * a] = c.getYTop();
+			curveYRanges[2 * a + 1] = c.getYBot();
+		}
+		curveBandStart = new int[bandCount + 1];
+		curveBands = createBands(curveYRanges, 0, 1, 2, size,
+				curveBandStart);
+
+		// this should exactly mirror how AreaXBody.intersectsLine(..) walks
+		// through an AreaXIterator
+		int capacity = 2 * size + 1;
+		int[] types = new int[capacity];
+		double[] coords = new double[8 * capacity];
+		double[] segBounds = new double[4 * capacity];
+		int count = 0;
+		AreaXIterator axi = new AreaXIterator(body, null);
+		double lastX = 0;
+		double lastY = 0;
+		double moveX = 0;
+		double moveY = 0;
+		double[] c = new double[6];
+		while (axi.isDone() == false) {
+			int k = axi.currentSegment(c);
+			if (k == PathIterator.SEG_CLOSE) {
+				if (lastX != moveX || lastY != moveY) {
+					k = PathIterator.SEG_LINETO;
+					c[0] = moveX;
+					c[1] = moveY;
+				}
+			}
+			if (k == PathIterator.SEG_MOVETO) {
+				moveX = lastX = c[0];
+				moveY = lastY = c[1];
+			} else if (k == PathIterator.SEG_LINETO
+					|| k == PathIterator.SEG_QUADTO
+					|| k == PathIterator.SEG_CUBICTO) {
+				if (count == types.length) {
+					int newCapacity = 2 * count;
+					types = copyOf(types, newCapacity);
+					coords = copyOf(coords, 8 * newCapacity);
+					segBounds = copyOf(segBounds, 4 * newCapacity);
+				}
+				int pointCount = k == PathIterator.SEG_LINETO ? 1
+						: (k == PathIterator.SEG_QUADTO ? 2 : 3);
+				types[count] = k;
+				int i = 8 * count;
+				coords[i] = lastX;
+				coords[i + 1] = lastY;
+				double x1 = lastX, y1 = lastY, x2 = lastX, y2 = lastY;
+				for (int p = 0; p < pointCount; p++) {
+					double x = c[2 * p];
+					double y = c[2 * p + 1];
+					coords[i + 2 + 2 * p] = x;
+					coords[i + 3 + 2 * p] = y;
+					x1 = Math.min(x1, x);
+					y1 = Math.min(y1, y);
+					x2 = Math.max(x2, x);
+					y2 = Math.max(y2, y);
+				}
+				segBounds[4 * count] = x1;
+				segBounds[4 * count + 1] = y1;
+				segBounds[4 * count + 2] = x2;
+				segBounds[4 * count + 3] = y2;
+				lastX = c[2 * pointCount - 2];
+				lastY = c[2 * pointCount - 1];
+				count++;
+			}
+			axi.next();
+		}
+		segmentTypes = copyOf(types, count);
+		segmentCoords = copyOf(coords, 8 * count);
+		segmentBounds = copyOf(segBounds, 4 * count);
+		segmentBandStart = new int[bandCount + 1];
+		segmentBands = createBands(segmentBounds, 1, 3, 4, count,
+				segmentBandStart);
+	}
+
+	private static int[] copyOf(int[] array, int length) {
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(length, array.length));
+		return copy;
+	}
+
+	private static double[] copyOf(double[] array, int length) {
+		double[] copy = new double[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(length, array.length));
+		return copy;
+	}
+
+	/**
+	 * Assign elements to bands.
+	 *
+	 * @param yRanges
+	 *            an array containing the top and bottom of every element.
+	 * @param topOffset
+	 *            the offset of the first top value.
+	 * @param bottomOffset
+	 *            the offset of the first bottom value.
+	 * @param stride
+	 *            the distance between successive elements.
+	 * @param count
+	 *            the number of elements.
+	 * @param bandStart
+	 *            an array of <code>bandCount+1</code> elements that is
+	 *            populated with the starting index of every band.
+	 * @return the element indices of every band.
+	 */
+	private int[] createBands(double[] yRanges, int topOffset,
+			int bottomOffset, int stride, int count, int[] bandStart) {
+		int[] bandSizes = new int[bandCount];
+		for (int a = 0; a < count; a++) {
+			int b1 = getBand(yRanges[topOffset + a * stride]);
+			int b2 = getBand(yRanges[bottomOffset + a * stride]);
+			for (int b = b1; b <= b2; b++) {
+				bandSizes[b]++;
+			}
+		}
+		for (int b = 0; b < bandCount; b++) {
+			bandStart[b + 1] = bandStart[b] + bandSizes[b];
+		}
+		int[] bands = new int[bandStart[bandCount]];
+		int[] position = new int[bandCount];
+		System.arraycopy(bandStart, 0, position, 0, bandCount);
+		for (int a = 0; a < count; a++) {
+			int b1 = getBand(yRanges[topOffset + a * stride]);
+			int b2 = getBand(yRanges[bottomOffset + a * stride]);
+			for (int b = b1; b <= b2; b++) {
+				bands[position[b]++] = a;
+			}
+		}
+		return bands;
+	}
+
+	private int getBand(double y) {
+		double k = (y - minY) / bandHeight;
+		if (k <= 0)
+			return 0;
+		if (k >= bandCount - 1)
+			return bandCount - 1;
+		return (int) k;
+	}
+
+	/**
+	 * Return the number of curves crossed by a ray extending to the left of a
+	 * point.
+	 *
+	 * @see CurveX#crossingsFor(double, double)
+	 */
+	int crossingsFor(double x, double y) {
+		int band = getBand(y);
+		int crossings = 0;
+		for (int a = curveBandStart[band]; a < curveBandStart[band + 1]; a++) {
+			crossings += curves[curveBands[a]].crossingsFor(x, y);
+		}
+		return crossings;
+	}
+
+	/**
+	 * Return true if the line intersects any segment of this index.
+	 */
+	boolean intersectsLine(double x0, double y0, double x1, double y1) {
+		double[] q = { x0, y0, x1, y1 };
+		return intersects(PathIterator.SEG_LINETO, q, 2);
+	}
+
+	/**
+	 * Return true if the quadratic curve intersects any segment of this
+	 * index.
+	 */
+	boolean intersectsQuad(double x0, double y0, double cx, double cy,
+			double x1, double y1) {
+		double[] q = { x0, y0, cx, cy, x1, y1 };
+		return intersects(PathIterator.SEG_QUADTO, q, 3);
+	}
+
+	/**
+	 * Return true if the cubic curve intersects any segment of this index.
+	 */
+	boolean intersectsCubic(double x0, double y0, double cx0, double cy0,
+			double cx1, double cy1, double x1, double y1) {
+		double[] q = { x0, y0, cx0, cy0, cx1, cy1, x1, y1 };
+		return intersects(PathIterator.SEG_CUBICTO, q, 4);
+	}
+
+	private boolean intersects(int queryType, double[] q, int pointCount) {
+		double qx1 = q[0], qy1 = q[1], qx2 = q[0], qy2 = q[1];
+		for (int p = 1; p < pointCount; p++) {
+			qx1 = Math.min(qx1, q[2 * p]);
+			qy1 = Math.min(qy1, q[2 * p + 1]);
+			qx2 = Math.max(qx2, q[2 * p]);
+			qy2 = Math.max(qy2, q[2 * p + 1]);
+		}
+		int b1 = getBand(qy1);
+		int b2 = getBand(qy2);
+		for (int b = b1; b <= b2; b++) {
+			for (int a = segmentBandStart[b]; a < segmentBandStart[b + 1]; a++) {
+				int s = segmentBands[a];
+				int i = 4 * s;
+				if (segmentBounds[i] > qx2 || segmentBounds[i + 2] < qx1
+						|| segmentBounds[i + 1] > qy2
+						|| segmentBounds[i + 3] < qy1)
+					continue;
+				// a segment may span several bands; only test it in the first
+				// band it shares with the query
+				if (b != Math.max(b1, getBand(segmentBounds[i + 1])))
+					continue;
+				if (intersectsSegment(queryType, q, s))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Test one segment. The order of arguments passed to
+	 * <code>Intersections</code> matches the order AreaXBody has always used.
+	 */
+	private boolean intersectsSegment(int queryType, double[] q, int s) {
+		double[] c = segmentCoords;
+		int i = 8 * s;
+		int type = segmentTypes[s];
+		if (queryType == PathIterator.SEG_LINETO) {
+			if (type == PathIterator.SEG_LINETO) {
+				return Intersections.lineLine(q[0], q[1], q[2], q[3], c[i],
+						c[i + 1], c[i + 2], c[i + 3]);
+			} else if (type == PathIterator.SEG_QUADTO) {
+				return Intersections.lineQuad(q[0], q[1], q[2], q[3], c[i],
+						c[i + 1], c[i + 2], c[i + 3], c[i + 4], c[i + 5]);
+			}
+			return Intersections.lineCubic(q[0], q[1], q[2], q[3], c[i],
+					c[i + 1], c[i + 2], c[i + 3], c[i + 4], c[i + 5],
+					c[i + 6], c[i + 7]);
+		} else if (queryType == PathIterator.SEG_QUADTO) {
+			if (type == PathIterator.SEG_LINETO) {
+				return Intersections.lineQuad(c[i], c[i + 1], c[i + 2],
+						c[i + 3], q[0], q[1], q[2], q[3], q[4], q[5]);
+			} else if (type == PathIterator.SEG_QUADTO) {
+				return Intersections.quadQuad(q[0], q[1], q[2], q[3], q[4],
+						q[5], c[i], c[i + 1], c[i + 2], c[i + 3], c[i + 4],
+						c[i + 5]);
+			}
+			return Intersections.quadCubic(q[0], q[1], q[2], q[3], q[4], q[5],
+					c[i], c[i + 1], c[i + 2], c[i + 3], c[i + 4], c[i + 5],
+					c[i + 6], c[i + 7]);
+		}
+		if (type == PathIterator.SEG_LINETO) {
+			return Intersections.lineCubic(c[i], c[i + 1], c[i + 2],
+					c[i + 3], q[0], q[1], q[2], q[3], q[4], q[5], q[6], q[7]);
+		} else if (type == PathIterator.SEG_QUADTO) {
+			return Intersections.quadCubic(c[i], c[i + 1], c[i + 2],
+					c[i + 3], c[i + 4], c[i + 5], q[0], q[1], q[2], q[3],
+					q[4], q[5], q[6], q[7]);
+		}
+		return Intersections.cubicCubic(q[0], q[1], q[2], q[3], q[4], q[5],
+				q[6], q[7], c[i], c[i + 1], c[i + 2], c[i + 3], c[i + 4],
+				c[i + 5], c[i + 6], c[i + 7]);
+	}
+}
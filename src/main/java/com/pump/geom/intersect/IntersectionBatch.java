@@ -0,0 +1,211 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.intersect;
+
+import java.awt.Shape;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.pump.geom.intersect.IntersectionIdentifier.BatchIntersectionListener;
+import com.pump.geom.intersect.IntersectionIdentifier.SimpleIntersectionListener;
+
+/**
+ * This compares every pair of shapes in an array whose bounds touch.
+ * <p>
+ * This happens in three phases: first each shape is converted to a
+ * {@link SegmentTable} (in parallel), then a sweep-line over the bounds of
+ * each table identifies the pairs of shapes that need to be compared, and
+ * finally those pairs are compared in parallel. The results of each pair are
+ * buffered so the listener can be notified on the calling thread in a
+ * predictable order.
+ */
+class IntersectionBatch {
+
+	/**
+	 * The default number of shapes (or pairs of shapes) at which a task is
+	 * executed in the current thread.
+	 */
+	static final int SEQUENTIAL_THRESHOLD_DEFAULT = 4;
+
+	final IntersectionIdentifier identifier;
+	final Shape[] shapes;
+	final SegmentTable[] tables;
+	final int sequentialThreshold;
+
+	IntersectionBatch(IntersectionIdentifier identifier, Shape[] shapes) {
+		this(identifier, shapes, SEQUENTIAL_THRESHOLD_DEFAULT);
+	}
+
+	/**
+	 * @param sequentialThreshold
+	 *            when a task has this many shapes (or pairs of shapes) or
+	 *            fewer it is executed in the current thread. This must be at
+	 *            least 1.
+	 */
+	IntersectionBatch(IntersectionIdentifier identifier, Shape[] shapes,
+			int sequentialThreshold) {
+		if (sequentialThreshold < 1)
+			throw new IllegalArgumentException("sequentialThreshold ("
+					+ sequentialThreshold + ") must be at least 1");
+		this.identifier = identifier;
+		this.shapes = shapes;
+		this.sequentialThreshold = sequentialThreshold;
+		tables = new SegmentTable[shapes.length];
+	}
+
+	void run(BatchIntersectionListener listener) {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		pool.invoke(new TableTask(0, shapes.length));
+
+		long[] pairs = getCandidatePairs();
+		double[][] results = new double[pairs.length][];
+		pool.invoke(new PairTask(pairs, results, 0, pairs.length));
+
+		for (int a = 0; a < pairs.length; a++) {
+			int shapeIndex1 = (int) (pairs[a] >>> 32);
+			int shapeIndex2 = (int) pairs[a];
+			double[] r = results[a];
+			for (int b = 0; b < r.length; b += 6) {
+				listener.intersection(shapeIndex1, shapeIndex2, r[b],
+						r[b + 1], r[b + 2], r[b + 3], (int) r[b + 4],
+						(int) r[b + 5]);
+			}
+		}
+	}
+
+	/**
+	 * Sweep a vertical line across the bounds of all the tables to identify
+	 * the pairs of shapes whose bounds touch.
+	 *
+	 * @return the sorted pairs of shape indices, encoded as a long where the
+	 *         upper 32 bits are the smaller index.
+	 */
+	private long[] getCandidatePairs() {
+		Integer[] order = new Integer[tables.length];
+		for (int a = 0; a < order.length; a++) {
+			order[a] = a;
+		}
+		Arrays.sort(order,
+				(i1, i2) -> Double.compare(tables[i1].minX, tables[i2].minX));
+
+		int[] active = new int[16];
+		int activeSize = 0;
+		long[] pairs = new long[16];
+		int pairCount = 0;
+		for (int index : order) {
+			SegmentTable table = tables[index];
+			if (table.size == 0)
+				continue;
+			int k = 0;
+			for (int a = 0; a < activeSize; a++) {
+				int other = active[a];
+				if (tables[other].maxX < table.minX)
+					continue;
+				active[k++] = other;
+				if (table.intersects(tables[other])) {
+					if (pairCount == pairs.length)
+						pairs = Arrays.copyOf(pairs, pairCount * 2);
+					int i1 = Math.min(index, other);
+					int i2 = Math.max(index, other);
+					pairs[pairCount++] = (((long) i1) << 32) | i2;
+				}
+			}
+			activeSize = k;
+			if (activeSize == active.length)
+				active = Arrays.copyOf(active, activeSize * 2);
+			active[activeSize++] = index;
+		}
+		pairs = Arrays.copyOf(pairs, pairCount);
+		Arrays.sort(pairs);
+		return pairs;
+	}
+
+	class TableTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int start, end;
+
+		TableTask(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= sequentialThreshold) {
+				for (int a = start; a < end; a++) {
+					tables[a] = new SegmentTable(shapes[a], null);
+				}
+				return;
+			}
+			int mid = (start + end) / 2;
+			invokeAll(new TableTask(start, mid), new TableTask(mid, end));
+		}
+	}
+
+	class PairTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final long[] pairs;
+		final double[][] results;
+		final int start, end;
+
+		PairTask(long[] pairs, double[][] results, int start, int end) {
+			this.pairs = pairs;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= sequentialThreshold) {
+				for (int a = start; a < end; a++) {
+					SegmentTable table1 = tables[(int) (pairs[a] >>> 32)];
+					SegmentTable table2 = tables[(int) pairs[a]];
+					results[a] = getResults(table1, table2);
+				}
+				return;
+			}
+			int mid = (start + end) / 2;
+			invokeAll(new PairTask(pairs, results, start, mid), new PairTask(
+					pairs, results, mid, end));
+		}
+	}
+
+	/**
+	 * Return the intersections of two tables, stored as 6 doubles each: x, y,
+	 * t1, t2, segmentIndex1, segmentIndex2.
+	 */
+	private double[] getResults(SegmentTable table1, SegmentTable table2) {
+		class Recorder extends SimpleIntersectionListener {
+			double[] data = new double[0];
+			int size = 0;
+
+			@Override
+			public void intersection(double x, double y, double t1,
+					double t2, int segmentIndex1, int segmentIndex2) {
+				if (size + 6 > data.length)
+					data = Arrays.copyOf(data, Math.max(12, data.length * 2));
+				data[size++] = x;
+				data[size++] = y;
+				data[size++] = t1;
+				data[size++] = t2;
+				data[size++] = segmentIndex1;
+				data[size++] = segmentIndex2;
+			}
+		}
+		Recorder recorder = new Recorder();
+		identifier.getIntersections(table1, table2, recorder);
+		return Arrays.copyOf(recorder.data, recorder.size);
+	}
+}
@@ -76,16 +76,14 @@ abstract public class IntersectionIdentifier {
 				int segmentIndex1, int segmentIndex2, double lastX1,
 				double lastY1, double x1, double y1, double lastX2,
 				double lastY2, double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
 		}
 
 		public void lineQuadraticIntersection(double[] results, int size,
 				int segmentIndex1, int segmentIndex2, double lastX1,
 				double lastY1, double x1, double y1, double lastX2,
 				double lastY2, double cx2, double cy2, double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
 		}
 
 		public void lineCubicIntersection(double[] results, int size,
@@ -93,16 +91,14 @@ abstract public class IntersectionIdentifier {
 				double lastY1, double x1, double y1, double lastX2,
 				double lastY2, double cx2a, double cy2a, double cx2b,
 				double cy2b, double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
 		}
 
 		public void quadraticLineIntersection(double[] results, int size,
 				int segmentIndex1, int segmentIndex2, double lastX1,
 				double lastY1, double cx1, double cy1, double x1, double y1,
 				double lastX2, double lastY2, double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
 		}
 
 		public void quadraticQuadraticIntersection(double[] results, int size,
@@ -110,8 +106,7 @@ abstract public class IntersectionIdentifier {
 				double lastY1, double cx1, double cy1, double x1, double y1,
 				double lastX2, double lastY2, double cx2, double cy2,
 				double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
 		}
 
 		public void quadraticCubicIntersection(double[] results, int size,
@@ -119,8 +114,7 @@ abstract public class IntersectionIdentifier {
 				double lastY1, double cx1, double cy1, double x1, double y1,
 				double lastX2, double lastY2, double cx2a, double cy2a,
 				double cx2b, double cy2b, double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
 		}
 
 		public void cubicLineIntersection(double[] results, int size,
@@ -128,8 +122,7 @@ abstract public class IntersectionIdentifier {
 				double lastY1, double cx1a, double cy1a, double cx1b,
 				double cy1b, double x1, double y1, double lastX2,
 				double lastY2, double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
 		}
 
 		public void cubicCubicIntersection(double[] results, int size,
@@ -138,8 +131,7 @@ abstract public class IntersectionIdentifier {
 				double cy1b, double x1, double y1, double lastX2,
 				double lastY2, double cx2a, double cy2a, double cx2b,
 				double cy2b, double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
 		}
 
 		public void cubicQuadraticIntersection(double[] results, int size,
@@ -147,8 +139,16 @@ abstract public class IntersectionIdentifier {
 				double lastY1, double cx1a, double cy1a, double cx1b,
 				double cy1b, double x1, double y1, double lastX2,
 				double lastY2, double cx2, double cy2, double x2, double y2) {
-			intersection(results[0], results[1], results[2], results[3],
-					segmentIndex1, segmentIndex2);
+			intersection(results, size, segmentIndex1, segmentIndex2);
+		}
+
+		private void intersection(double[] results, int size,
+				int segmentIndex1, int segmentIndex2) {
+			for (int a = 0; a < size; a++) {
+				intersection(results[4 * a], results[4 * a + 1],
+						results[4 * a + 2], results[4 * a + 3], segmentIndex1,
+						segmentIndex2);
+			}
 		}
 
 		public abstract void intersection(double x, double y, double t1,
@@ -619,251 +619,225 @@ abstract public class IntersectionIdentifier {
 
 	}
 
+	/**
+	 * An interface to receive intersections identified by
+	 * {@link IntersectionIdentifier#getIntersections(Shape[], BatchIntersectionListener)}
+	 * .
+	 */
+	public static interface BatchIntersectionListener {
+		/**
+		 * This is notified when an intersection is identified.
+		 * 
+		 * @param shapeIndex1
+		 *            the index of the first shape.
+		 * @param shapeIndex2
+		 *            the index of the second shape. This is always greater
+		 *            than <code>shapeIndex1</code>.
+		 * @param x
+		 *            the x-coordinate of the intersection.
+		 * @param y
+		 *            the y-coordinate of the intersection.
+		 * @param t1
+		 *            the t-value of the intersection in the first segment.
+		 * @param t2
+		 *            the t-value of the intersection in the second segment.
+		 * @param segmentIndex1
+		 *            the index of the segment in the first shape.
+		 * @param segmentIndex2
+		 *            the index of the segment in the second shape.
+		 */
+		void intersection(int shapeIndex1, int shapeIndex2, double x,
+				double y, double t1, double t2, int segmentIndex1,
+				int segmentIndex2);
+	}
+
 	public void getIntersections(Shape shape1, Shape shape2,
 			IntersectionListener listener) {
 		getIntersections(shape1, null, shape2, null, listener);
 	}
 
+	/**
+	 * Identify all the intersections of two shapes.
+	 * <p>
+	 * Segments are first paired using a sweep-line over their bounding boxes,
+	 * so only segments whose bounds touch are passed to this object's
+	 * segment-level methods (such as
+	 * {@link #cubicCubicBezier(double, double, double, double, double, double, double, double, double, double, double, double, double, double, double, double, double[], int, Return)}
+	 * ). The listener is notified in ascending order of the first segment
+	 * index, and then in ascending order of the second segment index.
+	 */
 	public void getIntersections(Shape shape1, AffineTransform transform1,
 			Shape shape2, AffineTransform transform2,
 			IntersectionListener listener) {
-		IntersectionIdentifier i = get();
 		if (shape1 == null)
 			throw new NullPointerException();
 		if (shape2 == null)
 			throw new NullPointerException();
 		if (listener == null)
 			throw new NullPointerException();
+		getIntersections(new SegmentTable(shape1, transform1),
+				new SegmentTable(shape2, transform2), listener);
+	}
+
+	/**
+	 * Identify all the intersections between every pair of shapes in an array.
+	 * <p>
+	 * Shapes whose bounds do not touch are never compared, and the remaining
+	 * pairs are processed in parallel on the common <code>ForkJoinPool</code>.
+	 * Each shape is only iterated over once, no matter how many other shapes
+	 * it is compared against. A shape is not compared against itself.
+	 * <p>
+	 * The listener is always notified on the calling thread, in ascending order
+	 * of the first shape index and then the second shape index.
+	 * 
+	 * @param shapes
+	 *            the shapes to compare.
+	 * @param listener
+	 *            the listener to notify.
+	 */
+	public void getIntersections(Shape[] shapes,
+			BatchIntersectionListener listener) {
+		if (shapes == null)
+			throw new NullPointerException();
+		if (listener == null)
+			throw new NullPointerException();
+		new IntersectionBatch(this, shapes).run(listener);
+	}
+
+	void getIntersections(SegmentTable table1, SegmentTable table2,
+			IntersectionListener listener) {
 		double[] results = new double[36]; // (4 pieces of data) x (9 possible
 											// intersections)
-		double[] coords1 = new double[6];
-		double[] coords2 = new double[6];
-		PathIterator iter1 = shape1.getPathIterator(transform1);
-		int segmentIndex1 = 0;
-		double moveX1 = 0;
-		double moveY1 = 0;
-		double lastX1 = 0;
-		double lastY1 = 0;
-		double moveX2 = 0;
-		double moveY2 = 0;
-		double lastX2 = 0;
-		double lastY2 = 0;
-		while (!iter1.isDone()) {
-			int k1 = iter1.currentSegment(coords1);
-			if (k1 == PathIterator.SEG_MOVETO) {
-				moveX1 = coords1[0];
-				moveY1 = coords1[1];
-			} else {
-				PathIterator iter2 = shape2.getPathIterator(transform2);
-				int segmentIndex2 = 0;
-				while (!iter2.isDone()) {
-					int k2 = iter2.currentSegment(coords2);
-					if (k2 == PathIterator.SEG_MOVETO) {
-						moveX2 = coords2[0];
-						moveY2 = coords2[1];
-					} else {
-						boolean skip = false;
-						if (k1 == PathIterator.SEG_CLOSE) {
-							if (Math.abs(lastX1 - moveX1) < .0001
-									&& Math.abs(lastY1 - moveY1) < .0001) {
-								skip = true;
-							} else {
-								coords1[0] = moveX1;
-								coords1[1] = moveY1;
-								k1 = PathIterator.SEG_LINETO;
-							}
-						}
-						if (k2 == PathIterator.SEG_CLOSE) {
-							if (Math.abs(lastX2 - moveX2) < .0001
-									&& Math.abs(lastY2 - moveY2) < .0001) {
-								skip = true;
-							} else {
-								coords2[0] = moveX2;
-								coords2[1] = moveY2;
-								k2 = PathIterator.SEG_LINETO;
-							}
-						}
-
-						if (!skip) {
-							if (k1 == PathIterator.SEG_LINETO
-									&& k2 == PathIterator.SEG_LINETO) {
-								int size = i.lineLineBezier(lastX1, lastY1,
-										coords1[0], coords1[1], lastX2, lastY2,
-										coords2[0], coords2[1], results, 0,
-										Return.X_Y_T1_T2);
-								if (size > 0) {
-									listener.lineLineIntersection(results,
-											size, segmentIndex1, segmentIndex2,
-											lastX1, lastY1, coords1[0],
-											coords1[1], lastX2, lastY2,
-											coords2[0], coords2[1]);
-								}
-							} else if (k1 == PathIterator.SEG_LINETO
-									&& k2 == PathIterator.SEG_QUADTO) {
-								int size = i.lineQuadraticBezier(lastX1,
-										lastY1, coords1[0], coords1[1], lastX2,
-										lastY2, coords2[0], coords2[1],
-										coords2[2], coords2[3], results, 0,
-										Return.X_Y_T1_T2);
-								if (size > 0) {
-									listener.lineQuadraticIntersection(results,
-											size, segmentIndex1, segmentIndex2,
-											lastX1, lastY1, coords1[0],
-											coords1[1], lastX2, lastY2,
-											coords2[0], coords2[1], coords2[2],
-											coords2[3]);
-								}
-							} else if (k1 == PathIterator.SEG_LINETO
-									&& k2 == PathIterator.SEG_CUBICTO) {
-								int size = i.lineCubicBezier(lastX1, lastY1,
-										coords1[0], coords1[1], lastX2, lastY2,
-										coords2[0], coords2[1], coords2[2],
-										coords2[3], coords2[4], coords2[5],
-										results, 0, Return.X_Y_T1_T2);
-								if (size > 0) {
-									listener.lineCubicIntersection(results,
-											size, segmentIndex1, segmentIndex2,
-											lastX1, lastY1, coords1[0],
-											coords1[1], lastX2, lastY2,
-											coords2[0], coords2[1], coords2[2],
-											coords2[3], coords2[4], coords2[5]);
-								}
-							} else if (k1 == PathIterator.SEG_QUADTO
-									&& k2 == PathIterator.SEG_LINETO) {
-								int size = i.lineQuadraticBezier(lastX2,
-										lastY2, coords2[0], coords2[1], lastX1,
-										lastY1, coords1[0], coords1[1],
-										coords1[2], coords1[3], results, 0,
-										Return.X_Y_T1_T2);
-								if (size > 0) {
-									swapTValues(results, size);
-									listener.quadraticLineIntersection(results,
-											size, segmentIndex1, segmentIndex2,
-											lastX1, lastY1, coords1[0],
-											coords1[1], coords1[2], coords1[3],
-											lastX2, lastY2, coords2[0],
-											coords2[1]);
-								}
-							} else if (k1 == PathIterator.SEG_QUADTO
-									&& k2 == PathIterator.SEG_QUADTO) {
-								int size = i.quadraticQuadraticBezier(lastX1,
-										lastY1, coords1[0], coords1[1],
-										coords1[2], coords1[3], lastX2, lastY2,
-										coords2[0], coords2[1], coords2[2],
-										coords2[3], results, 0,
-										Return.X_Y_T1_T2);
-								if (size > 0) {
-									listener.quadraticQuadraticIntersection(
-											results, size, segmentIndex1,
-											segmentIndex2, lastX1, lastY1,
-											coords1[0], coords1[1], coords1[2],
-											coords1[3], lastX2, lastY2,
-											coords2[0], coords2[1], coords2[2],
-											coords2[3]);
-								}
-							} else if (k1 == PathIterator.SEG_QUADTO
-									&& k2 == PathIterator.SEG_CUBICTO) {
-								int size = i.quadraticCubicBezier(lastX1,
-										lastY1, coords1[0], coords1[1],
-										coords1[2], coords1[3], lastX2, lastY2,
-										coords2[0], coords2[1], coords2[2],
-										coords2[3], coords2[4], coords2[5],
-										results, 0, Return.X_Y_T1_T2);
-								if (size > 0) {
-									listener.quadraticCubicIntersection(
-											results, size, segmentIndex1,
-											segmentIndex2, lastX1, lastY1,
-											coords1[0], coords1[1], coords1[2],
-											coords1[3], lastX2, lastY2,
-											coords2[0], coords2[1], coords2[2],
-											coords2[3], coords2[4], coords2[5]);
-								}
-							} else if (k1 == PathIterator.SEG_CUBICTO
-									&& k2 == PathIterator.SEG_LINETO) {
-								int size = i.lineCubicBezier(lastX2, lastY2,
-										coords2[0], coords2[1], lastX1, lastY1,
-										coords1[0], coords1[1], coords1[2],
-										coords1[3], coords1[4], coords1[5],
-										results, 0, Return.X_Y_T1_T2);
-								if (size > 0) {
-									swapTValues(results, size);
-									listener.cubicLineIntersection(results,
-											size, segmentIndex1, segmentIndex2,
-											lastX1, lastY1, coords1[0],
-											coords1[1], coords1[2], coords1[3],
-											coords1[4], coords1[5], lastX2,
-											lastY2, coords2[0], coords2[1]);
-								}
-							} else if (k1 == PathIterator.SEG_CUBICTO
-									&& k2 == PathIterator.SEG_QUADTO) {
-								int size = i.quadraticCubicBezier(lastX2,
-										lastY2, coords2[0], coords2[1],
-										coords2[2], coords2[3], lastX1, lastY1,
-										coords1[0], coords1[1], coords1[2],
-										coords1[3], coords1[4], coords1[5],
-										results, 0, Return.X_Y_T1_T2);
-								if (size > 0) {
-									swapTValues(results, size);
-									listener.cubicQuadraticIntersection(
-											results, size, segmentIndex1,
-											segmentIndex2, lastX1, lastY1,
-											coords1[0], coords1[1], coords1[2],
-											coords1[3], coords1[4], coords1[5],
-											lastX2, lastY2, coords2[0],
-											coords2[1], coords2[2], coords2[3]);
-								}
-							} else if (k1 == PathIterator.SEG_CUBICTO
-									&& k2 == PathIterator.SEG_CUBICTO) {
-								int size = i.cubicCubicBezier(lastX1, lastY1,
-										coords1[0], coords1[1], coords1[2],
-										coords1[3], coords1[4], coords1[5],
-										lastX2, lastY2, coords2[0], coords2[1],
-										coords2[2], coords2[3], coords2[4],
-										coords2[5], results, 0,
-										Return.X_Y_T1_T2);
-								if (size > 0) {
-									listener.cubicCubicIntersection(results,
-											size, segmentIndex1, segmentIndex2,
-											lastX1, lastY1, coords1[0],
-											coords1[1], coords1[2], coords1[3],
-											coords1[4], coords1[5], lastX2,
-											lastY2, coords2[0], coords2[1],
-											coords2[2], coords2[3], coords2[4],
-											coords2[5]);
-								}
-							}
-						}
-					}
+		long[] pairs = table1.getCandidatePairs(table2);
+		for (long pair : pairs) {
+			intersect(table1, (int) (pair >>> 32), table2, (int) pair,
+					results, listener);
+		}
+	}
 
-					if (k2 == PathIterator.SEG_CUBICTO) {
-						lastX2 = coords2[4];
-						lastY2 = coords2[5];
-					} else if (k2 == PathIterator.SEG_CUBICTO) {
-						lastX2 = coords2[2];
-						lastY2 = coords2[3];
-					} else if (k2 == PathIterator.SEG_LINETO
-							|| k2 == PathIterator.SEG_MOVETO) {
-						lastX2 = coords2[0];
-						lastY2 = coords2[1];
-					}
-					iter2.next();
-					segmentIndex2++;
-				}
+	/**
+	 * Identify the intersections of one segment from each table.
+	 */
+	private void intersect(SegmentTable table1, int p1, SegmentTable table2,
+			int p2, double[] results, IntersectionListener listener) {
+		int k1 = table1.types[p1];
+		int k2 = table2.types[p2];
+		int segmentIndex1 = table1.indices[p1];
+		int segmentIndex2 = table2.indices[p2];
+		double[] c1 = table1.coords;
+		double[] c2 = table2.coords;
+		int i = p1 * SegmentTable.STRIDE;
+		int j = p2 * SegmentTable.STRIDE;
+		if (k1 == PathIterator.SEG_LINETO && k2 == PathIterator.SEG_LINETO) {
+			int size = lineLineBezier(c1[i], c1[i + 1], c1[i + 2], c1[i + 3],
+					c2[j], c2[j + 1], c2[j + 2], c2[j + 3], results, 0,
+					Return.X_Y_T1_T2);
+			if (size > 0) {
+				listener.lineLineIntersection(results, size, segmentIndex1,
+						segmentIndex2, c1[i], c1[i + 1], c1[i + 2], c1[i + 3],
+						c2[j], c2[j + 1], c2[j + 2], c2[j + 3]);
 			}
-
-			if (k1 == PathIterator.SEG_CUBICTO) {
-				lastX1 = coords1[4];
-				lastY1 = coords1[5];
-			} else if (k1 == PathIterator.SEG_CUBICTO) {
-				lastX1 = coords1[2];
-				lastY1 = coords1[3];
-			} else if (k1 == PathIterator.SEG_LINETO
-					|| k1 == PathIterator.SEG_MOVETO) {
-				lastX1 = coords1[0];
-				lastY1 = coords1[1];
+		} else if (k1 == PathIterator.SEG_LINETO
+				&& k2 == PathIterator.SEG_QUADTO) {
+			int size = lineQuadraticBezier(c1[i], c1[i + 1], c1[i + 2],
+					c1[i + 3], c2[j], c2[j + 1], c2[j + 2], c2[j + 3],
+					c2[j + 4], c2[j + 5], results, 0, Return.X_Y_T1_T2);
+			if (size > 0) {
+				listener.lineQuadraticIntersection(results, size,
+						segmentIndex1, segmentIndex2, c1[i], c1[i + 1],
+						c1[i + 2], c1[i + 3], c2[j], c2[j + 1], c2[j + 2],
+						c2[j + 3], c2[j + 4], c2[j + 5]);
+			}
+		} else if (k1 == PathIterator.SEG_LINETO
+				&& k2 == PathIterator.SEG_CUBICTO) {
+			int size = lineCubicBezier(c1[i], c1[i + 1], c1[i + 2], c1[i + 3],
+					c2[j], c2[j + 1], c2[j + 2], c2[j + 3], c2[j + 4],
+					c2[j + 5], c2[j + 6], c2[j + 7], results, 0,
+					Return.X_Y_T1_T2);
+			if (size > 0) {
+				listener.lineCubicIntersection(results, size, segmentIndex1,
+						segmentIndex2, c1[i], c1[i + 1], c1[i + 2], c1[i + 3],
+						c2[j], c2[j + 1], c2[j + 2], c2[j + 3], c2[j + 4],
+						c2[j + 5], c2[j + 6], c2[j + 7]);
+			}
+		} else if (k1 == PathIterator.SEG_QUADTO
+				&& k2 == PathIterator.SEG_LINETO) {
+			int size = lineQuadraticBezier(c2[j], c2[j + 1], c2[j + 2],
+					c2[j + 3], c1[i], c1[i + 1], c1[i + 2], c1[i + 3],
+					c1[i + 4], c1[i + 5], results, 0, Return.X_Y_T1_T2);
+			if (size > 0) {
+				swapTValues(results, size);
+				listener.quadraticLineIntersection(results, size,
+						segmentIndex1, segmentIndex2, c1[i], c1[i + 1],
+						c1[i + 2], c1[i + 3], c1[i + 4], c1[i + 5], c2[j],
+						c2[j + 1], c2[j + 2], c2[j + 3]);
+			}
+		} else if (k1 == PathIterator.SEG_QUADTO
+				&& k2 == PathIterator.SEG_QUADTO) {
+			int size = quadraticQuadraticBezier(c1[i], c1[i + 1], c1[i + 2],
+					c1[i + 3], c1[i + 4], c1[i + 5], c2[j], c2[j + 1],
+					c2[j + 2], c2[j + 3], c2[j + 4], c2[j + 5], results, 0,
+					Return.X_Y_T1_T2);
+			if (size > 0) {
+				listener.quadraticQuadraticIntersection(results, size,
+						segmentIndex1, segmentIndex2, c1[i], c1[i + 1],
+						c1[i + 2], c1[i + 3], c1[i + 4], c1[i + 5], c2[j],
+						c2[j + 1], c2[j + 2], c2[j + 3], c2[j + 4], c2[j + 5]);
+			}
+		} else if (k1 == PathIterator.SEG_QUADTO
+				&& k2 == PathIterator.SEG_CUBICTO) {
+			int size = quadraticCubicBezier(c1[i], c1[i + 1], c1[i + 2],
+					c1[i + 3], c1[i + 4], c1[i + 5], c2[j], c2[j + 1],
+					c2[j + 2], c2[j + 3], c2[j + 4], c2[j + 5], c2[j + 6],
+					c2[j + 7], results, 0, Return.X_Y_T1_T2);
+			if (size > 0) {
+				listener.quadraticCubicIntersection(results, size,
+						segmentIndex1, segmentIndex2, c1[i], c1[i + 1],
+						c1[i + 2], c1[i + 3], c1[i + 4], c1[i + 5], c2[j],
+						c2[j + 1], c2[j + 2], c2[j + 3], c2[j + 4], c2[j + 5],
+						c2[j + 6], c2[j + 7]);
+			}
+		} else if (k1 == PathIterator.SEG_CUBICTO
+				&& k2 == PathIterator.SEG_LINETO) {
+			int size = lineCubicBezier(c2[j], c2[j + 1], c2[j + 2], c2[j + 3],
+					c1[i], c1[i + 1], c1[i + 2], c1[i + 3], c1[i + 4],
+					c1[i + 5], c1[i + 6], c1[i + 7], results, 0,
+					Return.X_Y_T1_T2);
+			if (size > 0) {
+				swapTValues(results, size);
+				listener.cubicLineIntersection(results, size, segmentIndex1,
+						segmentIndex2, c1[i], c1[i + 1], c1[i + 2], c1[i + 3],
+						c1[i + 4], c1[i + 5], c1[i + 6], c1[i + 7], c2[j],
+						c2[j + 1], c2[j + 2], c2[j + 3]);
+			}
+		} else if (k1 == PathIterator.SEG_CUBICTO
+				&& k2 == PathIterator.SEG_QUADTO) {
+			int size = quadraticCubicBezier(c2[j], c2[j + 1], c2[j + 2],
+					c2[j + 3], c2[j + 4], c2[j + 5], c1[i], c1[i + 1],
+					c1[i + 2], c1[i + 3], c1[i + 4], c1[i + 5], c1[i + 6],
+					c1[i + 7], results, 0, Return.X_Y_T1_T2);
+			if (size > 0) {
+				swapTValues(results, size);
+				listener.cubicQuadraticIntersection(results, size,
+						segmentIndex1, segmentIndex2, c1[i], c1[i + 1],
+						c1[i + 2], c1[i + 3], c1[i + 4], c1[i + 5], c1[i + 6],
+						c1[i + 7], c2[j], c2[j + 1], c2[j + 2], c2[j + 3],
+						c2[j + 4], c2[j + 5]);
+			}
+		} else if (k1 == PathIterator.SEG_CUBICTO
+				&& k2 == PathIterator.SEG_CUBICTO) {
+			int size = cubicCubicBezier(c1[i], c1[i + 1], c1[i + 2],
+					c1[i + 3], c1[i + 4], c1[i + 5], c1[i + 6], c1[i + 7],
+					c2[j], c2[j + 1], c2[j + 2], c2[j + 3], c2[j + 4],
+					c2[j + 5], c2[j + 6], c2[j + 7], results, 0,
+					Return.X_Y_T1_T2);
+			if (size > 0) {
+				listener.cubicCubicIntersection(results, size, segmentIndex1,
+						segmentIndex2, c1[i], c1[i + 1], c1[i + 2], c1[i + 3],
+						c1[i + 4], c1[i + 5], c1[i + 6], c1[i + 7], c2[j],
+						c2[j + 1], c2[j + 2], c2[j + 3], c2[j + 4], c2[j + 5],
+						c2[j + 6], c2[j + 7]);
 			}
-			iter1.next();
-			segmentIndex1++;
 		}
 	}
 
@@ -0,0 +1,240 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.intersect;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * The drawable segments of a shape stored in primitive arrays, along with the
+ * bounding box of each segment's control points.
+ * <p>
+ * MOVETO segments are not stored (but they still count towards the segment
+ * indices reported to listeners), and SEG_CLOSE segments are stored as lines
+ * back to the last MOVETO unless they are degenerate.
+ */
+class SegmentTable {
+
+	/**
+	 * The number of coordinates stored for every segment: the starting point
+	 * followed by up to 6 coordinates from the <code>PathIterator</code>.
+	 */
+	static final int STRIDE = 8;
+
+	int size = 0;
+	/** The segment types: SEG_LINETO, SEG_QUADTO or SEG_CUBICTO. */
+	byte[] types = new byte[16];
+	/** The index of each segment in the original <code>PathIterator</code>. */
+	int[] indices = new int[16];
+	double[] coords = new double[16 * STRIDE];
+	/** The bounds of each segment: minX, minY, maxX, maxY. */
+	double[] bounds = new double[16 * 4];
+	double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE,
+			maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+	SegmentTable(Shape shape, AffineTransform transform) {
+		PathIterator iter = shape.getPathIterator(transform);
+		double[] c = new double[6];
+		int segmentIndex = 0;
+		double moveX = 0;
+		double moveY = 0;
+		double lastX = 0;
+		double lastY = 0;
+		while (!iter.isDone()) {
+			int k = iter.currentSegment(c);
+			if (k == PathIterator.SEG_MOVETO) {
+				moveX = lastX = c[0];
+				moveY = lastY = c[1];
+			} else if (k == PathIterator.SEG_CLOSE) {
+				if (Math.abs(lastX - moveX) >= .0001
+						|| Math.abs(lastY - moveY) >= .0001) {
+					c[0] = moveX;
+					c[1] = moveY;
+					add(PathIterator.SEG_LINETO, segmentIndex, lastX, lastY, c);
+				}
+				lastX = moveX;
+				lastY = moveY;
+			} else {
+				add(k, segmentIndex, lastX, lastY, c);
+				int n = k == PathIterator.SEG_LINETO ? 2
+						: k == PathIterator.SEG_QUADTO ? 4 : 6;
+				lastX = c[n - 2];
+				lastY = c[n - 1];
+			}
+			iter.next();
+			segmentIndex++;
+		}
+	}
+
+	private void add(int type, int segmentIndex, double lastX, double lastY,
+			double[] c) {
+		if (size == types.length) {
+			int newLength = size * 2;
+			types = Arrays.copyOf(types, newLength);
+			indices = Arrays.copyOf(indices, newLength);
+			coords = Arrays.copyOf(coords, newLength * STRIDE);
+			bounds = Arrays.copyOf(bounds, newLength * 4);
+		}
+		int n = type == PathIterator.SEG_LINETO ? 2
+				: type == PathIterator.SEG_QUADTO ? 4 : 6;
+		int offset = size * STRIDE;
+		coords[offset] = lastX;
+		coords[offset + 1] = lastY;
+		System.arraycopy(c, 0, coords, offset + 2, n);
+
+		double x1 = lastX, y1 = lastY, x2 = lastX, y2 = lastY;
+		for (int a = 0; a < n; a += 2) {
+			x1 = Math.min(x1, c[a]);
+			x2 = Math.max(x2, c[a]);
+			y1 = Math.min(y1, c[a + 1]);
+			y2 = Math.max(y2, c[a + 1]);
+		}
+		bounds[size * 4] = x1;
+		bounds[size * 4 + 1] = y1;
+		bounds[size * 4 + 2] = x2;
+		bounds[size * 4 + 3] = y2;
+		minX = Math.min(minX, x1);
+		minY = Math.min(minY, y1);
+		maxX = Math.max(maxX, x2);
+		maxY = Math.max(maxY, y2);
+
+		types[size] = (byte) type;
+		indices[size] = segmentIndex;
+		size++;
+	}
+
+	/**
+	 * Return true if the bounds of these tables touch.
+	 */
+	boolean intersects(SegmentTable other) {
+		return size > 0 && other.size > 0 && minX <= other.maxX
+				&& other.minX <= maxX && minY <= other.maxY
+				&& other.minY <= maxY;
+	}
+
+	/**
+	 * Return the positions of this table's segments sorted by their minimum
+	 * x-value.
+	 */
+	private int[] getSortedPositions() {
+		Integer[] boxed = new Integer[size];
+		for (int a = 0; a < size; a++) {
+			boxed[a] = a;
+		}
+		Arrays.sort(boxed, (p1, p2) -> Double.compare(bounds[p1 * 4],
+				bounds[p2 * 4]));
+		int[] positions = new int[size];
+		for (int a = 0; a < size; a++) {
+			positions[a] = boxed[a];
+		}
+		return positions;
+	}
+
+	/**
+	 * Identify every pair of segments (one from this table and one from
+	 * another table) whose bounds touch.
+	 * <p>
+	 * This sweeps a vertical line from left to right across both tables,
+	 * keeping track of the segments the line currently crosses, so only
+	 * segments that overlap horizontally are compared against each other.
+	 *
+	 * @return the candidate pairs, sorted first by this table's position and
+	 *         then by the other table's position. Each pair is encoded as a
+	 *         long where the upper 32 bits are the position in this table and
+	 *         the lower 32 bits are the position in the other table.
+	 */
+	long[] getCandidatePairs(SegmentTable other) {
+		if (!intersects(other))
+			return new long[0];
+
+		int[] order1 = getSortedPositions();
+		int[] order2 = other.getSortedPositions();
+		int[] active1 = new int[16];
+		int active1Size = 0;
+		int[] active2 = new int[16];
+		int active2Size = 0;
+		long[] pairs = new long[16];
+		int pairCount = 0;
+
+		int i1 = 0;
+		int i2 = 0;
+		while (i1 < order1.length || i2 < order2.length) {
+			boolean takeFirst;
+			if (i1 == order1.length) {
+				takeFirst = false;
+			} else if (i2 == order2.length) {
+				takeFirst = true;
+			} else {
+				takeFirst = bounds[order1[i1] * 4] <= other.bounds[order2[i2] * 4];
+			}
+
+			if (takeFirst) {
+				int p1 = order1[i1++];
+				double x = bounds[p1 * 4];
+				// retire segments the sweep line has passed:
+				active2Size = retire(other.bounds, active2, active2Size, x);
+				for (int a = 0; a < active2Size; a++) {
+					int p2 = active2[a];
+					if (overlapsVertically(bounds, p1, other.bounds, p2)) {
+						if (pairCount == pairs.length)
+							pairs = Arrays.copyOf(pairs, pairCount * 2);
+						pairs[pairCount++] = (((long) p1) << 32) | p2;
+					}
+				}
+				if (active1Size == active1.length)
+					active1 = Arrays.copyOf(active1, active1Size * 2);
+				active1[active1Size++] = p1;
+			} else {
+				int p2 = order2[i2++];
+				double x = other.bounds[p2 * 4];
+				active1Size = retire(bounds, active1, active1Size, x);
+				for (int a = 0; a < active1Size; a++) {
+					int p1 = active1[a];
+					if (overlapsVertically(bounds, p1, other.bounds, p2)) {
+						if (pairCount == pairs.length)
+							pairs = Arrays.copyOf(pairs, pairCount * 2);
+						pairs[pairCount++] = (((long) p1) << 32) | p2;
+					}
+				}
+				if (active2Size == active2.length)
+					active2 = Arrays.copyOf(active2, active2Size * 2);
+				active2[active2Size++] = p2;
+			}
+		}
+
+		pairs = Arrays.copyOf(pairs, pairCount);
+		Arrays.sort(pairs);
+		return pairs;
+	}
+
+	/**
+	 * Remove all active segments whose maximum x-value is less than x.
+	 *
+	 * @return the new number of active segments.
+	 */
+	private static int retire(double[] bounds, int[] active, int activeSize,
+			double x) {
+		int k = 0;
+		for (int a = 0; a < activeSize; a++) {
+			if (bounds[active[a] * 4 + 2] >= x)
+				active[k++] = active[a];
+		}
+		return k;
+	}
+
+	private static boolean overlapsVertically(double[] bounds1, int p1,
+			double[] bounds2, int p2) {
+		return bounds1[p1 * 4 + 1] <= bounds2[p2 * 4 + 3]
+				&& bounds2[p2 * 4 + 1] <= bounds1[p1 * 4 + 3];
+	}
+}
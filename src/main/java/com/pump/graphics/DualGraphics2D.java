@@ -44,6 +44,10 @@ import java.util.Map;
  * All methods that modify the destination are sent to both Graphics2D objects.
  * All methods that only return properties about the Graphics2D objects talk
  * only to the first Graphics2D object.
+ * <P>
+ * Both Graphics2Ds are painted on the calling thread. To paint several
+ * destinations in parallel see
+ * {@link com.pump.graphics.vector.ParallelGraphics2D}.
  * 
  */
 public class DualGraphics2D extends Graphics2D {
@@ -55,6 +55,14 @@ public class Graphics2DContext implements Serializable {
 
 	protected boolean isDisposed = false;
 	protected Composite composite;
+
+	/**
+	 * The transform.
+	 * <p>
+	 * Clones share this object, so it must never be modified in place: to
+	 * change the transform, replace this field with a new AffineTransform
+	 * (or call {@link #setTransform(AffineTransform)}).
+	 */
 	protected AffineTransform transform;
 
 	/**
@@ -73,17 +81,40 @@ public class Graphics2DContext implements Serializable {
 	protected Color xorColor;
 	protected Color color;
 	protected Paint paint;
+
+	/**
+	 * The rendering hints.
+	 * <p>
+	 * Clones share this object until one of them changes a hint, so
+	 * subclasses must not modify it in place: replace this field with a new
+	 * RenderingHints (or call {@link #setRenderingHint(Key, Object)}).
+	 */
 	protected RenderingHints renderingHints;
 
+	/**
+	 * If true then {@link #renderingHints} may be shared with a clone, so it
+	 * must be copied before it is modified.
+	 */
+	private transient boolean renderingHintsShared = false;
+
 	/**
 	 * The optional clipping without any AffineTransform applied. For example:
 	 * if this context is already asked to scale everything 50%, and you call
 	 * <code>context.setClip(new Rectangle(0,0,100,100))</code>, then this field
 	 * should become <code>new Rectangle(0,0,50,50)</code> because that's what
 	 * it becomes after the transform is applied.
+	 * <p>
+	 * This class always stores an {@link ImmutableShape} here, so clones can
+	 * share it. If a subclass assigns a different shape to this field, that
+	 * shape is copied the next time this context is cloned.
 	 */
 	protected Shape clip;
 
+	/**
+	 * If true then this context can't be modified. (This is not serialized.)
+	 */
+	private transient boolean frozen = false;
+
 	/**
 	 * Create a blank Graphics2DContext.
 	 */
@@ -107,18 +138,25 @@ public class Graphics2DContext implements Serializable {
 
 	/**
 	 * Create a clone of an existing Graphics2DContext.
+	 * <p>
+	 * This is copy-on-write: the clone shares the original's transform, clip
+	 * and rendering hints until one of them is modified.
 	 */
 	protected Graphics2DContext(Graphics2DContext original) {
-		composite = original.getComposite();
-		transform = original.getTransform();
-		backgroundColor = original.getBackground();
-		font = original.getFont();
-		stroke = original.getStroke();
+		composite = original.composite;
+		transform = original.transform;
+		backgroundColor = original.backgroundColor;
+		font = original.font;
+		stroke = original.stroke;
 		xorColor = original.xorColor;
-		color = original.getColor();
-		paint = original.getPaint();
-		renderingHints = original.getRenderingHints();
-		clip = ShapeUtils.clone(original.clip);
+		color = original.color;
+		paint = original.paint;
+		renderingHints = original.renderingHints;
+		renderingHintsShared = true;
+		// a frozen context never modifies its hints:
+		if (!original.frozen)
+			original.renderingHintsShared = true;
+		clip = toImmutableShape(original.clip);
 		isDisposed = original.isDisposed;
 	}
 
@@ -139,14 +177,65 @@ public class Graphics2DContext implements Serializable {
 		renderingHints = (RenderingHints) g.getRenderingHints().clone();
 		Shape s = g.getClip();
 		if (s != null)
-			clip = transform.createTransformedShape(s);
+			clip = new ImmutableShape(transform.createTransformedShape(s));
 	}
 
+	/**
+	 * Return a modifiable copy of this context. (The copy is never frozen,
+	 * even if this context is.)
+	 */
 	@Override
 	public Graphics2DContext clone() {
 		return new Graphics2DContext(this);
 	}
 
+	/**
+	 * Make this context unmodifiable. After this is called every method that
+	 * would modify this context throws an
+	 * <code>UnsupportedOperationException</code>.
+	 * <p>
+	 * A frozen context can be safely shared. For example: consecutive
+	 * Operations recorded by a VectorGraphics2D usually share the same frozen
+	 * context.
+	 */
+	public void freeze() {
+		frozen = true;
+	}
+
+	/**
+	 * Return true if {@link #freeze()} has been called.
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkModifiable() {
+		if (frozen)
+			throw new UnsupportedOperationException(
+					"This Graphics2DContext is frozen.");
+	}
+
+	/**
+	 * Return a shape that is safe to share with other contexts.
+	 */
+	private static ImmutableShape toImmutableShape(Shape shape) {
+		if (shape == null || shape instanceof ImmutableShape)
+			return (ImmutableShape) shape;
+		return new ImmutableShape(ShapeUtils.clone(shape));
+	}
+
+	/**
+	 * Return {@link #renderingHints}, after copying it if it is shared with
+	 * another context.
+	 */
+	private RenderingHints getModifiableRenderingHints() {
+		if (renderingHintsShared) {
+			renderingHints = (RenderingHints) renderingHints.clone();
+			renderingHintsShared = false;
+		}
+		return renderingHints;
+	}
+
 	/**
 	 * Configure a Graphics2D with this context.
 	 * <p>
@@ -236,6 +325,7 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#dispose()
 	 */
 	public void dispose() {
+		checkModifiable();
 		isDisposed = true;
 	}
 
@@ -250,6 +340,7 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setComposite(Composite)
 	 */
 	public void setComposite(Composite comp) {
+		checkModifiable();
 
 		// SunGraphics2D#setComposite will throw an IAE for a null arg
 		Objects.requireNonNull(comp);
@@ -272,7 +363,7 @@ public class Graphics2DContext implements Serializable {
 	public void scale(double sx, double sy) {
 		AffineTransform tx = getTransform();
 		tx.scale(sx, sy);
-		setTransform(tx);
+		replaceTransform(tx);
 	}
 
 	/**
@@ -281,7 +372,7 @@ public class Graphics2DContext implements Serializable {
 	public void shear(double shx, double shy) {
 		AffineTransform tx = getTransform();
 		tx.shear(shx, shy);
-		setTransform(tx);
+		replaceTransform(tx);
 	}
 
 	/**
@@ -290,23 +381,32 @@ public class Graphics2DContext implements Serializable {
 	public void transform(AffineTransform tx) {
 		AffineTransform newTransform = getTransform();
 		newTransform.concatenate(tx);
-		setTransform(newTransform);
+		replaceTransform(newTransform);
 	}
 
 	/**
 	 * @see java.awt.Graphics2D#setTransform(AffineTransform)
 	 */
 	public void setTransform(AffineTransform tx) {
-
 		// SunGraphics2D will indirectly throw a NPE exception if tx is null
 		Objects.requireNonNull(tx);
 
-		try {
-			tx.createInverse();
-		} catch (NoninvertibleTransformException e) {
-			throw new RuntimeException(e);
-		}
-		transform = new AffineTransform(tx);
+		replaceTransform(new AffineTransform(tx));
+	}
+
+	/**
+	 * Replace {@link #transform} with a transform nobody else has a reference
+	 * to.
+	 */
+	private void replaceTransform(AffineTransform tx) {
+		checkModifiable();
+
+		// this is the same test AffineTransform#createInverse() uses:
+		double det = tx.getDeterminant();
+		if (Math.abs(det) <= Double.MIN_VALUE)
+			throw new RuntimeException(new NoninvertibleTransformException(
+					"Determinant is " + det));
+		transform = tx;
 	}
 
 	/**
@@ -315,7 +415,7 @@ public class Graphics2DContext implements Serializable {
 	public void translate(int x, int y) {
 		AffineTransform tx = getTransform();
 		tx.translate(x, y);
-		setTransform(tx);
+		replaceTransform(tx);
 	}
 
 	/**
@@ -324,7 +424,7 @@ public class Graphics2DContext implements Serializable {
 	public void translate(double tx, double ty) {
 		AffineTransform newTransform = getTransform();
 		newTransform.translate(tx, ty);
-		setTransform(newTransform);
+		replaceTransform(newTransform);
 	}
 
 	/**
@@ -333,7 +433,7 @@ public class Graphics2DContext implements Serializable {
 	public void rotate(double theta) {
 		AffineTransform tx = getTransform();
 		tx.rotate(theta);
-		setTransform(tx);
+		replaceTransform(tx);
 	}
 
 	/**
@@ -342,7 +442,7 @@ public class Graphics2DContext implements Serializable {
 	public void rotate(double theta, double x, double y) {
 		AffineTransform tx = getTransform();
 		tx.rotate(theta, x, y);
-		setTransform(tx);
+		replaceTransform(tx);
 	}
 
 	// backgroundColor-related methods:
@@ -351,6 +451,7 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setBackground(Color)
 	 */
 	public void setBackground(Color color) {
+		checkModifiable();
 		backgroundColor = color;
 	}
 
@@ -381,6 +482,7 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setColor(Color)
 	 */
 	public void setColor(Color color) {
+		checkModifiable();
 		if (color == null) {
 			// SunGraphics2D quietly ignores null arguments, so I'll do the
 			// same.
@@ -395,6 +497,7 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setPaint(Paint)
 	 */
 	public void setPaint(Paint paint) {
+		checkModifiable();
 		if (paint == null) {
 			// SunGraphics2D quietly ignores null arguments, so I'll do the
 			// same.
@@ -409,13 +512,23 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setPaintMode()
 	 */
 	public void setPaintMode() {
+		checkModifiable();
 		xorColor = null;
 	}
 
+	/**
+	 * Return the color passed to {@link #setXORMode(Color)}, or null if this
+	 * context is in paint mode.
+	 */
+	public Color getXORColor() {
+		return xorColor;
+	}
+
 	/**
 	 * @see java.awt.Graphics2D#setXORMode(Color)
 	 */
 	public void setXORMode(Color xorColor) {
+		checkModifiable();
 		// SunGraphics2D will throw an exception if xorColor is null
 		Objects.requireNonNull(xorColor, "use setPaintMode()");
 
@@ -435,6 +548,7 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setStroke(Stroke)
 	 */
 	public void setStroke(Stroke s) {
+		checkModifiable();
 		// SunGraphics2D will throw an IAE exception if s is null
 		Objects.requireNonNull(s);
 
@@ -447,11 +561,13 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#clip(Shape)
 	 */
 	public void clip(Shape incomingClip) {
+		checkModifiable();
 		incomingClip = transform.createTransformedShape(incomingClip);
 		if (clip == null) {
-			clip = incomingClip;
+			clip = new ImmutableShape(incomingClip);
 		} else {
-			clip = Clipper.intersect(clip, incomingClip, false, false);
+			clip = new ImmutableShape(
+					Clipper.intersect(clip, incomingClip, false, false));
 		}
 	}
 
@@ -503,17 +619,19 @@ public class Graphics2DContext implements Serializable {
 			return iclip;
 		}
 
-		return new ImmutableShape(clip);
+		return toImmutableShape(clip);
 	}
 
 	/**
 	 * @see java.awt.Graphics2D#setClip(Shape)
 	 */
 	public void setClip(Shape newClip) {
+		checkModifiable();
 		if (newClip == null) {
 			clip = null;
 		} else {
-			clip = transform.createTransformedShape(newClip);
+			clip = new ImmutableShape(
+					transform.createTransformedShape(newClip));
 		}
 	}
 
@@ -537,6 +655,7 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setFont(Font)
 	 */
 	public void setFont(Font font) {
+		checkModifiable();
 		if (font == null) {
 			// SunGraphics2D quietly ignores null arguments, so I'll do the
 			// same.
@@ -566,15 +685,19 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setRenderingHints(Map)
 	 */
 	public void setRenderingHints(Map<?, ?> hints) {
-		renderingHints.clear();
-		renderingHints.putAll(hints);
+		checkModifiable();
+		RenderingHints newHints = new RenderingHints(null);
+		newHints.putAll(hints);
+		renderingHints = newHints;
+		renderingHintsShared = false;
 	}
 
 	/**
 	 * @see java.awt.Graphics2D#addRenderingHints(Map)
 	 */
 	public void addRenderingHints(Map<?, ?> hints) {
-		renderingHints.putAll(hints);
+		checkModifiable();
+		getModifiableRenderingHints().putAll(hints);
 	}
 
 	/**
@@ -588,7 +711,8 @@ public class Graphics2DContext implements Serializable {
 	 * @see java.awt.Graphics2D#setRenderingHint(Key, Object)
 	 */
 	public void setRenderingHint(Key hintKey, Object hintValue) {
-		renderingHints.put(hintKey, hintValue);
+		checkModifiable();
+		getModifiableRenderingHints().put(hintKey, hintValue);
 	}
 
 	/**
@@ -632,7 +756,7 @@ public class Graphics2DContext implements Serializable {
 			composite = (Composite) ConverterUtils.readObject(in);
 			stroke = (Stroke) ConverterUtils.readObject(in);
 			renderingHints = (RenderingHints) ConverterUtils.readObject(in);
-			clip = (Shape) ConverterUtils.readObject(in);
+			clip = toImmutableShape((Shape) ConverterUtils.readObject(in));
 		} else {
 			throw new IOException("unsupported internal version " + version);
 		}
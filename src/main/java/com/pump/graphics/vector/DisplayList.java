@@ -0,0 +1,465 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pump.geom.ShapeUtils;
+import com.pump.graphics.Graphics2DContext;
+
+/**
+ * This is a snapshot of a list of Operations that is optimized for painting
+ * repeatedly.
+ * <p>
+ * The first time this is painted with a given transform it compiles the
+ * Operations for that transform:
+ * <ul>
+ * <li>Operations that are completely hidden by a later opaque rectangle (like
+ * a background that is painted over) are dropped.</li>
+ * <li>Fills with a solid color (other than rectangles) are transformed into
+ * device space. Consecutive fills that share a Graphics2DContext and don't
+ * touch the same pixels are merged into one path.</li>
+ * <li>Simple strings are converted to GlyphVectors, which are reused as long
+ * as the FontRenderContext doesn't change.</li>
+ * </ul>
+ * <p>
+ * The compiled list is reused until this is painted with a different scale,
+ * rotation or subpixel offset. Integer translations (like the x and y
+ * arguments of <code>Icon.paintIcon(..)</code>) do not require recompiling.
+ * The lists for the last few transforms are kept, so alternating between a
+ * few transforms (like a 1x and 2x display) doesn't recompile every time.
+ * <p>
+ * Changes to the original list of Operations are not reflected in this
+ * object.
+ *
+ * @see VectorImage#compile()
+ */
+public class DisplayList {
+
+	/**
+	 * The maximum number of fills that are merged into one path.
+	 */
+	static final int MAX_MERGED_FILLS = 64;
+
+	/**
+	 * The maximum number of opaque rectangles that are used to look for
+	 * hidden Operations.
+	 */
+	static final int MAX_OCCLUDERS = 8;
+
+	/**
+	 * The maximum number of compiled lists (one per transform) that are kept.
+	 */
+	static final int MAX_COMPILED = 4;
+
+	/**
+	 * An element of the compiled list.
+	 */
+	static abstract class Element {
+		final Graphics2DContext context;
+
+		Element(Graphics2DContext context) {
+			this.context = context;
+		}
+
+		/**
+		 * Return true if this is painted in device space, so it shouldn't use
+		 * the context's transform.
+		 */
+		boolean isDeviceSpace() {
+			return false;
+		}
+
+		/**
+		 * Paint this element to a Graphics2D that the context has already
+		 * been installed in.
+		 */
+		abstract void paint(Graphics2D g);
+	}
+
+	static class OperationElement extends Element {
+		final Operation operation;
+
+		OperationElement(Operation operation) {
+			super(operation.context);
+			this.operation = operation;
+		}
+
+		@Override
+		void paint(Graphics2D g) {
+			operation.paintOperation(g);
+		}
+	}
+
+	/**
+	 * One or more solid fills that have already been transformed into device
+	 * space.
+	 */
+	static class FillElement extends Element {
+		final Path2D path;
+		final List<Rectangle> pixelBounds = new ArrayList<>();
+
+		FillElement(Graphics2DContext context, int windingRule) {
+			super(context);
+			path = new Path2D.Double(windingRule);
+		}
+
+		/**
+		 * Return true if a shape can be added to this element without
+		 * changing how any pixels are painted.
+		 */
+		boolean canAdd(Graphics2DContext context, int windingRule,
+				Rectangle bounds) {
+			if (context != this.context
+					|| windingRule != path.getWindingRule()
+					|| pixelBounds.size() >= MAX_MERGED_FILLS)
+				return false;
+			// if two antialiased shapes partially cover the same pixel then
+			// filling them together is not the same as filling them apart
+			for (Rectangle r : pixelBounds) {
+				if (r.intersects(bounds))
+					return false;
+			}
+			return true;
+		}
+
+		void add(PathIterator shape, Rectangle bounds) {
+			path.append(shape, false);
+			pixelBounds.add(bounds);
+		}
+
+		@Override
+		boolean isDeviceSpace() {
+			return true;
+		}
+
+		@Override
+		void paint(Graphics2D g) {
+			g.fill(path);
+		}
+	}
+
+	/**
+	 * A StringOperation that is painted with a cached GlyphVector.
+	 */
+	static class StringElement extends Element {
+		final StringOperation operation;
+		FontRenderContext frc;
+		GlyphVector glyphVector;
+
+		StringElement(StringOperation operation) {
+			super(operation.context);
+			this.operation = operation;
+		}
+
+		@Override
+		void paint(Graphics2D g) {
+			FontRenderContext gFrc = g.getFontRenderContext();
+			if (glyphVector == null || !gFrc.equals(frc)) {
+				frc = gFrc;
+				glyphVector = context.getFont().createGlyphVector(frc,
+						operation.getString());
+			}
+			// round the same way StringOperation#paintOperation does:
+			float x = operation.getX();
+			float y = operation.getY();
+			int ix = (int) (x + .5);
+			int iy = (int) (y + .5);
+			if (Math.abs(x - ix) < .00001 && Math.abs(y - iy) < .00001) {
+				g.drawGlyphVector(glyphVector, ix, iy);
+			} else {
+				g.drawGlyphVector(glyphVector, x, y);
+			}
+		}
+
+		/**
+		 * Return true if a String can be painted as a GlyphVector without
+		 * changing how it looks. This is false if the text may require
+		 * complex layout (such as bidirectional text, combining marks or
+		 * ligatures), or if the font is missing a glyph (because drawString
+		 * may substitute a fallback font for missing glyphs).
+		 */
+		static boolean isSimple(StringOperation op) {
+			Font font = op.context.getFont();
+			if (font.hasLayoutAttributes())
+				return false;
+			String str = op.getString();
+			for (int a = 0; a < str.length(); a++) {
+				if (str.charAt(a) >= 0x0300)
+					return false;
+			}
+			return font.canDisplayUpTo(str) == -1;
+		}
+	}
+
+	/**
+	 * The elements compiled for one transform.
+	 */
+	static class Compiled {
+		final AffineTransform transform;
+		final List<Element> elements = new ArrayList<>();
+
+		Compiled(AffineTransform transform) {
+			this.transform = transform;
+		}
+	}
+
+	private final Operation[] operations;
+	private final Rectangle2D[] bounds;
+	private final boolean copiesArea;
+
+	/**
+	 * The most recently used compiled lists, keyed by their transform.
+	 */
+	final Map<AffineTransform, Compiled> compiled = new LinkedHashMap<AffineTransform, Compiled>(
+			MAX_COMPILED + 1, .75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<AffineTransform, Compiled> eldest) {
+			return size() > MAX_COMPILED;
+		}
+	};
+
+	/**
+	 * Create a DisplayList from a snapshot of a list of Operations.
+	 */
+	public DisplayList(List<Operation> operations) {
+		this.operations = operations.toArray(new Operation[operations.size()]);
+		bounds = new Rectangle2D[this.operations.length];
+		boolean copiesArea = false;
+		for (int a = 0; a < this.operations.length; a++) {
+			bounds[a] = this.operations[a].getBounds();
+			if (this.operations[a] instanceof CopyAreaOperation)
+				copiesArea = true;
+		}
+		this.copiesArea = copiesArea;
+	}
+
+	/**
+	 * Paint this DisplayList. This should look the same as painting the
+	 * original Operations.
+	 */
+	public synchronized void paint(Graphics2D g) {
+		AffineTransform tx = g.getTransform();
+		double dx = Math.floor(tx.getTranslateX());
+		double dy = Math.floor(tx.getTranslateY());
+		AffineTransform baseTransform = new AffineTransform(tx.getScaleX(),
+				tx.getShearY(), tx.getShearX(), tx.getScaleY(),
+				tx.getTranslateX() - dx, tx.getTranslateY() - dy);
+		Compiled c = compiled.get(baseTransform);
+		if (c == null) {
+			c = compile(baseTransform);
+			compiled.put(baseTransform, c);
+		}
+
+		AffineTransform deviceTransform = AffineTransform
+				.getTranslateInstance(dx, dy);
+		Graphics2D g2 = null;
+		Element lastElement = null;
+		try {
+			for (Element e : c.elements) {
+				if (e instanceof OperationElement && !Operation
+						.isShareable(((OperationElement) e).operation)) {
+					((OperationElement) e).operation.paint(g);
+					lastElement = null;
+					continue;
+				}
+				if (lastElement == null || e.context != lastElement.context
+						|| e.isDeviceSpace() != lastElement.isDeviceSpace()) {
+					if (g2 != null)
+						g2.dispose();
+					g2 = (Graphics2D) g.create();
+					e.context.install(g2);
+					if (e.isDeviceSpace())
+						g2.setTransform(deviceTransform);
+				}
+				e.paint(g2);
+				lastElement = e;
+			}
+		} finally {
+			if (g2 != null)
+				g2.dispose();
+		}
+	}
+
+	private Compiled compile(AffineTransform baseTransform) {
+		Compiled c = new Compiled(baseTransform);
+		boolean[] hidden = getHiddenOperations(baseTransform);
+		FillElement lastFill = null;
+		for (int a = 0; a < operations.length; a++) {
+			if (hidden[a])
+				continue;
+			Operation op = operations[a];
+			Shape shape = isSolidFill(op) ? (Shape) op.coreProperties
+					.get(ShapeOperation.PROPERTY_SHAPE) : null;
+			// Java2D rasterizes rectangles with its own rules, so they can't
+			// be converted to paths:
+			if (shape != null && ShapeUtils.getRectangle2D(shape) == null) {
+				AffineTransform tx = new AffineTransform(baseTransform);
+				tx.concatenate(op.context.getTransform());
+				int windingRule = shape.getPathIterator(null)
+						.getWindingRule();
+				Rectangle pixelBounds = getPixelBounds(
+						tx.createTransformedShape(shape).getBounds2D(), 1);
+				if (lastFill == null || !lastFill.canAdd(op.context,
+						windingRule, pixelBounds)) {
+					lastFill = new FillElement(op.context, windingRule);
+					c.elements.add(lastFill);
+				}
+				lastFill.add(shape.getPathIterator(tx), pixelBounds);
+				continue;
+			}
+			lastFill = null;
+			if (op.getClass() == StringOperation.class
+					&& StringElement.isSimple((StringOperation) op)) {
+				c.elements.add(new StringElement((StringOperation) op));
+			} else {
+				c.elements.add(new OperationElement(op));
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Return true if an Operation fills a shape with a Color.
+	 */
+	private boolean isSolidFill(Operation op) {
+		if (op.getClass() != FillOperation.class
+				|| op.context.getXORColor() != null)
+			return false;
+		return op.context.getPaint() instanceof Color;
+	}
+
+	/**
+	 * Identify Operations that don't need to be painted because they are
+	 * completely covered by a later opaque rectangle, or because they don't
+	 * paint anything.
+	 */
+	private boolean[] getHiddenOperations(AffineTransform baseTransform) {
+		boolean[] hidden = new boolean[operations.length];
+		List<Rectangle> occluders = new ArrayList<>();
+		for (int a = operations.length - 1; a >= 0; a--) {
+			if (bounds[a] == null) {
+				hidden[a] = true;
+				continue;
+			}
+			if (copiesArea)
+				continue;
+
+			Rectangle r = getPixelBounds(baseTransform
+					.createTransformedShape(bounds[a]).getBounds2D(), 2);
+			for (Rectangle occluder : occluders) {
+				if (occluder.contains(r)) {
+					hidden[a] = true;
+					break;
+				}
+			}
+			if (hidden[a])
+				continue;
+
+			Rectangle occluder = getOccluder(operations[a], baseTransform);
+			if (occluder != null) {
+				if (occluders.size() == MAX_OCCLUDERS) {
+					int smallest = 0;
+					for (int b = 1; b < occluders.size(); b++) {
+						if (getArea(occluders.get(b)) < getArea(
+								occluders.get(smallest)))
+							smallest = b;
+					}
+					if (getArea(occluders.get(smallest)) < getArea(
+							occluder))
+						occluders.set(smallest, occluder);
+				} else {
+					occluders.add(occluder);
+				}
+			}
+		}
+		return hidden;
+	}
+
+	private static long getArea(Rectangle r) {
+		return ((long) r.width) * ((long) r.height);
+	}
+
+	/**
+	 * If an Operation paints every pixel in a rectangle opaquely, return the
+	 * pixels inside that rectangle. (The pixels along the edges are excluded,
+	 * because they might be partially covered.)
+	 */
+	private Rectangle getOccluder(Operation op, AffineTransform baseTransform) {
+		if (!isSolidFill(op)
+				|| ((Color) op.context.getPaint()).getAlpha() != 255)
+			return null;
+		Composite composite = op.context.getComposite();
+		if (!(composite instanceof AlphaComposite))
+			return null;
+		AlphaComposite ac = (AlphaComposite) composite;
+		if (ac.getAlpha() != 1 || (ac.getRule() != AlphaComposite.SRC_OVER
+				&& ac.getRule() != AlphaComposite.SRC))
+			return null;
+
+		AffineTransform tx = new AffineTransform(baseTransform);
+		tx.concatenate(op.context.getTransform());
+		if (tx.getShearX() != 0 || tx.getShearY() != 0)
+			return null;
+		Rectangle2D rect = ShapeUtils.getRectangle2D(
+				(Shape) op.coreProperties.get(ShapeOperation.PROPERTY_SHAPE));
+		if (rect == null)
+			return null;
+		Rectangle2D region = tx.createTransformedShape(rect).getBounds2D();
+
+		Shape clip = op.context.getClip(false);
+		if (clip != null) {
+			Rectangle2D clipRect = ShapeUtils.getRectangle2D(clip);
+			if (clipRect == null)
+				return null;
+			Rectangle2D.intersect(region, baseTransform
+					.createTransformedShape(clipRect).getBounds2D(), region);
+		}
+
+		int minX = (int) Math.ceil(region.getMinX()) + 1;
+		int minY = (int) Math.ceil(region.getMinY()) + 1;
+		int maxX = (int) Math.floor(region.getMaxX()) - 1;
+		int maxY = (int) Math.floor(region.getMaxY()) - 1;
+		if (maxX <= minX || maxY <= minY)
+			return null;
+		return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * Return the pixels a rectangle touches, plus a margin.
+	 */
+	private static Rectangle getPixelBounds(Rectangle2D r, int margin) {
+		int minX = (int) Math.floor(r.getMinX()) - margin;
+		int minY = (int) Math.floor(r.getMinY()) - margin;
+		int maxX = (int) Math.ceil(r.getMaxX()) + margin;
+		int maxY = (int) Math.ceil(r.getMaxY()) + margin;
+		return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+	}
+}
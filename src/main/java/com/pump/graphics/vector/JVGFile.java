@@ -0,0 +1,299 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pump.graphics.Graphics2DContext;
+
+/**
+ * This provides random access to the Operations in a file that was written by
+ * a {@link JVGWriter}.
+ * <p>
+ * Opening a JVGFile only reads the footer, which lists the location and
+ * bounds of every Operation. Operations (and the strings, objects and
+ * contexts they refer to) are only decoded when they are requested. So
+ * {@link #paint(Graphics2D)} only decodes the Operations that intersect the
+ * clip of the Graphics2D.
+ * <p>
+ * The file is memory-mapped, so it must be smaller than 2 GB.
+ */
+public class JVGFile implements Closeable {
+
+	private final RandomAccessFile file;
+	private final ByteBuffer buffer;
+
+	private final long[] stringOffsets, objectOffsets, contextOffsets,
+			operationOffsets;
+	private final Rectangle2D[] operationBounds;
+	private final boolean copiesArea;
+
+	private final String[] strings;
+	private final Object[] objects;
+	private final Graphics2DContext[] contexts;
+
+	private final JVGFormat.Decoder decoder = new JVGFormat.Decoder() {
+
+		@Override
+		String getString(int index) throws IOException {
+			if (index == -1)
+				return null;
+			if (strings[index] == null)
+				strings[index] = JVGFormat.readString(
+						readRecord(stringOffsets[index],
+								JVGFormat.TAG_STRING));
+			return strings[index];
+		}
+
+		@Override
+		Object getObject(int index)
+				throws IOException, ClassNotFoundException {
+			if (index == -1)
+				return null;
+			if (objects[index] == null)
+				objects[index] = readObject(readRecord(objectOffsets[index],
+						JVGFormat.TAG_OBJECT));
+			return objects[index];
+		}
+
+		@Override
+		Graphics2DContext getContext(int index)
+				throws IOException, ClassNotFoundException {
+			if (contexts[index] == null)
+				contexts[index] = readContext(readRecord(
+						contextOffsets[index], JVGFormat.TAG_CONTEXT));
+			return contexts[index];
+		}
+	};
+
+	/**
+	 * Open a file and read its footer.
+	 */
+	public JVGFile(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = this.file.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("This file is too large (" + size
+						+ " bytes).");
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+			if (size < 6 + JVGFormat.TRAILER_SIZE
+					|| buffer.getInt(0) != JVGFormat.MAGIC)
+				throw new IOException("This is not a JVG file.");
+			int version = buffer.getShort(4) & 0xffff;
+			if (version != JVGFormat.VERSION)
+				throw new IOException("unsupported version " + version);
+			if (buffer.getInt((int) size - 4) != JVGFormat.TRAILER_MAGIC)
+				throw new IOException(
+						"This JVG file is incomplete; the footer is missing.");
+
+			ByteBuffer footer = buffer.duplicate();
+			footer.position(
+					(int) buffer.getLong((int) size - JVGFormat.TRAILER_SIZE));
+			stringOffsets = readOffsets(footer);
+			objectOffsets = readOffsets(footer);
+			contextOffsets = readOffsets(footer);
+			operationOffsets = readOffsets(footer);
+			operationBounds = new Rectangle2D[operationOffsets.length];
+			boolean copiesArea = false;
+			for (int a = 0; a < operationBounds.length; a++) {
+				if (footer.get() != 0)
+					copiesArea = true;
+				if (footer.get() != 0) {
+					float minX = footer.getFloat();
+					float minY = footer.getFloat();
+					float maxX = footer.getFloat();
+					float maxY = footer.getFloat();
+					operationBounds[a] = new Rectangle2D.Float(minX, minY,
+							maxX - minX, maxY - minY);
+				}
+			}
+			this.copiesArea = copiesArea;
+		} catch (IOException | RuntimeException e) {
+			this.file.close();
+			if (e instanceof BufferUnderflowException
+					|| e instanceof IllegalArgumentException)
+				throw new IOException("This JVG file is corrupt.", e);
+			throw e;
+		}
+
+		strings = new String[stringOffsets.length];
+		objects = new Object[objectOffsets.length];
+		contexts = new Graphics2DContext[contextOffsets.length];
+	}
+
+	private static long[] readOffsets(ByteBuffer footer) {
+		long[] offsets = new long[footer.getInt()];
+		for (int a = 0; a < offsets.length; a++) {
+			offsets[a] = footer.getLong();
+		}
+		return offsets;
+	}
+
+	private DataInputStream readRecord(long offset, int expectedTag)
+			throws IOException {
+		ByteBuffer b = buffer.duplicate();
+		b.position((int) offset);
+		int tag = b.get() & 0xff;
+		if (tag != expectedTag)
+			throw new IOException("Expected tag " + expectedTag + " at "
+					+ offset + ", but found " + tag + ".");
+		byte[] data = new byte[b.getInt()];
+		b.get(data);
+		return new DataInputStream(new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Return the number of Operations in this file.
+	 */
+	public int getOperationCount() {
+		return operationOffsets.length;
+	}
+
+	/**
+	 * Return the bounds of an Operation, or null if that Operation doesn't
+	 * paint anything. This doesn't decode the Operation.
+	 * <p>
+	 * These bounds are stored as floats, so they may be slightly larger than
+	 * {@link Operation#getBounds()}.
+	 *
+	 * @see Operation#getBounds()
+	 */
+	public Rectangle2D getOperationBounds(int index) {
+		Rectangle2D r = operationBounds[index];
+		return r == null ? null : (Rectangle2D) r.clone();
+	}
+
+	/**
+	 * Return the bounds of all the Operations in this file, or null if there
+	 * are no defined bounds. This doesn't decode any Operations.
+	 *
+	 * @see VectorImage#getBounds()
+	 */
+	public Rectangle2D getBounds() {
+		Rectangle2D sum = null;
+		for (Rectangle2D r : operationBounds) {
+			if (r != null) {
+				if (sum == null) {
+					sum = (Rectangle2D) r.clone();
+				} else {
+					sum.add(r);
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Decode an Operation.
+	 * <p>
+	 * Operations are not cached, so calling this twice returns two equal
+	 * Operations. (But their Graphics2DContexts will be the same.)
+	 */
+	public synchronized Operation getOperation(int index)
+			throws IOException, ClassNotFoundException {
+		return decoder.readOperation(
+				readRecord(operationOffsets[index], JVGFormat.TAG_OPERATION));
+	}
+
+	/**
+	 * Decode all the Operations whose bounds intersect a rectangle, in the
+	 * order they appear in the file.
+	 * <p>
+	 * Bounds are compared as closed rectangles, so a hairline whose bounds
+	 * have zero width or height is still returned. Operations whose bounds are
+	 * null are always returned (see {@link OperationIndex}).
+	 * <p>
+	 * If this file contains a {@link CopyAreaOperation} then this returns
+	 * every Operation, because copying an area may depend on Operations
+	 * anywhere in the image.
+	 */
+	public List<Operation> getOperations(Rectangle2D r)
+			throws IOException, ClassNotFoundException {
+		List<Operation> returnValue = new ArrayList<>();
+		for (int a = 0; a < operationOffsets.length; a++) {
+			if (isPainted(a, r))
+				returnValue.add(getOperation(a));
+		}
+		return returnValue;
+	}
+
+	private boolean isPainted(int index, Rectangle2D r) {
+		if (r == null || copiesArea)
+			return true;
+		Rectangle2D bounds = operationBounds[index];
+		return bounds == null || OperationIndex.intersects(bounds, r);
+	}
+
+	/**
+	 * Paint the Operations in this file.
+	 * <p>
+	 * If the Graphics2D has a clip then Operations that are outside of that
+	 * clip are not decoded. The remaining Operations are decoded and painted
+	 * in order.
+	 *
+	 * @see VectorImage#paint(Graphics2D)
+	 */
+	public void paint(Graphics2D g) throws IOException, ClassNotFoundException {
+		Rectangle clipBounds = g.getClipBounds();
+		Rectangle2D r = null;
+		if (clipBounds != null) {
+			// leave a margin for antialiasing and stroke normalization:
+			r = new Rectangle2D.Double(clipBounds.x - 1, clipBounds.y - 1,
+					clipBounds.width + 2, clipBounds.height + 2);
+		}
+
+		// Operations that share a context are painted together, so each
+		// context is only installed once. See Operation.paint(g, list).
+		List<Operation> run = new ArrayList<>();
+		for (int a = 0; a < operationOffsets.length; a++) {
+			if (!isPainted(a, r))
+				continue;
+			Operation op = getOperation(a);
+			if (!run.isEmpty() && run.get(0).context != op.context) {
+				Operation.paint(g, run);
+				run.clear();
+			}
+			run.add(op);
+		}
+		Operation.paint(g, run);
+	}
+
+	/**
+	 * Decode every Operation into a new VectorImage.
+	 */
+	public VectorImage toVectorImage()
+			throws IOException, ClassNotFoundException {
+		VectorImage returnValue = new VectorImage();
+		returnValue.getOperations().addAll(getOperations(null));
+		return returnValue;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,527 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RectangularShape;
+import java.awt.geom.RoundRectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.pump.data.converter.ConverterUtils;
+import com.pump.graphics.Graphics2DContext;
+
+/**
+ * This contains the constants and the encoding/decoding logic shared by the
+ * {@link JVGWriter}, the {@link JVGReader} and the {@link JVGFile}.
+ * <p>
+ * The format is:
+ * <ul>
+ * <li>A 4-byte magic number ("JVGB") and a 2-byte version.</li>
+ * <li>A series of records. Each record is a 1-byte tag, a 4-byte length, and
+ * then that many bytes of data. Readers skip tags they don't recognize.</li>
+ * <li>An end record, followed by the footer. The footer lists the offset of
+ * every record in the string, object and context tables, and the offset and
+ * bounds of every Operation.</li>
+ * <li>The offset of the footer as 8 bytes, followed by a 4-byte magic number
+ * ("JVGI").</li>
+ * </ul>
+ * <p>
+ * Strings, objects (paints, strokes, fonts, composites and rendering hints)
+ * and Graphics2DContexts are each stored once in a table, and are referred to
+ * by their index in that table. Each table entry is written immediately
+ * before the first record that refers to it, so the file can be decoded in
+ * one pass.
+ * <p>
+ * Common Operations and objects are encoded field-by-field. Everything else
+ * falls back to Java serialization, so any Operation that can be serialized
+ * can be written in this format.
+ */
+class JVGFormat {
+
+	static final int MAGIC = 0x4A564742;
+	static final int TRAILER_MAGIC = 0x4A564749;
+	static final int VERSION = 1;
+	static final int TRAILER_SIZE = 12;
+
+	static final int TAG_END = 0;
+	static final int TAG_STRING = 1;
+	static final int TAG_OBJECT = 2;
+	static final int TAG_CONTEXT = 3;
+	static final int TAG_OPERATION = 4;
+
+	static final int OBJECT_SERIALIZED = 0;
+	static final int OBJECT_COLOR = 1;
+	static final int OBJECT_BASIC_STROKE = 2;
+	static final int OBJECT_ALPHA_COMPOSITE = 3;
+	static final int OBJECT_FONT = 4;
+
+	static final int OPERATION_SERIALIZED = 0;
+	static final int OPERATION_FILL = 1;
+	static final int OPERATION_DRAW = 2;
+	static final int OPERATION_STRING = 3;
+
+	static final int SHAPE_FLOAT_PATH = 0;
+	static final int SHAPE_DOUBLE_PATH = 1;
+	static final int SHAPE_RECTANGLE = 2;
+	static final int SHAPE_RECTANGLE2D_FLOAT = 3;
+	static final int SHAPE_RECTANGLE2D_DOUBLE = 4;
+	static final int SHAPE_ELLIPSE2D_FLOAT = 5;
+	static final int SHAPE_ELLIPSE2D_DOUBLE = 6;
+	static final int SHAPE_ROUND_RECTANGLE2D_FLOAT = 7;
+	static final int SHAPE_ROUND_RECTANGLE2D_DOUBLE = 8;
+	static final int SHAPE_ARC2D_FLOAT = 9;
+	static final int SHAPE_ARC2D_DOUBLE = 10;
+	static final int SHAPE_LINE2D_FLOAT = 11;
+	static final int SHAPE_LINE2D_DOUBLE = 12;
+
+	static final int CONTEXT_DISPOSED = 1;
+	static final int CONTEXT_XOR = 2;
+	static final int CONTEXT_CLIP = 4;
+
+	/**
+	 * Return true if the first two bytes of a stream indicate it is GZIP
+	 * compressed. (VectorImage used to save files as GZIP-compressed Java
+	 * serialization.)
+	 */
+	static boolean isGZIP(int b1, int b2) {
+		return b1 == 0x1f && b2 == 0x8b;
+	}
+
+	static void writeString(DataOutput out, String str) throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write an object using Java serialization (and
+	 * {@link ConverterUtils#writeObject(ObjectOutputStream, Object)}).
+	 */
+	static void writeSerialized(DataOutput out, Object obj)
+			throws IOException {
+		ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+		try (ObjectOutputStream objOut = new ObjectOutputStream(byteOut)) {
+			ConverterUtils.writeObject(objOut, obj);
+		}
+		out.writeInt(byteOut.size());
+		out.write(byteOut.toByteArray());
+	}
+
+	static Object readSerialized(DataInput in)
+			throws IOException, ClassNotFoundException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		try (ObjectInputStream objIn = new ObjectInputStream(
+				new ByteArrayInputStream(bytes))) {
+			return ConverterUtils.readObject(objIn);
+		}
+	}
+
+	/**
+	 * Write a shape. Rectangles, ellipses, round rectangles, arcs and lines
+	 * keep their class, and all other shapes are stored as a path. Path
+	 * coordinates are stored as floats when that is lossless, and as doubles
+	 * otherwise.
+	 */
+	static void writeShape(DataOutput out, Shape shape) throws IOException {
+		Class<?> c = shape.getClass();
+		if (c == Rectangle.class) {
+			Rectangle r = (Rectangle) shape;
+			out.writeByte(SHAPE_RECTANGLE);
+			out.writeInt(r.x);
+			out.writeInt(r.y);
+			out.writeInt(r.width);
+			out.writeInt(r.height);
+			return;
+		} else if (c == Rectangle2D.Float.class
+				|| c == Rectangle2D.Double.class) {
+			writeFrame(out, SHAPE_RECTANGLE2D_FLOAT, SHAPE_RECTANGLE2D_DOUBLE,
+					(RectangularShape) shape);
+			return;
+		} else if (c == Ellipse2D.Float.class || c == Ellipse2D.Double.class) {
+			writeFrame(out, SHAPE_ELLIPSE2D_FLOAT, SHAPE_ELLIPSE2D_DOUBLE,
+					(RectangularShape) shape);
+			return;
+		} else if (c == RoundRectangle2D.Float.class
+				|| c == RoundRectangle2D.Double.class) {
+			RoundRectangle2D r = (RoundRectangle2D) shape;
+			writeFrame(out, SHAPE_ROUND_RECTANGLE2D_FLOAT,
+					SHAPE_ROUND_RECTANGLE2D_DOUBLE, r);
+			writeValue(out, r, r.getArcWidth());
+			writeValue(out, r, r.getArcHeight());
+			return;
+		} else if (c == Arc2D.Float.class || c == Arc2D.Double.class) {
+			Arc2D arc = (Arc2D) shape;
+			writeFrame(out, SHAPE_ARC2D_FLOAT, SHAPE_ARC2D_DOUBLE, arc);
+			writeValue(out, arc, arc.getAngleStart());
+			writeValue(out, arc, arc.getAngleExtent());
+			out.writeByte(arc.getArcType());
+			return;
+		} else if (c == Line2D.Float.class || c == Line2D.Double.class) {
+			Line2D line = (Line2D) shape;
+			out.writeByte(c == Line2D.Float.class ? SHAPE_LINE2D_FLOAT
+					: SHAPE_LINE2D_DOUBLE);
+			writeValue(out, line, line.getX1());
+			writeValue(out, line, line.getY1());
+			writeValue(out, line, line.getX2());
+			writeValue(out, line, line.getY2());
+			return;
+		}
+
+		PathIterator i = shape.getPathIterator(null);
+		int windingRule = i.getWindingRule();
+		byte[] types = new byte[16];
+		double[] coords = new double[96];
+		double[] segment = new double[6];
+		int typeCount = 0;
+		int coordCount = 0;
+		boolean isFloat = true;
+		while (!i.isDone()) {
+			if (typeCount == types.length)
+				types = Arrays.copyOf(types, typeCount * 2);
+			if (coordCount + 6 > coords.length)
+				coords = Arrays.copyOf(coords, coords.length * 2);
+			int k = i.currentSegment(segment);
+			types[typeCount++] = (byte) k;
+			int n = getCoordinateCount(k);
+			for (int a = 0; a < n; a++) {
+				double v = segment[a];
+				if (isFloat && (float) v != v)
+					isFloat = false;
+				coords[coordCount++] = v;
+			}
+			i.next();
+		}
+
+		out.writeByte(isFloat ? SHAPE_FLOAT_PATH : SHAPE_DOUBLE_PATH);
+		out.writeByte(windingRule);
+		out.writeInt(typeCount);
+		out.write(types, 0, typeCount);
+		for (int a = 0; a < coordCount; a++) {
+			if (isFloat) {
+				out.writeFloat((float) coords[a]);
+			} else {
+				out.writeDouble(coords[a]);
+			}
+		}
+	}
+
+	/**
+	 * Write the shape type and the frame of a RectangularShape.
+	 */
+	private static void writeFrame(DataOutput out, int floatType,
+			int doubleType, RectangularShape shape) throws IOException {
+		out.writeByte(isFloat(shape) ? floatType : doubleType);
+		writeValue(out, shape, shape.getX());
+		writeValue(out, shape, shape.getY());
+		writeValue(out, shape, shape.getWidth());
+		writeValue(out, shape, shape.getHeight());
+	}
+
+	/**
+	 * Write a float if the shape is one of the Float inner classes (like
+	 * Ellipse2D.Float), or a double otherwise.
+	 */
+	private static void writeValue(DataOutput out, Shape shape, double value)
+			throws IOException {
+		if (isFloat(shape)) {
+			out.writeFloat((float) value);
+		} else {
+			out.writeDouble(value);
+		}
+	}
+
+	private static boolean isFloat(Shape shape) {
+		Class<?> c = shape.getClass();
+		return c == Rectangle2D.Float.class || c == Ellipse2D.Float.class
+				|| c == RoundRectangle2D.Float.class || c == Arc2D.Float.class
+				|| c == Line2D.Float.class;
+	}
+
+	private static double[] readValues(DataInput in, boolean isFloat, int n)
+			throws IOException {
+		double[] values = new double[n];
+		for (int a = 0; a < n; a++) {
+			values[a] = isFloat ? in.readFloat() : in.readDouble();
+		}
+		return values;
+	}
+
+	static Shape readShape(DataInput in) throws IOException {
+		int type = in.readUnsignedByte();
+		double[] v;
+		switch (type) {
+		case SHAPE_RECTANGLE:
+			return new Rectangle(in.readInt(), in.readInt(), in.readInt(),
+					in.readInt());
+		case SHAPE_RECTANGLE2D_FLOAT:
+		case SHAPE_RECTANGLE2D_DOUBLE:
+			v = readValues(in, type == SHAPE_RECTANGLE2D_FLOAT, 4);
+			RectangularShape r = type == SHAPE_RECTANGLE2D_FLOAT
+					? new Rectangle2D.Float()
+					: new Rectangle2D.Double();
+			r.setFrame(v[0], v[1], v[2], v[3]);
+			return r;
+		case SHAPE_ELLIPSE2D_FLOAT:
+		case SHAPE_ELLIPSE2D_DOUBLE:
+			v = readValues(in, type == SHAPE_ELLIPSE2D_FLOAT, 4);
+			RectangularShape e = type == SHAPE_ELLIPSE2D_FLOAT
+					? new Ellipse2D.Float()
+					: new Ellipse2D.Double();
+			e.setFrame(v[0], v[1], v[2], v[3]);
+			return e;
+		case SHAPE_ROUND_RECTANGLE2D_FLOAT:
+		case SHAPE_ROUND_RECTANGLE2D_DOUBLE:
+			v = readValues(in, type == SHAPE_ROUND_RECTANGLE2D_FLOAT, 6);
+			RoundRectangle2D rr = type == SHAPE_ROUND_RECTANGLE2D_FLOAT
+					? new RoundRectangle2D.Float()
+					: new RoundRectangle2D.Double();
+			rr.setRoundRect(v[0], v[1], v[2], v[3], v[4], v[5]);
+			return rr;
+		case SHAPE_ARC2D_FLOAT:
+		case SHAPE_ARC2D_DOUBLE:
+			v = readValues(in, type == SHAPE_ARC2D_FLOAT, 6);
+			Arc2D arc = type == SHAPE_ARC2D_FLOAT ? new Arc2D.Float()
+					: new Arc2D.Double();
+			arc.setArc(v[0], v[1], v[2], v[3], v[4], v[5],
+					in.readUnsignedByte());
+			return arc;
+		case SHAPE_LINE2D_FLOAT:
+		case SHAPE_LINE2D_DOUBLE:
+			v = readValues(in, type == SHAPE_LINE2D_FLOAT, 4);
+			Line2D line = type == SHAPE_LINE2D_FLOAT ? new Line2D.Float()
+					: new Line2D.Double();
+			line.setLine(v[0], v[1], v[2], v[3]);
+			return line;
+		case SHAPE_FLOAT_PATH:
+		case SHAPE_DOUBLE_PATH:
+			break;
+		default:
+			throw new IOException("unsupported shape type " + type);
+		}
+
+		boolean isFloat = type == SHAPE_FLOAT_PATH;
+		int windingRule = in.readUnsignedByte();
+		byte[] types = new byte[in.readInt()];
+		in.readFully(types);
+		Path2D p = isFloat ? new Path2D.Float(windingRule, types.length)
+				: new Path2D.Double(windingRule, types.length);
+		double[] coords = new double[6];
+		for (byte k : types) {
+			int n = getCoordinateCount(k);
+			for (int a = 0; a < n; a++) {
+				coords[a] = isFloat ? in.readFloat() : in.readDouble();
+			}
+			switch (k) {
+			case PathIterator.SEG_MOVETO:
+				p.moveTo(coords[0], coords[1]);
+				break;
+			case PathIterator.SEG_LINETO:
+				p.lineTo(coords[0], coords[1]);
+				break;
+			case PathIterator.SEG_QUADTO:
+				p.quadTo(coords[0], coords[1], coords[2], coords[3]);
+				break;
+			case PathIterator.SEG_CUBICTO:
+				p.curveTo(coords[0], coords[1], coords[2], coords[3],
+						coords[4], coords[5]);
+				break;
+			case PathIterator.SEG_CLOSE:
+				p.closePath();
+				break;
+			default:
+				throw new IOException("unsupported segment type " + k);
+			}
+		}
+		return p;
+	}
+
+	private static int getCoordinateCount(int segmentType) {
+		switch (segmentType) {
+		case PathIterator.SEG_MOVETO:
+		case PathIterator.SEG_LINETO:
+			return 2;
+		case PathIterator.SEG_QUADTO:
+			return 4;
+		case PathIterator.SEG_CUBICTO:
+			return 6;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * This resolves references to the string, object and context tables while
+	 * records are decoded.
+	 */
+	static abstract class Decoder {
+
+		abstract String getString(int index)
+				throws IOException, ClassNotFoundException;
+
+		abstract Object getObject(int index)
+				throws IOException, ClassNotFoundException;
+
+		abstract Graphics2DContext getContext(int index)
+				throws IOException, ClassNotFoundException;
+
+		/**
+		 * Read the data of a {@link #TAG_OBJECT} record.
+		 */
+		Object readObject(DataInput in)
+				throws IOException, ClassNotFoundException {
+			int type = in.readUnsignedByte();
+			switch (type) {
+			case OBJECT_SERIALIZED:
+				return readSerialized(in);
+			case OBJECT_COLOR:
+				return new Color(in.readInt(), true);
+			case OBJECT_BASIC_STROKE:
+				float width = in.readFloat();
+				int cap = in.readUnsignedByte();
+				int join = in.readUnsignedByte();
+				float miterLimit = in.readFloat();
+				int dashCount = in.readInt();
+				float[] dash = null;
+				if (dashCount >= 0) {
+					dash = new float[dashCount];
+					for (int a = 0; a < dashCount; a++) {
+						dash[a] = in.readFloat();
+					}
+				}
+				float dashPhase = in.readFloat();
+				return new BasicStroke(width, cap, join, miterLimit, dash,
+						dashPhase);
+			case OBJECT_ALPHA_COMPOSITE:
+				int rule = in.readUnsignedByte();
+				return AlphaComposite.getInstance(rule, in.readFloat());
+			case OBJECT_FONT:
+				String name = getString(in.readInt());
+				int style = in.readInt();
+				float size = in.readFloat();
+				return new Font(name, style, 1).deriveFont(size);
+			default:
+				throw new IOException("unsupported object type " + type);
+			}
+		}
+
+		/**
+		 * Read the data of a {@link #TAG_CONTEXT} record.
+		 */
+		Graphics2DContext readContext(DataInput in)
+				throws IOException, ClassNotFoundException {
+			int flags = in.readUnsignedByte();
+			Graphics2DContext context = new Graphics2DContext();
+
+			// the clip is stored without the transform, so assign it first:
+			if ((flags & CONTEXT_CLIP) != 0)
+				context.setClip(readShape(in));
+			double[] matrix = new double[6];
+			for (int a = 0; a < matrix.length; a++) {
+				matrix[a] = in.readDouble();
+			}
+			context.setTransform(new AffineTransform(matrix));
+
+			context.setColor((Color) getObject(in.readInt()));
+			context.setPaint((Paint) getObject(in.readInt()));
+			context.setBackground((Color) getObject(in.readInt()));
+			if ((flags & CONTEXT_XOR) != 0)
+				context.setXORMode((Color) getObject(in.readInt()));
+			context.setFont((Font) getObject(in.readInt()));
+			context.setStroke((Stroke) getObject(in.readInt()));
+			context.setComposite((Composite) getObject(in.readInt()));
+			context.setRenderingHints(
+					(RenderingHints) getObject(in.readInt()));
+			if ((flags & CONTEXT_DISPOSED) != 0)
+				context.dispose();
+			context.freeze();
+			return context;
+		}
+
+		/**
+		 * Read the data of a {@link #TAG_OPERATION} record.
+		 */
+		Operation readOperation(DataInput in)
+				throws IOException, ClassNotFoundException {
+			int type = in.readUnsignedByte();
+			Graphics2DContext context = getContext(in.readInt());
+			Operation op;
+			switch (type) {
+			case OPERATION_SERIALIZED:
+				op = (Operation) readSerialized(in);
+				op.setContext(context);
+				return op;
+			case OPERATION_FILL:
+			case OPERATION_DRAW:
+				Shape shape = readShape(in);
+				op = type == OPERATION_FILL ? new FillOperation(context, shape)
+						: new DrawOperation(context, shape);
+				// the constructor stores a Path2D.Float clone, but we need to
+				// preserve double-precision paths:
+				op.coreProperties.put(ShapeOperation.PROPERTY_SHAPE, shape);
+				break;
+			case OPERATION_STRING:
+				String str = getString(in.readInt());
+				float x = in.readFloat();
+				float y = in.readFloat();
+				op = new StringOperation(context, str, x, y);
+				break;
+			default:
+				throw new IOException("unsupported operation type " + type);
+			}
+
+			int propertyCount = in.readInt();
+			if (propertyCount > 0) {
+				@SuppressWarnings("unchecked")
+				Map<String, Object> properties = (Map<String, Object>) readSerialized(
+						in);
+				for (Map.Entry<String, Object> entry : properties
+						.entrySet()) {
+					op.setProperty(entry.getKey(),
+							(Serializable) entry.getValue());
+				}
+			}
+			return op;
+		}
+	}
+}
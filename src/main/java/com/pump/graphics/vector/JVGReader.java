@@ -0,0 +1,144 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.Graphics2D;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pump.graphics.Graphics2DContext;
+
+/**
+ * This reads Operations one at a time from an InputStream that was written by
+ * a {@link JVGWriter}.
+ * <p>
+ * This only keeps the string, object and context tables in memory, so you can
+ * paint a large file without ever holding all of its Operations. If you have
+ * a file and only need some of its Operations, a {@link JVGFile} can avoid
+ * decoding the others entirely.
+ */
+public class JVGReader implements Closeable {
+
+	private final DataInputStream in;
+	private final List<String> strings = new ArrayList<>();
+	private final List<Object> objects = new ArrayList<>();
+	private final List<Graphics2DContext> contexts = new ArrayList<>();
+	private boolean done = false;
+
+	private final JVGFormat.Decoder decoder = new JVGFormat.Decoder() {
+
+		@Override
+		String getString(int index) throws IOException {
+			return index == -1 ? null : strings.get(index);
+		}
+
+		@Override
+		Object getObject(int index) throws IOException {
+			return index == -1 ? null : objects.get(index);
+		}
+
+		@Override
+		Graphics2DContext getContext(int index) throws IOException {
+			return contexts.get(index);
+		}
+	};
+
+	/**
+	 * Create a JVGReader and read the file header.
+	 */
+	public JVGReader(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		int magic = this.in.readInt();
+		if (magic != JVGFormat.MAGIC)
+			throw new IOException("This is not a JVG file.");
+		int version = this.in.readUnsignedShort();
+		if (version != JVGFormat.VERSION)
+			throw new IOException("unsupported version " + version);
+	}
+
+	/**
+	 * Read the next Operation, or return null if there are no more
+	 * Operations.
+	 */
+	public Operation read() throws IOException, ClassNotFoundException {
+		while (!done) {
+			int tag = in.readUnsignedByte();
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			DataInputStream recordIn = new DataInputStream(
+					new ByteArrayInputStream(data));
+			switch (tag) {
+			case JVGFormat.TAG_END:
+				done = true;
+				break;
+			case JVGFormat.TAG_STRING:
+				strings.add(JVGFormat.readString(recordIn));
+				break;
+			case JVGFormat.TAG_OBJECT:
+				objects.add(decoder.readObject(recordIn));
+				break;
+			case JVGFormat.TAG_CONTEXT:
+				contexts.add(decoder.readContext(recordIn));
+				break;
+			case JVGFormat.TAG_OPERATION:
+				return decoder.readOperation(recordIn);
+			default:
+				// this record was added in a later version; skip it
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Read all the remaining Operations.
+	 */
+	public List<Operation> readAll()
+			throws IOException, ClassNotFoundException {
+		List<Operation> returnValue = new ArrayList<>();
+		Operation op;
+		while ((op = read()) != null) {
+			returnValue.add(op);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Paint all the remaining Operations as they are read.
+	 */
+	public void paint(Graphics2D g) throws IOException, ClassNotFoundException {
+		// Operations that share a context are painted together, so each
+		// context is only installed once. See Operation.paint(g, list).
+		List<Operation> run = new ArrayList<>();
+		Operation op;
+		while ((op = read()) != null) {
+			if (!run.isEmpty() && run.get(0).context != op.context) {
+				Operation.paint(g, run);
+				run.clear();
+			}
+			run.add(op);
+		}
+		Operation.paint(g, run);
+	}
+
+	/**
+	 * Close the underlying InputStream.
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
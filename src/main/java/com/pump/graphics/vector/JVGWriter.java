@@ -0,0 +1,333 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pump.geom.ShapeUtils;
+import com.pump.graphics.Graphics2DContext;
+import com.pump.io.MeasuredOutputStream;
+
+/**
+ * This writes Operations to an OutputStream in the binary JVG format. See
+ * {@link JVGReader} and {@link JVGFile} to read this format.
+ * <p>
+ * Operations are written as they are passed to {@link #write(Operation)}, so
+ * this never needs to hold a whole VectorImage in memory. The footer (which
+ * lets a {@link JVGFile} locate any Operation) is written when this writer is
+ * closed.
+ * <p>
+ * Graphics2DContexts are identified by reference, so Operations that share
+ * the same context (see {@link VectorGraphics2D}) only store it once.
+ */
+public class JVGWriter implements Closeable {
+
+	private final MeasuredOutputStream measuredOut;
+	private final DataOutputStream out;
+	private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+	private final DataOutputStream record = new DataOutputStream(recordBytes);
+
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final Map<Object, Integer> objects = new HashMap<>();
+	private final Map<Object, Integer> objectsByIdentity = new IdentityHashMap<>();
+	private final Map<Graphics2DContext, Integer> contexts = new IdentityHashMap<>();
+
+	private final List<Long> stringOffsets = new ArrayList<>();
+	private final List<Long> objectOffsets = new ArrayList<>();
+	private final List<Long> contextOffsets = new ArrayList<>();
+	private final List<Long> operationOffsets = new ArrayList<>();
+	private final List<Rectangle2D> operationBounds = new ArrayList<>();
+	private final List<Boolean> operationCopiesArea = new ArrayList<>();
+	private boolean closed = false;
+
+	/**
+	 * Create a JVGWriter and write the file header.
+	 */
+	public JVGWriter(OutputStream out) throws IOException {
+		measuredOut = new MeasuredOutputStream(new BufferedOutputStream(out));
+		this.out = new DataOutputStream(measuredOut);
+		this.out.writeInt(JVGFormat.MAGIC);
+		this.out.writeShort(JVGFormat.VERSION);
+	}
+
+	/**
+	 * Write all the Operations in a VectorImage.
+	 */
+	public void write(VectorImage image) throws IOException {
+		for (Operation op : image.getOperations()) {
+			write(op);
+		}
+	}
+
+	/**
+	 * Write an Operation.
+	 */
+	public void write(Operation op) throws IOException {
+		if (closed)
+			throw new IOException("This JVGWriter is closed.");
+
+		int contextIndex = getContextIndex(op.context);
+		Class<?> type = op.getClass();
+		if (type == FillOperation.class || type == DrawOperation.class) {
+			record.writeByte(type == FillOperation.class
+					? JVGFormat.OPERATION_FILL
+					: JVGFormat.OPERATION_DRAW);
+			record.writeInt(contextIndex);
+			JVGFormat.writeShape(record,
+					(Shape) op.coreProperties.get(ShapeOperation.PROPERTY_SHAPE));
+		} else if (type == StringOperation.class) {
+			StringOperation stringOp = (StringOperation) op;
+			// the string record must be written before this record starts:
+			int stringIndex = getStringIndex(stringOp.getString());
+			record.writeByte(JVGFormat.OPERATION_STRING);
+			record.writeInt(contextIndex);
+			record.writeInt(stringIndex);
+			record.writeFloat(stringOp.getX());
+			record.writeFloat(stringOp.getY());
+		} else {
+			// this includes the client properties:
+			record.writeByte(JVGFormat.OPERATION_SERIALIZED);
+			record.writeInt(contextIndex);
+			JVGFormat.writeSerialized(record, op);
+			type = null;
+		}
+
+		if (type != null) {
+			record.writeInt(op.clientProperties.size());
+			if (!op.clientProperties.isEmpty())
+				JVGFormat.writeSerialized(record, op.getProperties());
+		}
+
+		operationOffsets.add(writeRecord(JVGFormat.TAG_OPERATION));
+		operationBounds.add(op.getBounds());
+		operationCopiesArea.add(op instanceof CopyAreaOperation);
+	}
+
+	private int getStringIndex(String str) throws IOException {
+		Integer index = strings.get(str);
+		if (index == null) {
+			JVGFormat.writeString(record, str);
+			index = strings.size();
+			strings.put(str, index);
+			stringOffsets.add(writeRecord(JVGFormat.TAG_STRING));
+		}
+		return index;
+	}
+
+	/**
+	 * Return true if an object has a reliable <code>equals()</code>
+	 * implementation and is immutable, so equal objects can share the same
+	 * table entry.
+	 */
+	private boolean isValue(Object obj) {
+		Class<?> type = obj.getClass();
+		return type == Color.class || type == BasicStroke.class
+				|| type == AlphaComposite.class || type == Font.class
+				|| type == RenderingHints.class;
+	}
+
+	private int getObjectIndex(Object obj) throws IOException {
+		if (obj == null)
+			return -1;
+		Map<Object, Integer> map = isValue(obj) ? objects : objectsByIdentity;
+		Integer index = map.get(obj);
+		if (index != null)
+			return index;
+
+		if (obj.getClass() == Color.class) {
+			record.writeByte(JVGFormat.OBJECT_COLOR);
+			record.writeInt(((Color) obj).getRGB());
+		} else if (obj.getClass() == BasicStroke.class) {
+			BasicStroke s = (BasicStroke) obj;
+			record.writeByte(JVGFormat.OBJECT_BASIC_STROKE);
+			record.writeFloat(s.getLineWidth());
+			record.writeByte(s.getEndCap());
+			record.writeByte(s.getLineJoin());
+			record.writeFloat(s.getMiterLimit());
+			float[] dash = s.getDashArray();
+			record.writeInt(dash == null ? -1 : dash.length);
+			if (dash != null) {
+				for (float f : dash) {
+					record.writeFloat(f);
+				}
+			}
+			record.writeFloat(s.getDashPhase());
+		} else if (obj.getClass() == AlphaComposite.class) {
+			AlphaComposite c = (AlphaComposite) obj;
+			record.writeByte(JVGFormat.OBJECT_ALPHA_COMPOSITE);
+			record.writeByte(c.getRule());
+			record.writeFloat(c.getAlpha());
+		} else if (isPlainFont(obj)) {
+			Font font = (Font) obj;
+			// the string record must be written before this record starts:
+			int nameIndex = getStringIndex(font.getName());
+			record.writeByte(JVGFormat.OBJECT_FONT);
+			record.writeInt(nameIndex);
+			record.writeInt(font.getStyle());
+			record.writeFloat(font.getSize2D());
+		} else {
+			record.writeByte(JVGFormat.OBJECT_SERIALIZED);
+			JVGFormat.writeSerialized(record, obj);
+		}
+
+		index = objects.size() + objectsByIdentity.size();
+		map.put(obj, index);
+		objectOffsets.add(writeRecord(JVGFormat.TAG_OBJECT));
+		return index;
+	}
+
+	/**
+	 * Return true if a Font is fully described by its name, style and size.
+	 */
+	private boolean isPlainFont(Object obj) {
+		if (obj.getClass() != Font.class)
+			return false;
+		Font font = (Font) obj;
+		return font.equals(new Font(font.getName(), font.getStyle(), 1)
+				.deriveFont(font.getSize2D()));
+	}
+
+	private int getContextIndex(Graphics2DContext context) throws IOException {
+		Integer index = contexts.get(context);
+		if (index != null)
+			return index;
+
+		// write every object this context refers to before we start this
+		// record:
+		int colorIndex = getObjectIndex(context.getColor());
+		int paintIndex = getObjectIndex(context.getPaint());
+		int backgroundIndex = getObjectIndex(context.getBackground());
+		Color xorColor = context.getXORColor();
+		int xorIndex = getObjectIndex(xorColor);
+		int fontIndex = getObjectIndex(context.getFont());
+		int strokeIndex = getObjectIndex(context.getStroke());
+		int compositeIndex = getObjectIndex(context.getComposite());
+		int hintsIndex = getObjectIndex(context.getRenderingHints());
+
+		Shape clip = context.getClip(false);
+		int flags = 0;
+		if (context.isDisposed())
+			flags |= JVGFormat.CONTEXT_DISPOSED;
+		if (xorColor != null)
+			flags |= JVGFormat.CONTEXT_XOR;
+		if (clip != null)
+			flags |= JVGFormat.CONTEXT_CLIP;
+		record.writeByte(flags);
+		if (clip != null) {
+			Rectangle r = ShapeUtils.getRectangle(clip);
+			Rectangle2D r2 = r == null ? ShapeUtils.getRectangle2D(clip)
+					: null;
+			JVGFormat.writeShape(record, r != null ? r : r2 != null ? r2
+					: clip);
+		}
+		double[] matrix = new double[6];
+		AffineTransform tx = context.getTransform();
+		tx.getMatrix(matrix);
+		for (double d : matrix) {
+			record.writeDouble(d);
+		}
+		record.writeInt(colorIndex);
+		record.writeInt(paintIndex);
+		record.writeInt(backgroundIndex);
+		if (xorColor != null)
+			record.writeInt(xorIndex);
+		record.writeInt(fontIndex);
+		record.writeInt(strokeIndex);
+		record.writeInt(compositeIndex);
+		record.writeInt(hintsIndex);
+
+		index = contexts.size();
+		contexts.put(context, index);
+		contextOffsets.add(writeRecord(JVGFormat.TAG_CONTEXT));
+		return index;
+	}
+
+	/**
+	 * Write the record that has been assembled in {@link #record}.
+	 *
+	 * @return the offset of the record in the file.
+	 */
+	private long writeRecord(int tag) throws IOException {
+		long offset = measuredOut.getBytesWritten();
+		out.writeByte(tag);
+		out.writeInt(recordBytes.size());
+		recordBytes.writeTo(out);
+		recordBytes.reset();
+		return offset;
+	}
+
+	/**
+	 * Write the footer and close the underlying OutputStream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+
+		out.writeByte(JVGFormat.TAG_END);
+		out.writeInt(0);
+
+		long footerOffset = measuredOut.getBytesWritten();
+		writeOffsets(stringOffsets);
+		writeOffsets(objectOffsets);
+		writeOffsets(contextOffsets);
+		writeOffsets(operationOffsets);
+		for (int a = 0; a < operationBounds.size(); a++) {
+			Rectangle2D r = operationBounds.get(a);
+			out.writeBoolean(operationCopiesArea.get(a));
+			if (r == null) {
+				out.writeBoolean(false);
+			} else {
+				// round outward to floats:
+				float minX = (float) r.getMinX();
+				float minY = (float) r.getMinY();
+				float maxX = (float) r.getMaxX();
+				float maxY = (float) r.getMaxY();
+				out.writeBoolean(true);
+				out.writeFloat(minX > r.getMinX() ? Math.nextDown(minX) : minX);
+				out.writeFloat(minY > r.getMinY() ? Math.nextDown(minY) : minY);
+				out.writeFloat(maxX < r.getMaxX() ? Math.nextUp(maxX) : maxX);
+				out.writeFloat(maxY < r.getMaxY() ? Math.nextUp(maxY) : maxY);
+			}
+		}
+
+		out.writeLong(footerOffset);
+		out.writeInt(JVGFormat.TRAILER_MAGIC);
+		out.close();
+	}
+
+	private void writeOffsets(List<Long> offsets) throws IOException {
+		out.writeInt(offsets.size());
+		for (Long offset : offsets) {
+			out.writeLong(offset);
+		}
+	}
+}
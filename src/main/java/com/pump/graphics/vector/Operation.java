@@ -21,11 +21,14 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 
 import com.pump.data.converter.ConverterUtils;
 import com.pump.geom.Clipper;
@@ -46,6 +49,9 @@ public abstract class Operation implements Serializable {
 	/**
 	 * The context used to prepare the Graphics2D (rendering hints, transform,
 	 * stroke, etc.)
+	 * <p>
+	 * This context is always frozen, because it may be shared with other
+	 * Operations.
 	 */
 	protected Graphics2DContext context;
 
@@ -72,12 +78,18 @@ public abstract class Operation implements Serializable {
 	}
 
 	/**
-	 * Assign the Graphics2DContext for this operation. This method will clone
-	 * the incoming context.
+	 * Assign the Graphics2DContext for this operation.
+	 * <p>
+	 * If the incoming context is frozen then it is shared as-is. Otherwise
+	 * this method stores a frozen clone of the incoming context.
 	 */
 	public void setContext(Graphics2DContext context) {
 		Objects.requireNonNull(context);
-		this.context = context.clone();
+		if (!context.isFrozen()) {
+			context = context.clone();
+			context.freeze();
+		}
+		this.context = context;
 	}
 
 	/**
@@ -93,6 +105,65 @@ public abstract class Operation implements Serializable {
 		g.dispose();
 	}
 
+	/**
+	 * The Operation classes in this package whose
+	 * {@link #paintOperation(Graphics2D)} only draws to the Graphics2D without
+	 * changing its state. Only these classes can share a Graphics2D with
+	 * other Operations in {@link #paint(Graphics2D, Iterable)}; subclasses
+	 * are not included, because they may modify the Graphics2D or override
+	 * {@link #paint(Graphics2D)}.
+	 */
+	private static final Set<Class<?>> SHAREABLE_CLASSES = new HashSet<>(
+			Arrays.<Class<?>> asList(FillOperation.class, DrawOperation.class,
+					ImageOperation.class, RenderedImageOperation.class,
+					RenderableImageOperation.class, StringOperation.class,
+					GlyphVectorOperation.class,
+					AttributedCharacterIteratorOperation.class,
+					CopyAreaOperation.class));
+
+	/**
+	 * Return true if an Operation can be painted with a Graphics2D that other
+	 * Operations also paint to. If this returns false then the Operation
+	 * should be painted by calling {@link #paint(Graphics2D)}.
+	 */
+	static boolean isShareable(Operation op) {
+		return SHAREABLE_CLASSES.contains(op.getClass());
+	}
+
+	/**
+	 * Paint a series of Operations.
+	 * <p>
+	 * This is equivalent to calling {@link #paint(Graphics2D)} for each
+	 * Operation, except consecutive Operations that share the same
+	 * Graphics2DContext are painted with one Graphics2D, so the context is
+	 * only installed once. This only applies to the Operation classes defined
+	 * in this package: other subclasses are always painted with their own
+	 * Graphics2D.
+	 */
+	public static void paint(Graphics2D g, Iterable<Operation> operations) {
+		Graphics2D g2 = null;
+		Graphics2DContext installedContext = null;
+		try {
+			for (Operation op : operations) {
+				if (!isShareable(op)) {
+					op.paint(g);
+					continue;
+				}
+				if (g2 == null || op.context != installedContext) {
+					if (g2 != null)
+						g2.dispose();
+					g2 = (Graphics2D) g.create();
+					installedContext = op.context;
+					installedContext.install(g2);
+				}
+				op.paintOperation(g2);
+			}
+		} finally {
+			if (g2 != null)
+				g2.dispose();
+		}
+	}
+
 	/**
 	 * Paint this Operation to an incoming Graphics2D.
 	 * <p>
@@ -127,6 +198,8 @@ public abstract class Operation implements Serializable {
 		int version = in.readInt();
 		if (version == 0) {
 			context = (Graphics2DContext) in.readObject();
+			// contexts that were shared before serialization are still shared
+			context.freeze();
 			coreProperties = readMap(in);
 			clientProperties = readMap(in);
 		} else {
@@ -364,10 +437,14 @@ public abstract class Operation implements Serializable {
 	 * <p>
 	 * Alternatively: you could call {@link #getContext()}, change the hint, and
 	 * then call {@link #setContext(Graphics2DContext)}, but that clones the
-	 * context twice. This call is more efficient.
+	 * context twice. This call is more efficient. (The context may be shared
+	 * with other Operations, so it is still cloned once.)
 	 */
 	public void setRenderingHint(Key hintKey, Object hintValue) {
-		context.setRenderingHint(hintKey, hintValue);
+		Graphics2DContext newContext = context.clone();
+		newContext.setRenderingHint(hintKey, hintValue);
+		newContext.freeze();
+		context = newContext;
 	}
 
 	/**
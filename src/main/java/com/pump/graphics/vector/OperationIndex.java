@@ -0,0 +1,389 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.pump.util.list.AddElementsEvent;
+import com.pump.util.list.ChangeElementEvent;
+import com.pump.util.list.ListListener;
+import com.pump.util.list.ObservableList;
+import com.pump.util.list.RemoveElementsEvent;
+import com.pump.util.list.ReplaceElementsEvent;
+
+/**
+ * This is a uniform grid over the bounds of the Operations in an
+ * ObservableList, so a VectorImage can quickly identify which Operations
+ * intersect a clipping rectangle.
+ * <p>
+ * This listens to the list, so it is updated incrementally as Operations are
+ * added, removed or replaced. The bounds of new Operations are not calculated
+ * until the next query, because calculating bounds can be expensive and
+ * Operations are often added much more frequently than they are painted.
+ * <p>
+ * Bounds are compared as closed rectangles, so a hairline whose bounds have
+ * zero width or height still intersects the rectangles it touches. Operations
+ * whose bounds are null are always returned, because they may still paint
+ * something (like a hairline with a zero-width stroke).
+ * <p>
+ * Operations that are modified in place (for example by calling
+ * {@link Operation#setContext(com.pump.graphics.Graphics2DContext)}) are not
+ * detected. To update an Operation's bounds, replace it in the list.
+ */
+class OperationIndex implements ListListener<Operation> {
+
+	/**
+	 * The default width and height of each cell in the grid.
+	 */
+	static final int DEFAULT_CELL_SIZE = 128;
+
+	/**
+	 * Operations that cover more than this many cells are stored in a separate
+	 * list instead of the grid.
+	 */
+	static final int MAX_CELLS_PER_OPERATION = 256;
+
+	static class Entry {
+		final Operation operation;
+
+		/**
+		 * The position of this entry in the list. This is only used to sort
+		 * entries, so the values don't have to be consecutive.
+		 */
+		int order;
+
+		boolean indexed = false;
+		boolean removed = false;
+		Rectangle2D bounds;
+		int minCellX, minCellY, maxCellX, maxCellY;
+		boolean large;
+
+		Entry(Operation operation) {
+			this.operation = operation;
+		}
+	}
+
+	private static final Comparator<Entry> ORDER_COMPARATOR = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Integer.compare(e1.order, e2.order);
+		}
+	};
+
+	final ObservableList<Operation> list;
+	private final int cellSize;
+
+	private final List<Entry> entries = new ArrayList<>();
+	private final List<Entry> pendingEntries = new ArrayList<>();
+	private final Map<Long, List<Entry>> cells = new HashMap<>();
+	private final List<Entry> largeEntries = new ArrayList<>();
+	private int copyAreaCount = 0;
+	private boolean orderDirty = false;
+
+	/**
+	 * Create an index and attach it to a list.
+	 */
+	OperationIndex(ObservableList<Operation> list) {
+		this(list, DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Create an index and attach it to a list.
+	 * 
+	 * @param cellSize
+	 *            the width and height of each cell in the grid.
+	 */
+	OperationIndex(ObservableList<Operation> list, int cellSize) {
+		if (cellSize < 1)
+			throw new IllegalArgumentException("cellSize (" + cellSize
+					+ ") must be positive");
+		this.list = list;
+		this.cellSize = cellSize;
+		list.addListListener(this, false);
+		reset(list);
+	}
+
+	/**
+	 * Detach this index from its list.
+	 */
+	void dispose() {
+		list.removeListListener(this);
+	}
+
+	/**
+	 * Return the Operations whose bounds intersect a rectangle in the order
+	 * they appear in the list.
+	 * <p>
+	 * If the list contains a {@link CopyAreaOperation} then this returns every
+	 * Operation, because copying an area may depend on Operations anywhere in
+	 * the image.
+	 */
+	synchronized List<Operation> getOperations(Rectangle2D r) {
+		if (entries.size() != list.size()) {
+			// this can happen if a RemoveElementsEvent couldn't identify which
+			// of several equal Operations was removed
+			reset(list);
+		}
+		for (Entry entry : pendingEntries) {
+			if (!entry.removed)
+				index(entry);
+		}
+		pendingEntries.clear();
+
+		List<Operation> returnValue = new ArrayList<>();
+		if (copyAreaCount > 0) {
+			for (Entry entry : entries) {
+				returnValue.add(entry.operation);
+			}
+			return returnValue;
+		}
+
+		if (orderDirty) {
+			for (int a = 0; a < entries.size(); a++) {
+				entries.get(a).order = a;
+			}
+			orderDirty = false;
+		}
+
+		List<Entry> matches = new ArrayList<>();
+		for (Entry entry : largeEntries) {
+			if (entry.bounds == null || intersects(entry.bounds, r))
+				matches.add(entry);
+		}
+
+		int minCellX = getCell(r.getMinX());
+		int minCellY = getCell(r.getMinY());
+		int maxCellX = getCell(r.getMaxX());
+		int maxCellY = getCell(r.getMaxY());
+		long queryCells = ((long) (maxCellX - minCellX + 1))
+				* ((long) (maxCellY - minCellY + 1));
+		if (queryCells > cells.size()) {
+			for (Map.Entry<Long, List<Entry>> cell : cells.entrySet()) {
+				long key = cell.getKey();
+				int cellX = (int) (key >> 32);
+				int cellY = (int) key;
+				if (cellX >= minCellX && cellX <= maxCellX
+						&& cellY >= minCellY && cellY <= maxCellY)
+					addMatches(cell.getValue(), r, matches);
+			}
+		} else {
+			for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+				for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+					List<Entry> cell = cells.get(getKey(cellX, cellY));
+					if (cell != null)
+						addMatches(cell, r, matches);
+				}
+			}
+		}
+
+		// an entry that spans several cells is found several times:
+		Collections.sort(matches, ORDER_COMPARATOR);
+		Entry lastEntry = null;
+		for (Entry entry : matches) {
+			if (entry != lastEntry)
+				returnValue.add(entry.operation);
+			lastEntry = entry;
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Return true if the list contains a {@link CopyAreaOperation}.
+	 */
+	synchronized boolean containsCopyArea() {
+		if (entries.size() != list.size())
+			reset(list);
+		return copyAreaCount > 0;
+	}
+
+	private static void addMatches(List<Entry> cell, Rectangle2D r,
+			List<Entry> matches) {
+		for (Entry entry : cell) {
+			if (intersects(entry.bounds, r))
+				matches.add(entry);
+		}
+	}
+
+	/**
+	 * Return true if two rectangles intersect, including if they only touch
+	 * or if one of them has zero width or height.
+	 * <p>
+	 * This is different from {@link Rectangle2D#intersects(Rectangle2D)},
+	 * which always returns false for an empty rectangle.
+	 */
+	static boolean intersects(Rectangle2D r1, Rectangle2D r2) {
+		return r1.getMinX() <= r2.getMaxX() && r2.getMinX() <= r1.getMaxX()
+				&& r1.getMinY() <= r2.getMaxY()
+				&& r2.getMinY() <= r1.getMaxY();
+	}
+
+	private int getCell(double v) {
+		double d = Math.floor(v / cellSize);
+		if (d < Integer.MIN_VALUE)
+			return Integer.MIN_VALUE;
+		if (d > Integer.MAX_VALUE)
+			return Integer.MAX_VALUE;
+		return (int) d;
+	}
+
+	private static long getKey(int cellX, int cellY) {
+		return (((long) cellX) << 32) | (cellY & 0xffffffffL);
+	}
+
+	private void index(Entry entry) {
+		if (entry.indexed)
+			return;
+		entry.indexed = true;
+		entry.bounds = entry.operation.getBounds();
+		if (entry.bounds == null) {
+			entry.large = true;
+			largeEntries.add(entry);
+			return;
+		}
+
+		entry.minCellX = getCell(entry.bounds.getMinX());
+		entry.minCellY = getCell(entry.bounds.getMinY());
+		entry.maxCellX = getCell(entry.bounds.getMaxX());
+		entry.maxCellY = getCell(entry.bounds.getMaxY());
+		long cellCount = ((long) (entry.maxCellX - entry.minCellX + 1))
+				* ((long) (entry.maxCellY - entry.minCellY + 1));
+		if (cellCount > MAX_CELLS_PER_OPERATION) {
+			entry.large = true;
+			largeEntries.add(entry);
+			return;
+		}
+		for (int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++) {
+			for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+				Long key = getKey(cellX, cellY);
+				List<Entry> cell = cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<>();
+					cells.put(key, cell);
+				}
+				cell.add(entry);
+			}
+		}
+	}
+
+	private void unindex(Entry entry) {
+		if (entry.operation instanceof CopyAreaOperation)
+			copyAreaCount--;
+		if (!entry.indexed)
+			return;
+		if (entry.large) {
+			largeEntries.remove(entry);
+			return;
+		}
+		for (int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++) {
+			for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+				Long key = getKey(cellX, cellY);
+				List<Entry> cell = cells.get(key);
+				if (cell != null) {
+					cell.remove(entry);
+					if (cell.isEmpty())
+						cells.remove(key);
+				}
+			}
+		}
+	}
+
+	private Entry createEntry(Operation operation) {
+		Entry entry = new Entry(operation);
+		if (operation instanceof CopyAreaOperation)
+			copyAreaCount++;
+		pendingEntries.add(entry);
+		return entry;
+	}
+
+	private void reset(List<? extends Operation> operations) {
+		entries.clear();
+		pendingEntries.clear();
+		cells.clear();
+		largeEntries.clear();
+		copyAreaCount = 0;
+		for (Operation operation : operations) {
+			Entry entry = createEntry(operation);
+			entry.order = entries.size();
+			entries.add(entry);
+		}
+		orderDirty = false;
+	}
+
+	private void insert(int index, List<? extends Operation> operations) {
+		List<Entry> newEntries = new ArrayList<>(operations.size());
+		for (Operation operation : operations) {
+			newEntries.add(createEntry(operation));
+		}
+		if (index == entries.size()) {
+			int order = entries.isEmpty() ? 0
+					: entries.get(entries.size() - 1).order + 1;
+			for (Entry entry : newEntries) {
+				entry.order = order++;
+			}
+		} else {
+			orderDirty = true;
+		}
+		entries.addAll(index, newEntries);
+	}
+
+	private void remove(int index) {
+		Entry entry = entries.remove(index);
+		entry.removed = true;
+		unindex(entry);
+	}
+
+	@Override
+	public synchronized void elementsAdded(AddElementsEvent<Operation> event) {
+		insert(event.getIndex(), event.getNewElements());
+	}
+
+	@Override
+	public synchronized void elementsRemoved(
+			RemoveElementsEvent<Operation> event) {
+		Iterator<Integer> iter = event.getRemovedElements().keySet()
+				.iterator();
+		List<Integer> indices = new ArrayList<>();
+		while (iter.hasNext()) {
+			indices.add(iter.next());
+		}
+		if (indices.size() == entries.size()) {
+			reset(Collections.<Operation> emptyList());
+			return;
+		}
+		for (int a = indices.size() - 1; a >= 0; a--) {
+			remove(indices.get(a));
+		}
+	}
+
+	@Override
+	public synchronized void elementChanged(
+			ChangeElementEvent<Operation> event) {
+		int index = event.getIndex();
+		int order = entries.get(index).order;
+		remove(index);
+		Entry entry = createEntry(event.getNewElement());
+		entry.order = order;
+		entries.add(index, entry);
+	}
+
+	@Override
+	public synchronized void elementsReplaced(
+			ReplaceElementsEvent<Operation> event) {
+		reset(event.getNewElements());
+	}
+}
@@ -0,0 +1,289 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import com.pump.graphics.DualGraphics2D;
+import com.pump.graphics.Graphics2DContext;
+
+/**
+ * This sends the same drawing instructions to several Graphics2Ds, and paints
+ * each Graphics2D on its own worker thread.
+ * <p>
+ * Every drawing instruction is recorded once as an {@link Operation} (see
+ * {@link VectorGraphics2D}). Operations are queued in batches, and each batch
+ * is replayed to every target in parallel. Each target receives its batches in
+ * the order they were recorded.
+ * <p>
+ * A batch is sent after a fixed number of Operations (see
+ * {@link #BATCH_SIZE_DEFAULT}), or when you call
+ * {@link #flush()}. (So {@link #getOperations()} only contains the
+ * Operations that haven't been sent yet.) Call {@link #sync()} to wait until
+ * every target has painted every Operation; until then you should not touch
+ * the targets yourself. {@link #dispose()} on the Graphics2D you originally created also
+ * waits for the targets and then disposes them.
+ * <p>
+ * Because painting is deferred, images you pass to this object should not be
+ * modified until {@link #sync()} returns.
+ * <p>
+ * Each target keeps its own initial transform and clip: the transform and
+ * clip of this Graphics2D are applied on top of them. All other attributes
+ * (color, font, rendering hints, etc.) start out as the first target's
+ * attributes and are applied to every target.
+ *
+ * @see DualGraphics2D
+ */
+public class ParallelGraphics2D extends VectorGraphics2D {
+
+	/**
+	 * The default number of Operations that are recorded before they are sent
+	 * to the targets.
+	 */
+	public static final int BATCH_SIZE_DEFAULT = 256;
+
+	/**
+	 * One destination Graphics2D and the work queued for it.
+	 */
+	static class Target {
+		final Graphics2D g;
+
+		/**
+		 * This completes when every batch sent to this target so far has been
+		 * painted.
+		 */
+		CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+		/**
+		 * The first exception this target threw, if any. After an exception
+		 * no further batches are painted to this target.
+		 */
+		Throwable error;
+
+		Target(Graphics2D g) {
+			this.g = g;
+		}
+
+		void paint(Operation[] batch) {
+			if (error != null)
+				return;
+			try {
+				Operation.paint(g, Arrays.asList(batch));
+			} catch (RuntimeException | Error e) {
+				error = e;
+			}
+		}
+	}
+
+	/**
+	 * The state shared by a ParallelGraphics2D and every Graphics2D created
+	 * from it.
+	 */
+	static class Shared {
+		final Target[] targets;
+		final Executor executor;
+		final int batchSize;
+		final List<Operation> pending = new ArrayList<>();
+
+		Shared(Graphics2D[] targets, Executor executor, int batchSize) {
+			this.targets = new Target[targets.length];
+			for (int a = 0; a < targets.length; a++) {
+				this.targets[a] = new Target(targets[a]);
+			}
+			this.executor = executor;
+			this.batchSize = batchSize;
+		}
+
+		synchronized void flush() {
+			if (pending.isEmpty())
+				return;
+			Operation[] batch = pending.toArray(new Operation[pending.size()]);
+			pending.clear();
+			for (Target target : targets) {
+				target.tail = target.tail
+						.thenRunAsync(() -> target.paint(batch), executor);
+			}
+		}
+
+		void sync() {
+			CompletableFuture<?>[] tails = new CompletableFuture<?>[targets.length];
+			synchronized (this) {
+				flush();
+				for (int a = 0; a < targets.length; a++) {
+					tails[a] = targets[a].tail;
+				}
+			}
+			try {
+				CompletableFuture.allOf(tails).join();
+			} catch (CompletionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+			for (Target target : targets) {
+				if (target.error instanceof RuntimeException)
+					throw (RuntimeException) target.error;
+				if (target.error instanceof Error)
+					throw (Error) target.error;
+			}
+		}
+	}
+
+	private final Shared shared;
+	private final boolean isRoot;
+
+	/**
+	 * Create a ParallelGraphics2D that paints each target using the common
+	 * ForkJoinPool.
+	 *
+	 * @param targets
+	 *            one or more Graphics2Ds to paint.
+	 */
+	public ParallelGraphics2D(Graphics2D... targets) {
+		this(ForkJoinPool.commonPool(), targets);
+	}
+
+	/**
+	 * Create a ParallelGraphics2D.
+	 *
+	 * @param executor
+	 *            the Executor used to paint the targets. If this has at least
+	 *            as many threads as there are targets then every target can be
+	 *            painted at the same time.
+	 * @param targets
+	 *            one or more Graphics2Ds to paint.
+	 */
+	public ParallelGraphics2D(Executor executor, Graphics2D... targets) {
+		this(executor, BATCH_SIZE_DEFAULT, targets);
+	}
+
+	/**
+	 * Create a ParallelGraphics2D.
+	 *
+	 * @param executor
+	 *            the Executor used to paint the targets. If this has at least
+	 *            as many threads as there are targets then every target can be
+	 *            painted at the same time.
+	 * @param batchSize
+	 *            the number of Operations that are recorded before they are
+	 *            sent to the targets.
+	 * @param targets
+	 *            one or more Graphics2Ds to paint.
+	 */
+	public ParallelGraphics2D(Executor executor, int batchSize,
+			Graphics2D... targets) {
+		this(createContext(targets), new Shared(targets,
+				Objects.requireNonNull(executor), checkBatchSize(batchSize)),
+				true);
+	}
+
+	private static int checkBatchSize(int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize (" + batchSize
+					+ ") must be positive");
+		return batchSize;
+	}
+
+	private ParallelGraphics2D(Graphics2DContext context, Shared shared,
+			boolean isRoot) {
+		super(context, shared.pending);
+		this.shared = shared;
+		this.isRoot = isRoot;
+	}
+
+	private static Graphics2DContext createContext(Graphics2D[] targets) {
+		if (targets.length == 0)
+			throw new IllegalArgumentException(
+					"at least one target is required");
+		for (Graphics2D g : targets) {
+			Objects.requireNonNull(g);
+		}
+		Graphics2DContext context = new Graphics2DContext(targets[0]);
+		// the targets already have their own transform and clip:
+		context.setTransform(new AffineTransform());
+		context.setClip(null);
+		return context;
+	}
+
+	@Override
+	protected void addOperation(Operation operation) {
+		if (context.isDisposed())
+			return;
+
+		synchronized (shared) {
+			shared.pending.add(operation);
+			if (shared.pending.size() >= shared.batchSize)
+				shared.flush();
+		}
+	}
+
+	/**
+	 * Send all the recorded Operations to the targets. This returns without
+	 * waiting for them to be painted.
+	 */
+	public void flush() {
+		shared.flush();
+	}
+
+	/**
+	 * Send all the recorded Operations to the targets and wait until every
+	 * target has painted them.
+	 * <p>
+	 * If painting a target threw an exception, this rethrows it.
+	 */
+	public void sync() {
+		shared.sync();
+	}
+
+	/**
+	 * Return the Graphics2Ds this paints to.
+	 */
+	public Graphics2D[] getTargets() {
+		Graphics2D[] returnValue = new Graphics2D[shared.targets.length];
+		for (int a = 0; a < returnValue.length; a++) {
+			returnValue[a] = shared.targets[a].g;
+		}
+		return returnValue;
+	}
+
+	@Override
+	public ParallelGraphics2D create() {
+		return new ParallelGraphics2D(getContext(), shared, false);
+	}
+
+	/**
+	 * Dispose this Graphics2D. If this is the ParallelGraphics2D that was
+	 * created with the constructor (and not with {@link #create()}), this
+	 * also waits for every target to finish painting and disposes them.
+	 */
+	@Override
+	public void dispose() {
+		if (context.isDisposed())
+			return;
+		super.dispose();
+		if (isRoot) {
+			try {
+				sync();
+			} finally {
+				for (Target target : shared.targets) {
+					target.g.dispose();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,339 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pump.graphics.Graphics2DContext;
+import com.pump.util.list.AddElementsEvent;
+import com.pump.util.list.ChangeElementEvent;
+import com.pump.util.list.ListListener;
+import com.pump.util.list.ObservableList;
+import com.pump.util.list.RemoveElementsEvent;
+import com.pump.util.list.ReplaceElementsEvent;
+
+/**
+ * This caches the result of applying a soft clip to every Operation in a list.
+ * <p>
+ * The results are cached per clipping shape and per transform, because
+ * fragments are only merged if they don't touch the same pixels when they
+ * are painted with that transform.
+ * <p>
+ * This listens to the list, and the cache is cleared whenever the list
+ * changes. Changes to the Operations themselves are not detected. To update
+ * an Operation, replace it in the list.
+ *
+ * @see VectorImage#getSoftClipOperations(Shape)
+ */
+class SoftClipCache implements ListListener<Operation> {
+
+	/**
+	 * The maximum number of fills that are merged into one FillOperation.
+	 */
+	static final int MAX_MERGED_FILLS = 64;
+
+	/**
+	 * The maximum number of lists this caches.
+	 */
+	static final int MAX_SIZE = 4;
+
+	/**
+	 * This identifies a clipping shape by its path data, so two equal shapes
+	 * (even of different classes) produce the same key.
+	 */
+	static class ShapeKey {
+		final int windingRule;
+		final byte[] types;
+		final double[] coords;
+		final int hashCode;
+
+		ShapeKey(Shape shape) {
+			PathIterator pi = shape.getPathIterator(null);
+			windingRule = pi.getWindingRule();
+			byte[] types = new byte[16];
+			double[] coords = new double[96];
+			double[] segment = new double[6];
+			int typeCount = 0;
+			int coordCount = 0;
+			while (!pi.isDone()) {
+				if (typeCount == types.length)
+					types = Arrays.copyOf(types, types.length * 2);
+				if (coordCount + 6 > coords.length)
+					coords = Arrays.copyOf(coords, coords.length * 2);
+				int type = pi.currentSegment(segment);
+				types[typeCount++] = (byte) type;
+				int k = getCoordCount(type);
+				System.arraycopy(segment, 0, coords, coordCount, k);
+				coordCount += k;
+				pi.next();
+			}
+			this.types = Arrays.copyOf(types, typeCount);
+			this.coords = Arrays.copyOf(coords, coordCount);
+			hashCode = (Arrays.hashCode(this.types) * 31
+					+ Arrays.hashCode(this.coords)) * 31 + windingRule;
+		}
+
+		private static int getCoordCount(int segmentType) {
+			switch (segmentType) {
+			case PathIterator.SEG_MOVETO:
+			case PathIterator.SEG_LINETO:
+				return 2;
+			case PathIterator.SEG_QUADTO:
+				return 4;
+			case PathIterator.SEG_CUBICTO:
+				return 6;
+			default:
+				return 0;
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ShapeKey))
+				return false;
+			ShapeKey other = (ShapeKey) obj;
+			return hashCode == other.hashCode
+					&& windingRule == other.windingRule
+					&& Arrays.equals(types, other.types)
+					&& Arrays.equals(coords, other.coords);
+		}
+	}
+
+	/**
+	 * This identifies a clipping shape and the scale, rotation and shear of
+	 * the transform it is painted with. (Translations don't change whether
+	 * two fragments touch the same pixels, so they are not part of the key.)
+	 */
+	static class Key {
+		final ShapeKey shape;
+		final AffineTransform transform;
+
+		Key(Shape shape, AffineTransform transform) {
+			this.shape = new ShapeKey(shape);
+			this.transform = getLinearTransform(transform);
+		}
+
+		@Override
+		public int hashCode() {
+			return shape.hashCode() * 31 + transform.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return shape.equals(other.shape)
+					&& transform.equals(other.transform);
+		}
+	}
+
+	/**
+	 * Return a transform without the translation component.
+	 */
+	static AffineTransform getLinearTransform(AffineTransform tx) {
+		return new AffineTransform(tx.getScaleX(), tx.getShearY(),
+				tx.getShearX(), tx.getScaleY(), 0, 0);
+	}
+
+	final ObservableList<Operation> list;
+
+	private final Map<Key, List<Operation>> cache = new LinkedHashMap<>(
+			16, .75f, true);
+
+	/**
+	 * Create a cache and attach it to a list.
+	 */
+	SoftClipCache(ObservableList<Operation> list) {
+		this.list = list;
+		list.addListListener(this, false);
+	}
+
+	/**
+	 * Detach this cache from its list.
+	 */
+	void dispose() {
+		list.removeListListener(this);
+	}
+
+	/**
+	 * Return the soft-clipped Operations for a clipping shape, calculating
+	 * them if they aren't already cached.
+	 * 
+	 * @param transform
+	 *            the transform of the Graphics2D the Operations will be
+	 *            painted to.
+	 */
+	synchronized List<Operation> getOperations(Shape softClip,
+			AffineTransform transform) {
+		Key key = new Key(softClip, transform);
+		List<Operation> returnValue = cache.get(key);
+		if (returnValue == null) {
+			returnValue = Collections.unmodifiableList(
+					createSoftClipOperations(list, softClip, key.transform));
+			cache.put(key, returnValue);
+			while (cache.size() > MAX_SIZE) {
+				cache.remove(cache.keySet().iterator().next());
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Apply a soft clip to a list of Operations.
+	 * <p>
+	 * This calls {@link Operation#toSoftClipOperation(Shape)} for each
+	 * Operation and then reduces the number of resulting Operations:
+	 * consecutive Operations with equal contexts share the same context, and
+	 * consecutive FillOperations with equal contexts are merged into one
+	 * FillOperation if they don't touch the same pixels. (Antialiased shapes
+	 * that partially cover the same pixel look different when they are filled
+	 * together.) So this should look exactly like painting each fragment
+	 * separately to a Graphics2D that uses the given transform.
+	 * 
+	 * @param transform
+	 *            the transform of the Graphics2D the Operations will be
+	 *            painted to.
+	 */
+	static List<Operation> createSoftClipOperations(List<Operation> operations,
+			Shape softClip, AffineTransform transform) {
+		List<Operation> returnValue = new ArrayList<>();
+		List<Operation> mergedFills = new ArrayList<>();
+		List<Rectangle> mergedBounds = new ArrayList<>();
+		Graphics2DContext lastContext = null;
+		for (Operation op : operations) {
+			for (Operation piece : op.toSoftClipOperation(softClip)) {
+				// if the Operation didn't need to be clipped then it returns
+				// itself, and we must not modify the original Operation
+				if (piece != op && lastContext != null
+						&& piece.context != lastContext
+						&& piece.context.equals(lastContext))
+					piece.setContext(lastContext);
+
+				Rectangle pixelBounds = null;
+				if (piece.getClass() == FillOperation.class
+						&& piece.clientProperties.isEmpty()) {
+					pixelBounds = getPixelBounds(piece, transform);
+					if (!mergedFills.isEmpty() && !canMerge(mergedFills,
+							mergedBounds, piece, pixelBounds)) {
+						returnValue.add(merge(mergedFills));
+						mergedFills.clear();
+						mergedBounds.clear();
+					}
+				} else if (!mergedFills.isEmpty()) {
+					returnValue.add(merge(mergedFills));
+					mergedFills.clear();
+					mergedBounds.clear();
+				}
+
+				if (pixelBounds != null) {
+					mergedFills.add(piece);
+					mergedBounds.add(pixelBounds);
+				} else {
+					returnValue.add(piece);
+				}
+				lastContext = piece.context;
+			}
+		}
+		if (!mergedFills.isEmpty())
+			returnValue.add(merge(mergedFills));
+		return returnValue;
+	}
+
+	private static boolean canMerge(List<Operation> mergedFills,
+			List<Rectangle> mergedBounds, Operation fill,
+			Rectangle pixelBounds) {
+		Operation first = mergedFills.get(0);
+		if (first.context != fill.context
+				|| mergedFills.size() >= MAX_MERGED_FILLS
+				|| getShape(first).getPathIterator(null)
+						.getWindingRule() != getShape(fill)
+								.getPathIterator(null).getWindingRule())
+			return false;
+		for (Rectangle r : mergedBounds) {
+			if (r.intersects(pixelBounds))
+				return false;
+		}
+		return true;
+	}
+
+	private static Operation merge(List<Operation> fills) {
+		if (fills.size() == 1)
+			return fills.get(0);
+		Operation first = fills.get(0);
+		Path2D path = new Path2D.Float(
+				getShape(first).getPathIterator(null).getWindingRule());
+		for (Operation fill : fills) {
+			path.append(getShape(fill), false);
+		}
+		return new FillOperation(first.context, path);
+	}
+
+	private static Shape getShape(Operation fill) {
+		return (Shape) fill.coreProperties.get(ShapeOperation.PROPERTY_SHAPE);
+	}
+
+	/**
+	 * Return the pixels a FillOperation may touch, plus a 1-pixel margin.
+	 */
+	private static Rectangle getPixelBounds(Operation fill,
+			AffineTransform transform) {
+		AffineTransform tx = new AffineTransform(transform);
+		tx.concatenate(fill.context.getTransform());
+		Rectangle2D r = tx.createTransformedShape(getShape(fill))
+				.getBounds2D();
+		int minX = (int) Math.floor(r.getMinX()) - 1;
+		int minY = (int) Math.floor(r.getMinY()) - 1;
+		int maxX = (int) Math.ceil(r.getMaxX()) + 1;
+		int maxY = (int) Math.ceil(r.getMaxY()) + 1;
+		return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	private synchronized void clear() {
+		cache.clear();
+	}
+
+	@Override
+	public void elementsAdded(AddElementsEvent<Operation> event) {
+		clear();
+	}
+
+	@Override
+	public void elementsRemoved(RemoveElementsEvent<Operation> event) {
+		clear();
+	}
+
+	@Override
+	public void elementChanged(ChangeElementEvent<Operation> event) {
+		clear();
+	}
+
+	@Override
+	public void elementsReplaced(ReplaceElementsEvent<Operation> event) {
+		clear();
+	}
+}
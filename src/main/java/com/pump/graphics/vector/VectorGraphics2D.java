@@ -62,15 +62,37 @@ import com.pump.image.ImageSize;
  * {@link Graphics2D#setComposite(AlphaComposite)} /
  * {@link Graphics2D#getComposite()}). These calls are all directed to the
  * {@link Graphics2DContext} class. Each new Operation records a snapshot
- * (clone) of the Graphics2DContext of this VectorGraphics2D when it was
- * created.</li>
+ * (frozen clone) of the Graphics2DContext of this VectorGraphics2D when it was
+ * created. Consecutive Operations share the same snapshot until the context
+ * changes.</li>
  * </ul>
  */
 public class VectorGraphics2D extends Graphics2D {
 
+	/**
+	 * The current state of this Graphics2D.
+	 * <p>
+	 * Operations don't receive this object: they receive a frozen copy that
+	 * is reused until the state changes (see
+	 * {@link #getOperationContext()}). So subclasses that modify this context
+	 * must call {@link #contextChanged()} afterwards, or the next Operations
+	 * will be recorded with the previous state. (Replacing this field with a
+	 * different Graphics2DContext is detected automatically.)
+	 */
 	protected Graphics2DContext context;
 	protected List<Operation> operations;
 
+	/**
+	 * A frozen copy of {@link #context}, or null if it needs to be created.
+	 */
+	private Graphics2DContext operationContext;
+
+	/**
+	 * The value of {@link #context} when {@link #operationContext} was
+	 * created.
+	 */
+	private Graphics2DContext operationContextSource;
+
 	/**
 	 * Create a new empty VectorGraphics2D.
 	 */
@@ -123,24 +145,54 @@ public class VectorGraphics2D extends Graphics2D {
 		return context.clone();
 	}
 
+	/**
+	 * Return a frozen copy of the current Graphics2DContext to pass to a new
+	 * Operation.
+	 * <p>
+	 * The same copy is returned until the context changes, so consecutive
+	 * Operations share one Graphics2DContext. This saves memory (including
+	 * when a VectorImage is serialized) and lets
+	 * {@link Operation#paint(Graphics2D, Iterable)} skip redundant calls to
+	 * {@link Graphics2DContext#install(Graphics2D)}.
+	 */
+	protected Graphics2DContext getOperationContext() {
+		if (operationContext == null || operationContextSource != context) {
+			operationContext = context.clone();
+			operationContext.freeze();
+			operationContextSource = context;
+		}
+		return operationContext;
+	}
+
+	/**
+	 * This should be called whenever {@link #context} is modified.
+	 */
+	protected void contextChanged() {
+		operationContext = null;
+	}
+
 	@Override
 	public void setComposite(Composite comp) {
 		context.setComposite(comp);
+		contextChanged();
 	}
 
 	@Override
 	public void setPaint(Paint paint) {
 		context.setPaint(paint);
+		contextChanged();
 	}
 
 	@Override
 	public void setStroke(Stroke s) {
 		context.setStroke(s);
+		contextChanged();
 	}
 
 	@Override
 	public void setRenderingHint(Key hintKey, Object hintValue) {
 		context.setRenderingHint(hintKey, hintValue);
+		contextChanged();
 	}
 
 	@Override
@@ -151,11 +203,13 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void setRenderingHints(Map<?, ?> hints) {
 		context.setRenderingHints(hints);
+		contextChanged();
 	}
 
 	@Override
 	public void addRenderingHints(Map<?, ?> hints) {
 		context.addRenderingHints(hints);
+		contextChanged();
 	}
 
 	@Override
@@ -166,41 +220,49 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void translate(int x, int y) {
 		context.translate(x, y);
+		contextChanged();
 	}
 
 	@Override
 	public void translate(double tx, double ty) {
 		context.translate(tx, ty);
+		contextChanged();
 	}
 
 	@Override
 	public void rotate(double theta) {
 		context.rotate(theta);
+		contextChanged();
 	}
 
 	@Override
 	public void rotate(double theta, double x, double y) {
 		context.rotate(theta, x, y);
+		contextChanged();
 	}
 
 	@Override
 	public void scale(double sx, double sy) {
 		context.scale(sx, sy);
+		contextChanged();
 	}
 
 	@Override
 	public void shear(double shx, double shy) {
 		context.shear(shx, shy);
+		contextChanged();
 	}
 
 	@Override
 	public void transform(AffineTransform Tx) {
 		context.transform(Tx);
+		contextChanged();
 	}
 
 	@Override
 	public void setTransform(AffineTransform Tx) {
 		context.setTransform(Tx);
+		contextChanged();
 	}
 
 	@Override
@@ -221,6 +283,7 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void setBackground(Color color) {
 		context.setBackground(color);
+		contextChanged();
 	}
 
 	@Override
@@ -236,6 +299,7 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void clip(Shape s) {
 		context.clip(s);
+		contextChanged();
 	}
 
 	@Override
@@ -245,7 +309,9 @@ public class VectorGraphics2D extends Graphics2D {
 
 	@Override
 	public VectorGraphics2D create() {
-		return new VectorGraphics2D(getContext(), operations);
+		VectorGraphics2D g = new VectorGraphics2D(getContext(), operations);
+		g.operationContext = operationContext;
+		return g;
 	}
 
 	@Override
@@ -256,16 +322,19 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void setColor(Color c) {
 		context.setColor(c);
+		contextChanged();
 	}
 
 	@Override
 	public void setPaintMode() {
 		context.setPaintMode();
+		contextChanged();
 	}
 
 	@Override
 	public void setXORMode(Color c1) {
 		context.setXORMode(c1);
+		contextChanged();
 	}
 
 	@Override
@@ -276,6 +345,7 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void setFont(Font font) {
 		context.setFont(font);
+		contextChanged();
 	}
 
 	@Override
@@ -286,11 +356,13 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void clipRect(int x, int y, int width, int height) {
 		context.clipRect(x, y, width, height);
+		contextChanged();
 	}
 
 	@Override
 	public void setClip(int x, int y, int width, int height) {
 		context.setClip(x, y, width, height);
+		contextChanged();
 	}
 
 	@Override
@@ -301,23 +373,25 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void setClip(Shape clip) {
 		context.setClip(clip);
+		contextChanged();
 	}
 
 	@Override
 	public void dispose() {
 		context.dispose();
+		contextChanged();
 	}
 
 	// shape-related methods:
 
 	@Override
 	public void draw(Shape s) {
-		addOperation(new DrawOperation(getContext(), s));
+		addOperation(new DrawOperation(getOperationContext(), s));
 	}
 
 	@Override
 	public void fill(Shape s) {
-		addOperation(new FillOperation(getContext(), s));
+		addOperation(new FillOperation(getOperationContext(), s));
 	}
 
 	@Override
@@ -437,14 +511,16 @@ public class VectorGraphics2D extends Graphics2D {
 
 	@Override
 	public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
-		addOperation(new RenderedImageOperation(getContext(), img, xform));
+		addOperation(new RenderedImageOperation(getOperationContext(), img,
+				xform));
 
 	}
 
 	@Override
 	public void drawRenderableImage(RenderableImage img,
 			AffineTransform xform) {
-		addOperation(new RenderableImageOperation(getContext(), img, xform));
+		addOperation(new RenderableImageOperation(getOperationContext(), img,
+				xform));
 	}
 
 	@Override
@@ -494,8 +570,8 @@ public class VectorGraphics2D extends Graphics2D {
 		if (img == null)
 			return true;
 
-		addOperation(new ImageOperation(getContext(), img, dx1, dy1, dx2, dy2,
-				sx1, sy1, sx2, sy2, bgcolor));
+		addOperation(new ImageOperation(getOperationContext(), img, dx1, dy1,
+				dx2, dy2, sx1, sy1, sx2, sy2, bgcolor));
 		return true;
 	}
 
@@ -508,7 +584,7 @@ public class VectorGraphics2D extends Graphics2D {
 
 	@Override
 	public void drawString(String str, float x, float y) {
-		addOperation(new StringOperation(getContext(), str, x, y));
+		addOperation(new StringOperation(getOperationContext(), str, x, y));
 
 		// this is equivalent to:
 		// TextLayout layout = new TextLayout(iterator, getFontRenderContext());
@@ -531,8 +607,8 @@ public class VectorGraphics2D extends Graphics2D {
 	@Override
 	public void drawString(AttributedCharacterIterator iterator, float x,
 			float y) {
-		addOperation(new AttributedCharacterIteratorOperation(getContext(),
-				iterator, x, y));
+		addOperation(new AttributedCharacterIteratorOperation(
+				getOperationContext(), iterator, x, y));
 
 		// this is equivalent to:
 		// TextLayout layout = new TextLayout(iterator, getFontRenderContext());
@@ -541,7 +617,7 @@ public class VectorGraphics2D extends Graphics2D {
 
 	@Override
 	public void drawGlyphVector(GlyphVector g, float x, float y) {
-		addOperation(new GlyphVectorOperation(getContext(), g, x, y));
+		addOperation(new GlyphVectorOperation(getOperationContext(), g, x, y));
 	}
 
 	// other:
@@ -563,8 +639,8 @@ public class VectorGraphics2D extends Graphics2D {
 
 	@Override
 	public void copyArea(int x, int y, int width, int height, int dx, int dy) {
-		addOperation(new CopyAreaOperation(getContext(), x, y, width, height,
-				dx, dy));
+		addOperation(new CopyAreaOperation(getOperationContext(), x, y, width,
+				height, dx, dy));
 	}
 
 	@Override
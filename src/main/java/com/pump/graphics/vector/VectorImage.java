@@ -12,8 +12,11 @@ package com.pump.graphics.vector;
 
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -22,10 +25,14 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
+import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import com.pump.graphics.Graphics2DContext;
@@ -53,8 +60,36 @@ public class VectorImage implements Serializable {
 	 */
 	public static final String FILE_EXTENSION = "JVG";
 
+	/**
+	 * The default width and height of the tiles
+	 * {@link #toBufferedImage(ForkJoinPool)} renders in parallel.
+	 */
+	public static final int TILE_SIZE = 512;
+
 	protected ObservableList<Operation> operations = new ObservableList<>();
 
+	private transient OperationIndex index;
+	private transient SoftClipCache softClipCache;
+	private transient VersionTracker versionTracker;
+
+	/**
+	 * This replaces its version object every time a list changes.
+	 */
+	private static class VersionTracker implements ChangeListener {
+		final ObservableList<Operation> list;
+		volatile Object version = new Object();
+
+		VersionTracker(ObservableList<Operation> list) {
+			this.list = list;
+			list.addChangeListener(this, false);
+		}
+
+		@Override
+		public void stateChanged(ChangeEvent e) {
+			version = new Object();
+		}
+	}
+
 	/**
 	 * Create an empty VectorImage.
 	 */
@@ -64,13 +99,27 @@ public class VectorImage implements Serializable {
 	/**
 	 * Read a VectorImage that was previously saved by calling
 	 * {@link #save(OutputStream)}.
+	 * <p>
+	 * This also reads the older JVG format (GZIP-compressed Java
+	 * serialization).
 	 */
 	public VectorImage(InputStream in)
 			throws IOException, ClassNotFoundException {
-		try (GZIPInputStream zipIn = new GZIPInputStream(in)) {
-			try (ObjectInputStream objIn = new ObjectInputStream(zipIn)) {
-				VectorImage i = (VectorImage) objIn.readObject();
-				operations = i.operations;
+		in = new BufferedInputStream(in);
+		in.mark(2);
+		int b1 = in.read();
+		int b2 = in.read();
+		in.reset();
+		if (JVGFormat.isGZIP(b1, b2)) {
+			try (GZIPInputStream zipIn = new GZIPInputStream(in)) {
+				try (ObjectInputStream objIn = new ObjectInputStream(zipIn)) {
+					VectorImage i = (VectorImage) objIn.readObject();
+					operations = i.operations;
+				}
+			}
+		} else {
+			try (JVGReader reader = new JVGReader(in)) {
+				operations.addAll(reader.readAll());
 			}
 		}
 	}
@@ -96,13 +145,113 @@ public class VectorImage implements Serializable {
 
 	/**
 	 * Paint all the operations in this VectorImage.
+	 * <p>
+	 * If the Graphics2D has a clip then Operations that are outside of that
+	 * clip are skipped. The remaining Operations are still painted in order.
 	 * 
 	 * @param g
 	 */
 	public void paint(Graphics2D g) {
-		for (Operation operation : operations) {
-			operation.paint(g);
+		Rectangle clipBounds = g.getClipBounds();
+		if (clipBounds == null) {
+			Operation.paint(g, operations);
+			return;
 		}
+
+		// leave a margin for antialiasing and stroke normalization:
+		Rectangle2D r = new Rectangle2D.Double(clipBounds.x - 1,
+				clipBounds.y - 1, clipBounds.width + 2, clipBounds.height + 2);
+		Operation.paint(g, getIndex().getOperations(r));
+	}
+
+	/**
+	 * Create a DisplayList from the current Operations in this image. This is
+	 * useful if this image will be painted many times (at the same scale)
+	 * and will not change.
+	 * <p>
+	 * The DisplayList is a snapshot: later changes to this image are not
+	 * reflected in it.
+	 */
+	public DisplayList compile() {
+		return new DisplayList(operations);
+	}
+
+	/**
+	 * Paint all the operations in this VectorImage through a soft clip. This
+	 * looks like painting this image with an antialiased clipping shape.
+	 * 
+	 * @see #getSoftClipOperations(Shape, AffineTransform)
+	 */
+	public void paint(Graphics2D g, Shape softClip) {
+		Operation.paint(g, getSoftClipOperations(softClip, g.getTransform()));
+	}
+
+	/**
+	 * Return the Operations in this image after a soft clip is applied to
+	 * them, for painting to a Graphics2D that has no transform.
+	 * 
+	 * @see #getSoftClipOperations(Shape, AffineTransform)
+	 */
+	public List<Operation> getSoftClipOperations(Shape softClip) {
+		return getSoftClipOperations(softClip, new AffineTransform());
+	}
+
+	/**
+	 * Return the Operations in this image after a soft clip is applied to
+	 * them. (See {@link Operation#toSoftClipOperation(Shape)}.)
+	 * <p>
+	 * Applying a soft clip can split one Operation into many fragments, so
+	 * this merges fragments that can be painted together without touching
+	 * the same pixels. That depends on the scale of the Graphics2D they are
+	 * painted to, so the result should only be painted to a Graphics2D with
+	 * the given transform (except for its translation). The result is cached
+	 * (keyed by the clipping shape's path and the transform) until this
+	 * image's list of Operations changes.
+	 * 
+	 * @param transform
+	 *            the transform of the Graphics2D the result will be painted
+	 *            to.
+	 * @return an unmodifiable list of Operations.
+	 */
+	public List<Operation> getSoftClipOperations(Shape softClip,
+			AffineTransform transform) {
+		return getSoftClipCache().getOperations(softClip, transform);
+	}
+
+	private synchronized SoftClipCache getSoftClipCache() {
+		if (softClipCache == null || softClipCache.list != operations) {
+			if (softClipCache != null)
+				softClipCache.dispose();
+			softClipCache = new SoftClipCache(operations);
+		}
+		return softClipCache;
+	}
+
+	/**
+	 * Return the spatial index of {@link #operations}. This is created the
+	 * first time it is needed, and replaced if <code>operations</code> is
+	 * replaced.
+	 */
+	synchronized OperationIndex getIndex() {
+		if (index == null || index.list != operations) {
+			if (index != null)
+				index.dispose();
+			index = new OperationIndex(operations);
+		}
+		return index;
+	}
+
+	/**
+	 * Return an object that is replaced every time {@link #operations}
+	 * changes. Changes to the Operations themselves are not detected.
+	 */
+	synchronized Object getVersion() {
+		if (versionTracker == null || versionTracker.list != operations) {
+			if (versionTracker != null)
+				versionTracker.list.removeChangeListener(versionTracker);
+			versionTracker = new VersionTracker(operations);
+		}
+		return versionTracker.version;
 	}
 
 	/**
@@ -145,7 +294,7 @@ public class VectorImage implements Serializable {
 		ArrayListener<Operation>[] arrayListeners = operations
 				.getArrayListeners();
 		ChangeListener[] changeListeners = operations.getChangeListeners();
-		ListListener<Operation>[] listListeners = operations.getListListeners();
+		ListListener<Operation>[] listListeners = getListListeners();
 
 		nullifyUnserializable(arrayListeners);
 		nullifyUnserializable(changeListeners);
@@ -163,6 +312,18 @@ public class VectorImage implements Serializable {
 		out.writeObject(ueh);
 	}
 
+	/**
+	 * Return the ListListeners attached to {@link #operations}, except for the
+	 * spatial index.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private ListListener<Operation>[] getListListeners() {
+		List<ListListener<Operation>> list = new ArrayList<>(
+				Arrays.asList(operations.getListListeners()));
+		list.remove(index);
+		return list.toArray(new ListListener[list.size()]);
+	}
+
 	private void nullifyUnserializable(Object[] array) {
 		for (int a = 0; a < array.length; a++) {
 			if (!(array[a] instanceof Serializable))
@@ -256,28 +417,137 @@ public class VectorImage implements Serializable {
 	}
 
 	/**
-	 * Write this VectorImage to an OutputStream. This uses GZIP compression and
-	 * Java serialization.
+	 * Write this VectorImage to an OutputStream in the binary JVG format, and
+	 * close the OutputStream.
+	 * <p>
+	 * Unlike Java serialization, this only saves the Operations (not the
+	 * listeners attached to {@link #getOperations()}). Files in this format
+	 * can be read with {@link #VectorImage(InputStream)}, painted as they are
+	 * read with a {@link JVGReader}, or opened almost instantly with a
+	 * {@link JVGFile}.
 	 */
 	public void save(OutputStream out) throws IOException {
-		try (GZIPOutputStream zipOut = new GZIPOutputStream(out)) {
-			try (ObjectOutputStream objOut = new ObjectOutputStream(zipOut)) {
-				objOut.writeObject(this);
-			}
+		try (JVGWriter writer = new JVGWriter(out)) {
+			writer.write(this);
 		}
 	}
 
 	/**
 	 * Create a BufferedImage rendering of this image.
+	 * <p>
+	 * This paints every Operation on this thread, so the result is identical
+	 * to calling {@link #paint(Graphics2D)}. See
+	 * {@link #toBufferedImage(ForkJoinPool)} to render large images in
+	 * parallel.
 	 */
 	public BufferedImage toBufferedImage() {
+		return toBufferedImage(null, TILE_SIZE);
+	}
+
+	/**
+	 * Create a BufferedImage rendering of this image, using a
+	 * <code>ForkJoinPool</code> to render tiles (see {@link #TILE_SIZE}) in
+	 * parallel.
+	 * 
+	 * @see #toBufferedImage(ForkJoinPool, int)
+	 */
+	public BufferedImage toBufferedImage(ForkJoinPool pool) {
+		return toBufferedImage(pool, TILE_SIZE);
+	}
+
+	/**
+	 * Create a BufferedImage rendering of this image, using a
+	 * <code>ForkJoinPool</code> to render tiles in parallel.
+	 * <p>
+	 * Each tile only replays the Operations that intersect it. This has two
+	 * consequences callers have to accept:
+	 * <ul>
+	 * <li>Some paints (like gradients) are evaluated relative to the tile, so
+	 * a color component may occasionally differ by 1 from
+	 * {@link #toBufferedImage()}.</li>
+	 * <li>The same Operation may be painted on several threads at once, so
+	 * every Operation (and any images, paints or composites it references)
+	 * must be safe to paint concurrently.</li>
+	 * </ul>
+	 * 
+	 * @param pool
+	 *            the pool used to render tiles in parallel, or null to render
+	 *            everything on this thread.
+	 * @param tileSize
+	 *            the width and height of each tile.
+	 */
+	public BufferedImage toBufferedImage(ForkJoinPool pool, int tileSize) {
+		if (tileSize < 1)
+			throw new IllegalArgumentException("tileSize (" + tileSize
+					+ ") must be positive");
 		Rectangle bounds = getBounds().getBounds();
 		BufferedImage bi = new BufferedImage(bounds.width, bounds.height,
 				BufferedImage.TYPE_INT_ARGB);
-		Graphics2D g = bi.createGraphics();
-		g.translate(-bounds.x, -bounds.y);
-		paint(g);
-		g.dispose();
+		int columns = (bounds.width + tileSize - 1) / tileSize;
+		int rows = (bounds.height + tileSize - 1) / tileSize;
+
+		// copyArea() reads pixels that other tiles may be responsible for
+		if (pool == null || columns * rows < 2
+				|| getIndex().containsCopyArea()) {
+			Graphics2D g = bi.createGraphics();
+			g.translate(-bounds.x, -bounds.y);
+			paint(g);
+			g.dispose();
+		} else {
+			pool.invoke(new TilesTask(this, bi, bounds, tileSize, columns, 0,
+					columns * rows));
+		}
 		return bi;
 	}
+
+	/**
+	 * This renders a range of tiles, splitting that range in half until only
+	 * one tile remains.
+	 */
+	private static class TilesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final VectorImage image;
+		final BufferedImage dest;
+		final Rectangle bounds;
+		final int tileSize, columns, start, end;
+
+		TilesTask(VectorImage image, BufferedImage dest, Rectangle bounds,
+				int tileSize, int columns, int start, int end) {
+			this.image = image;
+			this.dest = dest;
+			this.bounds = bounds;
+			this.tileSize = tileSize;
+			this.columns = columns;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				int mid = (start + end) / 2;
+				invokeAll(new TilesTask(image, dest, bounds, tileSize,
+						columns, start, mid), new TilesTask(image, dest,
+						bounds, tileSize, columns, mid, end));
+				return;
+			}
+
+			int x = (start % columns) * tileSize;
+			int y = (start / columns) * tileSize;
+			int width = Math.min(tileSize, dest.getWidth() - x);
+			int height = Math.min(tileSize, dest.getHeight() - y);
+			BufferedImage tile = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = tile.createGraphics();
+			g.translate(-bounds.x - x, -bounds.y - y);
+			// the clip lets paint() skip operations outside this tile
+			g.clipRect(bounds.x + x, bounds.y + y, width, height);
+			image.paint(g);
+			g.dispose();
+
+			// each tile writes to a separate region of the destination
+			dest.getRaster().setRect(x, y, tile.getRaster());
+		}
+	}
 }
\ No newline at end of file
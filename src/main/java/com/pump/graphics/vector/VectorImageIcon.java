@@ -11,18 +11,54 @@
 package com.pump.graphics.vector;
 
 import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
 import java.util.Objects;
 
 import javax.swing.Icon;
 
+import com.pump.icon.IconRasterCache;
+
 /**
  * This Icon renders a VectorImage.
+ * <p>
+ * The image is rasterized through the {@link IconRasterCache}, so it is only
+ * replayed when the image's list of Operations changes or when it is painted
+ * at a new scale.
  */
 public class VectorImageIcon implements Icon {
 	protected VectorImage image;
 
+	private Dimension size;
+	private Object sizeVersion;
+
+	/**
+	 * This replays the image. Its rasters are cached under this object.
+	 */
+	private final Icon vectorIcon = new Icon() {
+
+		@Override
+		public void paintIcon(Component c, Graphics g, int x, int y) {
+			Graphics2D g2 = (Graphics2D) g.create();
+			g2.translate(x, y);
+			g2.clipRect(0, 0, getIconWidth(), getIconHeight());
+			image.paint(g2);
+			g2.dispose();
+		}
+
+		@Override
+		public int getIconWidth() {
+			return VectorImageIcon.this.getIconWidth();
+		}
+
+		@Override
+		public int getIconHeight() {
+			return VectorImageIcon.this.getIconHeight();
+		}
+	};
+
 	public VectorImageIcon(VectorImage image) {
 		Objects.requireNonNull(image);
 		this.image = image;
@@ -34,20 +70,33 @@ public class VectorImageIcon implements Icon {
 
 	@Override
 	public void paintIcon(Component c, Graphics g, int x, int y) {
-		Graphics2D g2 = (Graphics2D) g.create();
-		g2.translate(x, y);
-		g2.clipRect(0, 0, getIconWidth(), getIconHeight());
-		image.paint(g2);
+		IconRasterCache.paintIcon(vectorIcon, c, g, x, y, image.getVersion(),
+				null);
 	}
 
 	@Override
 	public int getIconWidth() {
-		return (int) (image.getBounds().getWidth() + .5);
+		return getSize().width;
 	}
 
 	@Override
 	public int getIconHeight() {
-		return (int) (image.getBounds().getHeight() + .5);
+		return getSize().height;
+	}
+
+	/**
+	 * Return the size of this icon. This is only recalculated when the
+	 * image's list of Operations changes.
+	 */
+	private synchronized Dimension getSize() {
+		Object version = image.getVersion();
+		if (size == null || sizeVersion != version) {
+			Rectangle2D bounds = image.getBounds();
+			size = new Dimension((int) (bounds.getWidth() + .5),
+					(int) (bounds.getHeight() + .5));
+			sizeVersion = version;
+		}
+		return size;
 	}
 
 }
\ No newline at end of file
@@ -13,27 +13,106 @@ package com.pump.icon;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
 
 import javax.swing.AbstractButton;
 import javax.swing.Icon;
 
-/** Renders an icon with a darkened tint */
+/**
+ * Renders an icon with a darkened tint.
+ * <p>
+ * By default a DarkenedIcon of a specific Icon caches the darkened pixels in
+ * the {@link IconRasterCache}, so the tint is only calculated once for each
+ * scale the icon is painted at. A DarkenedIcon that follows a button's icon
+ * recalculates the tint every time it is painted unless you ask it to cache.
+ */
 public class DarkenedIcon implements Icon {
+
+	/**
+	 * This darkens the pixels of a TYPE_INT_ARGB image.
+	 */
+	static class Darken implements Consumer<BufferedImage> {
+		final float f;
+
+		Darken(float f) {
+			this.f = f;
+		}
+
+		@Override
+		public void accept(BufferedImage bi) {
+			int[] row = new int[bi.getWidth()];
+			float[] hsbvals = new float[3];
+			for (int y = 0; y < bi.getHeight(); y++) {
+				bi.getRaster().getDataElements(0, y, bi.getWidth(), 1, row);
+				for (int x = 0; x < bi.getWidth(); x++) {
+					int red = (row[x] & 0x00ff0000) >> 16;
+					int green = (row[x] & 0x00ff00) >> 8;
+					int blue = (row[x] & 0x00ff) >> 0;
+					Color.RGBtoHSB(red, green, blue, hsbvals);
+					hsbvals[2] = hsbvals[2] * (1 - f);
+					int k = Color.HSBtoRGB(hsbvals[0], hsbvals[1], hsbvals[2]);
+					k = (k & 0xffffff) + (row[x] & 0xff000000);
+					row[x] = k;
+				}
+				bi.getRaster().setDataElements(0, y, bi.getWidth(), 1, row);
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return Float.hashCode(f);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Darken
+					&& Float.compare(f, ((Darken) obj).f) == 0;
+		}
+	}
+
 	AbstractButton button;
 	float f;
 	Icon icon;
-	BufferedImage img;
+	Darken darken;
+	boolean cacheDelegate;
 
 	public DarkenedIcon(AbstractButton b, float f) {
+		this(b, f, false);
+	}
+
+	/**
+	 * @param cacheDelegate
+	 *            if true then the darkened button icon is cached in the
+	 *            {@link IconRasterCache}. This should only be used if the
+	 *            button's icons always look the same.
+	 */
+	public DarkenedIcon(AbstractButton b, float f, boolean cacheDelegate) {
 		this.button = b;
 		this.f = f;
+		this.cacheDelegate = cacheDelegate;
+		darken = new Darken(f);
 	}
 
+	/**
+	 * Create a DarkenedIcon that caches the darkened icon in the
+	 * {@link IconRasterCache}.
+	 */
 	public DarkenedIcon(Icon icon, float f) {
+		this(icon, f, true);
+	}
+
+	/**
+	 * @param cacheDelegate
+	 *            if true then the darkened icon is cached in the
+	 *            {@link IconRasterCache}. This should be false if the icon's
+	 *            appearance changes.
+	 */
+	public DarkenedIcon(Icon icon, float f, boolean cacheDelegate) {
 		this.icon = icon;
 		this.f = f;
+		this.cacheDelegate = cacheDelegate;
+		darken = new Darken(f);
 	}
 
 	private Icon getIcon() {
@@ -50,48 +129,20 @@ public class DarkenedIcon implements Icon {
 		return getIcon().getIconWidth();
 	}
 
-	public void paintIcon(Component c, Graphics g, int x, int y) {
-		if (img == null) {
-			img = createImage(c);
-		}
-		g.drawImage(img, x, y, null);
-	}
-
 	/**
+	 * Paint this icon.
 	 * 
 	 * @param c
 	 *            the optional component used to invoke icon.paintIcon().
 	 *            Unfortunately for some icons (like
-	 *            UIManager.getIcon("IthisnternalFrame.maximizeIcon")) on
-	 *            Windows: we'll get a NPE if this is null.
-	 * 
-	 * @return
+	 *            UIManager.getIcon("InternalFrame.maximizeIcon")) on Windows:
+	 *            we'll get a NPE if this is null.
 	 */
-	private BufferedImage createImage(Component c) {
-		Icon i = getIcon();
-		BufferedImage bi = new BufferedImage(i.getIconWidth(),
-				i.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
-		Graphics2D g = bi.createGraphics();
-		i.paintIcon(c, g, 0, 0);
-		g.dispose();
-
-		int[] row = new int[bi.getWidth()];
-		float[] hsbvals = new float[3];
-		for (int y = 0; y < bi.getHeight(); y++) {
-			bi.getRaster().getDataElements(0, y, bi.getWidth(), 1, row);
-			for (int x = 0; x < bi.getWidth(); x++) {
-				int red = (row[x] & 0x00ff0000) >> 16;
-				int green = (row[x] & 0x00ff00) >> 8;
-				int blue = (row[x] & 0x00ff) >> 0;
-				Color.RGBtoHSB(red, green, blue, hsbvals);
-				hsbvals[2] = hsbvals[2] * (1 - f);
-				int k = Color.HSBtoRGB(hsbvals[0], hsbvals[1], hsbvals[2]);
-				k = (k & 0xffffff) + (row[x] & 0xff000000);
-				row[x] = k;
-			}
-			bi.getRaster().setDataElements(0, y, bi.getWidth(), 1, row);
+	public void paintIcon(Component c, Graphics g, int x, int y) {
+		if (cacheDelegate) {
+			IconRasterCache.paintIcon(getIcon(), c, g, x, y, darken, darken);
+		} else {
+			IconRasterCache.paintFiltered(getIcon(), c, g, x, y, darken);
 		}
-		return bi;
 	}
-
-}
\ No newline at end of file
+}
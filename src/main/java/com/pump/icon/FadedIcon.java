@@ -19,17 +19,34 @@ import javax.swing.Icon;
 
 /**
  * This applies a degree of translucency to an existing <code>Icon</code>.
+ * <p>
+ * If the original icon always looks the same you can ask this to paint it
+ * through the {@link IconRasterCache}. Then the translucency is applied to a
+ * cached raster of the original icon, so overlapping shapes inside the icon
+ * don't show through each other.
  */
 public class FadedIcon implements Icon {
 	float alpha;
 	Icon icon;
+	boolean cacheDelegate;
 
 	public FadedIcon(Icon icon, float alpha) {
+		this(icon, alpha, false);
+	}
+
+	/**
+	 * @param cacheDelegate
+	 *            if true then the icon is painted through the
+	 *            {@link IconRasterCache}. This should only be used if the icon
+	 *            always looks the same.
+	 */
+	public FadedIcon(Icon icon, float alpha, boolean cacheDelegate) {
 		if (alpha < 0 || alpha > 1)
 			throw new IllegalArgumentException("alpha (" + alpha
 					+ ") must be between [0, 1]");
 		this.icon = icon;
 		this.alpha = alpha;
+		this.cacheDelegate = cacheDelegate;
 	}
 
 	public int getIconHeight() {
@@ -44,6 +61,10 @@ public class FadedIcon implements Icon {
 		Graphics2D g = (Graphics2D) g0;
 		g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER,
 				alpha));
-		icon.paintIcon(c, g, x, y);
+		if (cacheDelegate) {
+			IconRasterCache.paintIcon(icon, c, g, x, y);
+		} else {
+			icon.paintIcon(c, g, x, y);
+		}
 	}
 }
\ No newline at end of file
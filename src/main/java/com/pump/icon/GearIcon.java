@@ -128,4 +128,17 @@ public class GearIcon implements Icon {
 		g.fill(gear);
 		g.translate(-x, -y);
 	}
-}
\ No newline at end of file
+
+	@Override
+	public int hashCode() {
+		return diameter * 31 + color.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof GearIcon))
+			return false;
+		GearIcon other = (GearIcon) obj;
+		return diameter == other.diameter && color.equals(other.color);
+	}
+}
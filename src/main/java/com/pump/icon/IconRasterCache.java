@@ -0,0 +1,451 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.icon;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsConfiguration;
+import java.awt.PrintGraphics;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.print.PrinterGraphics;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import javax.swing.Icon;
+
+import com.pump.graphics.vector.VectorGraphics2D;
+
+/**
+ * This caches rasterized Icons so repeatedly painting the same Icon (for
+ * example in the rows of a table) only renders it once.
+ * <p>
+ * Rasters are rendered at device resolution, so they stay sharp on HiDPI
+ * displays and under scaling or rotating transforms. Each raster is identified
+ * by the Icon (by identity, not <code>equals()</code>), its size, the linear
+ * part of the destination transform, and the Graphics2D's rendering hints,
+ * color and font. The Icon's origin is rounded to the nearest device pixel, so
+ * the same raster is reused no matter where the Icon is painted.
+ * <p>
+ * Icons are only weakly referenced, and rasters are held by soft references.
+ * The cache as a whole is limited to {@link #getMemoryLimit()} bytes.
+ * <p>
+ * This assumes an Icon looks the same every time it is painted with the same
+ * attributes. If an Icon's appearance changes (for example because it depends
+ * on the state of the Component it is painted for) then either don't paint it
+ * through this cache or call {@link #clear(Icon)} when it changes. Also
+ * anything an Icon paints outside of its width and height is clipped.
+ * <p>
+ * Printers and {@link VectorGraphics2D VectorGraphics2Ds} always receive the
+ * Icon's original vector output.
+ */
+public class IconRasterCache {
+
+	/**
+	 * The default maximum number of bytes all cached rasters may occupy.
+	 */
+	public static final long MEMORY_LIMIT_DEFAULT = 16 * 1024 * 1024;
+
+	/**
+	 * A weak reference to the Icon of a Key. When a Key is stored in the cache
+	 * this is registered with {@link #iconQueue}, so the Key's Entry can be
+	 * removed once the Icon is garbage collected.
+	 */
+	static class IconReference extends WeakReference<Icon> {
+		final Key key;
+
+		IconReference(Icon icon, Key key, ReferenceQueue<Icon> queue) {
+			super(icon, queue);
+			this.key = key;
+		}
+	}
+
+	static class Key {
+		final IconReference icon;
+		final Object variant;
+		final int width, height;
+		final double m00, m10, m01, m11;
+		final RenderingHints hints;
+		final Color color;
+		final Font font;
+		final int hashCode;
+
+		/**
+		 * @param queue
+		 *            the queue the Icon's reference is registered with. This
+		 *            is null for keys that are only used to look up entries.
+		 */
+		Key(Icon icon, ReferenceQueue<Icon> queue, Object variant, int width,
+				int height, AffineTransform tx, RenderingHints hints,
+				Color color, Font font) {
+			this.icon = new IconReference(icon, this, queue);
+			this.variant = variant;
+			this.width = width;
+			this.height = height;
+			m00 = tx.getScaleX();
+			m10 = tx.getShearY();
+			m01 = tx.getShearX();
+			m11 = tx.getScaleY();
+			this.hints = hints;
+			this.color = color;
+			this.font = font;
+			hashCode = ((System.identityHashCode(icon) * 31
+					+ Objects.hashCode(variant)) * 31 + width) * 31 + height
+					+ Double.hashCode(m00) + Double.hashCode(m11);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			// once an Icon is collected its Key is only equal to itself
+			Icon i = icon.get();
+			return i != null && i == other.icon.get()
+					&& hashCode == other.hashCode
+					&& width == other.width && height == other.height
+					&& m00 == other.m00 && m10 == other.m10
+					&& m01 == other.m01 && m11 == other.m11
+					&& Objects.equals(variant, other.variant)
+					&& Objects.equals(color, other.color)
+					&& Objects.equals(font, other.font)
+					&& Objects.equals(hints, other.hints);
+		}
+	}
+
+	/**
+	 * A cached raster. The raster is positioned relative to the Icon's origin
+	 * in device space.
+	 */
+	static class Entry extends SoftReference<BufferedImage> {
+		final Key key;
+		final int dx, dy;
+		final long byteCount;
+
+		Entry(Key key, BufferedImage bi, int dx, int dy,
+				ReferenceQueue<BufferedImage> queue) {
+			super(bi, queue);
+			this.key = key;
+			this.dx = dx;
+			this.dy = dy;
+			byteCount = ((long) bi.getWidth()) * bi.getHeight() * 4;
+		}
+	}
+
+	private static final Map<Key, Entry> cache = new LinkedHashMap<>(16, .75f,
+			true);
+	private static final ReferenceQueue<BufferedImage> queue = new ReferenceQueue<>();
+	private static final ReferenceQueue<Icon> iconQueue = new ReferenceQueue<>();
+	private static long memoryUsage = 0;
+	private static long memoryLimit = MEMORY_LIMIT_DEFAULT;
+
+	/**
+	 * This is true while this class renders a raster, so Icons that are
+	 * nested inside other cached Icons are not cached twice.
+	 */
+	private static final ThreadLocal<Boolean> isRendering = ThreadLocal
+			.withInitial(() -> Boolean.FALSE);
+
+	/**
+	 * Paint an Icon using a cached raster when possible.
+	 */
+	public static void paintIcon(Icon icon, Component c, Graphics g, int x,
+			int y) {
+		paintIcon(icon, c, g, x, y, null, null);
+	}
+
+	/**
+	 * Paint an Icon using a cached raster when possible.
+	 *
+	 * @param variant
+	 *            an optional object that is part of the cache key (compared
+	 *            using <code>equals()</code>). This should identify the filter
+	 *            (if any) and anything else that changes the Icon's
+	 *            appearance.
+	 * @param filter
+	 *            an optional operation that modifies the raster after the Icon
+	 *            is painted in it. The raster is a TYPE_INT_ARGB image. If the
+	 *            Icon can't be cached this is applied to a raster that is
+	 *            painted with the same transform.
+	 */
+	public static void paintIcon(Icon icon, Component c, Graphics g, int x,
+			int y, Object variant, Consumer<BufferedImage> filter) {
+		int width = icon.getIconWidth();
+		int height = icon.getIconHeight();
+		if (width <= 0 || height <= 0)
+			return;
+
+		if (!(g instanceof Graphics2D && isCacheable((Graphics2D) g))) {
+			if (filter == null || !(g instanceof Graphics2D)) {
+				icon.paintIcon(c, g, x, y);
+			} else {
+				paintFiltered(icon, c, (Graphics2D) g, x, y, filter);
+			}
+			return;
+		}
+
+		Graphics2D g2 = (Graphics2D) g;
+
+		AffineTransform tx = g2.getTransform();
+		tx.translate(x, y);
+		long ix = Math.round(tx.getTranslateX());
+		long iy = Math.round(tx.getTranslateY());
+		Key key = new Key(icon, null, variant, width, height, tx,
+				g2.getRenderingHints(), g2.getColor(), g2.getFont());
+
+		Entry entry;
+		BufferedImage bi;
+		synchronized (cache) {
+			purge();
+			entry = cache.get(key);
+			bi = entry == null ? null : entry.get();
+		}
+
+		if (bi == null) {
+			entry = render(icon, key, c, filter);
+			bi = entry == null ? null : entry.get();
+			if (bi == null) {
+				if (filter == null) {
+					icon.paintIcon(c, g, x, y);
+				} else {
+					paintFiltered(icon, c, g2, x, y, filter);
+				}
+				return;
+			}
+			put(entry);
+		}
+
+		Graphics2D g3 = (Graphics2D) g2.create();
+		g3.setTransform(new AffineTransform());
+		g3.drawImage(bi, (int) ix + entry.dx, (int) iy + entry.dy, null);
+		g3.dispose();
+	}
+
+	/**
+	 * Return true if an Icon painted to a Graphics2D may be replaced with a
+	 * cached raster.
+	 */
+	private static boolean isCacheable(Graphics2D g) {
+		if (getMemoryLimit() <= 0 || isRendering.get())
+			return false;
+		if (g instanceof PrinterGraphics || g instanceof PrintGraphics
+				|| g instanceof VectorGraphics2D)
+			return false;
+		GraphicsConfiguration config = g.getDeviceConfiguration();
+		GraphicsDevice device = config == null ? null : config.getDevice();
+		if (device != null && device.getType() == GraphicsDevice.TYPE_PRINTER)
+			return false;
+		Composite composite = g.getComposite();
+		if (!(composite instanceof AlphaComposite && ((AlphaComposite) composite)
+				.getRule() == AlphaComposite.SRC_OVER))
+			return false;
+		return g.getPaint() instanceof Color
+				&& g.getTransform().getDeterminant() != 0;
+	}
+
+	/**
+	 * Render a raster, or return null if it would be too large to cache.
+	 */
+	private static Entry render(Icon icon, Key key, Component c,
+			Consumer<BufferedImage> filter) {
+		AffineTransform tx = new AffineTransform(key.m00, key.m10, key.m01,
+				key.m11, 0, 0);
+		Rectangle2D r = tx.createTransformedShape(
+				new Rectangle2D.Double(0, 0, key.width, key.height))
+				.getBounds2D();
+		int minX = (int) Math.floor(r.getMinX());
+		int minY = (int) Math.floor(r.getMinY());
+		int maxX = (int) Math.ceil(r.getMaxX());
+		int maxY = (int) Math.ceil(r.getMaxY());
+		long byteCount = ((long) maxX - minX) * (maxY - minY) * 4;
+		if (byteCount > getMemoryLimit() / 8 || maxX <= minX || maxY <= minY)
+			return null;
+
+		BufferedImage bi = new BufferedImage(maxX - minX, maxY - minY,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = bi.createGraphics();
+		g.setRenderingHints(key.hints);
+		g.setColor(key.color);
+		g.setFont(key.font);
+		g.translate(-minX, -minY);
+		g.transform(tx);
+		isRendering.set(Boolean.TRUE);
+		try {
+			icon.paintIcon(c, g, 0, 0);
+		} finally {
+			isRendering.set(Boolean.FALSE);
+			g.dispose();
+		}
+		if (filter != null)
+			filter.accept(bi);
+		Key storedKey = new Key(icon, iconQueue, key.variant, key.width,
+				key.height, tx, key.hints, key.color, key.font);
+		return new Entry(storedKey, bi, minX, minY, queue);
+	}
+
+	/**
+	 * Paint a filtered Icon without caching it. The Icon is rendered at device
+	 * resolution when possible. If <code>g</code> is not a Graphics2D then the
+	 * Icon is painted without the filter.
+	 */
+	static void paintFiltered(Icon icon, Component c, Graphics g, int x,
+			int y, Consumer<BufferedImage> filter) {
+		if (!(g instanceof Graphics2D)) {
+			icon.paintIcon(c, g, x, y);
+			return;
+		}
+		paintFiltered(icon, c, (Graphics2D) g, x, y, filter);
+	}
+
+	private static void paintFiltered(Icon icon, Component c, Graphics2D g,
+			int x, int y, Consumer<BufferedImage> filter) {
+		AffineTransform tx = g.getTransform();
+		double scale = Math.max(1, Math.sqrt(Math.abs(tx.getDeterminant())));
+		int w = (int) Math.ceil(icon.getIconWidth() * scale);
+		int h = (int) Math.ceil(icon.getIconHeight() * scale);
+		BufferedImage bi = new BufferedImage(w, h,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = bi.createGraphics();
+		g2.scale(scale, scale);
+		icon.paintIcon(c, g2, 0, 0);
+		g2.dispose();
+		filter.accept(bi);
+		g.drawImage(bi, x, y, icon.getIconWidth(), icon.getIconHeight(),
+				null);
+	}
+
+	private static void put(Entry entry) {
+		synchronized (cache) {
+			Entry oldEntry = cache.put(entry.key, entry);
+			if (oldEntry != null)
+				memoryUsage -= oldEntry.byteCount;
+			memoryUsage += entry.byteCount;
+			trim();
+		}
+	}
+
+	/**
+	 * Remove the least recently used entries until the cache fits in its
+	 * memory limit. The caller must hold the lock on the cache.
+	 */
+	private static void trim() {
+		Iterator<Entry> iter = cache.values().iterator();
+		while (memoryUsage > memoryLimit && iter.hasNext()) {
+			Entry eldest = iter.next();
+			iter.remove();
+			memoryUsage -= eldest.byteCount;
+		}
+	}
+
+	/**
+	 * Remove entries whose rasters or Icons were garbage collected. The caller
+	 * must hold the lock on the cache.
+	 */
+	private static void purge() {
+		Reference<? extends BufferedImage> ref;
+		while ((ref = queue.poll()) != null) {
+			Entry entry = (Entry) ref;
+			if (cache.remove(entry.key, entry))
+				memoryUsage -= entry.byteCount;
+		}
+		Reference<? extends Icon> iconRef;
+		while ((iconRef = iconQueue.poll()) != null) {
+			Entry entry = cache.remove(((IconReference) iconRef).key);
+			if (entry != null)
+				memoryUsage -= entry.byteCount;
+		}
+	}
+
+	/**
+	 * Return the maximum number of bytes all cached rasters may occupy. If
+	 * this is zero then nothing is cached.
+	 */
+	public static long getMemoryLimit() {
+		synchronized (cache) {
+			return memoryLimit;
+		}
+	}
+
+	/**
+	 * Set the maximum number of bytes all cached rasters may occupy. If this
+	 * is zero then nothing is cached. The default is
+	 * {@link #MEMORY_LIMIT_DEFAULT}.
+	 */
+	public static void setMemoryLimit(long limit) {
+		if (limit < 0)
+			throw new IllegalArgumentException(
+					"limit (" + limit + ") must not be negative");
+		synchronized (cache) {
+			memoryLimit = limit;
+			purge();
+			trim();
+		}
+	}
+
+	/**
+	 * Remove all the rasters of an Icon from the cache.
+	 */
+	public static void clear(Icon icon) {
+		synchronized (cache) {
+			Iterator<Entry> iter = cache.values().iterator();
+			while (iter.hasNext()) {
+				Entry entry = iter.next();
+				if (entry.key.icon.get() == icon) {
+					iter.remove();
+					memoryUsage -= entry.byteCount;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all rasters from the cache.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+			memoryUsage = 0;
+		}
+	}
+
+	/**
+	 * Return the number of bytes the cached rasters occupy. This includes
+	 * rasters that were garbage collected but not yet purged.
+	 */
+	public static long getMemoryUsage() {
+		synchronized (cache) {
+			purge();
+			return memoryUsage;
+		}
+	}
+}
@@ -108,12 +108,15 @@ public class IconUtils {
 			InvocationHandler {
 		Icon icon;
 		Dimension size;
+		boolean cacheDelegate;
 
-		public ScaledIconInvocationHandler(Icon icon, Dimension size) {
+		public ScaledIconInvocationHandler(Icon icon, Dimension size,
+				boolean cacheDelegate) {
 			Objects.requireNonNull(icon);
 			Objects.requireNonNull(size);
 			this.icon = icon;
 			this.size = new Dimension(size.width, size.height);
+			this.cacheDelegate = cacheDelegate;
 		}
 
 		@Override
@@ -149,7 +152,11 @@ public class IconUtils {
 				g2.transform(TransformUtils.createAffineTransform(x, y, x
 						+ icon.getIconWidth(), y, x, y + icon.getIconHeight(),
 						x, y, x + size.width, y, x, y + size.height));
-				icon.paintIcon(c, g2, x, y);
+				if (cacheDelegate) {
+					IconRasterCache.paintIcon(icon, c, g2, x, y);
+				} else {
+					icon.paintIcon(c, g2, x, y);
+				}
 				g2.dispose();
 
 				return Void.TYPE;
@@ -314,14 +321,33 @@ public class IconUtils {
 	 * @return a new ScaledIcon.
 	 */
 	public static ScaledIcon createScaledIcon(Icon icon, Dimension iconSize) {
+		return createScaledIcon(icon, iconSize, false);
+	}
+
+	/**
+	 * Create a new ScaledIcon.
+	 * 
+	 * @param icon
+	 *            the icon to scale. If this is already a ScaledIcon then a new
+	 *            ScaledIcon is created that references the underlying icon.
+	 * @param iconSize
+	 *            the dimensions of the new icon.
+	 * @param cacheDelegate
+	 *            if true then the icon is painted through the
+	 *            {@link IconRasterCache}. This should only be used if the icon
+	 *            always looks the same.
+	 * @return a new ScaledIcon.
+	 */
+	public static ScaledIcon createScaledIcon(Icon icon, Dimension iconSize,
+			boolean cacheDelegate) {
 		if (icon instanceof ScaledIcon) {
 			ScaledIcon s = (ScaledIcon) icon;
 			Icon originalIcon = s.getScaledIcon();
-			return createScaledIcon(originalIcon, iconSize);
+			return createScaledIcon(originalIcon, iconSize, cacheDelegate);
 		}
 		Class<?>[] interfaces = getInterfaces(icon, ScaledIcon.class);
 		InvocationHandler handler = new ScaledIconInvocationHandler(icon,
-				iconSize);
+				iconSize, cacheDelegate);
 		return (ScaledIcon) Proxy.newProxyInstance(
 				IconUtils.class.getClassLoader(), interfaces, handler);
 	}
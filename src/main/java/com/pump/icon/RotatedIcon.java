@@ -28,15 +28,31 @@ import javax.swing.Icon;
  * For example: if you have a 100x100 icon, then the RotatedIcon wrapper will be
  * 142x142 pixels (because it has to allow room for the icon to rotate 45
  * degrees).
+ * <p>
+ * If the source icon always looks the same you can ask this to paint it
+ * through the {@link IconRasterCache}, so each angle of the source icon is
+ * only rasterized once.
  */
 public class RotatedIcon implements Icon {
 	float rotation;
 	Icon icon;
 	int size;
+	boolean cacheDelegate;
 
 	public RotatedIcon(Icon icon, float radians) {
+		this(icon, radians, false);
+	}
+
+	/**
+	 * @param cacheDelegate
+	 *            if true then the icon is painted through the
+	 *            {@link IconRasterCache}. This should only be used if the icon
+	 *            always looks the same.
+	 */
+	public RotatedIcon(Icon icon, float radians, boolean cacheDelegate) {
 		this.rotation = radians;
 		this.icon = icon;
+		this.cacheDelegate = cacheDelegate;
 
 		int h = icon.getIconHeight();
 		int w = icon.getIconWidth();
@@ -49,8 +65,13 @@ public class RotatedIcon implements Icon {
 		g.rotate(rotation, x + size / 2, y + size / 2);
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
 				RenderingHints.VALUE_ANTIALIAS_ON);
-		icon.paintIcon(c, g, x + getIconWidth() / 2 - icon.getIconWidth() / 2,
-				y + getIconHeight() / 2 - icon.getIconHeight() / 2);
+		int iconX = x + getIconWidth() / 2 - icon.getIconWidth() / 2;
+		int iconY = y + getIconHeight() / 2 - icon.getIconHeight() / 2;
+		if (cacheDelegate) {
+			IconRasterCache.paintIcon(icon, c, g, iconX, iconY);
+		} else {
+			icon.paintIcon(c, g, iconX, iconY);
+		}
 		g.dispose();
 	}
 
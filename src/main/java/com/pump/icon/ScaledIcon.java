@@ -14,6 +14,8 @@ import javax.swing.Icon;
 
 /**
  * An icon that renders an enother Icon through a scaling AffineTransform.
+ * The other Icon may optionally be painted through the {@link IconRasterCache}
+ * (see {@link IconUtils#createScaledIcon(Icon, java.awt.Dimension, boolean)}).
  * <p>
  * This is provided as an interface so {@link IconUtils} can create ScaledIcons
  * that still identify as other interfaces.
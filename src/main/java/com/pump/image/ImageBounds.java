@@ -12,6 +12,16 @@ package com.pump.image;
 
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import com.pump.reflect.Reflection;
 
@@ -48,8 +58,27 @@ public class ImageBounds {
 	 *         are non-translucent.
 	 */
 	public static Rectangle getBounds(BufferedImage bi, int alphaThreshold) {
+		return getBounds(bi, alphaThreshold, PARALLEL_PIXEL_THRESHOLD);
+	}
+
+	/**
+	 * Returns the smallest rectangle enclosing the pixels in this image that
+	 * are non-translucent.
+	 * 
+	 * @param parallelPixelThreshold
+	 *            if the rows between the top and bottom edges contain more
+	 *            than this many pixels then the left and right edges are
+	 *            searched in parallel.
+	 */
+	static Rectangle getBounds(BufferedImage bi, int alphaThreshold,
+			int parallelPixelThreshold) {
 		int type = bi.getType();
-		if (type == BufferedImage.TYPE_INT_ARGB) {
+		if (type == BufferedImage.TYPE_INT_ARGB
+				|| type == BufferedImage.TYPE_INT_ARGB_PRE) {
+			Rectangle r = getIntARGBBounds(bi, alphaThreshold,
+					parallelPixelThreshold);
+			if (r != NOT_SUPPORTED)
+				return r;
 			return getARGBBounds(bi, alphaThreshold);
 		}
 		throw new IllegalArgumentException("Illegal image type ("
@@ -57,18 +86,262 @@ public class ImageBounds {
 						type)));
 	}
 
+	/**
+	 * Returns the smallest rectangle enclosing the pixels in a TiledImage that
+	 * are non-translucent.
+	 * <p>
+	 * This reads one row at a time, so the image never has to fit in memory.
+	 * 
+	 * @param image
+	 *            the image to scan.
+	 * @param alphaThreshold
+	 *            the alpha channel threshold for a pixel that is included in
+	 *            the rectangle.
+	 * @return the smallest rectangle enclosing the pixels in this image that
+	 *         are non-translucent, or null if there are no such pixels.
+	 */
+	public static Rectangle getBounds(TiledImage image, int alphaThreshold)
+			throws IOException {
+		if (image.getType() == BufferedImage.TYPE_INT_RGB)
+			return new Rectangle(0, 0, image.getWidth(), image.getHeight());
+		try {
+			return getARGBBounds(image.getWidth(), image.getHeight(),
+					(y, dest) -> {
+						try {
+							image.getRGB(0, y, image.getWidth(), 1, dest, 0,
+									image.getWidth());
+						} catch (IOException e) {
+							throw new RuntimeException(e);
+						}
+					}, alphaThreshold);
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * The number of pixels we combine before comparing alpha against the
+	 * threshold.
+	 */
+	private static final int CHUNK_SIZE = 8;
+
+	/**
+	 * If the rows between the top and bottom edges contain more than this many
+	 * pixels then the left and right edges are searched in parallel.
+	 */
+	static final int PARALLEL_PIXEL_THRESHOLD = 1 << 20;
+
+	/**
+	 * This is returned by
+	 * {@link #getIntARGBBounds(BufferedImage, int, int)} when the image's
+	 * raster can't be read directly.
+	 */
+	private static final Rectangle NOT_SUPPORTED = new Rectangle();
+
+	/**
+	 * Find the bounds by reading the int array of a DataBufferInt directly.
+	 * <p>
+	 * The top and bottom edges are found by scanning rows inward, and the left
+	 * and right edges are found by scanning each remaining row only as far as
+	 * the current bounds. While scanning we OR several pixels together: the
+	 * alpha of the combined value is at least as large as the largest alpha
+	 * of the individual pixels, so if it doesn't exceed the threshold then
+	 * none of those pixels do.
+	 * 
+	 * @return the bounds, null if no pixel exceeds the threshold, or
+	 *         {@link #NOT_SUPPORTED} if this image's raster is not a
+	 *         single-bank DataBufferInt.
+	 */
+	private static Rectangle getIntARGBBounds(BufferedImage bi,
+			int alphaThreshold, int parallelPixelThreshold) {
+		WritableRaster raster = bi.getRaster();
+		if (!(raster.getDataBuffer() instanceof DataBufferInt)
+				|| !(raster
+						.getSampleModel() instanceof SinglePixelPackedSampleModel))
+			return NOT_SUPPORTED;
+		DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+		if (dataBuffer.getNumBanks() != 1)
+			return NOT_SUPPORTED;
+		SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster
+				.getSampleModel();
+
+		final int[] data = dataBuffer.getData();
+		final int stride = sampleModel.getScanlineStride();
+		final int offset = dataBuffer.getOffset()
+				- raster.getSampleModelTranslateY() * stride
+				- raster.getSampleModelTranslateX();
+		final int w = bi.getWidth();
+		final int h = bi.getHeight();
+		final int threshold = alphaThreshold;
+
+		int minY = -1;
+		for (int y = 0; y < h; y++) {
+			if (findFirst(data, offset + y * stride, 0, w, threshold) != -1) {
+				minY = y;
+				break;
+			}
+		}
+		if (minY == -1)
+			return null;
+
+		int maxY = minY;
+		for (int y = h - 1; y > minY; y--) {
+			if (findFirst(data, offset + y * stride, 0, w, threshold) != -1) {
+				maxY = y;
+				break;
+			}
+		}
+
+		int rowStart = offset + minY * stride;
+		int minX = findFirst(data, rowStart, 0, w, threshold);
+		int maxX = findLast(data, rowStart, 0, w, threshold);
+		rowStart = offset + maxY * stride;
+		minX = Math.min(minX, findFirst(data, rowStart, 0, w, threshold));
+		maxX = Math.max(maxX, findLast(data, rowStart, 0, w, threshold));
+
+		int innerRows = maxY - minY - 1;
+		if (innerRows > 1
+				&& ((long) innerRows) * w > parallelPixelThreshold) {
+			int bandCount = Math.min(innerRows,
+					ForkJoinPool.getCommonPoolParallelism() * 4);
+			List<Future<int[]>> futures = new ArrayList<>(bandCount);
+			for (int a = 0; a < bandCount; a++) {
+				final int y1 = minY + 1 + innerRows * a / bandCount;
+				final int y2 = minY + 1 + innerRows * (a + 1) / bandCount;
+				final int initialMinX = minX;
+				final int initialMaxX = maxX;
+				Callable<int[]> c = () -> getHorizontalRange(data, offset,
+						stride, w, y1, y2, initialMinX, initialMaxX,
+						threshold);
+				futures.add(ForkJoinPool.commonPool().submit(c));
+			}
+			try {
+				for (Future<int[]> f : futures) {
+					int[] range = f.get();
+					minX = Math.min(minX, range[0]);
+					maxX = Math.max(maxX, range[1]);
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+		} else if (innerRows > 0) {
+			int[] range = getHorizontalRange(data, offset, stride, w, minY + 1,
+					maxY, minX, maxX, threshold);
+			minX = range[0];
+			maxX = range[1];
+		}
+
+		return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+	}
+
+	/**
+	 * Expand a horizontal range to include every pixel in a series of rows
+	 * that exceeds the threshold.
+	 * 
+	 * @param y1
+	 *            the first row to scan (inclusive).
+	 * @param y2
+	 *            the last row to scan (exclusive).
+	 * @return a two-element array containing the new minX and maxX.
+	 */
+	private static int[] getHorizontalRange(int[] data, int offset,
+			int stride, int w, int y1, int y2, int minX, int maxX,
+			int threshold) {
+		for (int y = y1; y < y2; y++) {
+			int rowStart = offset + y * stride;
+			if (minX > 0) {
+				int x = findFirst(data, rowStart, 0, minX, threshold);
+				if (x != -1)
+					minX = x;
+			}
+			if (maxX < w - 1) {
+				int x = findLast(data, rowStart, maxX + 1, w, threshold);
+				if (x != -1)
+					maxX = x;
+			}
+			if (minX == 0 && maxX == w - 1)
+				break;
+		}
+		return new int[] { minX, maxX };
+	}
+
+	/**
+	 * Return the first x-value in [x1, x2) whose alpha exceeds the threshold,
+	 * or -1.
+	 */
+	private static int findFirst(int[] data, int rowStart, int x1, int x2,
+			int threshold) {
+		int x = x1;
+		for (; x + CHUNK_SIZE <= x2; x += CHUNK_SIZE) {
+			int i = rowStart + x;
+			int combined = data[i] | data[i + 1] | data[i + 2] | data[i + 3]
+					| data[i + 4] | data[i + 5] | data[i + 6] | data[i + 7];
+			if ((combined >>> 24) > threshold) {
+				for (int k = 0; k < CHUNK_SIZE; k++) {
+					if ((data[i + k] >>> 24) > threshold)
+						return x + k;
+				}
+			}
+		}
+		for (; x < x2; x++) {
+			if ((data[rowStart + x] >>> 24) > threshold)
+				return x;
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the last x-value in [x1, x2) whose alpha exceeds the threshold,
+	 * or -1.
+	 */
+	private static int findLast(int[] data, int rowStart, int x1, int x2,
+			int threshold) {
+		int x = x2;
+		for (; x - CHUNK_SIZE >= x1; x -= CHUNK_SIZE) {
+			int i = rowStart + x - CHUNK_SIZE;
+			int combined = data[i] | data[i + 1] | data[i + 2] | data[i + 3]
+					| data[i + 4] | data[i + 5] | data[i + 6] | data[i + 7];
+			if ((combined >>> 24) > threshold) {
+				for (int k = CHUNK_SIZE - 1; k >= 0; k--) {
+					if ((data[i + k] >>> 24) > threshold)
+						return x - CHUNK_SIZE + k;
+				}
+			}
+		}
+		for (x--; x >= x1; x--) {
+			if ((data[rowStart + x] >>> 24) > threshold)
+				return x;
+		}
+		return -1;
+	}
+
+	/**
+	 * This reads one row of ARGB pixels.
+	 */
+	private interface RowReader {
+		void read(int y, int[] dest);
+	}
+
 	private static Rectangle getARGBBounds(BufferedImage bi, int alphaThreshold) {
-		int[] array = new int[bi.getWidth()];
+		return getARGBBounds(bi.getWidth(), bi.getHeight(),
+				(y, dest) -> bi.getRaster().getDataElements(0, y, bi.getWidth(),
+						1, dest),
+				alphaThreshold);
+	}
+
+	private static Rectangle getARGBBounds(int w, int h, RowReader reader,
+			int alphaThreshold) {
+		int[] array = new int[w];
 
-		int h = bi.getHeight();
-		int w = bi.getWidth();
 		int minX = -1;
 		int maxX = -1;
 		int minY = -1;
 		int maxY = -1;
 
 		findMinY: for (int y = 0; y < h; y++) {
-			bi.getRaster().getDataElements(0, y, w, 1, array);
+			reader.read(y, array);
 			for (int x = 0; x < w; x++) {
 				int alpha = (array[x] >> 24) & 0xff;
 				if (alpha > alphaThreshold) {
@@ -84,7 +357,7 @@ public class ImageBounds {
 			return null;
 
 		findMaxY: for (int y = h - 1; y >= 0; y--) {
-			bi.getRaster().getDataElements(0, y, w, 1, array);
+			reader.read(y, array);
 			for (int x = 0; x < w; x++) {
 				int alpha = (array[x] >> 24) & 0xff;
 				if (alpha > alphaThreshold) {
@@ -97,7 +370,7 @@ public class ImageBounds {
 		}
 
 		for (int y = minY; y <= maxY; y++) {
-			bi.getRaster().getDataElements(0, y, w, 1, array);
+			reader.read(y, array);
 			minSearch: for (int x = 0; x < minX; x++) {
 				int alpha = (array[x] >> 24) & 0xff;
 				if (alpha > alphaThreshold) {
@@ -10,11 +10,15 @@
  */
 package com.pump.image;
 
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.HashMap;
 
+import javax.media.jai.PerspectiveTransform;
+
 /**
  * This context paints a BufferedImage using 4 corner points.
  * <p>
@@ -48,6 +52,36 @@ public abstract class ImageContext {
 	public abstract void drawImage(BufferedImage img, Point2D topLeft,
 			Point2D topRight, Point2D bottomRight, Point2D bottomLeft);
 
+	/**
+	 * Draw a TiledImage using 4 corner points.
+	 * <p>
+	 * This maps each tile to its own quadrilateral and passes it to
+	 * {@link #drawImage(BufferedImage, Point2D, Point2D, Point2D, Point2D)},
+	 * so only one tile needs to be in memory at a time.
+	 */
+	public void drawImage(TiledImage img, Point2D topLeft, Point2D topRight,
+			Point2D bottomRight, Point2D bottomLeft) throws IOException {
+		PerspectiveTransform pt = PerspectiveTransform.getQuadToQuad(0, 0,
+				img.getWidth(), 0, img.getWidth(), img.getHeight(), 0,
+				img.getHeight(), topLeft.getX(), topLeft.getY(),
+				topRight.getX(), topRight.getY(), bottomRight.getX(),
+				bottomRight.getY(), bottomLeft.getX(), bottomLeft.getY());
+		Point2D[] src = new Point2D[4];
+		for (int tileY = 0; tileY < img.getTileCountY(); tileY++) {
+			for (int tileX = 0; tileX < img.getTileCountX(); tileX++) {
+				Rectangle r = img.getTileBounds(tileX, tileY);
+				src[0] = new Point2D.Double(r.x, r.y);
+				src[1] = new Point2D.Double(r.x + r.width, r.y);
+				src[2] = new Point2D.Double(r.x + r.width, r.y + r.height);
+				src[3] = new Point2D.Double(r.x, r.y + r.height);
+				Point2D[] dst = new Point2D[4];
+				pt.transform(src, 0, dst, 0, 4);
+				drawImage(img.getTile(tileX, tileY), dst[0], dst[1], dst[2],
+						dst[3]);
+			}
+		}
+	}
+
 	public abstract void dispose();
 
 	/** Define a rendering hint. */
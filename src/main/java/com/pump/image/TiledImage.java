@@ -0,0 +1,567 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.pump.image.bmp.BmpDecoderIterator;
+import com.pump.image.pixel.GenericImageSinglePassIterator;
+import com.pump.image.pixel.ImageType;
+import com.pump.image.pixel.IntPixelIterator;
+import com.pump.image.pixel.PixelIterator;
+
+/**
+ * This is a large ARGB or RGB image whose pixels are stored in a
+ * memory-mapped scratch file instead of the heap.
+ * <p>
+ * This image is divided into square tiles. Pixels are decoded lazily from a
+ * {@link PixelIterator} (such as a {@link GenericImageSinglePassIterator} or a
+ * {@link BmpDecoderIterator}): rows are only read from the source when a
+ * caller first asks for pixels at or beyond them. Tiles requested through
+ * {@link #getTile(int, int)} are copied into small <code>BufferedImages</code>
+ * and kept in an LRU cache that is bounded by a number of bytes.
+ * <p>
+ * So an image that is much larger than the heap can be scaled (see
+ * {@link com.pump.image.pixel.Scaling#scale(TiledImage, java.awt.Dimension)}),
+ * trimmed (see {@link ImageBounds#getBounds(TiledImage, int)}) or painted (see
+ * {@link ImageContext#drawImage(TiledImage, java.awt.geom.Point2D, java.awt.geom.Point2D, java.awt.geom.Point2D, java.awt.geom.Point2D)})
+ * while only a few tiles occupy memory.
+ * <p>
+ * Call {@link #close()} when you are finished with this image to delete its
+ * scratch file.
+ */
+public class TiledImage implements Closeable {
+
+	/**
+	 * The default width and height of a tile.
+	 */
+	public static final int TILE_SIZE_DEFAULT = 256;
+
+	/**
+	 * The default number of bytes the tile cache may use.
+	 */
+	public static final long TILE_CACHE_LIMIT_DEFAULT = 16 * 1024 * 1024;
+
+	/**
+	 * Create a TiledImage from a BMP, JPG, PNG or GIF file.
+	 * <p>
+	 * BMP files are decoded with a {@link BmpDecoderIterator}; all other
+	 * formats are decoded with a {@link GenericImageSinglePassIterator}.
+	 */
+	public static TiledImage create(File file) throws IOException {
+		if (!file.getName().toLowerCase().endsWith(".bmp"))
+			return new TiledImage(GenericImageSinglePassIterator.get(file,
+					BufferedImage.TYPE_INT_ARGB));
+
+		// the BMP iterator reads from this stream as rows are requested:
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			TiledImage returnValue = new TiledImage(BmpDecoderIterator.get(in));
+			returnValue.sourceStream = in;
+			return returnValue;
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	protected final int width, height, type, tileSize;
+	protected final long tileCacheLimit;
+
+	private final File scratchFile;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+
+	/**
+	 * The memory-mapped pixel data. Each element contains
+	 * <code>tileSize</code> rows (except possibly the last element).
+	 */
+	private final IntBuffer[] bands;
+
+	private IntPixelIterator source;
+	private int[] sourceRow;
+
+	/**
+	 * The iterator passed to the constructor, before it was converted to an
+	 * IntPixelIterator.
+	 */
+	private PixelIterator<?> originalSource;
+
+	/**
+	 * An optional stream the source reads from that this object owns.
+	 */
+	private Closeable sourceStream;
+
+	/**
+	 * The number of rows read from the source so far.
+	 */
+	private int decodedRowCount;
+
+	private final LinkedHashMap<Long, BufferedImage> tileCache = new LinkedHashMap<>(
+			16, .75f, true);
+	private long tileCacheSize = 0;
+	private boolean closed = false;
+
+	/**
+	 * Create a TiledImage that lazily reads pixels from a PixelIterator,
+	 * using the default tile size and tile cache limit.
+	 */
+	public TiledImage(PixelIterator<?> source) throws IOException {
+		this(source, TILE_SIZE_DEFAULT, TILE_CACHE_LIMIT_DEFAULT);
+	}
+
+	/**
+	 * Create a TiledImage that lazily reads pixels from a PixelIterator.
+	 *
+	 * @param source
+	 *            the iterator to read pixels from. If this iterator does not
+	 *            produce TYPE_INT_ARGB or TYPE_INT_RGB pixels then it is
+	 *            converted to one of those types. If this is a
+	 *            {@link GenericImageSinglePassIterator} then its remaining
+	 *            rows are skipped when this image is closed, so its producer
+	 *            thread is released. Otherwise the caller is responsible for
+	 *            any resources the iterator uses.
+	 * @param tileSize
+	 *            the width and height of a tile.
+	 * @param tileCacheLimit
+	 *            the number of bytes the tile cache may use.
+	 */
+	public TiledImage(PixelIterator<?> source, int tileSize,
+			long tileCacheLimit) throws IOException {
+		this(source.getWidth(), source.getHeight(),
+				source.isOpaque() ? BufferedImage.TYPE_INT_RGB
+						: BufferedImage.TYPE_INT_ARGB,
+				tileSize, tileCacheLimit);
+		originalSource = source;
+		if (source.getType() != type) {
+			source = ImageType.get(type).createConverter(source);
+		}
+		this.source = (IntPixelIterator) source;
+		sourceRow = new int[this.source.getMinimumArrayLength()];
+		decodedRowCount = 0;
+	}
+
+	/**
+	 * Create an empty TiledImage. All pixels are initially zero.
+	 *
+	 * @param width
+	 *            the width of this image.
+	 * @param height
+	 *            the height of this image.
+	 * @param type
+	 *            TYPE_INT_ARGB or TYPE_INT_RGB.
+	 * @param tileSize
+	 *            the width and height of a tile.
+	 * @param tileCacheLimit
+	 *            the number of bytes the tile cache may use.
+	 */
+	public TiledImage(int width, int height, int type, int tileSize,
+			long tileCacheLimit) throws IOException {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException(
+					"illegal size: " + width + "x" + height);
+		if (type != BufferedImage.TYPE_INT_ARGB
+				&& type != BufferedImage.TYPE_INT_RGB)
+			throw new IllegalArgumentException(
+					"unsupported image type (" + type + ")");
+		if (tileSize <= 0)
+			throw new IllegalArgumentException(
+					"tileSize (" + tileSize + ") must be positive");
+		if (((long) width) * tileSize * 4 > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("width (" + width
+					+ ") is too large for a tile size of " + tileSize);
+		this.width = width;
+		this.height = height;
+		this.type = type;
+		this.tileSize = tileSize;
+		this.tileCacheLimit = tileCacheLimit;
+		decodedRowCount = height;
+
+		scratchFile = File.createTempFile("TiledImage", ".raw");
+		scratchFile.deleteOnExit();
+		randomAccessFile = new RandomAccessFile(scratchFile, "rw");
+		randomAccessFile.setLength(((long) width) * height * 4);
+		channel = randomAccessFile.getChannel();
+		bands = new IntBuffer[(height + tileSize - 1) / tileSize];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Return TYPE_INT_ARGB or TYPE_INT_RGB.
+	 */
+	public int getType() {
+		return type;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Return the number of columns of tiles.
+	 */
+	public int getTileCountX() {
+		return (width + tileSize - 1) / tileSize;
+	}
+
+	/**
+	 * Return the number of rows of tiles.
+	 */
+	public int getTileCountY() {
+		return bands.length;
+	}
+
+	/**
+	 * Return the bounds of a tile in this image's coordinate space.
+	 */
+	public Rectangle getTileBounds(int tileX, int tileY) {
+		int x = tileX * tileSize;
+		int y = tileY * tileSize;
+		return new Rectangle(x, y, Math.min(tileSize, width - x),
+				Math.min(tileSize, height - y));
+	}
+
+	/**
+	 * Return the memory-mapped buffer that contains a row of pixels.
+	 */
+	private IntBuffer getBand(int bandIndex) throws IOException {
+		IntBuffer band = bands[bandIndex];
+		if (band == null) {
+			int rowCount = Math.min(tileSize, height - bandIndex * tileSize);
+			long offset = ((long) bandIndex) * tileSize * width * 4;
+			band = channel
+					.map(FileChannel.MapMode.READ_WRITE, offset,
+							((long) rowCount) * width * 4)
+					.order(ByteOrder.nativeOrder()).asIntBuffer();
+			bands[bandIndex] = band;
+		}
+		return band;
+	}
+
+	/**
+	 * Make sure the source has been read far enough to include the given row.
+	 */
+	private void decodeThrough(int y) throws IOException {
+		if (source == null)
+			return;
+		while (decodedRowCount < height
+				&& !isDecoded(y, decodedRowCount, source.isTopDown())) {
+			int row = source.isTopDown() ? decodedRowCount
+					: height - 1 - decodedRowCount;
+			source.next(sourceRow);
+			IntBuffer band = getBand(row / tileSize).duplicate();
+			band.position((row % tileSize) * width);
+			band.put(sourceRow, 0, width);
+			decodedRowCount++;
+		}
+		if (decodedRowCount == height)
+			releaseSource();
+	}
+
+	/**
+	 * Stop reading from the source and release it.
+	 */
+	private void releaseSource() throws IOException {
+		try {
+			if (originalSource instanceof GenericImageSinglePassIterator) {
+				while (!originalSource.isDone()) {
+					originalSource.skip();
+				}
+			}
+		} finally {
+			source = null;
+			sourceRow = null;
+			originalSource = null;
+			if (sourceStream != null) {
+				Closeable c = sourceStream;
+				sourceStream = null;
+				c.close();
+			}
+		}
+	}
+
+	private boolean isDecoded(int y, int decodedRowCount, boolean topDown) {
+		if (topDown)
+			return y < decodedRowCount;
+		return y >= height - decodedRowCount;
+	}
+
+	private void checkOpen() {
+		if (closed)
+			throw new IllegalStateException("this image has been closed");
+	}
+
+	/**
+	 * Read a rectangular block of pixels.
+	 *
+	 * @param x
+	 *            the left edge of the block.
+	 * @param y
+	 *            the top edge of the block.
+	 * @param w
+	 *            the width of the block.
+	 * @param h
+	 *            the height of the block.
+	 * @param dest
+	 *            the array to store pixels in.
+	 * @param offset
+	 *            the index in <code>dest</code> of the top-left pixel.
+	 * @param scanSize
+	 *            the distance in <code>dest</code> between rows.
+	 */
+	public synchronized void getRGB(int x, int y, int w, int h, int[] dest,
+			int offset, int scanSize) throws IOException {
+		checkOpen();
+		checkBounds(x, y, w, h);
+		if (source != null) {
+			decodeThrough(y);
+			decodeThrough(y + h - 1);
+		}
+		for (int row = y; row < y + h; row++) {
+			IntBuffer band = getBand(row / tileSize).duplicate();
+			band.position((row % tileSize) * width + x);
+			band.get(dest, offset + (row - y) * scanSize, w);
+		}
+	}
+
+	/**
+	 * Write a rectangular block of pixels.
+	 *
+	 * @param x
+	 *            the left edge of the block.
+	 * @param y
+	 *            the top edge of the block.
+	 * @param w
+	 *            the width of the block.
+	 * @param h
+	 *            the height of the block.
+	 * @param src
+	 *            the pixels to write.
+	 * @param offset
+	 *            the index in <code>src</code> of the top-left pixel.
+	 * @param scanSize
+	 *            the distance in <code>src</code> between rows.
+	 */
+	public synchronized void setRGB(int x, int y, int w, int h, int[] src,
+			int offset, int scanSize) throws IOException {
+		checkOpen();
+		checkBounds(x, y, w, h);
+		// we can't let the source overwrite these pixels later:
+		if (source != null) {
+			decodeThrough(y);
+			decodeThrough(y + h - 1);
+		}
+		for (int row = y; row < y + h; row++) {
+			IntBuffer band = getBand(row / tileSize).duplicate();
+			band.position((row % tileSize) * width + x);
+			band.put(src, offset + (row - y) * scanSize, w);
+		}
+
+		for (int tileY = y / tileSize; tileY <= (y + h - 1)
+				/ tileSize; tileY++) {
+			for (int tileX = x / tileSize; tileX <= (x + w - 1)
+					/ tileSize; tileX++) {
+				BufferedImage tile = tileCache.remove(getTileKey(tileX, tileY));
+				if (tile != null)
+					tileCacheSize -= getTileByteCount(tile);
+			}
+		}
+	}
+
+	private void checkBounds(int x, int y, int w, int h) {
+		if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > width
+				|| y + h > height)
+			throw new IllegalArgumentException("the rectangle (" + x + ", " + y
+					+ ", " + w + ", " + h + ") is not inside this image ("
+					+ width + "x" + height + ")");
+	}
+
+	private static Long getTileKey(int tileX, int tileY) {
+		return Long.valueOf((((long) tileX) << 32) | (tileY & 0xffffffffL));
+	}
+
+	private static long getTileByteCount(BufferedImage tile) {
+		return ((long) tile.getWidth()) * tile.getHeight() * 4;
+	}
+
+	/**
+	 * Return a tile as a <code>BufferedImage</code>.
+	 * <p>
+	 * The returned image is shared with the tile cache, so it should be treated
+	 * as read-only. Use {@link #setRGB(int, int, int, int, int[], int, int)} to
+	 * modify this image.
+	 */
+	public synchronized BufferedImage getTile(int tileX, int tileY)
+			throws IOException {
+		checkOpen();
+		Long key = getTileKey(tileX, tileY);
+		BufferedImage tile = tileCache.get(key);
+		if (tile != null)
+			return tile;
+
+		Rectangle r = getTileBounds(tileX, tileY);
+		tile = new BufferedImage(r.width, r.height, type);
+		int[] data = ((DataBufferInt) tile.getRaster().getDataBuffer())
+				.getData();
+		getRGB(r.x, r.y, r.width, r.height, data, 0, r.width);
+
+		long byteCount = getTileByteCount(tile);
+		if (byteCount <= tileCacheLimit) {
+			tileCache.put(key, tile);
+			tileCacheSize += byteCount;
+			Iterator<BufferedImage> iter = tileCache.values().iterator();
+			while (tileCacheSize > tileCacheLimit && iter.hasNext()) {
+				BufferedImage eldest = iter.next();
+				iter.remove();
+				tileCacheSize -= getTileByteCount(eldest);
+			}
+		}
+		return tile;
+	}
+
+	/**
+	 * Copy a region of this image into a new <code>BufferedImage</code>.
+	 */
+	public BufferedImage getSubimage(Rectangle r) throws IOException {
+		BufferedImage bi = new BufferedImage(r.width, r.height, type);
+		int[] data = ((DataBufferInt) bi.getRaster().getDataBuffer())
+				.getData();
+		getRGB(r.x, r.y, r.width, r.height, data, 0, r.width);
+		return bi;
+	}
+
+	/**
+	 * Paint the tiles of this image that intersect the clip of a Graphics2D.
+	 */
+	public void paint(Graphics2D g) throws IOException {
+		Rectangle clip = g.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, width, height);
+		clip = clip.intersection(new Rectangle(0, 0, width, height));
+		if (clip.isEmpty())
+			return;
+		for (int tileY = clip.y / tileSize; tileY <= (clip.y + clip.height
+				- 1) / tileSize; tileY++) {
+			for (int tileX = clip.x / tileSize; tileX <= (clip.x + clip.width
+					- 1) / tileSize; tileX++) {
+				g.drawImage(getTile(tileX, tileY), tileX * tileSize,
+						tileY * tileSize, null);
+			}
+		}
+	}
+
+	/**
+	 * Create a top-down iterator over the rows of this image.
+	 * <p>
+	 * The iterator may throw a <code>RuntimeException</code> if an
+	 * <code>IOException</code> occurs reading the scratch file.
+	 */
+	public IntPixelIterator createPixelIterator() {
+		return new IntPixelIterator() {
+			int y = 0;
+
+			@Override
+			public int getType() {
+				return type;
+			}
+
+			@Override
+			public boolean isDone() {
+				return y >= height;
+			}
+
+			@Override
+			public boolean isTopDown() {
+				return true;
+			}
+
+			@Override
+			public int getWidth() {
+				return width;
+			}
+
+			@Override
+			public int getHeight() {
+				return height;
+			}
+
+			@Override
+			public int getMinimumArrayLength() {
+				return width;
+			}
+
+			@Override
+			public void skip() {
+				y++;
+			}
+
+			@Override
+			public void next(int[] dest) {
+				try {
+					getRGB(0, y, width, 1, dest, 0, width);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+				y++;
+			}
+		};
+	}
+
+	/**
+	 * Release the tile cache and the source, close the scratch file and
+	 * delete it.
+	 * <p>
+	 * Java can't unmap a memory-mapped buffer explicitly, so the mapped
+	 * regions of the scratch file are only released when they are garbage
+	 * collected. On platforms that can't delete a mapped file the scratch file
+	 * is deleted when the JVM exits instead.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		tileCache.clear();
+		tileCacheSize = 0;
+		for (int a = 0; a < bands.length; a++) {
+			bands[a] = null;
+		}
+		try {
+			releaseSource();
+		} finally {
+			channel.close();
+			randomAccessFile.close();
+			scratchFile.delete();
+		}
+	}
+}
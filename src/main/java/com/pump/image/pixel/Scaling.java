@@ -21,6 +21,7 @@ import java.net.URL;
 
 import com.pump.awt.Dimension2D;
 import com.pump.image.ImageSize;
+import com.pump.image.TiledImage;
 import com.pump.image.bmp.BmpDecoderIterator;
 import com.pump.image.pixel.converter.IntPixelConverter;
 import com.pump.io.FileInputStreamSource;
@@ -93,6 +94,27 @@ public class Scaling {
 		return scale(source, null, destSize);
 	}
 
+	/**
+	 * Scales a TiledImage to a new, smaller size.
+	 * <p>
+	 * This reads the source one row at a time, so the source image never has
+	 * to fit in memory.
+	 * 
+	 * @param source
+	 *            the source image.
+	 * @param destSize
+	 *            the size of the new image. This must be smaller than the size
+	 *            of the source image, or an exception will be thrown.
+	 * @return a new scaled image of type
+	 *         <code>BufferedImage.TYPE_INT_ARGB</code> or
+	 *         <code>BufferedImage.TYPE_INT_RGB</code>.
+	 */
+	public static BufferedImage scale(TiledImage source, Dimension destSize) {
+		IntPixelIterator iter = ScalingIterator.get(
+				source.createPixelIterator(), destSize.width, destSize.height);
+		return BufferedImageIterator.create(iter, null);
+	}
+
 	/**
 	 * Scales the source image file to a new, smaller size.
 	 * 
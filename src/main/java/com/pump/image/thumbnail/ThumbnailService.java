@@ -0,0 +1,608 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.thumbnail;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+import com.pump.desktop.cache.CacheManager;
+import com.pump.image.thumbnail.generator.BasicThumbnailGenerator;
+import com.pump.image.thumbnail.generator.ThumbnailGenerator;
+import com.pump.io.FileUtils;
+import com.pump.swing.Cancellable;
+
+/**
+ * This wraps a {@link ThumbnailGenerator} with a bounded thread pool and a
+ * two-level cache.
+ * <p>
+ * Requests for the same file and size that overlap in time share one
+ * <code>Future</code>, so a file is never thumbnailed twice concurrently.
+ * Finished thumbnails are stored in an in-memory LRU cache that is bounded by
+ * the number of bytes the images occupy, and (optionally) as PNG files in a
+ * directory on disk. Both levels record the file's last-modified timestamp and
+ * length, so if the file changes the cached thumbnail is discarded.
+ * <p>
+ * If the generator can't create a thumbnail then that failure is remembered
+ * in memory (until the file changes or the entry is evicted), so the file is
+ * not decoded again every time it is requested.
+ */
+public class ThumbnailService {
+
+	/**
+	 * The default amount of memory (in bytes) the in-memory cache may use.
+	 */
+	public static final long MEMORY_LIMIT_DEFAULT = 32 * 1024 * 1024;
+
+	/**
+	 * The name of the subdirectory used when this service is constructed with
+	 * a {@link CacheManager}.
+	 */
+	public static final String DIRECTORY_NAME = "thumbnails";
+
+	/**
+	 * The number of bytes a remembered failure counts against the memory
+	 * limit. Failures don't hold an image, but they still need to be evicted
+	 * like thumbnails are.
+	 */
+	static final long FAILURE_BYTE_COUNT = 256;
+
+	/**
+	 * This identifies a thumbnail request: a file and a requested maximum
+	 * size.
+	 */
+	static class Key {
+		final File file;
+		final int size;
+
+		Key(File file, int size) {
+			this.file = file.getAbsoluteFile();
+			this.size = size;
+		}
+
+		@Override
+		public int hashCode() {
+			return file.hashCode() * 31 + size;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return size == other.size && file.equals(other.file);
+		}
+
+		@Override
+		public String toString() {
+			return file.getPath() + " (" + size + ")";
+		}
+	}
+
+	/**
+	 * This is a cached thumbnail and the file attributes it was created from.
+	 * If the image is null then this records that the generator failed.
+	 */
+	static class Entry {
+		final BufferedImage image;
+		final long lastModified;
+		final long length;
+		final long byteCount;
+
+		Entry(BufferedImage image, long lastModified, long length) {
+			this.image = image;
+			this.lastModified = lastModified;
+			this.length = length;
+			byteCount = image == null ? FAILURE_BYTE_COUNT
+					: getByteCount(image);
+		}
+
+		boolean isValid(File file) {
+			return file.lastModified() == lastModified
+					&& file.length() == length;
+		}
+	}
+
+	/**
+	 * Return the approximate number of bytes an image's raster occupies.
+	 */
+	static long getByteCount(BufferedImage bi) {
+		DataBuffer dataBuffer = bi.getRaster().getDataBuffer();
+		long elementSize = DataBuffer.getDataTypeSize(dataBuffer.getDataType())
+				/ 8;
+		return ((long) dataBuffer.getSize()) * dataBuffer.getNumBanks()
+				* elementSize;
+	}
+
+	/**
+	 * A thumbnail that is queued or being generated.
+	 */
+	class Request {
+		final Key key;
+		final FutureTask<BufferedImage> task;
+
+		/**
+		 * The number of callers waiting for this request that may still give
+		 * up on it. This is only accessed while the request is being computed
+		 * in {@link ThumbnailService#pendingRequests}.
+		 */
+		int waiters = 0;
+
+		/**
+		 * True if a caller requested this that never gives up on it.
+		 */
+		boolean permanent = false;
+
+		volatile boolean started = false;
+
+		Request(Key key) {
+			this.key = key;
+			task = new FutureTask<>(() -> {
+				started = true;
+				try {
+					return loadThumbnail(key);
+				} finally {
+					pendingRequests.remove(key, this);
+				}
+			});
+		}
+	}
+
+	private static ThumbnailService DEFAULT;
+
+	/**
+	 * Return a shared ThumbnailService that uses a
+	 * {@link BasicThumbnailGenerator}. If the {@link CacheManager} has been
+	 * initialized then thumbnails are also cached on disk.
+	 */
+	public static synchronized ThumbnailService get() {
+		if (DEFAULT == null) {
+			File dir = null;
+			if (CacheManager.isInitialized())
+				dir = getDirectory(CacheManager.get());
+			DEFAULT = new ThumbnailService(new BasicThumbnailGenerator(),
+					getDefaultThreadCount(), MEMORY_LIMIT_DEFAULT, dir);
+		}
+		return DEFAULT;
+	}
+
+	/**
+	 * Return the directory a CacheManager provides to store thumbnails in.
+	 * This prefers the version-specific directory, so cached thumbnails are
+	 * purged when the application is upgraded.
+	 */
+	public static File getDirectory(CacheManager cacheManager) {
+		File dir = cacheManager.getDirectory(true);
+		if (dir == null)
+			dir = cacheManager.getDirectory(false);
+		return new File(dir, DIRECTORY_NAME);
+	}
+
+	private static int getDefaultThreadCount() {
+		return Math.max(1,
+				Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	private static final int DISK_FORMAT_VERSION = 1;
+
+	protected final ThumbnailGenerator generator;
+	protected final File directory;
+	protected final long memoryLimit;
+
+	private final ExecutorService executor;
+	private final Map<Key, Request> pendingRequests = new ConcurrentHashMap<>();
+	private final LinkedHashMap<Key, Entry> memoryCache = new LinkedHashMap<>(
+			16, .75f, true);
+	private long memoryCacheSize = 0;
+
+	/**
+	 * Create a ThumbnailService that caches thumbnails in the thumbnail
+	 * directory of a CacheManager.
+	 *
+	 * @param generator
+	 *            the generator used to create thumbnails.
+	 * @param cacheManager
+	 *            the CacheManager that provides the directory thumbnails are
+	 *            written to.
+	 */
+	public ThumbnailService(ThumbnailGenerator generator,
+			CacheManager cacheManager) {
+		this(generator, getDefaultThreadCount(), MEMORY_LIMIT_DEFAULT,
+				getDirectory(cacheManager));
+	}
+
+	/**
+	 * Create a ThumbnailService.
+	 *
+	 * @param generator
+	 *            the generator used to create thumbnails.
+	 * @param threadCount
+	 *            the maximum number of thumbnails that are generated
+	 *            simultaneously.
+	 * @param memoryLimit
+	 *            the maximum number of bytes the in-memory cache may occupy.
+	 * @param directory
+	 *            the optional directory thumbnails are written to. If this is
+	 *            null then thumbnails are only cached in memory.
+	 */
+	public ThumbnailService(ThumbnailGenerator generator, int threadCount,
+			long memoryLimit, File directory) {
+		Objects.requireNonNull(generator);
+		if (threadCount <= 0)
+			throw new IllegalArgumentException(
+					"threadCount (" + threadCount + ") must be positive");
+		if (memoryLimit < 0)
+			throw new IllegalArgumentException(
+					"memoryLimit (" + memoryLimit + ") must not be negative");
+		this.generator = generator;
+		this.memoryLimit = memoryLimit;
+		this.directory = directory;
+
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount,
+				threadCount, 5, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					int ctr = 0;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread t = new Thread(r,
+								"ThumbnailService-" + (ctr++));
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		pool.allowCoreThreadTimeOut(true);
+		executor = pool;
+	}
+
+	/**
+	 * Return the ThumbnailGenerator this service uses.
+	 */
+	public ThumbnailGenerator getGenerator() {
+		return generator;
+	}
+
+	/**
+	 * Return the optional directory this service writes thumbnails to.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Return a thumbnail immediately if it is cached in memory, or null
+	 * otherwise. (This also returns null if the generator is known to fail for
+	 * this file.) This never consults the disk or the generator.
+	 */
+	public BufferedImage getCachedThumbnail(File file, int requestedMaxSize) {
+		Key key = new Key(file, requestedMaxSize);
+		Entry entry = getMemoryEntry(key);
+		return entry == null ? null : entry.image;
+	}
+
+	/**
+	 * Request a thumbnail.
+	 * <p>
+	 * If this thumbnail is already cached in memory then this returns a
+	 * completed Future. Otherwise this returns a Future that is shared with
+	 * every other pending request for the same file and size.
+	 * <p>
+	 * The Future's value may be null if the generator could not create a
+	 * thumbnail. Failures are cached in memory like thumbnails, so the
+	 * generator isn't consulted again until the file changes.
+	 *
+	 * @param file
+	 *            the file to create a thumbnail of.
+	 * @param requestedMaxSize
+	 *            the maximum width/height of the thumbnail, as defined in
+	 *            {@link ThumbnailGenerator#createThumbnail(File, int)}.
+	 */
+	public Future<BufferedImage> requestThumbnail(File file,
+			int requestedMaxSize) {
+		Key key = new Key(file, requestedMaxSize);
+		Entry entry = getMemoryEntry(key);
+		if (entry != null)
+			return CompletableFuture.completedFuture(entry.image);
+		return request(key, true).task;
+	}
+
+	/**
+	 * Return a thumbnail, blocking until it is available.
+	 *
+	 * @see #requestThumbnail(File, int)
+	 */
+	public BufferedImage getThumbnail(File file, int requestedMaxSize)
+			throws Exception {
+		return getThumbnail(file, requestedMaxSize, null);
+	}
+
+	/**
+	 * Return a thumbnail, blocking until it is available or until a
+	 * Cancellable is cancelled.
+	 * <p>
+	 * If the Cancellable is cancelled then this returns null. If nobody else
+	 * is waiting for this thumbnail and it hasn't started yet then it is
+	 * removed from the queue. (A thumbnail that is already being generated
+	 * is allowed to finish, and is cached.)
+	 *
+	 * @param cancellable
+	 *            an optional Cancellable.
+	 * @see #requestThumbnail(File, int)
+	 */
+	public BufferedImage getThumbnail(File file, int requestedMaxSize,
+			Cancellable cancellable) throws Exception {
+		Key key = new Key(file, requestedMaxSize);
+		Entry entry = getMemoryEntry(key);
+		if (entry != null)
+			return entry.image;
+
+		Request request = request(key, cancellable == null);
+		try {
+			if (cancellable == null)
+				return request.task.get();
+			while (true) {
+				if (cancellable.isCancelled()) {
+					release(request);
+					return null;
+				}
+				try {
+					return request.task.get(50, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// poll the cancellable again
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw e;
+		}
+	}
+
+	/**
+	 * Return the pending Request for a key, creating and scheduling it if
+	 * necessary.
+	 *
+	 * @param permanent
+	 *            if true then the caller never releases its interest in this
+	 *            request, so it will not be cancelled. Otherwise the caller
+	 *            must call {@link #release(Request)} if it stops waiting.
+	 */
+	private Request request(Key key, boolean permanent) {
+		AtomicReference<Request> created = new AtomicReference<>();
+		Request request = pendingRequests.compute(key, (k, v) -> {
+			if (v == null || v.task.isCancelled()) {
+				v = new Request(k);
+				created.set(v);
+			}
+			if (permanent) {
+				v.permanent = true;
+			} else {
+				v.waiters++;
+			}
+			return v;
+		});
+		if (created.get() != null)
+			executor.execute(created.get().task);
+		return request;
+	}
+
+	/**
+	 * Give up on a request. If nobody else is waiting for it and it hasn't
+	 * started yet then it is cancelled.
+	 */
+	private void release(Request request) {
+		pendingRequests.computeIfPresent(request.key, (k, v) -> {
+			if (v != request)
+				return v;
+			v.waiters--;
+			if (v.waiters == 0 && !v.permanent && !v.started) {
+				v.task.cancel(false);
+				return null;
+			}
+			return v;
+		});
+	}
+
+	/**
+	 * Remove all thumbnails from memory. This does not affect thumbnails
+	 * stored on disk.
+	 */
+	public void clearMemory() {
+		synchronized (memoryCache) {
+			memoryCache.clear();
+			memoryCacheSize = 0;
+		}
+	}
+
+	/**
+	 * Return the approximate number of bytes the in-memory cache currently
+	 * occupies.
+	 */
+	public long getMemoryUsage() {
+		synchronized (memoryCache) {
+			return memoryCacheSize;
+		}
+	}
+
+	/**
+	 * Consult the disk cache and then the generator. This is invoked on a
+	 * thread from this service's pool.
+	 */
+	protected BufferedImage loadThumbnail(Key key) throws Exception {
+		File file = key.file;
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		// another request may have finished while we were queued
+		Entry entry = getMemoryEntry(key);
+		if (entry != null)
+			return entry.image;
+
+		BufferedImage bi = readDiskEntry(key, lastModified, length);
+		if (bi == null) {
+			bi = generator.createThumbnail(file, key.size);
+			if (bi != null)
+				writeDiskEntry(key, lastModified, length, bi);
+		}
+		putMemoryEntry(key, new Entry(bi, lastModified, length));
+		return bi;
+	}
+
+	private Entry getMemoryEntry(Key key) {
+		Entry entry;
+		synchronized (memoryCache) {
+			entry = memoryCache.get(key);
+		}
+		if (entry == null || entry.isValid(key.file))
+			return entry;
+
+		// the file changed
+		synchronized (memoryCache) {
+			if (memoryCache.remove(key, entry))
+				memoryCacheSize -= entry.byteCount;
+		}
+		return null;
+	}
+
+	private void putMemoryEntry(Key key, Entry entry) {
+		if (entry.byteCount > memoryLimit)
+			return;
+		synchronized (memoryCache) {
+			Entry oldEntry = memoryCache.put(key, entry);
+			if (oldEntry != null)
+				memoryCacheSize -= oldEntry.byteCount;
+			memoryCacheSize += entry.byteCount;
+
+			Iterator<Entry> iter = memoryCache.values().iterator();
+			while (memoryCacheSize > memoryLimit && iter.hasNext()) {
+				Entry eldest = iter.next();
+				iter.remove();
+				memoryCacheSize -= eldest.byteCount;
+			}
+		}
+	}
+
+	/**
+	 * Return the file a thumbnail is stored in on disk, or null if this
+	 * service does not use a disk cache.
+	 */
+	protected File getDiskFile(Key key) {
+		if (directory == null)
+			return null;
+		String name = getDigest(key.file.getPath()) + "-" + key.size
+				+ ".thumbnail";
+		return new File(directory, name);
+	}
+
+	/**
+	 * Return the hexadecimal SHA-1 digest of a String, so files with
+	 * different paths are practically guaranteed to use different names on
+	 * disk.
+	 */
+	private static String getDigest(String str) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] hash = digest.digest(str.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+				sb.append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-1
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Read a thumbnail from disk. If the cached thumbnail is unreadable or
+	 * describes a different version of the file then it is deleted and this
+	 * returns null.
+	 */
+	private BufferedImage readDiskEntry(Key key, long lastModified,
+			long length) {
+		File diskFile = getDiskFile(key);
+		if (diskFile == null || !diskFile.exists())
+			return null;
+		boolean valid = false;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(diskFile)))) {
+			if (in.readInt() != DISK_FORMAT_VERSION)
+				return null;
+			if (!in.readUTF().equals(key.file.getPath()))
+				return null;
+			if (in.readLong() != lastModified || in.readLong() != length)
+				return null;
+			BufferedImage bi = ImageIO.read(in);
+			valid = bi != null;
+			return bi;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if (!valid)
+				diskFile.delete();
+		}
+	}
+
+	private void writeDiskEntry(Key key, long lastModified, long length,
+			BufferedImage bi) {
+		File diskFile = getDiskFile(key);
+		if (diskFile == null)
+			return;
+		try {
+			if (!directory.exists())
+				FileUtils.mkdirs(directory);
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(diskFile)))) {
+				out.writeInt(DISK_FORMAT_VERSION);
+				out.writeUTF(key.file.getPath());
+				out.writeLong(lastModified);
+				out.writeLong(length);
+				ImageIO.write(bi, "png", out);
+			}
+		} catch (IOException e) {
+			// the disk cache is only an optimization
+			diskFile.delete();
+		}
+	}
+}
@@ -16,6 +16,7 @@ import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 
+import com.pump.geom.ImmutableShape;
 import com.pump.geom.RectangularTransform;
 import com.pump.geom.ShapeStringUtils;
 import com.pump.geom.ShapeUtils;
@@ -72,8 +73,10 @@ public class ScribbleTransition2D extends Transition2D {
 	 *            whether this transition is depicted in two scribbles or one.
 	 */
 	public ScribbleTransition2D(boolean twoPasses) {
-		scribble = ShapeStringUtils
-				.createGeneralPath("m -6.286 19.763 l 10.03 -2.175 l 2.183 58.034 l 24.854 -3.692 l 18.468 60.811 l 39.862 -5.543 l 35.711 58.651 l 53.273 -4.926 l 48.934 54.989 l 55.852 27.084 l 60.936 55.565 z");
+		// ImmutableShapes are cached by ShapeUtils.traceShape(..)
+		scribble = new ImmutableShape(
+				ShapeStringUtils
+						.createGeneralPath("m -6.286 19.763 l 10.03 -2.175 l 2.183 58.034 l 24.854 -3.692 l 18.468 60.811 l 39.862 -5.543 l 35.711 58.651 l 53.273 -4.926 l 48.934 54.989 l 55.852 27.084 l 60.936 55.565 z"));
 		this.twoPasses = twoPasses;
 		shapeBounds = new Rectangle2D.Float(0, 0, 60, 60);
 	}
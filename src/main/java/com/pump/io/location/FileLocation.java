@@ -10,6 +10,8 @@
  */
 package com.pump.io.location;
 
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -22,6 +24,8 @@ import java.net.URL;
 import javax.swing.Icon;
 import javax.swing.SwingUtilities;
 
+import com.pump.image.pixel.Scaling;
+import com.pump.image.thumbnail.ThumbnailService;
 import com.pump.io.IOUtils;
 import com.pump.io.icon.FileIcon;
 import com.pump.swing.BasicCancellable;
@@ -292,6 +296,43 @@ public class FileLocation extends CachedLocation {
 		return iconWrapper[0];
 	}
 
+	@Override
+	protected BufferedImage createUnframedThumbnail(Dimension maxSize) {
+		return createUnframedThumbnail(maxSize, null);
+	}
+
+	/**
+	 * This delegates to the shared {@link ThumbnailService}, so thumbnails are
+	 * generated on a bounded thread pool and cached across requests (and
+	 * across sessions, if the CacheManager has been initialized). If the
+	 * service can't create a thumbnail then this returns null. (The service's
+	 * generator already covers the formats the default implementation reads,
+	 * and it remembers failures, so the file is not decoded again.)
+	 * <p>
+	 * If the Cancellable is cancelled this stops waiting, and the service
+	 * drops the request if it hasn't started yet.
+	 */
+	@Override
+	protected BufferedImage createUnframedThumbnail(Dimension maxSize,
+			Cancellable cancellable) {
+		if (isDirectory() || !canRead())
+			return null;
+		BufferedImage bi;
+		try {
+			bi = ThumbnailService.get().getThumbnail(file,
+					Math.max(maxSize.width, maxSize.height), cancellable);
+		} catch (Exception e) {
+			bi = null;
+		}
+		if (bi == null)
+			return null;
+
+		// the service only constrains the larger side, so fit both sides:
+		if (bi.getWidth() > maxSize.width || bi.getHeight() > maxSize.height)
+			bi = Scaling.scaleProportionally(bi, maxSize);
+		return bi;
+	}
+
 	@Override
 	protected void doListChildren(Receiver<IOLocation> receiver,
 			Cancellable cancellable) {
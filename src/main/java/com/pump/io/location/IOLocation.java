@@ -428,7 +428,7 @@ public abstract class IOLocation {
 			return null;
 
 		Dimension d = new Dimension(maxSize.width * 2, maxSize.height * 2);
-		BufferedImage bi = createUnframedThumbnail(d);
+		BufferedImage bi = createUnframedThumbnail(d, cancellable);
 		if (bi == null && isDirectory()) {
 			return createDirectoryThumbnail(maxSize, cancellable);
 		} else if (bi == null) {
@@ -637,6 +637,16 @@ public abstract class IOLocation {
 		return image;
 	}
 
+	/**
+	 * Create a thumbnail, aborting early if possible when the Cancellable is
+	 * cancelled. By default this ignores the Cancellable and calls
+	 * {@link #createUnframedThumbnail(Dimension)}.
+	 */
+	protected BufferedImage createUnframedThumbnail(Dimension maxSize,
+			Cancellable cancellable) {
+		return createUnframedThumbnail(maxSize);
+	}
+
 	protected BufferedImage createUnframedThumbnail(Dimension maxSize) {
 		if (isDirectory() == true || canRead() == false)
 			return null;
@@ -21,14 +21,18 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 /**
  * This manages a queue of {@link com.pump.job.Job} objects. Jobs are first
- * sorted by priority, and then handled on a FIFO basis. If a job is next in
+ * sorted by priority, and then handled on a FIFO basis (or a LIFO basis, if
+ * this manager was constructed that way). If a job is next in
  * line but is classified as being dependent on other (unfinished) jobs, then it
  * is skipped until those jobs are processed.
  * <p>
@@ -36,7 +40,8 @@ import javax.swing.event.ChangeListener;
  * <p>
  * This relies on the <code>java.util.concurrent.Executor</code> and related
  * classes, but it offers more useful feedback to help keep UIs up-to-date.
- *
+ * The worker threads are daemon threads, and they expire when they have been
+ * idle for a few seconds.
  */
 public class JobManager {
 	/**
@@ -194,13 +199,60 @@ public class JobManager {
 			reverseIntComparator);
 	private final Set<Job> active = new HashSet<Job>();
 	private final int threadCount;
+	private final boolean lastInFirstOut;
 	private final Map<String, Job> jobsByReplacementId = new HashMap<>();
 
 	transient List<Listener> listeners;
 	transient ExecutorService service;
 
 	public JobManager(int threadCount) {
+		this(threadCount, false);
+	}
+
+	/**
+	 * @param threadCount
+	 *            the number of threads used to execute jobs.
+	 * @param lastInFirstOut
+	 *            if true then among jobs of the same priority the most
+	 *            recently added job is executed first.
+	 */
+	public JobManager(int threadCount, boolean lastInFirstOut) {
 		this.threadCount = threadCount;
+		this.lastInFirstOut = lastInFirstOut;
+	}
+
+	/**
+	 * Add a job to the list of pending jobs with the same priority.
+	 */
+	private void enqueue(Job job) {
+		Integer key = Integer.valueOf(job.getPriority());
+		List<Job> list = queue.get(key);
+		if (list == null) {
+			list = new LinkedList<Job>();
+			queue.put(key, list);
+		}
+		if (lastInFirstOut) {
+			list.add(0, job);
+		} else {
+			list.add(job);
+		}
+	}
+
+	private ExecutorService createExecutorService() {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threadCount,
+				threadCount, 5, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					int ctr = 0;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "JobManager-" + (ctr++));
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
 	}
 
 	/** Return the next Job that should be executed. */
@@ -315,15 +367,9 @@ public class JobManager {
 						oldJob.cancel();
 					jobsByReplacementId.put(replacementId, job);
 				}
-				Integer key = new Integer(job.getPriority());
-				List<Job> list = queue.get(key);
-				if (list == null) {
-					list = new LinkedList<Job>();
-					queue.put(key, list);
-				}
-				list.add(job);
+				enqueue(job);
 				if (service == null)
-					service = Executors.newFixedThreadPool(threadCount);
+					service = createExecutorService();
 				service.execute(processQueueRunnable);
 			}
 		}
@@ -438,6 +484,33 @@ public class JobManager {
 		}
 	}
 
+	/**
+	 * Change the priority of a pending job. The job is moved in the queue to
+	 * where a newly added job of that priority would be. If the priority
+	 * doesn't change then the job keeps its place in the queue.
+	 *
+	 * @return true if the job was found in the pending queue, false otherwise.
+	 *         (It might already be executing, or have otherwise finished.) If
+	 *         this returns false then the job is not modified.
+	 */
+	public boolean setPriority(Job job, int priority) {
+		synchronized (queue) {
+			Integer oldKey = Integer.valueOf(job.getPriority());
+			List<Job> oldList = queue.get(oldKey);
+			if (oldList == null || !oldList.contains(job))
+				return false;
+			if (oldKey.intValue() == priority)
+				return true;
+
+			oldList.remove(job);
+			if (oldList.isEmpty())
+				queue.remove(oldKey);
+			job.setPriority(priority);
+			enqueue(job);
+			return true;
+		}
+	}
+
 	private synchronized void fireErrorListener(Job job, Throwable t) {
 		if (listeners == null)
 			return;
@@ -18,10 +18,12 @@ import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.Icon;
 
@@ -42,10 +44,9 @@ public class GraphicCache {
 
 	List<ActionListener> exceptionHandlers = new ArrayList<ActionListener>();
 	final Map<IOLocation, Icon> icons = new HashMap<>();
-	final Map<IOLocation, BufferedImage> thumbnails = new HashMap<>();
+	final Map<IOLocation, BufferedImage> thumbnails = new ConcurrentHashMap<>();
 
 	final List<IOLocation> requestIconList = new ArrayList<IOLocation>();
-	final List<IOLocation> requestThumbnailList = new ArrayList<IOLocation>();
 	final List<PropertyChangeListener> propertyListeners = new ArrayList<PropertyChangeListener>();
 	Dimension thumbnailSize = new Dimension(64, 64);
 
@@ -119,33 +120,36 @@ public class GraphicCache {
 		}
 	};
 
-	final Thread[] thumbnailThreads = new Thread[3];
-
-	final Runnable thumbnailRunnable = new Runnable() {
-		public void run() {
-			while (true) {
-				IOLocation loc = null;
-				synchronized (requestThumbnailList) {
-					if (requestThumbnailList.size() == 0)
-						return;
+	/**
+	 * This creates thumbnails, giving priority to the locations that are
+	 * currently visible.
+	 * 
+	 * @see #setVisibleLocations(Collection)
+	 */
+	final ThumbnailScheduler thumbnailScheduler = new ThumbnailScheduler(3) {
 
-					loc = requestThumbnailList.remove(requestThumbnailList
-							.size() - 1);
-				}
-				Cancellable myCancellable = cancellable;
-				BufferedImage image = null;
-				try {
-					image = loc.getThumbnail(thumbnailSize, myCancellable);
-				} catch (Throwable t) {
-					handleUncaughtException(t);
-				}
-				if (image != null) {
-					thumbnails.put(loc, image);
-					firePropertyChangeListener(THUMBNAIL_PROPERTY, loc, null,
-							image);
-				} else if (myCancellable.isCancelled() == false) {
+		@Override
+		protected BufferedImage createThumbnail(IOLocation loc,
+				Cancellable cancellable) {
+			try {
+				BufferedImage image = loc.getThumbnail(thumbnailSize,
+						cancellable);
+				if (image == null && cancellable.isCancelled() == false) {
 					noThumbnails.add(loc.toString());
 				}
+				return image;
+			} catch (Throwable t) {
+				handleUncaughtException(t);
+				return null;
+			}
+		}
+
+		@Override
+		protected void thumbnailCreated(IOLocation loc, BufferedImage image) {
+			if (image != null) {
+				thumbnails.put(loc, image);
+				firePropertyChangeListener(THUMBNAIL_PROPERTY, loc, null,
+						image);
 			}
 		}
 	};
@@ -228,32 +232,27 @@ public class GraphicCache {
 	 * the <code>IOLocation</code> as the source.
 	 */
 	public BufferedImage requestThumbnail(IOLocation loc) {
-		synchronized (requestThumbnailList) {
-			BufferedImage thumbnail = thumbnails.get(loc);
-			if (thumbnail != null)
-				return thumbnail;
+		BufferedImage thumbnail = thumbnails.get(loc);
+		if (thumbnail != null)
+			return thumbnail;
 
-			if (noThumbnails.contains(loc.toString()))
-				return null;
+		if (noThumbnails.contains(loc.toString()))
+			return null;
 
-			int i = requestThumbnailList.indexOf(loc);
-			if (i != -1)
-				requestThumbnailList.remove(i);
-			requestThumbnailList.add(loc);
+		thumbnailScheduler.request(loc);
+		return null;
+	}
 
-			// guarantee the thread(s) are active:
-			int requestedThreads = Math.min(requestThumbnailList.size(),
-					thumbnailThreads.length);
-			for (int a = 0; a < requestedThreads; a++) {
-				if (thumbnailThreads[a] == null
-						|| thumbnailThreads[a].isAlive() == false) {
-					thumbnailThreads[a] = new Thread(thumbnailRunnable,
-							"Thumbnail Fetcher " + a);
-					thumbnailThreads[a].start();
-				}
-			}
-			return null;
-		}
+	/**
+	 * Identify the locations that are currently visible. Pending thumbnail
+	 * requests for other locations are postponed, and thumbnails that are
+	 * currently being created for other locations are cancelled.
+	 * <p>
+	 * Components that display a large number of locations should call this
+	 * whenever they scroll.
+	 */
+	public void setVisibleLocations(Collection<IOLocation> locations) {
+		thumbnailScheduler.setVisibleLocations(locations);
 	}
 
 	/**
@@ -291,15 +290,13 @@ public class GraphicCache {
 	}
 
 	public void clear() {
-		synchronized (requestThumbnailList) {
-			synchronized (requestIconList) {
-				thumbnails.clear();
-				icons.clear();
-				requestThumbnailList.clear();
-				requestIconList.clear();
-				cancellable.cancel();
-				cancellable = new BasicCancellable();
-			}
+		synchronized (requestIconList) {
+			thumbnailScheduler.cancelAll();
+			thumbnails.clear();
+			icons.clear();
+			requestIconList.clear();
+			cancellable.cancel();
+			cancellable = new BasicCancellable();
 		}
 	}
 }
\ No newline at end of file
@@ -33,11 +33,14 @@ import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JToolTip;
+import javax.swing.JViewport;
 import javax.swing.ListCellRenderer;
 import javax.swing.ListModel;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 import com.pump.io.location.IOLocation;
 import com.pump.io.location.IOLocationFilter;
@@ -149,6 +152,18 @@ public class IOLocationTileList extends JList<IOLocation> {
 		}
 	};
 
+	/**
+	 * When the viewport scrolls this tells the GraphicCache which locations
+	 * are visible, so offscreen thumbnails are postponed or cancelled.
+	 */
+	private ChangeListener viewportListener = new ChangeListener() {
+		public void stateChanged(ChangeEvent e) {
+			updateVisibleLocations();
+		}
+	};
+
+	private JViewport viewport;
+
 	IOLocationFilter filter = null;
 	List<NavigationListener<IOLocation>> listeners = new ArrayList<NavigationListener<IOLocation>>();
 
@@ -214,6 +229,45 @@ public class IOLocationTileList extends JList<IOLocation> {
 		addMouseListener(commitMouseListener);
 	}
 
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		if (getParent() instanceof JViewport) {
+			viewport = (JViewport) getParent();
+			viewport.addChangeListener(viewportListener);
+		}
+	}
+
+	@Override
+	public void removeNotify() {
+		if (viewport != null) {
+			viewport.removeChangeListener(viewportListener);
+			viewport = null;
+		}
+		super.removeNotify();
+	}
+
+	/**
+	 * Pass the locations that are currently visible to the GraphicCache. This
+	 * is called automatically when this list is inside a scrolling viewport.
+	 */
+	protected void updateVisibleLocations() {
+		ListCellRenderer<? super IOLocation> r = getCellRenderer();
+		if (!(r instanceof BasicTileCellRenderer))
+			return;
+		List<IOLocation> visibleLocations = new ArrayList<>();
+		int first = getFirstVisibleIndex();
+		int last = getLastVisibleIndex();
+		ListModel<IOLocation> m = getModel();
+		if (first != -1) {
+			for (int index = first; index <= last && index < m.getSize(); index++) {
+				visibleLocations.add(m.getElementAt(index));
+			}
+		}
+		((BasicTileCellRenderer) r).getGraphicCache()
+				.setVisibleLocations(visibleLocations);
+	}
+
 	public IOLocationFilter getFilter() {
 		return filter;
 	}
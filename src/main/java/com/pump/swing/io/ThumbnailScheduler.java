@@ -0,0 +1,175 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.swing.io;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.pump.io.location.IOLocation;
+import com.pump.job.Job;
+import com.pump.job.JobManager;
+import com.pump.swing.Cancellable;
+
+/**
+ * This schedules thumbnail requests for <code>IOLocations</code> so that the
+ * locations currently on screen are processed first.
+ * <p>
+ * Each request is a {@link Job} handled by a {@link JobManager}. Requests for
+ * visible locations are queued at {@link Job#PRIORITY_HIGH}. When
+ * {@link #setVisibleLocations(Collection)} is called: pending requests for
+ * locations that are no longer visible are demoted to
+ * {@link Job#PRIORITY_LOW}, and requests that are already executing for those
+ * locations are cancelled. (The job is the <code>Cancellable</code> passed to
+ * {@link #createThumbnail(IOLocation, Cancellable)}, so a well-behaved
+ * implementation will abort its work.)
+ */
+public abstract class ThumbnailScheduler {
+
+	class ThumbnailJob extends Job {
+		final IOLocation location;
+		volatile boolean started = false;
+
+		ThumbnailJob(IOLocation location, int priority) {
+			super(priority);
+			this.location = location;
+			setName("Thumbnail " + location.getName());
+		}
+
+		@Override
+		protected void runJob() throws Exception {
+			started = true;
+			try {
+				if (isCancelled())
+					return;
+				BufferedImage image = createThumbnail(location, this);
+				if (!isCancelled())
+					thumbnailCreated(location, image);
+			} finally {
+				synchronized (jobs) {
+					if (jobs.get(location) == this)
+						jobs.remove(location);
+				}
+			}
+		}
+	}
+
+	protected final JobManager jobManager;
+	private final Map<IOLocation, ThumbnailJob> jobs = new HashMap<>();
+	private Set<IOLocation> visibleLocations = new HashSet<>();
+
+	/**
+	 * @param threadCount
+	 *            the number of threads used to create thumbnails.
+	 */
+	public ThumbnailScheduler(int threadCount) {
+		jobManager = new JobManager(threadCount, true);
+	}
+
+	/**
+	 * Request a thumbnail for a location. Requests are assumed to come from
+	 * renderers that are painting the location, so the location is treated
+	 * as visible until the next call to
+	 * {@link #setVisibleLocations(Collection)}.
+	 * <p>
+	 * Among visible locations the most recent request is handled first. If
+	 * this location is already pending then it is promoted to a high priority
+	 * and moved to the front of the queue.
+	 */
+	public void request(IOLocation loc) {
+		synchronized (jobs) {
+			visibleLocations.add(loc);
+			ThumbnailJob job = jobs.get(loc);
+			if (job != null && !job.isCancelled()) {
+				jobManager.setPriority(job, Job.PRIORITY_HIGH);
+				return;
+			}
+			job = new ThumbnailJob(loc, Job.PRIORITY_HIGH);
+			jobs.put(loc, job);
+			jobManager.addJob(job);
+		}
+	}
+
+	/**
+	 * Identify the locations that are currently visible. Pending requests for
+	 * these locations are promoted, pending requests for other locations are
+	 * demoted, and active requests for other locations are cancelled.
+	 */
+	public void setVisibleLocations(Collection<IOLocation> locations) {
+		synchronized (jobs) {
+			visibleLocations = new HashSet<>(locations);
+			List<IOLocation> cancelled = new ArrayList<>();
+			for (ThumbnailJob job : jobs.values()) {
+				if (visibleLocations.contains(job.location)) {
+					if (job.getPriority() != Job.PRIORITY_HIGH)
+						jobManager.setPriority(job, Job.PRIORITY_HIGH);
+				} else if (job.started) {
+					job.cancel();
+					cancelled.add(job.location);
+				} else if (job.getPriority() != Job.PRIORITY_LOW) {
+					jobManager.setPriority(job, Job.PRIORITY_LOW);
+				}
+			}
+			for (IOLocation loc : cancelled) {
+				jobs.remove(loc);
+			}
+		}
+	}
+
+	/**
+	 * Return true if a location is visible, as defined by the last call to
+	 * {@link #setVisibleLocations(Collection)} and subsequent calls to
+	 * {@link #request(IOLocation)}.
+	 */
+	public boolean isVisible(IOLocation loc) {
+		synchronized (jobs) {
+			return visibleLocations.contains(loc);
+		}
+	}
+
+	/**
+	 * Cancel all pending and active requests.
+	 */
+	public void cancelAll() {
+		synchronized (jobs) {
+			for (ThumbnailJob job : jobs.values()) {
+				job.cancel();
+			}
+			jobs.clear();
+		}
+	}
+
+	/**
+	 * Create a thumbnail. This is invoked on one of the JobManager's threads.
+	 *
+	 * @param loc
+	 *            the location to create a thumbnail for.
+	 * @param cancellable
+	 *            this is cancelled if the location scrolls out of view.
+	 *            Implementations should consult this periodically and return
+	 *            early if possible.
+	 * @return a thumbnail, or null if none is available.
+	 */
+	protected abstract BufferedImage createThumbnail(IOLocation loc,
+			Cancellable cancellable) throws Exception;
+
+	/**
+	 * This is notified when a thumbnail request finishes without being
+	 * cancelled. The image may be null.
+	 */
+	protected abstract void thumbnailCreated(IOLocation loc,
+			BufferedImage image);
+}
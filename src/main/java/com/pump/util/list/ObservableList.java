@@ -928,7 +928,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 	public void clear() {
 		acquireWriteLock(true);
 		try {
-			RemoveElementsOperation op = new RemoveElementsOperation(toArray());
+			ClearOperation op = new ClearOperation();
 			op.execute();
 			op.notifyListeners();
 		} finally {
@@ -1180,6 +1180,48 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	}
 
+	/**
+	 * This removes every element. Unlike a RemoveElementsOperation this
+	 * doesn't search for each element, so it is linear and it reports
+	 * accurate indices for multiple equivalent objects.
+	 */
+	class ClearOperation extends Operation {
+
+		TreeMap<Integer, T> removedElements;
+
+		public ClearOperation() {
+			if (listenerManager.containsListListener()) {
+				removedElements = new TreeMap<>();
+				for (int index = 0; index < data.size(); index++) {
+					removedElements.put(index, data.get(index));
+				}
+			}
+		}
+
+		@Override
+		Boolean execute() {
+			if (data.isEmpty()) {
+				setNullOp();
+				return false;
+			}
+			data.clear();
+			modCount.incrementAndGet();
+			return true;
+		}
+
+		@Override
+		void notifyListListener(ListListener<T> listener) {
+			if (removedElements == null) {
+				// this should never happen
+				throw new IllegalStateException();
+			}
+
+			listener.elementsRemoved(new RemoveElementsEvent<T>(
+					ObservableList.this, removedElements));
+		}
+
+	}
+
 	class ReplaceAllOperation extends Operation {
 		Collection<T> newElements;
 		List<T> newElementsAsList;
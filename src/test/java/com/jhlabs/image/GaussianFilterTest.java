@@ -0,0 +1,105 @@
+package com.jhlabs.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Kernel;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class GaussianFilterTest extends TestCase {
+
+	private BufferedImage createImage(int width, int height) {
+		BufferedImage bi = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(0);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				bi.setRGB(x, y, random.nextInt());
+			}
+		}
+		return bi;
+	}
+
+	private void assertImageEquals(BufferedImage expected,
+			BufferedImage actual) {
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+	/**
+	 * The multithreaded passes should produce exactly the same pixels as the
+	 * single-threaded passes.
+	 */
+	@Test
+	public void testParallel() {
+		BufferedImage src = createImage(61, 47);
+		float[] boxMatrix = { 0, .2f, 0, .2f, .2f, .2f, 0, .2f, 0 };
+
+		GaussianFilter gaussian = new GaussianFilter(5);
+		ConvolveFilter box = new ConvolveFilter(boxMatrix);
+		gaussian.parallelPixelThreshold = Integer.MAX_VALUE;
+		box.parallelPixelThreshold = Integer.MAX_VALUE;
+		BufferedImage gaussian1 = gaussian.filter(src, null);
+		BufferedImage box1 = box.filter(src, null);
+
+		gaussian.parallelPixelThreshold = 1;
+		box.parallelPixelThreshold = 1;
+		BufferedImage gaussian2 = gaussian.filter(src, null);
+		BufferedImage box2 = box.filter(src, null);
+
+		assertImageEquals(gaussian1, gaussian2);
+		assertImageEquals(box1, box2);
+	}
+
+	/**
+	 * Convolving a series of row bands should match convolving the whole
+	 * image at once. (This is tested separately because on a single-core
+	 * machine the filters never take the multithreaded path.)
+	 */
+	@Test
+	public void testBands() {
+		int width = 40, height = 33;
+		BufferedImage src = createImage(width, height);
+		int[] inPixels = src.getRGB(0, 0, width, height, null, 0, width);
+		float[][] kernels = { { .25f, .5f, .25f }, { .2f, .2f, .2f, .2f, .2f },
+				{ 0, .2f, 0, .2f, .2f, .2f, 0, .2f, 0 } };
+		int[][] sizes = { { 3, 1 }, { 1, 5 }, { 3, 3 } };
+		for (int a = 0; a < kernels.length; a++) {
+			Kernel kernel = new Kernel(sizes[a][0], sizes[a][1], kernels[a]);
+			int[] expected = new int[width * height];
+			ConvolveFilter.convolve(kernel, inPixels, expected, width, height,
+					true, ConvolveFilter.CLAMP_EDGES);
+			int[] actual = new int[width * height];
+			for (int y = 0; y < height; y += 7) {
+				ConvolveFilter.convolve(kernel, inPixels, actual, width,
+						height, true, ConvolveFilter.CLAMP_EDGES, y,
+						Math.min(height, y + 7));
+			}
+			assertTrue(Arrays.equals(expected, actual));
+		}
+
+		Kernel kernel = GaussianFilter.getKernel(4);
+		int[] expected = new int[width * height];
+		GaussianFilter.convolveAndTranspose(kernel, inPixels, expected, width,
+				height, true, ConvolveFilter.CLAMP_EDGES);
+		int[] actual = new int[width * height];
+		for (int y = 0; y < height; y += 5) {
+			GaussianFilter.convolveAndTranspose(kernel, inPixels, actual,
+					width, height, true, ConvolveFilter.CLAMP_EDGES, y,
+					Math.min(height, y + 5));
+		}
+		assertTrue(Arrays.equals(expected, actual));
+	}
+
+	@Test
+	public void testKernelCache() {
+		assertSame(GaussianFilter.getKernel(3.5f),
+				GaussianFilter.getKernel(3.5f));
+	}
+}
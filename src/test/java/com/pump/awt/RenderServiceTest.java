@@ -0,0 +1,122 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.awt;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.MultiResolutionImage;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.pump.icon.GearIcon;
+
+import junit.framework.TestCase;
+
+public class RenderServiceTest extends TestCase {
+
+	static class SquarePaintable implements Paintable {
+		final AtomicInteger paintCount = new AtomicInteger();
+		CountDownLatch latch;
+
+		@Override
+		public int getWidth() {
+			return 10;
+		}
+
+		@Override
+		public int getHeight() {
+			return 10;
+		}
+
+		@Override
+		public void paint(Graphics2D g) {
+			try {
+				if (latch != null)
+					latch.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			paintCount.incrementAndGet();
+			g.setColor(Color.red);
+			g.fillRect(0, 0, 10, 10);
+		}
+	}
+
+	/**
+	 * Test that overlapping requests are rendered once, and that later
+	 * requests come from the cache.
+	 */
+	@Test
+	public void testDedupeAndCache() throws Exception {
+		RenderService service = new RenderService(2,
+				RenderService.MEMORY_LIMIT_DEFAULT);
+		SquarePaintable p = new SquarePaintable();
+		p.latch = new CountDownLatch(1);
+		Future<BufferedImage> f1 = service.requestImage(p, 20, 30, 1);
+		Future<BufferedImage> f2 = service.requestImage(p, 20, 30, 1);
+		assertSame(f1, f2);
+		p.latch.countDown();
+
+		BufferedImage bi = f1.get();
+		assertEquals(20, bi.getWidth());
+		assertEquals(30, bi.getHeight());
+		assertEquals(0xffff0000, bi.getRGB(19, 29));
+		assertSame(bi, service.getImage(p, 20, 30, 1));
+		assertEquals(1, p.paintCount.get());
+		assertEquals(20 * 30 * 4, service.getMemoryUsage());
+
+		// equal icons share the same cache entry:
+		BufferedImage gear = service.getImage(new GearIcon(12, Color.gray), 2);
+		assertEquals(24, gear.getWidth());
+		assertSame(gear,
+				service.getImage(new GearIcon(12, Color.gray), 2));
+	}
+
+	@Test
+	public void testMultiResolution() throws Exception {
+		RenderService service = new RenderService(2,
+				RenderService.MEMORY_LIMIT_DEFAULT);
+		SquarePaintable p = new SquarePaintable();
+		MultiResolutionImage mri = service.requestImages(p, 10, 10, 1, 1.5, 2)
+				.get();
+		List<Image> variants = mri.getResolutionVariants();
+		assertEquals(3, variants.size());
+		assertEquals(10, variants.get(0).getWidth(null));
+		assertEquals(15, variants.get(1).getWidth(null));
+		assertEquals(20, variants.get(2).getWidth(null));
+		assertEquals(3, p.paintCount.get());
+
+		assertSame(variants.get(2), service.getImage(p, 10, 10, 2));
+		assertEquals(3, p.paintCount.get());
+	}
+
+	@Test
+	public void testMemoryLimit() throws Exception {
+		RenderService service = new RenderService(1, 2 * 10 * 10 * 4);
+		SquarePaintable p = new SquarePaintable();
+		BufferedImage bi1 = service.getImage(p, 10, 10, 1);
+		service.getImage(p, 10, 11, 1);
+		// the first image was evicted to make room for the second:
+		assertEquals(10 * 11 * 4, service.getMemoryUsage());
+		assertNotSame(bi1, service.getImage(p, 10, 10, 1));
+		assertEquals(3, p.paintCount.get());
+
+		service.clearMemory();
+		assertEquals(0, service.getMemoryUsage());
+	}
+}
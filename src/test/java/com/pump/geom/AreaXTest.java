@@ -0,0 +1,83 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.pump.geom.area.AreaXBody;
+
+import junit.framework.TestCase;
+
+public class AreaXTest extends TestCase {
+
+	/**
+	 * Queries should see the results of pending operations, and the body
+	 * should only be replaced when the area changes.
+	 */
+	@Test
+	public void testSnapshots() {
+		AreaX area = new AreaX();
+		area.add(new Rectangle(0, 0, 10, 10));
+		assertTrue(area.contains(5, 5));
+		AreaXBody body = area.getBody();
+		assertSame(body, area.getBody());
+
+		area.subtract(new Rectangle(0, 0, 10, 5));
+		assertFalse(area.contains(5, 2));
+		assertTrue(area.contains(5, 7));
+		assertNotSame(body, area.getBody());
+		assertTrue(body.contains(5, 2));
+
+		area.reset();
+		assertTrue(area.isEmpty());
+	}
+
+	/**
+	 * Several threads can query an area while another thread modifies it.
+	 */
+	@Test
+	public void testConcurrentReads() throws Exception {
+		final AreaX area = new AreaX(new Rectangle(0, 0, 100, 100));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int a = 0; a < 4; a++) {
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						for (int b = 0; b < 2000; b++) {
+							// this point is never removed
+							assertTrue(area.contains(1, 1));
+							assertTrue(area.intersects(0, 0, 3, 3));
+						}
+					}
+				}));
+			}
+			for (int a = 0; a < 50; a++) {
+				area.subtract(new Ellipse2D.Float(10 + a, 10 + a, 20, 20));
+				area.getBounds2D();
+			}
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * This compares the size and speed of {@link BinaryPathCodec} with the text
+ * format used by {@link ShapeStringUtils}.
+ * <p>
+ * This is not a unit test; run it as an application.
+ */
+public class BinaryPathCodecBenchmark {
+
+	public static void main(String[] args) {
+		Shape shape = BinaryPathCodecTest.createShape(new Random(0), 100000);
+		int repeat = 10;
+
+		// warm up:
+		for (int a = 0; a < 3; a++) {
+			runText(shape);
+			runBinary(shape);
+		}
+
+		long[] text = new long[3];
+		long[] binary = new long[3];
+		for (int a = 0; a < repeat; a++) {
+			long[] t = runText(shape);
+			long[] b = runBinary(shape);
+			for (int c = 0; c < 3; c++) {
+				text[c] += t[c];
+				binary[c] += b[c];
+			}
+		}
+
+		System.out.println("Text:   " + text[2] / repeat + " bytes, encode "
+				+ text[0] / repeat / 1000000 + " ms, decode " + text[1]
+				/ repeat / 1000000 + " ms");
+		System.out.println("Binary: " + binary[2] / repeat
+				+ " bytes, encode " + binary[0] / repeat / 1000000
+				+ " ms, decode " + binary[1] / repeat / 1000000 + " ms");
+	}
+
+	/**
+	 * @return the nanoseconds to encode, the nanoseconds to decode, and the
+	 *         number of bytes.
+	 */
+	private static long[] runText(Shape shape) {
+		long t0 = System.nanoTime();
+		String str = ShapeStringUtils.toString(shape);
+		long t1 = System.nanoTime();
+		consume(ShapeStringUtils.createPathIterator(str));
+		long t2 = System.nanoTime();
+		return new long[] { t1 - t0, t2 - t1, str.length() };
+	}
+
+	private static long[] runBinary(Shape shape) {
+		long t0 = System.nanoTime();
+		byte[] data = BinaryPathCodec.encode(shape);
+		long t1 = System.nanoTime();
+		consume(BinaryPathCodec.createPathIterator(ByteBuffer.wrap(data)));
+		long t2 = System.nanoTime();
+		return new long[] { t1 - t0, t2 - t1, data.length };
+	}
+
+	private static void consume(PathIterator i) {
+		Path2D p = new Path2D.Float();
+		p.append(i, false);
+		if (p.getCurrentPoint() == null)
+			throw new RuntimeException();
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class BinaryPathCodecTest extends TestCase {
+
+	static Path2D createShape(Random random, int segments) {
+		Path2D p = new Path2D.Double(random.nextBoolean() ? Path2D.WIND_EVEN_ODD
+				: Path2D.WIND_NON_ZERO);
+		p.moveTo(random.nextDouble() * 1000, random.nextDouble() * 1000);
+		for (int a = 0; a < segments; a++) {
+			int k = random.nextInt(5);
+			if (k == 0) {
+				p.lineTo(random.nextDouble() * 1000, random.nextDouble() * 1000);
+			} else if (k == 1) {
+				p.quadTo(random.nextDouble() * 1000,
+						random.nextDouble() * 1000,
+						random.nextDouble() * 1000, random.nextDouble() * 1000);
+			} else if (k == 2) {
+				p.curveTo(random.nextDouble() * 1000,
+						random.nextDouble() * 1000,
+						random.nextDouble() * 1000,
+						random.nextDouble() * 1000,
+						random.nextDouble() * 1000, random.nextDouble() * 1000);
+			} else if (k == 3) {
+				p.closePath();
+				p.moveTo(random.nextDouble() * 1000,
+						random.nextDouble() * 1000);
+			} else {
+				p.lineTo(-random.nextDouble() * 1000,
+						-random.nextDouble() * 1000);
+			}
+		}
+		return p;
+	}
+
+	private void assertSimilar(PathIterator expected, PathIterator actual,
+			double tolerance) {
+		assertEquals(expected.getWindingRule(), actual.getWindingRule());
+		double[] c1 = new double[6];
+		double[] c2 = new double[6];
+		while (!expected.isDone()) {
+			assertFalse(actual.isDone());
+			int k1 = expected.currentSegment(c1);
+			int k2 = actual.currentSegment(c2);
+			assertEquals(k1, k2);
+			for (int a = 0; a < PathArrayIterator.getCoordinateCount(k1); a++) {
+				assertEquals(c1[a], c2[a], tolerance);
+			}
+			expected.next();
+			actual.next();
+		}
+		assertTrue(actual.isDone());
+	}
+
+	@Test
+	public void testRoundTrip() {
+		Random random = new Random(0);
+		for (int a = 0; a < 20; a++) {
+			Shape shape = createShape(random, 100);
+			byte[] data = BinaryPathCodec.encode(shape);
+			assertSimilar(shape.getPathIterator(null),
+					BinaryPathCodec.decode(data).getPathIterator(null),
+					.5 / BinaryPathCodec.DEFAULT_SCALE + .000001);
+		}
+
+		Shape ellipse = new Ellipse2D.Float(10, 20, 30, 40);
+		byte[] data = BinaryPathCodec.encode(ellipse.getPathIterator(null), 4);
+		assertSimilar(ellipse.getPathIterator(null),
+				BinaryPathCodec.decode(data).getPathIterator(null), .125 + .000001);
+	}
+
+	/**
+	 * Several paths may be read consecutively from one buffer, and a
+	 * transform may be applied while reading.
+	 */
+	@Test
+	public void testStreaming() {
+		Random random = new Random(0);
+		Shape shape1 = createShape(random, 10);
+		Shape shape2 = createShape(random, 10);
+		byte[] data1 = BinaryPathCodec.encode(shape1);
+		byte[] data2 = BinaryPathCodec.encode(shape2);
+		ByteBuffer buffer = ByteBuffer.allocate(data1.length + data2.length);
+		buffer.put(data1);
+		buffer.put(data2);
+		buffer.flip();
+
+		AffineTransform tx = AffineTransform.getScaleInstance(2, 3);
+		PathIterator i = BinaryPathCodec.createPathIterator(buffer, tx);
+		assertSimilar(shape1.getPathIterator(tx), i, .01);
+		assertEquals(data1.length, buffer.position());
+		i = BinaryPathCodec.createPathIterator(buffer);
+		assertSimilar(shape2.getPathIterator(null), i, .001);
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void testInvalidData() {
+		try {
+			BinaryPathCodec.decode(ShapeStringUtils.toString(
+					new Ellipse2D.Float(0, 0, 1, 1)).getBytes());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// pass
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ClipperTest extends TestCase {
+
+	private Shape createShape(Random random) {
+		Path2D p = new Path2D.Float();
+		p.moveTo(random.nextInt(100), random.nextInt(100));
+		for (int a = 0; a < 20; a++) {
+			int k = random.nextInt(3);
+			if (k == 0) {
+				p.lineTo(random.nextInt(100), random.nextInt(100));
+			} else if (k == 1) {
+				p.quadTo(random.nextInt(100), random.nextInt(100),
+						random.nextInt(100), random.nextInt(100));
+			} else {
+				p.curveTo(random.nextInt(100), random.nextInt(100),
+						random.nextInt(100), random.nextInt(100),
+						random.nextInt(100), random.nextInt(100));
+			}
+			if (random.nextInt(5) == 0)
+				p.closePath();
+		}
+		return p;
+	}
+
+	/**
+	 * A reused Clipper that streams to a PathWriter should produce the same
+	 * path as clipToRect().
+	 */
+	@Test
+	public void testStreaming() {
+		Random random = new Random(0);
+		Rectangle2D r = new Rectangle2D.Float(20, 30, 50, 40);
+		Clipper clipper = Clipper.createRectangleClipper(r);
+		for (int a = 0; a < 50; a++) {
+			Shape shape = createShape(random);
+			GeneralPath expected = Clipper.clipToRect(shape, r);
+
+			GeneralPath actual = new GeneralPath(shape.getPathIterator(null)
+					.getWindingRule());
+			GeneralPathWriter writer = new GeneralPathWriter(actual);
+			writer.setEliminateRedundantLines(false);
+			clipper.clip(shape.getPathIterator(null), writer);
+
+			assertEquals(ShapeStringUtils.toString(expected),
+					ShapeStringUtils.toString(actual));
+		}
+	}
+
+	@Test
+	public void testEllipse() {
+		Shape ellipse = new Ellipse2D.Float(0, 0, 100, 100);
+		GeneralPath p = Clipper.clipToRect(ellipse, new Rectangle2D.Float(50,
+				-10, 100, 120));
+		Rectangle2D bounds = ShapeBounds.getBounds(p);
+		assertEquals(50, bounds.getMinX(), .01);
+		assertEquals(100, bounds.getMaxX(), .01);
+		assertEquals(0, bounds.getMinY(), .01);
+		assertEquals(100, bounds.getMaxY(), .01);
+		assertTrue(p.contains(75, 50));
+		assertFalse(p.contains(25, 50));
+	}
+}
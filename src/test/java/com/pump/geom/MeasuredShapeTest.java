@@ -0,0 +1,79 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class MeasuredShapeTest extends TestCase {
+
+	@Test
+	public void testGetPoint() {
+		MeasuredShape ms = new MeasuredShape(new Rectangle(0, 0, 10, 20));
+		assertEquals(60, ms.getClosedDistance(), .0001);
+		assertEquals(new Point2D.Float(0, 0), ms.getPoint(0, null));
+		assertEquals(new Point2D.Float(5, 0), ms.getPoint(5, null));
+		assertEquals(new Point2D.Float(10, 0), ms.getPoint(10, null));
+		assertEquals(new Point2D.Float(10, 15), ms.getPoint(25, null));
+		assertEquals(new Point2D.Float(0, 10), ms.getPoint(50, null));
+		assertEquals(new Point2D.Float(0, 0), ms.getPoint(60, null));
+
+		assertEquals(Math.PI / 2, ms.getTangentSlope(15), .0001);
+	}
+
+	@Test
+	public void testGetShape() {
+		MeasuredShape ms = new MeasuredShape(new Rectangle(0, 0, 10, 10));
+		Rectangle2D r = ms.getShape(0, .5f).getBounds2D();
+		assertEquals(new Rectangle2D.Float(0, 0, 10, 10), r);
+		r = ms.getShape(.125f, .25f).getBounds2D();
+		assertEquals(new Rectangle2D.Float(5, 0, 5, 5), r);
+		r = ms.getShape(.125f, -.25f).getBounds2D();
+		assertEquals(new Rectangle2D.Float(0, 0, 5, 5), r);
+
+		// tracing the whole shape in pieces should cover the original shape:
+		Shape ellipse = new Ellipse2D.Float(0, 0, 100, 50);
+		ms = new MeasuredShape(ellipse);
+		GeneralPath p = new GeneralPath();
+		for (int a = 0; a < 10; a++) {
+			p.append(ms.getShape(a / 10f, .1f), false);
+		}
+		Rectangle2D bounds = ShapeBounds.getBounds(p);
+		assertEquals(0, bounds.getMinX(), .01);
+		assertEquals(100, bounds.getMaxX(), .01);
+		assertEquals(0, bounds.getMinY(), .01);
+		assertEquals(50, bounds.getMaxY(), .01);
+	}
+
+	@Test
+	public void testCache() {
+		Shape shape = new Ellipse2D.Float(0, 0, 100, 50);
+		MeasuredShape ms1 = MeasuredShape.getCached(shape);
+		MeasuredShape ms2 = MeasuredShape.getCached(shape);
+		assertSame(ms1, ms2);
+
+		// equal shapes are still distinct keys:
+		Shape shape2 = new Ellipse2D.Float(0, 0, 100, 50);
+		assertEquals(shape, shape2);
+		assertNotSame(ms1, MeasuredShape.getCached(shape2));
+
+		assertEquals(new MeasuredShape(shape).getClosedDistance(),
+				ms1.getClosedDistance());
+	}
+}
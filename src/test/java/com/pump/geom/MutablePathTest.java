@@ -0,0 +1,180 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class MutablePathTest extends TestCase {
+
+	/**
+	 * Convert a shape to a list of strings describing each segment.
+	 */
+	private List<String> toList(Shape shape) {
+		return toList(shape.getPathIterator(null));
+	}
+
+	private List<String> toList(PathIterator pi) {
+		List<String> returnValue = new ArrayList<>();
+		double[] coords = new double[6];
+		while (!pi.isDone()) {
+			int k = pi.currentSegment(coords);
+			StringBuilder sb = new StringBuilder(Integer.toString(k));
+			for (int a = 0; a < PathArrayIterator.getCoordinateCount(k); a++) {
+				sb.append(' ').append(coords[a]);
+			}
+			returnValue.add(sb.toString());
+			pi.next();
+		}
+		return returnValue;
+	}
+
+	@Test
+	public void testAppend() {
+		Path2D p = new Path2D.Double();
+		p.append(new Ellipse2D.Double(0, 0, 10, 20), false);
+		p.append(new Rectangle(5, 5, 10, 10), false);
+		p.moveTo(3, 3);
+		p.quadTo(4, 4, 5, 3);
+
+		MutablePath mp = new MutablePath(p);
+		assertEquals(toList(p), toList(mp));
+		assertEquals(3, mp.getPathCount());
+
+		AffineTransform tx = AffineTransform.getRotateInstance(.5);
+		assertEquals(toList(p.getPathIterator(tx)),
+				toList(mp.getPathIterator(tx)));
+	}
+
+	@Test
+	public void testEdits() {
+		MutablePath mp = new MutablePath();
+		mp.moveTo(0, 0);
+		mp.lineTo(10, 0);
+		mp.lineTo(10, 10);
+		mp.moveTo(20, 20);
+		mp.lineTo(30, 20);
+
+		// add segments to the first path (in the middle of our data)
+		mp.lineTo(0, 5, 5);
+		mp.close(0);
+		assertEquals(5, mp.getSegmentCount(0));
+		assertEquals(PathIterator.SEG_LINETO, mp.getSegmentType(0, 3));
+		assertEquals(PathIterator.SEG_CLOSE, mp.getSegmentType(0, 4));
+		assertEquals(PathIterator.SEG_MOVETO, mp.getSegmentType(5));
+
+		// deleting the head converts the next segment to a moveTo
+		mp.delete(1, 0);
+		assertEquals(2, mp.getPathCount());
+		assertEquals(1, mp.getSegmentCount(1));
+		double[] coords = new double[6];
+		assertEquals(PathIterator.SEG_MOVETO, mp.getSegment(1, 0, coords));
+		assertEquals(30.0, coords[0]);
+
+		// split the first path in two
+		assertTrue(mp.setSegment(2, PathIterator.SEG_MOVETO, new double[] {
+				1, 1 }));
+		assertEquals(3, mp.getPathCount());
+		assertEquals(2, mp.getSegmentCount(0));
+
+		// and merge it again
+		assertTrue(mp.setSegment(1, 0, PathIterator.SEG_LINETO, new double[] {
+				2, 2 }));
+		assertEquals(2, mp.getPathCount());
+		assertFalse(mp.setSegment(2, PathIterator.SEG_LINETO, new double[] {
+				2, 2 }));
+
+		try {
+			mp.lineTo(0, 1, 1);
+			fail("a lineTo cannot follow a close");
+		} catch (RuntimeException e) {
+			// pass
+		}
+	}
+
+	/**
+	 * Iterators should be unaffected by changes made after they were
+	 * created.
+	 */
+	@Test
+	public void testIteratorSnapshot() {
+		MutablePath mp = new MutablePath(new Rectangle(0, 0, 10, 10));
+		List<String> before = toList(mp);
+		PathIterator pi1 = mp.getPathIterator(null);
+		mp.transform(AffineTransform.getTranslateInstance(5, 5));
+		PathIterator pi2 = mp.getPathIterator(null);
+		mp.moveTo(100, 100);
+		mp.reset();
+
+		assertEquals(before, toList(pi1));
+		assertEquals(toList(new Rectangle(5, 5, 10, 10)), toList(pi2));
+		assertTrue(toList(mp).isEmpty());
+	}
+
+	@Test
+	public void testBulkOperations() {
+		MutablePath mp = new MutablePath();
+		mp.append(new byte[] { PathIterator.SEG_MOVETO,
+				PathIterator.SEG_LINETO, PathIterator.SEG_CUBICTO,
+				PathIterator.SEG_CLOSE }, new double[] { 0, 0, 1, 0, 1, 1, 2,
+				2, 0, 3 }, 4);
+		Path2D p = new Path2D.Double();
+		p.moveTo(0, 0);
+		p.lineTo(1, 0);
+		p.curveTo(1, 1, 2, 2, 0, 3);
+		p.closePath();
+		assertEquals(toList(p), toList(mp));
+
+		mp.replace(1, 3, new byte[] { PathIterator.SEG_QUADTO,
+				PathIterator.SEG_CLOSE, PathIterator.SEG_MOVETO,
+				PathIterator.SEG_LINETO }, new double[] { 5, 5, 6, 6, 7, 7, 8,
+				8 }, 4);
+		p = new Path2D.Double();
+		p.moveTo(0, 0);
+		p.quadTo(5, 5, 6, 6);
+		p.closePath();
+		p.moveTo(7, 7);
+		p.lineTo(8, 8);
+		p.closePath();
+		assertEquals(toList(p), toList(mp));
+		assertEquals(2, mp.getPathCount());
+
+		try {
+			mp.replace(0, 1, new byte[] { PathIterator.SEG_LINETO },
+					new double[] { 0, 0 }, 1);
+			fail("the first segment must be a moveTo");
+		} catch (IllegalArgumentException e) {
+			assertEquals(toList(p), toList(mp));
+		}
+	}
+
+	@Test
+	public void testCubicPathSnapshot() {
+		CubicPath cp = new CubicPath();
+		cp.append(new Rectangle(0, 0, 10, 10));
+		List<String> before = toList(cp);
+		assertEquals(before, toList(cp));
+		PathIterator pi = cp.getPathIterator(null);
+		cp.setNode(0, 5, 5, false);
+		assertEquals(before, toList(pi));
+		assertFalse(before.equals(toList(cp)));
+	}
+}
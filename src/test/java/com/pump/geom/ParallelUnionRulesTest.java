@@ -0,0 +1,117 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ParallelUnionRulesTest extends TestCase {
+
+	private BufferedImage render(Shape shape, Rectangle bounds) {
+		BufferedImage bi = new BufferedImage(bounds.width, bounds.height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = bi.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		g.translate(-bounds.x, -bounds.y);
+		g.fill(shape);
+		g.dispose();
+		return bi;
+	}
+
+	/**
+	 * Different orders of operations may produce slightly different curves,
+	 * so (like the AddRulesTest) this compares how the shapes render.
+	 */
+	private void assertSameArea(AreaX expected, AreaX actual) {
+		Rectangle bounds = expected.getBounds();
+		assertEquals(bounds, actual.getBounds());
+		BufferedImage bi1 = render(expected, bounds);
+		BufferedImage bi2 = render(actual, bounds);
+		for (int y = 0; y < bounds.height; y++) {
+			for (int x = 0; x < bounds.width; x++) {
+				int alpha1 = bi1.getRGB(x, y) >>> 24;
+				int alpha2 = bi2.getRGB(x, y) >>> 24;
+				assertTrue(Math.abs(alpha1 - alpha2) <= 2);
+			}
+		}
+	}
+
+	/**
+	 * A mix of overlapping ellipses, adjacent tiles and disjoint tiles should
+	 * produce the same area as the sequential rules.
+	 */
+	@Test
+	public void testAdd() {
+		testAdd(new ParallelUnionRules());
+		// every run of 2 or more operands is a tree of single operands:
+		testAdd(new ParallelUnionRules(ForkJoinPool.commonPool(), 2, 1));
+	}
+
+	private void testAdd(ParallelUnionRules rules) {
+		Random random = new Random(0);
+		AreaX sequential = new AreaX();
+		sequential.setRules(new AreaXRules());
+		AreaX parallel = new AreaX();
+		parallel.setRules(rules);
+		for (int a = 0; a < 200; a++) {
+			int k = random.nextInt(3);
+			Shape shape;
+			if (k == 0) {
+				shape = new Ellipse2D.Float(random.nextInt(300),
+						random.nextInt(300), 5 + random.nextInt(40),
+						5 + random.nextInt(40));
+			} else if (k == 1) {
+				// tiles that share edges with each other
+				shape = new Rectangle(400 + 10 * random.nextInt(10),
+						10 * random.nextInt(10), 10, 10);
+			} else {
+				shape = new Rectangle(600 + 20 * random.nextInt(10),
+						20 * random.nextInt(10), 10, 10);
+			}
+			sequential.add(shape);
+			parallel.add(shape);
+		}
+		assertSameArea(sequential, parallel);
+	}
+
+	/**
+	 * Subtractions in the middle of a queue must still be applied in order.
+	 */
+	@Test
+	public void testMixedOperations() {
+		AreaX sequential = new AreaX();
+		sequential.setRules(new AreaXRules());
+		AreaX parallel = new AreaX();
+		parallel.setRules(new ParallelUnionRules());
+		for (AreaX area : new AreaX[] { sequential, parallel }) {
+			for (int a = 0; a < 10; a++) {
+				area.add(new Rectangle(a * 10, 0, 15, 15));
+			}
+			area.subtract(new Ellipse2D.Float(20, 0, 30, 30));
+			for (int a = 0; a < 10; a++) {
+				area.add(new Ellipse2D.Float(a * 10, 5, 8, 8));
+			}
+			area.intersect(new Rectangle(0, 0, 60, 10));
+		}
+		assertSameArea(sequential, parallel);
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Random;
+
+/**
+ * This compares the speed and output size of {@link PathFlattener} with
+ * <code>Shape.getPathIterator(transform, flatness)</code>.
+ * <p>
+ * This is not a unit test; run it as an application.
+ */
+public class PathFlattenerBenchmark {
+
+	public static void main(String[] args) {
+		float flatness = .5f;
+		run("Random curves",
+				BinaryPathCodecTest.createShape(new Random(0), 100000),
+				flatness, false);
+
+		// a dense polyline, like the output of a tracing tool or a previous
+		// flattening pass, where most points are nearly collinear:
+		Path2D dense = new Path2D.Double();
+		Random random = new Random(0);
+		for (int a = 0; a < 200; a++) {
+			double x = random.nextDouble() * 1000;
+			double y = random.nextDouble() * 1000;
+			double r = 20 + random.nextDouble() * 200;
+			dense.append(new FlatteningPathIterator(
+					new Ellipse2D.Double(x, y, r, r).getPathIterator(null),
+					.0001, 16), false);
+		}
+		run("Dense polylines", dense, flatness, true);
+	}
+
+	/**
+	 * @param area
+	 *            if true then also measure how long it takes to convert the
+	 *            polylines to an Area. (This is impractical for large paths
+	 *            that intersect themselves often.)
+	 */
+	private static void run(String name, Shape shape, float flatness,
+			boolean area) {
+		int repeat = 10;
+
+		// warm up:
+		for (int a = 0; a < 3; a++) {
+			runJava(shape, flatness, area);
+			runFlattener(shape, flatness, area);
+		}
+
+		long[] java = new long[3];
+		long[] flattener = new long[3];
+		for (int a = 0; a < repeat; a++) {
+			long[] j = runJava(shape, flatness, area);
+			long[] f = runFlattener(shape, flatness, area);
+			for (int c = 0; c < 3; c++) {
+				java[c] += j[c];
+				flattener[c] += f[c];
+			}
+		}
+
+		System.out.println(name + ":");
+		System.out.println("\tFlatteningPathIterator: "
+				+ toString(java, repeat, area));
+		System.out.println("\tPathFlattener:          "
+				+ toString(flattener, repeat, area));
+	}
+
+	/**
+	 * @return the nanoseconds to flatten the shape, the nanoseconds to
+	 *         convert the result to an Area, and the number of segments.
+	 */
+	private static long[] runJava(Shape shape, float flatness,
+			boolean area) {
+		long t0 = System.nanoTime();
+		PathIterator i = shape.getPathIterator(null, flatness);
+		Path2D p = new Path2D.Float(i.getWindingRule());
+		p.append(i, false);
+		long t1 = System.nanoTime();
+		if (area)
+			new Area(p);
+		long t2 = System.nanoTime();
+		return new long[] { t1 - t0, t2 - t1, count(p) };
+	}
+
+	private static long[] runFlattener(Shape shape, float flatness,
+			boolean area) {
+		long t0 = System.nanoTime();
+		Path2D p = PathFlattener.flatten(shape, flatness);
+		long t1 = System.nanoTime();
+		if (area)
+			new Area(p);
+		long t2 = System.nanoTime();
+		return new long[] { t1 - t0, t2 - t1, count(p) };
+	}
+
+	private static String toString(long[] totals, int repeat, boolean area) {
+		String str = totals[2] / repeat + " segments, flatten " + totals[0]
+				/ repeat / 1000000 + " ms";
+		if (area)
+			str += ", Area " + totals[1] / repeat / 1000000 + " ms";
+		return str;
+	}
+
+	private static long count(Shape shape) {
+		long count = 0;
+		for (PathIterator i = shape.getPathIterator(null); !i.isDone(); i
+				.next()) {
+			count++;
+		}
+		return count;
+	}
+}
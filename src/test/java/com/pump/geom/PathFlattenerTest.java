@@ -0,0 +1,156 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class PathFlattenerTest extends TestCase {
+
+	/**
+	 * Return every line in a flattened path, including the lines implied by
+	 * CLOSE segments.
+	 */
+	private static List<Line2D> getLines(PathIterator i) {
+		List<Line2D> lines = new ArrayList<>();
+		double[] coords = new double[6];
+		double moveX = 0, moveY = 0, lastX = 0, lastY = 0;
+		while (!i.isDone()) {
+			int k = i.currentSegment(coords);
+			if (k == PathIterator.SEG_MOVETO) {
+				moveX = lastX = coords[0];
+				moveY = lastY = coords[1];
+			} else if (k == PathIterator.SEG_LINETO) {
+				lines.add(new Line2D.Double(lastX, lastY, coords[0],
+						coords[1]));
+				lastX = coords[0];
+				lastY = coords[1];
+			} else if (k == PathIterator.SEG_CLOSE) {
+				lines.add(new Line2D.Double(lastX, lastY, moveX, moveY));
+				lastX = moveX;
+				lastY = moveY;
+			} else {
+				fail("unexpected segment " + k);
+			}
+			i.next();
+		}
+		return lines;
+	}
+
+	/**
+	 * Return the largest distance from the end points of one set of lines to
+	 * the nearest line in another set.
+	 */
+	private static double getMaxDistance(List<Line2D> from, List<Line2D> to) {
+		double max = 0;
+		for (Line2D a : from) {
+			double min = Double.MAX_VALUE;
+			for (Line2D b : to) {
+				min = Math.min(min, b.ptSegDist(a.getX2(), a.getY2()));
+			}
+			max = Math.max(max, min);
+		}
+		return max;
+	}
+
+	/**
+	 * The polyline and the original path should never be farther apart than
+	 * the flatness.
+	 */
+	@Test
+	public void testErrorBound() {
+		Random random = new Random(0);
+		float flatness = .5f;
+		for (int a = 0; a < 20; a++) {
+			Shape shape = BinaryPathCodecTest.createShape(random, 10);
+			List<Line2D> reference = getLines(new FlatteningPathIterator(
+					shape.getPathIterator(null), .005, 16));
+			GeneralPath path = PathFlattener.flatten(shape, flatness);
+			List<Line2D> actual = getLines(path.getPathIterator(null));
+
+			assertTrue(getMaxDistance(actual, reference) <= flatness + .01);
+			assertTrue(getMaxDistance(reference, actual) <= flatness + .01);
+			assertEquals(shape.getPathIterator(null).getWindingRule(),
+					path.getWindingRule());
+		}
+	}
+
+	/**
+	 * Collinear points should be collapsed, but a line that doubles back
+	 * must be preserved.
+	 */
+	@Test
+	public void testCollinear() {
+		Path2D p = new Path2D.Float();
+		p.moveTo(0, 0);
+		p.lineTo(10, 0);
+		p.lineTo(20, 0);
+		p.lineTo(30, 0);
+		p.lineTo(30, 10);
+		p.lineTo(30, 5);
+		p.closePath();
+		assertEquals("m 0.0 0.0 l 30.0 0.0 l 30.0 10.0 l 30.0 5.0 z",
+				ShapeStringUtils.toString(PathFlattener.flatten(p, .1f)));
+	}
+
+	/**
+	 * A segment that follows a CLOSE without a MOVETO starts at the previous
+	 * MOVETO.
+	 */
+	@Test
+	public void testImplicitMoveTo() {
+		Path2D p = new Path2D.Float();
+		p.moveTo(0, 0);
+		p.lineTo(10, 0);
+		p.lineTo(10, 10);
+		p.closePath();
+		p.lineTo(0, 10);
+		p.lineTo(-10, 10);
+		assertEquals(
+				"m 0.0 0.0 l 10.0 0.0 l 10.0 10.0 z m 0.0 0.0 l 0.0 10.0 l -10.0 10.0",
+				ShapeStringUtils.toString(PathFlattener.flatten(p, .1f)));
+	}
+
+	@Test
+	public void testEllipse() {
+		Shape ellipse = new Ellipse2D.Float(0, 0, 100, 50);
+		GeneralPath p = PathFlattener.flatten(ellipse, .1f);
+		Rectangle2D bounds = ShapeBounds.getBounds(p);
+		assertEquals(0, bounds.getMinX(), .1);
+		assertEquals(100, bounds.getMaxX(), .1);
+		assertEquals(0, bounds.getMinY(), .1);
+		assertEquals(50, bounds.getMaxY(), .1);
+
+		int javaCount = 0;
+		for (PathIterator i = ellipse.getPathIterator(null, .1); !i
+				.isDone(); i.next()) {
+			javaCount++;
+		}
+		int count = 0;
+		for (PathIterator i = p.getPathIterator(null); !i.isDone(); i.next()) {
+			count++;
+		}
+		assertTrue(count <= javaCount);
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ShapeBoundsTest extends TestCase {
+
+	/**
+	 * Splitting a long path into chunks should produce the same bounds as
+	 * measuring it sequentially.
+	 */
+	@Test
+	public void testParallelPath() {
+		Random random = new Random(0);
+		for (int trial = 0; trial < 20; trial++) {
+			Shape shape = BinaryPathCodecTest.createShape(random, 500);
+			Rectangle2D expected = ShapeBounds.getBounds(shape);
+			for (int chunk : new int[] { 1, 2, 7, 100, 10000 }) {
+				Rectangle2D actual = ShapeBounds.getBoundsParallel(
+						shape.getPathIterator(null), chunk);
+				assertEquals(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyPath() {
+		Path2D p = new Path2D.Float();
+		p.moveTo(0, 0);
+		p.closePath();
+		try {
+			ShapeBounds.getBoundsParallel(p.getPathIterator(null));
+			fail();
+		} catch (EmptyPathException e) {
+			// pass
+		}
+	}
+
+	@Test
+	public void testShapeArray() {
+		Shape[] shapes = new Shape[200];
+		for (int a = 0; a < shapes.length; a++) {
+			shapes[a] = a % 10 == 0 ? new Path2D.Float()
+					: new Ellipse2D.Float(a, 2 * a, 10, 10);
+		}
+		Rectangle2D[] bounds = ShapeBounds.getBoundsParallel(shapes, true);
+		for (int a = 0; a < shapes.length; a++) {
+			if (a % 10 == 0) {
+				assertNull(bounds[a]);
+			} else {
+				assertEquals(new Rectangle2D.Float(a, 2 * a, 10, 10),
+						bounds[a]);
+			}
+		}
+		assertEquals(new Rectangle2D.Float(1, 2, 208, 406),
+				ShapeBounds.getBounds(shapes));
+	}
+
+	@Test
+	public void testCache() {
+		Rectangle r = new Rectangle(0, 0, 10, 10);
+		Rectangle2D bounds = ShapeBounds.getCachedBounds(r);
+		assertEquals(new Rectangle2D.Float(0, 0, 10, 10), bounds);
+
+		// the result is a copy:
+		bounds.setFrame(1, 1, 1, 1);
+		assertEquals(new Rectangle2D.Float(0, 0, 10, 10),
+				ShapeBounds.getCachedBounds(r));
+
+		// the cache is keyed by identity:
+		r.setBounds(0, 0, 5, 5);
+		assertEquals(new Rectangle2D.Float(0, 0, 10, 10),
+				ShapeBounds.getCachedBounds(r));
+		assertEquals(new Rectangle2D.Float(0, 0, 5, 5),
+				ShapeBounds.getCachedBounds(new Rectangle(r)));
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.area;
+
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.pump.geom.AreaX;
+
+import junit.framework.TestCase;
+
+public class CurveIndexTest extends TestCase {
+
+	private AreaXBody createBody(Random random) {
+		AreaX area = new AreaX();
+		for (int a = 0; a < 60; a++) {
+			area.add(new Ellipse2D.Double(random.nextDouble() * 200,
+					random.nextDouble() * 200, 5 + random.nextDouble() * 30,
+					5 + random.nextDouble() * 30));
+		}
+		return area.getBody();
+	}
+
+	/**
+	 * Indexed queries must return exactly the same results as unindexed
+	 * queries.
+	 */
+	@Test
+	public void testQueries() {
+		Random random = new Random(0);
+		AreaXBody body = createBody(random);
+		assertTrue(body.size() >= AreaXBody.INDEX_THRESHOLD);
+
+		int oldThreshold = AreaXBody.INDEX_THRESHOLD;
+		try {
+			for (int a = 0; a < 2000; a++) {
+				double x = random.nextDouble() * 240 - 5;
+				double y = random.nextDouble() * 240 - 5;
+				AreaXBody.INDEX_THRESHOLD = Integer.MAX_VALUE;
+				boolean expected = body.contains(x, y);
+				AreaXBody.INDEX_THRESHOLD = oldThreshold;
+				assertEquals(expected, body.contains(x, y));
+			}
+
+			for (int a = 0; a < 300; a++) {
+				double x = random.nextDouble() * 240 - 5;
+				double y = random.nextDouble() * 240 - 5;
+				double w = random.nextDouble() * 40;
+				double h = random.nextDouble() * 40;
+				Shape shape = random.nextBoolean() ? new Rectangle2D.Double(x,
+						y, w, h) : new Ellipse2D.Double(x, y, w, h);
+				AreaXBody.INDEX_THRESHOLD = Integer.MAX_VALUE;
+				int expected = body.getRelationship(shape, null);
+				AreaXBody.INDEX_THRESHOLD = oldThreshold;
+				assertEquals(expected, body.getRelationship(shape, null));
+			}
+		} finally {
+			AreaXBody.INDEX_THRESHOLD = oldThreshold;
+		}
+	}
+}
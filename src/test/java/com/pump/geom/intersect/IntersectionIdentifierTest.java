@@ -0,0 +1,186 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.intersect;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.pump.geom.intersect.IntersectionIdentifier.SimpleIntersectionListener;
+
+import junit.framework.TestCase;
+
+public class IntersectionIdentifierTest extends TestCase {
+
+	private Shape createShape(Random random) {
+		Path2D p = new Path2D.Double();
+		p.moveTo(random.nextInt(200), random.nextInt(200));
+		for (int a = 0; a < 10; a++) {
+			int k = random.nextInt(3);
+			if (k == 0) {
+				p.lineTo(random.nextInt(200), random.nextInt(200));
+			} else if (k == 1) {
+				p.quadTo(random.nextInt(200), random.nextInt(200),
+						random.nextInt(200), random.nextInt(200));
+			} else {
+				p.curveTo(random.nextInt(200), random.nextInt(200),
+						random.nextInt(200), random.nextInt(200),
+						random.nextInt(200), random.nextInt(200));
+			}
+		}
+		p.closePath();
+		return p;
+	}
+
+	/**
+	 * The sweep-line should identify exactly the pairs of segments whose
+	 * bounds touch.
+	 */
+	@Test
+	public void testCandidatePairs() {
+		Random random = new Random(0);
+		for (int trial = 0; trial < 20; trial++) {
+			SegmentTable t1 = new SegmentTable(createShape(random), null);
+			SegmentTable t2 = new SegmentTable(createShape(random), null);
+			List<Long> expected = new ArrayList<>();
+			for (int a = 0; a < t1.size; a++) {
+				for (int b = 0; b < t2.size; b++) {
+					if (t1.bounds[a * 4] <= t2.bounds[b * 4 + 2]
+							&& t2.bounds[b * 4] <= t1.bounds[a * 4 + 2]
+							&& t1.bounds[a * 4 + 1] <= t2.bounds[b * 4 + 3]
+							&& t2.bounds[b * 4 + 1] <= t1.bounds[a * 4 + 3]) {
+						expected.add((((long) a) << 32) | b);
+					}
+				}
+			}
+			long[] actual = t1.getCandidatePairs(t2);
+			assertEquals(expected.size(), actual.length);
+			for (int a = 0; a < actual.length; a++) {
+				assertEquals(expected.get(a).longValue(), actual[a]);
+			}
+		}
+	}
+
+	@Test
+	public void testRectangles() {
+		List<double[]> list = new ArrayList<>();
+		IntersectionIdentifier.get().getIntersections(
+				new Rectangle(0, 0, 10, 10), new Rectangle(5, 5, 10, 10),
+				new SimpleIntersectionListener() {
+					@Override
+					public void intersection(double x, double y, double t1,
+							double t2, int segmentIndex1, int segmentIndex2) {
+						list.add(new double[] { x, y });
+					}
+				});
+		assertEquals(2, list.size());
+		assertEquals(10, list.get(0)[0], .0001);
+		assertEquals(5, list.get(0)[1], .0001);
+		assertEquals(5, list.get(1)[0], .0001);
+		assertEquals(10, list.get(1)[1], .0001);
+	}
+
+	/**
+	 * A batch should report the same intersections as comparing every pair of
+	 * shapes individually.
+	 */
+	@Test
+	public void testBatch() {
+		Random random = new Random(0);
+		Shape[] shapes = new Shape[30];
+		for (int a = 0; a < shapes.length; a++) {
+			shapes[a] = new Ellipse2D.Double(random.nextInt(500),
+					random.nextInt(500), 10 + random.nextInt(50),
+					10 + random.nextInt(50));
+		}
+
+		List<String> expected = new ArrayList<>();
+		for (int a = 0; a < shapes.length; a++) {
+			for (int b = a + 1; b < shapes.length; b++) {
+				int i1 = a;
+				int i2 = b;
+				IntersectionIdentifier.get().getIntersections(shapes[a],
+						shapes[b], new SimpleIntersectionListener() {
+							@Override
+							public void intersection(double x, double y,
+									double t1, double t2, int segmentIndex1,
+									int segmentIndex2) {
+								expected.add(Arrays.toString(new double[] {
+										i1, i2, x, y, t1, t2, segmentIndex1,
+										segmentIndex2 }));
+							}
+						});
+			}
+		}
+		assertFalse(expected.isEmpty());
+
+		assertEquals(expected, getBatchIntersections(shapes, 1));
+		assertEquals(expected, getBatchIntersections(shapes,
+				IntersectionBatch.SEQUENTIAL_THRESHOLD_DEFAULT));
+	}
+
+	/**
+	 * A staircase of overlapping squares has a known set of intersections:
+	 * each square crosses only its neighbors, at two corners.
+	 */
+	@Test
+	public void testBatchKnownIntersections() {
+		Shape[] shapes = new Shape[20];
+		for (int a = 0; a < shapes.length; a++) {
+			shapes[a] = new Rectangle(a * 10, a * 10, 15, 15);
+		}
+		// shuffle the indices so the sweep-line order differs from the
+		// array order:
+		List<Shape> list = new ArrayList<>(Arrays.asList(shapes));
+		Collections.shuffle(list, new Random(0));
+		shapes = list.toArray(new Shape[shapes.length]);
+
+		List<double[]> points = new ArrayList<>();
+		new IntersectionBatch(IntersectionIdentifier.get(), shapes, 1).run(
+				(shapeIndex1, shapeIndex2, x, y, t1, t2, segmentIndex1,
+						segmentIndex2) -> points.add(new double[] {
+						shapeIndex1, shapeIndex2, x, y }));
+
+		assertEquals(2 * (shapes.length - 1), points.size());
+		for (double[] p : points) {
+			Rectangle r1 = (Rectangle) shapes[(int) p[0]];
+			Rectangle r2 = (Rectangle) shapes[(int) p[1]];
+			assertTrue(p[0] < p[1]);
+			assertEquals(10, Math.abs(r1.x - r2.x));
+			int x = Math.max(r1.x, r2.x);
+			boolean corner1 = Math.abs(p[2] - (x + 5)) < .0001
+					&& Math.abs(p[3] - x) < .0001;
+			boolean corner2 = Math.abs(p[2] - x) < .0001
+					&& Math.abs(p[3] - (x + 5)) < .0001;
+			assertTrue(Arrays.toString(p), corner1 || corner2);
+		}
+	}
+
+	private List<String> getBatchIntersections(Shape[] shapes,
+			int sequentialThreshold) {
+		List<String> returnValue = new ArrayList<>();
+		new IntersectionBatch(IntersectionIdentifier.get(), shapes,
+				sequentialThreshold).run((shapeIndex1, shapeIndex2, x, y, t1,
+						t2, segmentIndex1, segmentIndex2) -> returnValue.add(
+								Arrays.toString(new double[] { shapeIndex1,
+										shapeIndex2, x, y, t1, t2,
+										segmentIndex1, segmentIndex2 })));
+		return returnValue;
+	}
+}
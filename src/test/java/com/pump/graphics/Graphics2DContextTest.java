@@ -0,0 +1,64 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics;
+
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class Graphics2DContextTest extends TestCase {
+
+	/**
+	 * Test that modifying a clone (which shares its state with the original
+	 * until it is modified) never affects the original, and vice versa.
+	 */
+	@Test
+	public void testCloneIsIndependent() {
+		Graphics2DContext original = new Graphics2DContext();
+		original.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		original.clipRect(0, 0, 100, 100);
+		original.translate(5, 5);
+
+		Graphics2DContext clone = original.clone();
+		assertEquals(original, clone);
+
+		clone.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_OFF);
+		clone.clipRect(0, 0, 10, 10);
+		clone.scale(2, 2);
+
+		assertEquals(RenderingHints.VALUE_ANTIALIAS_ON, original
+				.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+		assertEquals(new Rectangle(0, 0, 100, 100),
+				original.getClip(false).getBounds());
+		assertEquals(AffineTransform.getTranslateInstance(5, 5),
+				original.getTransform());
+
+		Graphics2DContext clone2 = original.clone();
+		original.addRenderingHints(new RenderingHints(
+				RenderingHints.KEY_RENDERING,
+				RenderingHints.VALUE_RENDER_QUALITY));
+		assertNull(clone2.getRenderingHint(RenderingHints.KEY_RENDERING));
+
+		// modifying the returned transform or hints doesn't modify a context:
+		original.getTransform().scale(3, 3);
+		original.getRenderingHints().clear();
+		assertEquals(AffineTransform.getTranslateInstance(5, 5),
+				original.getTransform());
+		assertEquals(RenderingHints.VALUE_RENDER_QUALITY,
+				original.getRenderingHint(RenderingHints.KEY_RENDERING));
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.graphics.vector;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ParallelGraphics2DTest extends TestCase {
+
+	static void paint(Graphics2D g) {
+		Random random = new Random(0);
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		for (int a = 0; a < 1000; a++) {
+			g.setColor(new Color(random.nextInt(0xffffff)));
+			g.setStroke(new BasicStroke(1 + random.nextInt(5)));
+			g.draw(new Ellipse2D.Float(random.nextInt(200) - 20,
+					random.nextInt(200) - 20, 5 + random.nextInt(80),
+					5 + random.nextInt(80)));
+			if (a % 100 == 0) {
+				Graphics2D g2 = (Graphics2D) g.create();
+				g2.clipRect(20, 20, 100, 100);
+				g2.translate(10, 10);
+				g2.fillOval(0, 0, 150, 50);
+				g2.drawString("Text " + a, 10, 40);
+				g2.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Test that every target is painted exactly like a Graphics2D that
+	 * receives the same calls directly, including targets that start with
+	 * their own transform.
+	 */
+	@Test
+	public void testTargets() throws Exception {
+		BufferedImage expected = new BufferedImage(200, 200,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = expected.createGraphics();
+		paint(g);
+		g.dispose();
+
+		BufferedImage[] actual = new BufferedImage[3];
+		Graphics2D[] targets = new Graphics2D[actual.length];
+		for (int a = 0; a < actual.length; a++) {
+			actual[a] = new BufferedImage(200 + a * 10, 200 + a * 10,
+					BufferedImage.TYPE_INT_ARGB);
+			targets[a] = actual[a].createGraphics();
+			targets[a].translate(a * 10, a * 10);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			g = new ParallelGraphics2D(executor, 37, targets);
+			paint(g);
+			g.dispose();
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int a = 0; a < actual.length; a++) {
+			assertImageEquals(expected,
+					actual[a].getSubimage(a * 10, a * 10, 200, 200));
+		}
+	}
+
+	/**
+	 * Test that an exception from a target is rethrown by sync().
+	 */
+	@Test
+	public void testException() {
+		BufferedImage bi = new BufferedImage(10, 10,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D target = new VectorGraphics2D() {
+			@Override
+			public VectorGraphics2D create() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		ParallelGraphics2D g = new ParallelGraphics2D(bi.createGraphics(),
+				target);
+		g.setColor(Color.red);
+		g.fillRect(0, 0, 5, 5);
+		try {
+			g.sync();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// pass
+		}
+		// the other target should still be painted:
+		assertEquals(Color.red.getRGB(), bi.getRGB(2, 2));
+	}
+
+	private void assertImageEquals(BufferedImage bi1, BufferedImage bi2) {
+		for (int y = 0; y < bi1.getHeight(); y++) {
+			for (int x = 0; x < bi1.getWidth(); x++) {
+				assertEquals("x = " + x + ", y = " + y, bi1.getRGB(x, y),
+						bi2.getRGB(x, y));
+			}
+		}
+	}
+}
@@ -207,6 +207,140 @@ public class SoftClipTest extends TestCase {
 		testSoftClip(img, false, "copyArea");
 	}
 
+	/**
+	 * Test that VectorImage#getSoftClipOperations merges fragments without
+	 * changing how they look, and caches its results until the image changes.
+	 */
+	@Test
+	public void testSoftClipOperations() {
+		VectorImage img = new VectorImage();
+		Graphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setFont(new Font("Arial", Font.BOLD, 12));
+		g.setColor(Color.black);
+		for (int a = 0; a < 5; a++) {
+			g.drawString("Lorem ipsum dolor", 0, 20 * a + 10);
+		}
+		g.dispose();
+
+		int fragmentCount = 0;
+		BufferedImage expected = new BufferedImage(SIZE.width, SIZE.height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = expected.createGraphics();
+		for (Operation op : img.getOperations()) {
+			for (Operation op2 : op.toSoftClipOperation(CIRCLE)) {
+				op2.paint(g2);
+				fragmentCount++;
+			}
+		}
+		g2.dispose();
+
+		List<Operation> ops = img.getSoftClipOperations(CIRCLE);
+		assertTrue(ops.size() + " vs " + fragmentCount,
+				ops.size() < fragmentCount);
+
+		BufferedImage actual = new BufferedImage(SIZE.width, SIZE.height,
+				BufferedImage.TYPE_INT_ARGB);
+		g2 = actual.createGraphics();
+		img.paint(g2, CIRCLE);
+		g2.dispose();
+		for (int y = 0; y < SIZE.height; y++) {
+			for (int x = 0; x < SIZE.width; x++) {
+				assertEquals("x = " + x + ", y = " + y, expected.getRGB(x, y),
+						actual.getRGB(x, y));
+			}
+		}
+
+		// an equal shape should hit the cache:
+		assertSame(ops, img.getSoftClipOperations(
+				new Ellipse2D.Double(0, 0, SIZE.width, SIZE.height)));
+
+		// changing the image should clear the cache:
+		img.getOperations().remove(0);
+		assertNotSame(ops, img.getSoftClipOperations(CIRCLE));
+	}
+
+	/**
+	 * Fragments that are merged for one transform may touch the same pixels
+	 * when they are painted at a smaller scale, so the soft clipped
+	 * Operations depend on the transform.
+	 */
+	@Test
+	public void testSoftClipOperationsTransform() {
+		VectorImage img = new VectorImage();
+		Graphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setColor(new Color(0, 0, 255, 128));
+		for (int y = 0; y < SIZE.height; y += 5) {
+			for (int x = 0; x < SIZE.width; x += 5) {
+				g.fill(new Ellipse2D.Float(x, y, 3, 3));
+			}
+		}
+		g.dispose();
+
+		AffineTransform tx = AffineTransform.getScaleInstance(.25, .25);
+		assertNotSame(img.getSoftClipOperations(CIRCLE),
+				img.getSoftClipOperations(CIRCLE, tx));
+		// the translation doesn't matter:
+		AffineTransform tx2 = new AffineTransform(tx);
+		tx2.translate(7.5, 3);
+		assertSame(img.getSoftClipOperations(CIRCLE, tx),
+				img.getSoftClipOperations(CIRCLE, tx2));
+
+		BufferedImage expected = new BufferedImage(SIZE.width, SIZE.height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = expected.createGraphics();
+		g2.transform(tx);
+		for (Operation op : img.getOperations()) {
+			for (Operation op2 : op.toSoftClipOperation(CIRCLE)) {
+				op2.paint(g2);
+			}
+		}
+		g2.dispose();
+
+		BufferedImage actual = new BufferedImage(SIZE.width, SIZE.height,
+				BufferedImage.TYPE_INT_ARGB);
+		g2 = actual.createGraphics();
+		g2.transform(tx);
+		img.paint(g2, CIRCLE);
+		g2.dispose();
+		for (int y = 0; y < SIZE.height; y++) {
+			for (int x = 0; x < SIZE.width; x++) {
+				assertEquals("x = " + x + ", y = " + y, expected.getRGB(x, y),
+						actual.getRGB(x, y));
+			}
+		}
+	}
+
+	/**
+	 * An Operation that doesn't need to be clipped is returned as-is, and
+	 * applying the soft clip must not modify it.
+	 */
+	@Test
+	public void testSoftClipOperationsDontModifyImage() {
+		VectorImage img = new VectorImage();
+		Graphics2D g = img.createGraphics();
+		BufferedImage bi = new BufferedImage(5, 5,
+				BufferedImage.TYPE_INT_ARGB);
+		g.drawImage(bi, 0, 0, null);
+		// this creates a new context that is equal to the previous context:
+		g.setColor(Color.black);
+		g.drawImage(bi, 20, 20, null);
+		g.dispose();
+
+		Operation imageOp = img.getOperations().get(1);
+		Object context = imageOp.context;
+		assertNotSame(img.getOperations().get(0).context, context);
+		assertEquals(img.getOperations().get(0).context, context);
+
+		List<Operation> ops = img
+				.getSoftClipOperations(new Rectangle(0, 0, 50, 50));
+		assertTrue(ops.contains(imageOp));
+		assertSame(context, imageOp.context);
+	}
+
 	private void testSoftClip(VectorImage img,
 			boolean requireOpaquePixelsAreSame, String name)
 			throws IOException {
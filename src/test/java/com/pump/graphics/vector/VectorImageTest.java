@@ -26,14 +26,18 @@ import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.text.AttributedString;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
 
 import javax.imageio.ImageIO;
 
@@ -45,6 +49,7 @@ import com.pump.awt.CalligraphyStroke;
 import com.pump.awt.CharcoalStroke;
 import com.pump.awt.TransformedTexturePaint;
 import com.pump.graphics.DualGraphics2D;
+import com.pump.util.list.ObservableList;
 
 import junit.framework.TestCase;
 
@@ -140,6 +145,34 @@ public class VectorImageTest extends TestCase {
 					}
 				}
 			}
+
+			// the binary JVG format should render identically too:
+			ByteArrayOutputStream jvgOut = new ByteArrayOutputStream();
+			img.save(jvgOut);
+			VectorImage jvgCopy = new VectorImage(
+					new ByteArrayInputStream(jvgOut.toByteArray()));
+			assertEquals(img.getOperations().size(),
+					jvgCopy.getOperations().size());
+			BufferedImage bi4 = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_ARGB);
+			jvgCopy.paint(bi4.createGraphics());
+			assertImageEquals(bi, bi4);
+
+			// a DisplayList should render identically, including when it is
+			// reused with a different integer translation:
+			DisplayList displayList = img.compile();
+			BufferedImage bi5 = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_ARGB);
+			displayList.paint(bi5.createGraphics());
+			assertImageEquals(bi, bi5);
+
+			BufferedImage bi6 = new BufferedImage(width + 3, height + 5,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g6 = bi6.createGraphics();
+			g6.translate(3, 5);
+			displayList.paint(g6);
+			g6.dispose();
+			assertImageEquals(bi, bi6.getSubimage(3, 5, width, height));
 		}
 
 		public abstract void paint(Graphics2D g);
@@ -723,6 +756,456 @@ public class VectorImageTest extends TestCase {
 		}
 	}
 
+	/**
+	 * Painting through a clip should skip Operations outside the clip, but
+	 * the result should be identical to painting every Operation, even as
+	 * the list of Operations changes.
+	 */
+	@Test
+	public void testClipCulling() throws Exception {
+		Random random = new Random(0);
+		VectorImage img = new VectorImage();
+		VectorGraphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		for (int a = 0; a < 200; a++) {
+			g.setColor(new Color(random.nextInt(0xffffff)));
+			g.fill(new Ellipse2D.Float(random.nextInt(200) - 20,
+					random.nextInt(200) - 20, 5 + random.nextInt(40),
+					5 + random.nextInt(40)));
+		}
+		g.dispose();
+
+		OperationIndex index = new OperationIndex(img.getOperations(), 16);
+		try {
+			Rectangle clip = new Rectangle(50, 60, 40, 30);
+			assertClippedPaint(img, index, clip);
+			assertClippedPaint(img, clip);
+			assertTrue(index.getOperations(clip).size() < img
+					.getOperations().size());
+
+			// insertions, removals and replacements are tracked too:
+			ObservableList<Operation> ops = img.getOperations();
+			ops.add(0, ops.remove(ops.size() - 1));
+			ops.add(50, ops.get(150));
+			ops.remove(10);
+			ops.set(20, ops.get(120));
+			assertClippedPaint(img, index, clip);
+			assertClippedPaint(img, index, new Rectangle(-10, -10, 50, 300));
+			assertClippedPaint(img, clip);
+
+			ops.clear();
+			assertTrue(index.getOperations(clip).isEmpty());
+		} finally {
+			index.dispose();
+		}
+	}
+
+	/**
+	 * Hairlines have bounds with zero width or height (or no bounds at all),
+	 * but they still have to be painted when they cross the clip.
+	 */
+	@Test
+	public void testClippedHairline() {
+		VectorImage img = new VectorImage();
+		VectorGraphics2D g = img.createGraphics();
+		g.setColor(Color.red);
+		g.setStroke(new BasicStroke(0));
+		g.drawLine(10, 40, 180, 40);
+		g.drawLine(60, 10, 60, 180);
+		g.dispose();
+
+		assertClippedPaint(img, new Rectangle(20, 30, 100, 100));
+		assertClippedPaint(img, new Rectangle(50, 35, 5, 5));
+
+		BufferedImage bi = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = bi.createGraphics();
+		g2.clipRect(20, 30, 100, 100);
+		img.paint(g2);
+		g2.dispose();
+		assertEquals(0xffff0000, bi.getRGB(30, 40));
+		assertEquals(0xffff0000, bi.getRGB(60, 50));
+	}
+
+	/**
+	 * A JVGFile must not cull a horizontal or vertical hairline (whose bounds
+	 * have zero height or width) when it is painted with a clip.
+	 */
+	@Test
+	public void testJVGFileClippedHairline() throws Exception {
+		VectorImage img = new VectorImage();
+		VectorGraphics2D g = img.createGraphics();
+		g.setColor(Color.blue);
+		g.fillRect(0, 0, 5, 5);
+		g.setColor(Color.black);
+		g.setStroke(new BasicStroke(0));
+		g.drawLine(10, 20, 90, 20);
+		g.drawLine(60, 10, 60, 180);
+		g.dispose();
+		assertEquals(0, img.getOperations().get(1).getBounds().getHeight(),
+				0);
+
+		File file = File.createTempFile("testJVGFileClippedHairline",
+				".jvg");
+		try {
+			try (FileOutputStream fileOut = new FileOutputStream(file)) {
+				img.save(fileOut);
+			}
+			try (JVGFile jvgFile = new JVGFile(file)) {
+				Rectangle clip = new Rectangle(20, 10, 100, 100);
+				assertEquals(2, jvgFile.getOperations(clip).size());
+
+				BufferedImage expected = new BufferedImage(width, height,
+						BufferedImage.TYPE_INT_ARGB);
+				Graphics2D g2 = expected.createGraphics();
+				g2.clip(clip);
+				img.paint(g2);
+				g2.dispose();
+
+				BufferedImage actual = new BufferedImage(width, height,
+						BufferedImage.TYPE_INT_ARGB);
+				g2 = actual.createGraphics();
+				g2.clip(clip);
+				jvgFile.paint(g2);
+				g2.dispose();
+				assertEquals(0xff000000, actual.getRGB(50, 20));
+				assertEquals(0xff000000, actual.getRGB(60, 50));
+				assertImageEquals(expected, actual);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Consecutive Operations recorded with the same state share one frozen
+	 * Graphics2DContext, and that sharing survives serialization.
+	 */
+	@Test
+	public void testSharedContexts() throws Exception {
+		VectorImage img = new VectorImage();
+		VectorGraphics2D g = img.createGraphics();
+		g.setColor(Color.red);
+		g.fillRect(0, 0, 10, 10);
+		g.fillRect(20, 0, 10, 10);
+		g.setColor(Color.blue);
+		g.fillRect(40, 0, 10, 10);
+		g.dispose();
+
+		ObservableList<Operation> ops = img.getOperations();
+		assertSame(ops.get(0).context, ops.get(1).context);
+		assertNotSame(ops.get(1).context, ops.get(2).context);
+		assertTrue(ops.get(0).context.isFrozen());
+
+		try {
+			ops.get(0).context.setColor(Color.green);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// pass
+		}
+
+		// changing one Operation must not change its neighbor:
+		ops.get(0).setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		assertNotSame(ops.get(0).context, ops.get(1).context);
+		assertNull(ops.get(1).getContext()
+				.getRenderingHint(RenderingHints.KEY_ANTIALIASING));
+		ops.get(0).setContext(ops.get(1).context);
+		assertSame(ops.get(0).context, ops.get(1).context);
+
+		ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+		try (ObjectOutputStream objOut = new ObjectOutputStream(byteOut)) {
+			objOut.writeObject(img);
+		}
+		VectorImage copy;
+		try (ObjectInputStream objIn = new ObjectInputStream(
+				new ByteArrayInputStream(byteOut.toByteArray()))) {
+			copy = (VectorImage) objIn.readObject();
+		}
+		ObservableList<Operation> copyOps = copy.getOperations();
+		assertSame(copyOps.get(0).context, copyOps.get(1).context);
+		assertTrue(copyOps.get(2).context.isFrozen());
+		assertEquals(img, copy);
+	}
+
+	/**
+	 * Operations that share a Graphics2DContext are usually painted with one
+	 * Graphics2D, but an unknown subclass may modify its Graphics2D, so it
+	 * must not affect the Operations after it.
+	 */
+	@Test
+	public void testSharedContextSubclass() {
+		VectorImage img = new VectorImage();
+		VectorGraphics2D g = img.createGraphics();
+		g.setColor(Color.red);
+		g.fillRect(0, 0, 10, 10);
+		g.dispose();
+
+		Operation fill = img.getOperations().get(0);
+		Operation greenFill = new FillOperation(fill.context,
+				new Rectangle(0, 0, 10, 10)) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void paintOperation(Graphics2D g) {
+				g.setColor(Color.green);
+				super.paintOperation(g);
+			}
+		};
+		img.getOperations().add(0, greenFill);
+		img.getOperations().add(
+				new FillOperation(fill.context, new Rectangle(20, 0, 10, 10)));
+
+		BufferedImage bi = new BufferedImage(30, 10,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = bi.createGraphics();
+		img.paint(g2);
+		g2.dispose();
+		assertEquals(0xffff0000, bi.getRGB(5, 5));
+		assertEquals(0xffff0000, bi.getRGB(25, 5));
+	}
+
+	/**
+	 * The binary JVG format can be read all at once, streamed, or randomly
+	 * accessed. VectorImage can still read the older GZIP format.
+	 */
+	@Test
+	public void testJVGFormat() throws Exception {
+		Random random = new Random(0);
+		VectorImage img = new VectorImage();
+		VectorGraphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		for (int a = 0; a < 100; a++) {
+			g.setColor(new Color(random.nextInt(0xffffff)));
+			g.fill(new Ellipse2D.Float(random.nextInt(200) - 20,
+					random.nextInt(200) - 20, 5 + random.nextInt(40),
+					5 + random.nextInt(40)));
+			if (a % 10 == 0)
+				g.drawString("Text " + a, random.nextInt(200),
+						random.nextInt(200));
+		}
+		g.setPaint(new GradientPaint(0, 0, Color.red, 200, 200, Color.blue));
+		g.setStroke(new BasicStroke(3));
+		g.drawOval(50, 50, 100, 100);
+		g.dispose();
+		img.getOperations().get(3).setProperty("source", "testJVGFormat");
+
+		ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+		img.save(byteOut);
+		byte[] bytes = byteOut.toByteArray();
+
+		VectorImage copy = new VectorImage(new ByteArrayInputStream(bytes));
+		assertEquals(img.getOperations().size(),
+				copy.getOperations().size());
+		assertEquals("testJVGFormat",
+				copy.getOperations().get(3).getProperty("source"));
+		// contexts are still shared:
+		assertSame(copy.getOperations().get(0).context,
+				copy.getOperations().get(1).context);
+
+		BufferedImage expected = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		img.paint(expected.createGraphics());
+
+		BufferedImage streamed = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		try (JVGReader reader = new JVGReader(
+				new ByteArrayInputStream(bytes))) {
+			reader.paint(streamed.createGraphics());
+		}
+		assertImageEquals(expected, streamed);
+
+		File file = File.createTempFile("testJVGFormat", ".jvg");
+		try {
+			try (FileOutputStream fileOut = new FileOutputStream(file)) {
+				img.save(fileOut);
+			}
+			try (JVGFile jvgFile = new JVGFile(file)) {
+				assertEquals(img.getOperations().size(),
+						jvgFile.getOperationCount());
+				assertBoundsEqual(img.getBounds(), jvgFile.getBounds());
+				for (int a = 0; a < jvgFile.getOperationCount(); a++) {
+					assertBoundsEqual(img.getOperations().get(a).getBounds(),
+							jvgFile.getOperationBounds(a));
+				}
+
+				Rectangle clip = new Rectangle(50, 60, 40, 30);
+				assertTrue(jvgFile.getOperations(clip).size() < jvgFile
+						.getOperationCount());
+
+				expected = new BufferedImage(width, height,
+						BufferedImage.TYPE_INT_ARGB);
+				Graphics2D g2 = expected.createGraphics();
+				g2.clip(clip);
+				img.paint(g2);
+				g2.dispose();
+
+				BufferedImage actual = new BufferedImage(width, height,
+						BufferedImage.TYPE_INT_ARGB);
+				g2 = actual.createGraphics();
+				g2.clip(clip);
+				jvgFile.paint(g2);
+				g2.dispose();
+				assertImageEquals(expected, actual);
+			}
+		} finally {
+			file.delete();
+		}
+
+		// the older format:
+		byteOut = new ByteArrayOutputStream();
+		try (ObjectOutputStream objOut = new ObjectOutputStream(
+				new GZIPOutputStream(byteOut))) {
+			objOut.writeObject(img);
+		}
+		copy = new VectorImage(new ByteArrayInputStream(byteOut.toByteArray()));
+		assertEquals(img.getOperations(), copy.getOperations());
+	}
+
+	/**
+	 * Rendering tiles in parallel should produce the same image as rendering
+	 * everything on one thread.
+	 */
+	@Test
+	public void testToBufferedImageTiles() throws Exception {
+		Random random = new Random(0);
+		VectorImage img = new VectorImage();
+		VectorGraphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		for (int a = 0; a < 200; a++) {
+			g.setColor(new Color(random.nextInt(0xffffff)));
+			g.setStroke(new BasicStroke(1 + random.nextInt(5)));
+			g.draw(new Ellipse2D.Float(random.nextInt(300) - 20,
+					random.nextInt(300) - 20, 5 + random.nextInt(80),
+					5 + random.nextInt(80)));
+			if (a % 10 == 0)
+				g.drawString("Text " + a, random.nextInt(300),
+						random.nextInt(300));
+		}
+		g.dispose();
+
+		assertImageEquals(img.toBufferedImage(),
+				img.toBufferedImage(ForkJoinPool.commonPool(), 37));
+		assertImageEquals(img.toBufferedImage(),
+				img.toBufferedImage(null, 37));
+	}
+
+	/**
+	 * Test that a DisplayList skips Operations that are hidden by an opaque
+	 * rectangle and merges fills, without changing the rendered image.
+	 */
+	@Test
+	public void testDisplayList() throws Exception {
+		Random random = new Random(0);
+		VectorImage img = new VectorImage();
+		VectorGraphics2D g = img.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		for (int a = 0; a < 50; a++) {
+			g.setColor(new Color(random.nextInt(0xffffff)));
+			g.fill(new Ellipse2D.Float(random.nextInt(150),
+					random.nextInt(150), 5 + random.nextInt(40),
+					5 + random.nextInt(40)));
+		}
+		g.setColor(Color.white);
+		g.fillRect(20, 20, 100, 100);
+		g.setColor(Color.red);
+		for (int a = 0; a < 20; a++) {
+			g.fill(new Ellipse2D.Float(30 + 4 * a, 30 + 4 * a, 3, 3));
+		}
+		g.setColor(Color.blue);
+		g.drawString("DisplayList", 40, 160);
+		g.dispose();
+
+		DisplayList displayList = img.compile();
+		for (double scale : new double[] { 1, 1.5, .7 }) {
+			BufferedImage expected = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g1 = expected.createGraphics();
+			g1.scale(scale, scale);
+			img.paint(g1);
+			g1.dispose();
+
+			BufferedImage actual = new BufferedImage(width, height,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g2 = actual.createGraphics();
+			g2.scale(scale, scale);
+			displayList.paint(g2);
+			g2.dispose();
+
+			assertImageEquals(expected, actual);
+		}
+
+		// each transform's compiled list is kept:
+		assertEquals(3, displayList.compiled.size());
+		DisplayList.Compiled compiled = displayList.compiled
+				.get(new AffineTransform());
+		assertNotNull(compiled);
+		Graphics2D g4 = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB).createGraphics();
+		displayList.paint(g4);
+		g4.dispose();
+		assertSame(compiled, displayList.compiled.get(new AffineTransform()));
+
+		// the DisplayList is a snapshot:
+		img.getOperations().clear();
+		BufferedImage bi = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g3 = bi.createGraphics();
+		displayList.paint(g3);
+		g3.dispose();
+		assertEquals(Color.white.getRGB(), bi.getRGB(21, 21));
+	}
+
+	private void assertBoundsEqual(Rectangle2D expected, Rectangle2D actual) {
+		assertEquals(expected.getMinX(), actual.getMinX(), .001);
+		assertEquals(expected.getMinY(), actual.getMinY(), .001);
+		assertEquals(expected.getMaxX(), actual.getMaxX(), .001);
+		assertEquals(expected.getMaxY(), actual.getMaxY(), .001);
+	}
+
+	private void assertClippedPaint(VectorImage img, Rectangle clip) {
+		assertClippedPaint(img, null, clip);
+	}
+
+	/**
+	 * Assert that painting the Operations an index selects for a clip looks
+	 * the same as painting every Operation.
+	 * 
+	 * @param index
+	 *            the index to test, or null to test
+	 *            {@link VectorImage#paint(Graphics2D)}.
+	 */
+	private void assertClippedPaint(VectorImage img, OperationIndex index,
+			Rectangle clip) {
+		BufferedImage expected = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = expected.createGraphics();
+		g.clip(clip);
+		for (Operation op : img.getOperations()) {
+			op.paint(g);
+		}
+		g.dispose();
+
+		BufferedImage actual = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		g = actual.createGraphics();
+		g.clip(clip);
+		if (index == null) {
+			img.paint(g);
+		} else {
+			Rectangle2D r = new Rectangle2D.Double(clip.x - 1, clip.y - 1,
+					clip.width + 2, clip.height + 2);
+			Operation.paint(g, index.getOperations(r));
+		}
+		g.dispose();
+
+		assertImageEquals(expected, actual);
+	}
+
 	public void assertImageEquals(BufferedImage bi1, BufferedImage bi2) {
 		assertEquals(bi1.getWidth(), bi2.getWidth());
 		assertEquals(bi1.getHeight(), bi2.getHeight());
@@ -0,0 +1,294 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.icon;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+
+import javax.swing.Icon;
+
+import org.junit.Test;
+
+import com.pump.graphics.vector.FillOperation;
+import com.pump.graphics.vector.VectorGraphics2D;
+import com.pump.graphics.vector.VectorImage;
+import com.pump.graphics.vector.VectorImageIcon;
+
+import junit.framework.TestCase;
+
+public class IconRasterCacheTest extends TestCase {
+
+	static class CircleIcon implements Icon {
+		int paintCount = 0;
+		Color color = Color.blue;
+
+		@Override
+		public void paintIcon(Component c, Graphics g, int x, int y) {
+			paintCount++;
+			Graphics2D g2 = (Graphics2D) g.create();
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			g2.setColor(color);
+			g2.fill(new Ellipse2D.Float(x + 1, y + 2, 17, 13));
+			g2.dispose();
+		}
+
+		@Override
+		public int getIconWidth() {
+			return 20;
+		}
+
+		@Override
+		public int getIconHeight() {
+			return 16;
+		}
+	}
+
+	/**
+	 * Test that a cached raster looks exactly like painting the icon
+	 * directly, and that it is only rendered once per transform.
+	 */
+	@Test
+	public void testPaintIcon() {
+		IconRasterCache.clear();
+		CircleIcon icon = new CircleIcon();
+		double[] scales = { 1, 2, 1.5 };
+		for (double scale : scales) {
+			BufferedImage expected = new BufferedImage(60, 60,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = expected.createGraphics();
+			g.scale(scale, scale);
+			icon.paintIcon(null, g, 4, 6);
+			g.dispose();
+
+			for (int a = 0; a < 2; a++) {
+				BufferedImage actual = new BufferedImage(60, 60,
+						BufferedImage.TYPE_INT_ARGB);
+				g = actual.createGraphics();
+				g.scale(scale, scale);
+				IconRasterCache.paintIcon(icon, null, g, 4, 6);
+				g.dispose();
+				assertImageEquals(expected, actual);
+			}
+		}
+		assertEquals(scales.length * 2, icon.paintCount);
+		assertTrue(IconRasterCache.getMemoryUsage() > 0);
+
+		IconRasterCache.clear(icon);
+		assertEquals(0, IconRasterCache.getMemoryUsage());
+	}
+
+	/**
+	 * Test that an Icon whose origin is between device pixels is snapped to
+	 * the nearest pixel, so it reuses the same raster.
+	 */
+	@Test
+	public void testFractionalTranslation() {
+		IconRasterCache.clear();
+		CircleIcon icon = new CircleIcon();
+		for (int x = 3; x < 6; x++) {
+			int y = x + 2;
+			BufferedImage expected = new BufferedImage(60, 60,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = expected.createGraphics();
+			g.translate(Math.round(1.5 * x), Math.round(1.5 * y));
+			g.scale(1.5, 1.5);
+			icon.paintIcon(null, g, 0, 0);
+			g.dispose();
+
+			BufferedImage actual = new BufferedImage(60, 60,
+					BufferedImage.TYPE_INT_ARGB);
+			g = actual.createGraphics();
+			g.scale(1.5, 1.5);
+			IconRasterCache.paintIcon(icon, null, g, x, y);
+			g.dispose();
+			assertImageEquals(expected, actual);
+		}
+		// 3 direct paints and 1 cached raster:
+		assertEquals(4, icon.paintCount);
+	}
+
+	/**
+	 * Test that the cache does not keep an Icon from being garbage collected.
+	 */
+	@Test
+	public void testIconIsWeaklyReferenced() throws InterruptedException {
+		IconRasterCache.clear();
+		CircleIcon icon = new CircleIcon();
+		BufferedImage bi = new BufferedImage(20, 16,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = bi.createGraphics();
+		IconRasterCache.paintIcon(icon, null, g, 0, 0);
+		g.dispose();
+		assertTrue(IconRasterCache.getMemoryUsage() > 0);
+
+		WeakReference<Icon> ref = new WeakReference<>(icon);
+		icon = null;
+		long deadline = System.currentTimeMillis() + 10000;
+		while (IconRasterCache.getMemoryUsage() > 0
+				&& System.currentTimeMillis() < deadline) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(ref.get());
+		assertEquals(0, IconRasterCache.getMemoryUsage());
+	}
+
+	/**
+	 * Test that decorators only use the cache when they are asked to (which a
+	 * DarkenedIcon of an Icon does by default), and that filters use the
+	 * cache.
+	 */
+	@Test
+	public void testDecorators() {
+		IconRasterCache.clear();
+		CircleIcon icon = new CircleIcon();
+
+		// this is how DarkenedIcon used to paint itself:
+		BufferedImage darkenedRaster = new BufferedImage(20, 16,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = darkenedRaster.createGraphics();
+		icon.paintIcon(null, g, 0, 0);
+		g.dispose();
+		new DarkenedIcon.Darken(.5f).accept(darkenedRaster);
+		BufferedImage expected = new BufferedImage(20, 16,
+				BufferedImage.TYPE_INT_ARGB);
+		g = expected.createGraphics();
+		g.drawImage(darkenedRaster, 0, 0, null);
+		g.dispose();
+
+		icon.paintCount = 0;
+		Icon[] darkenedIcons = { new DarkenedIcon(icon, .5f, false),
+				new DarkenedIcon(icon, .5f, false), new DarkenedIcon(icon, .5f),
+				new DarkenedIcon(icon, .5f, true) };
+		for (Icon darkened : darkenedIcons) {
+			BufferedImage actual = new BufferedImage(20, 16,
+					BufferedImage.TYPE_INT_ARGB);
+			g = actual.createGraphics();
+			darkened.paintIcon(null, g, 0, 0);
+			g.dispose();
+			assertImageEquals(expected, actual);
+		}
+		// 2 uncached paints and 1 cached raster:
+		assertEquals(3, icon.paintCount);
+
+		icon.paintCount = 0;
+		Icon[] fadedIcons = { new FadedIcon(icon, .5f),
+				new FadedIcon(icon, .5f, true) };
+		for (Icon faded : fadedIcons) {
+			for (int a = 0; a < 3; a++) {
+				BufferedImage bi = new BufferedImage(20, 16,
+						BufferedImage.TYPE_INT_ARGB);
+				g = bi.createGraphics();
+				faded.paintIcon(null, g, 0, 0);
+				g.dispose();
+			}
+		}
+		// 3 uncached paints and 1 cached raster:
+		assertEquals(4, icon.paintCount);
+
+		// by default a decorator follows changes to its icon:
+		Icon faded = new FadedIcon(icon, 1);
+		for (Color color : new Color[] { Color.blue, Color.red }) {
+			icon.color = color;
+			BufferedImage bi = new BufferedImage(20, 16,
+					BufferedImage.TYPE_INT_ARGB);
+			g = bi.createGraphics();
+			faded.paintIcon(null, g, 0, 0);
+			g.dispose();
+			assertEquals(color.getRGB(), bi.getRGB(10, 8));
+		}
+	}
+
+	@Test
+	public void testVectorImageIcon() {
+		IconRasterCache.clear();
+		VectorImage image = new VectorImage();
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.red);
+		g.fillRect(0, 0, 10, 10);
+		g.dispose();
+		VectorImageIcon icon = new VectorImageIcon(image);
+
+		BufferedImage bi = new BufferedImage(10, 10,
+				BufferedImage.TYPE_INT_ARGB);
+		g = bi.createGraphics();
+		icon.paintIcon(null, g, 0, 0);
+		assertEquals(0xffff0000, bi.getRGB(5, 5));
+
+		// changing the image must not reuse the old raster:
+		Graphics2D g2 = image.createGraphics();
+		g2.setColor(Color.green);
+		g2.fillRect(0, 0, 10, 10);
+		g2.dispose();
+		icon.paintIcon(null, g, 0, 0);
+		g.dispose();
+		assertEquals(0xff00ff00, bi.getRGB(5, 5));
+
+		// vector output is not rasterized:
+		VectorImage copy = new VectorImage();
+		g = copy.createGraphics();
+		assertTrue(g instanceof VectorGraphics2D);
+		icon.paintIcon(null, g, 0, 0);
+		g.dispose();
+		assertEquals(2, copy.getOperations().size());
+		assertTrue(copy.getOperations().get(0) instanceof FillOperation);
+	}
+
+	@Test
+	public void testMemoryLimit() {
+		long oldLimit = IconRasterCache.getMemoryLimit();
+		try {
+			IconRasterCache.clear();
+			IconRasterCache.setMemoryLimit(20 * 16 * 4 * 32);
+			CircleIcon icon = new CircleIcon();
+			for (int a = 0; a < 20; a++) {
+				BufferedImage bi = new BufferedImage(100, 100,
+						BufferedImage.TYPE_INT_ARGB);
+				Graphics2D g = bi.createGraphics();
+				g.rotate(a / 10.0);
+				IconRasterCache.paintIcon(icon, null, g, 30, 30);
+				g.dispose();
+				assertTrue(IconRasterCache
+						.getMemoryUsage() <= IconRasterCache.getMemoryLimit());
+			}
+			assertEquals(20, icon.paintCount);
+
+			IconRasterCache.setMemoryLimit(0);
+			assertEquals(0, IconRasterCache.getMemoryUsage());
+			BufferedImage bi = new BufferedImage(20, 16,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = bi.createGraphics();
+			IconRasterCache.paintIcon(icon, null, g, 0, 0);
+			g.dispose();
+			assertEquals(0, IconRasterCache.getMemoryUsage());
+		} finally {
+			IconRasterCache.setMemoryLimit(oldLimit);
+		}
+	}
+
+	private static void assertImageEquals(BufferedImage expected,
+			BufferedImage actual) {
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertEquals("(" + x + ", " + y + ")",
+						Integer.toHexString(expected.getRGB(x, y)),
+						Integer.toHexString(actual.getRGB(x, y)));
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ImageBoundsTest extends TestCase {
+
+	/**
+	 * Compute the bounds by checking every pixel.
+	 */
+	private Rectangle getBoundsBruteForce(BufferedImage bi, int threshold) {
+		Rectangle r = null;
+		for (int y = 0; y < bi.getHeight(); y++) {
+			for (int x = 0; x < bi.getWidth(); x++) {
+				if ((bi.getRGB(x, y) >>> 24) > threshold) {
+					if (r == null) {
+						r = new Rectangle(x, y, 1, 1);
+					} else {
+						r.add(new Rectangle(x, y, 1, 1));
+					}
+				}
+			}
+		}
+		return r;
+	}
+
+	private BufferedImage createImage(Random random, int width, int height,
+			int dotCount) {
+		BufferedImage bi = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		for (int a = 0; a < dotCount; a++) {
+			int alpha = random.nextInt(256);
+			bi.setRGB(random.nextInt(width), random.nextInt(height),
+					(alpha << 24) | 0x123456);
+		}
+		return bi;
+	}
+
+	@Test
+	public void testRandomImages() {
+		Random random = new Random(0);
+		for (int a = 0; a < 200; a++) {
+			int w = 1 + random.nextInt(40);
+			int h = 1 + random.nextInt(40);
+			BufferedImage bi = createImage(random, w, h, random.nextInt(6));
+			int threshold = random.nextInt(256);
+			assertEquals(getBoundsBruteForce(bi, threshold),
+					ImageBounds.getBounds(bi, threshold));
+		}
+	}
+
+	/**
+	 * A subimage shares its parent's data array with a nonzero offset.
+	 */
+	@Test
+	public void testSubimage() {
+		Random random = new Random(1);
+		for (int a = 0; a < 50; a++) {
+			BufferedImage bi = createImage(random, 50, 50, 20);
+			BufferedImage sub = bi.getSubimage(7, 11, 30, 25);
+			assertEquals(getBoundsBruteForce(sub, 0),
+					ImageBounds.getBounds(sub, 0));
+		}
+	}
+
+	@Test
+	public void testParallel() {
+		Random random = new Random(2);
+		for (int a = 0; a < 50; a++) {
+			BufferedImage bi = createImage(random, 97, 83,
+					random.nextInt(10));
+			assertEquals(getBoundsBruteForce(bi, 10),
+					ImageBounds.getBounds(bi, 10, 100));
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import com.pump.image.pixel.BufferedImageIterator;
+import com.pump.image.pixel.GenericImageSinglePassIterator;
+import com.pump.image.pixel.Scaling;
+
+import junit.framework.TestCase;
+
+public class TiledImageTest extends TestCase {
+
+	private BufferedImage createImage(int width, int height) {
+		BufferedImage bi = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(0);
+		for (int y = 10; y < height - 5; y++) {
+			for (int x = 7; x < width - 3; x++) {
+				bi.setRGB(x, y, random.nextInt());
+			}
+		}
+		return bi;
+	}
+
+	/**
+	 * Pixels read from a TiledImage should match the source image, including
+	 * partial tiles along the right and bottom edges.
+	 */
+	@Test
+	public void testPixels() throws Exception {
+		BufferedImage bi = createImage(100, 70);
+		try (TiledImage ti = new TiledImage(BufferedImageIterator.get(bi), 16,
+				4096)) {
+			assertEquals(7, ti.getTileCountX());
+			assertEquals(5, ti.getTileCountY());
+			for (int tileY = 0; tileY < ti.getTileCountY(); tileY++) {
+				for (int tileX = 0; tileX < ti.getTileCountX(); tileX++) {
+					Rectangle r = ti.getTileBounds(tileX, tileY);
+					BufferedImage tile = ti.getTile(tileX, tileY);
+					for (int y = 0; y < r.height; y++) {
+						for (int x = 0; x < r.width; x++) {
+							assertEquals(bi.getRGB(r.x + x, r.y + y),
+									tile.getRGB(x, y));
+						}
+					}
+				}
+			}
+
+			int[] row = new int[3];
+			ti.setRGB(50, 60, 3, 1, new int[] { 1, 2, 3 }, 0, 3);
+			ti.getRGB(50, 60, 3, 1, row, 0, 3);
+			assertEquals(2, row[1]);
+			assertEquals(2, ti.getTile(3, 3).getRGB(51 - 48, 60 - 48));
+		}
+	}
+
+	/**
+	 * ImageBounds and Scaling should produce the same results for a
+	 * TiledImage as they do for a BufferedImage.
+	 */
+	@Test
+	public void testBoundsAndScaling() throws Exception {
+		BufferedImage bi = createImage(90, 60);
+		try (TiledImage ti = new TiledImage(BufferedImageIterator.get(bi), 32,
+				0)) {
+			assertEquals(ImageBounds.getBounds(bi, 0),
+					ImageBounds.getBounds(ti, 0));
+
+			BufferedImage scaled1 = Scaling.scale(bi, new Dimension(30, 20));
+			BufferedImage scaled2 = Scaling.scale(ti, new Dimension(30, 20));
+			for (int y = 0; y < scaled1.getHeight(); y++) {
+				for (int x = 0; x < scaled1.getWidth(); x++) {
+					assertEquals(scaled1.getRGB(x, y), scaled2.getRGB(x, y));
+				}
+			}
+		}
+	}
+
+	/**
+	 * A TiledImage that is closed before it is fully read should release its
+	 * source.
+	 */
+	@Test
+	public void testCloseReleasesSource() throws Exception {
+		BufferedImage bi = createImage(40, 30);
+		File pngFile = File.createTempFile("TiledImageTest", ".png");
+		pngFile.deleteOnExit();
+		ImageIO.write(bi, "png", pngFile);
+		GenericImageSinglePassIterator<?> iter = GenericImageSinglePassIterator
+				.get(pngFile, BufferedImage.TYPE_INT_ARGB);
+		TiledImage ti = new TiledImage(iter, 8, 4096);
+		assertEquals(bi.getRGB(20, 12), ti.getTile(2, 1).getRGB(4, 4));
+		assertFalse(iter.isDone());
+		ti.close();
+		assertTrue(iter.isDone());
+
+		BufferedImage rgb = new BufferedImage(40, 30,
+				BufferedImage.TYPE_INT_RGB);
+		rgb.createGraphics().drawImage(bi, 0, 0, null);
+		File bmpFile = File.createTempFile("TiledImageTest", ".bmp");
+		bmpFile.deleteOnExit();
+		ImageIO.write(rgb, "bmp", bmpFile);
+		try (TiledImage bmp = TiledImage.create(bmpFile)) {
+			int[] row = new int[1];
+			bmp.getRGB(20, 12, 1, 1, row, 0, 1);
+			assertEquals(rgb.getRGB(20, 12), row[0] | 0xff000000);
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.thumbnail;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.pump.image.thumbnail.generator.ThumbnailGenerator;
+import com.pump.swing.BasicCancellable;
+
+import junit.framework.TestCase;
+
+public class ThumbnailServiceTest extends TestCase {
+
+	/**
+	 * This generator counts how many times it is invoked, and it blocks until
+	 * a latch is released.
+	 */
+	static class CountingGenerator implements ThumbnailGenerator {
+		AtomicInteger ctr = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(0);
+
+		@Override
+		public BufferedImage createThumbnail(File file,
+				int requestedMaxImageSize) throws Exception {
+			latch.await();
+			ctr.incrementAndGet();
+			return new BufferedImage(requestedMaxImageSize,
+					requestedMaxImageSize, BufferedImage.TYPE_INT_ARGB);
+		}
+	}
+
+	/**
+	 * Overlapping requests for the same file and size should share one Future.
+	 */
+	@Test
+	public void testCoalescing() throws Exception {
+		File file = createFile(10);
+		CountingGenerator generator = new CountingGenerator();
+		generator.latch = new CountDownLatch(1);
+		ThumbnailService service = new ThumbnailService(generator, 2,
+				ThumbnailService.MEMORY_LIMIT_DEFAULT, null);
+
+		Future<BufferedImage> f1 = service.requestThumbnail(file, 20);
+		Future<BufferedImage> f2 = service.requestThumbnail(file, 20);
+		assertSame(f1, f2);
+		generator.latch.countDown();
+		assertSame(f1.get(), f2.get());
+		assertEquals(1, generator.ctr.get());
+
+		// now it should be in memory:
+		assertSame(f1.get(), service.getThumbnail(file, 20));
+		assertEquals(1, generator.ctr.get());
+
+		// a different size is a different request:
+		assertEquals(10, service.getThumbnail(file, 10).getWidth());
+		assertEquals(2, generator.ctr.get());
+	}
+
+	/**
+	 * Changing a file should invalidate both the memory and disk caches.
+	 */
+	@Test
+	public void testInvalidation() throws Exception {
+		File file = createFile(10);
+		File dir = Files.createTempDirectory("thumbnails").toFile();
+		CountingGenerator generator = new CountingGenerator();
+		ThumbnailService service = new ThumbnailService(generator, 1,
+				ThumbnailService.MEMORY_LIMIT_DEFAULT, dir);
+
+		service.getThumbnail(file, 20);
+		assertEquals(1, generator.ctr.get());
+
+		// a new service should read the disk cache:
+		ThumbnailService service2 = new ThumbnailService(generator, 1,
+				ThumbnailService.MEMORY_LIMIT_DEFAULT, dir);
+		assertEquals(20, service2.getThumbnail(file, 20).getWidth());
+		assertEquals(1, generator.ctr.get());
+
+		// change the file length:
+		try (FileOutputStream out = new FileOutputStream(file, true)) {
+			out.write(1);
+		}
+		service.getThumbnail(file, 20);
+		assertEquals(2, generator.ctr.get());
+	}
+
+	/**
+	 * The memory cache should evict the least recently used thumbnails when it
+	 * exceeds its byte limit.
+	 */
+	@Test
+	public void testMemoryLimit() throws Exception {
+		CountingGenerator generator = new CountingGenerator();
+		// each 10x10 ARGB image is 400 bytes
+		ThumbnailService service = new ThumbnailService(generator, 1, 1000,
+				null);
+		File[] files = new File[3];
+		for (int a = 0; a < files.length; a++) {
+			files[a] = createFile(a + 1);
+			service.getThumbnail(files[a], 10);
+		}
+		assertEquals(800, service.getMemoryUsage());
+		assertNull(service.getCachedThumbnail(files[0], 10));
+		assertNotNull(service.getCachedThumbnail(files[1], 10));
+		assertNotNull(service.getCachedThumbnail(files[2], 10));
+	}
+
+	/**
+	 * A generator that can't read a file should only be consulted again when
+	 * the file changes, and remembered failures must still be evicted by the
+	 * byte limit.
+	 */
+	@Test
+	public void testFailuresCached() throws Exception {
+		AtomicInteger ctr = new AtomicInteger();
+		ThumbnailGenerator generator = (file, size) -> {
+			ctr.incrementAndGet();
+			return null;
+		};
+		ThumbnailService service = new ThumbnailService(generator, 1,
+				ThumbnailService.FAILURE_BYTE_COUNT * 2, null);
+		File file = createFile(10);
+		assertNull(service.getThumbnail(file, 10));
+		assertNull(service.getThumbnail(file, 10));
+		assertNull(service.requestThumbnail(file, 10).get());
+		assertEquals(1, ctr.get());
+		assertEquals(ThumbnailService.FAILURE_BYTE_COUNT,
+				service.getMemoryUsage());
+
+		// change the file length:
+		try (FileOutputStream out = new FileOutputStream(file, true)) {
+			out.write(1);
+		}
+		assertNull(service.getThumbnail(file, 10));
+		assertEquals(2, ctr.get());
+
+		for (int a = 0; a < 5; a++) {
+			service.getThumbnail(createFile(a + 1), 10);
+		}
+		assertEquals(ThumbnailService.FAILURE_BYTE_COUNT * 2,
+				service.getMemoryUsage());
+	}
+
+	/**
+	 * Files with different paths must not share a disk cache file.
+	 */
+	@Test
+	public void testDiskFileNames() throws Exception {
+		File dir = Files.createTempDirectory("thumbnails").toFile();
+		ThumbnailService service = new ThumbnailService(
+				new CountingGenerator(), 1,
+				ThumbnailService.MEMORY_LIMIT_DEFAULT, dir);
+		// these paths have the same String.hashCode() and length:
+		File file1 = new File(dir, "Aa");
+		File file2 = new File(dir, "BB");
+		assertEquals(file1.getPath().hashCode(), file2.getPath().hashCode());
+		File disk1 = service.getDiskFile(new ThumbnailService.Key(file1, 10));
+		File disk2 = service.getDiskFile(new ThumbnailService.Key(file2, 10));
+		assertFalse(disk1.equals(disk2));
+		assertEquals(disk1, service
+				.getDiskFile(new ThumbnailService.Key(new File(dir, "Aa"), 10)));
+	}
+
+	/**
+	 * A cancelled request that hasn't started should never reach the
+	 * generator.
+	 */
+	@Test
+	public void testCancellation() throws Exception {
+		CountingGenerator generator = new CountingGenerator();
+		generator.latch = new CountDownLatch(1);
+		ThumbnailService service = new ThumbnailService(generator, 1,
+				ThumbnailService.MEMORY_LIMIT_DEFAULT, null);
+		File file1 = createFile(1);
+		File file2 = createFile(2);
+
+		// this occupies the only thread:
+		Future<BufferedImage> f1 = service.requestThumbnail(file1, 10);
+
+		BasicCancellable cancellable = new BasicCancellable();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<BufferedImage> f2 = executor
+				.submit(() -> service.getThumbnail(file2, 10, cancellable));
+		executor.shutdown();
+		Thread.sleep(100);
+		cancellable.cancel();
+		assertNull(f2.get(5, TimeUnit.SECONDS));
+
+		generator.latch.countDown();
+		assertNotNull(f1.get());
+		Thread.sleep(100);
+		assertEquals(1, generator.ctr.get());
+		assertNull(service.getCachedThumbnail(file2, 10));
+	}
+
+	private File createFile(int length) throws Exception {
+		File file = File.createTempFile("ThumbnailServiceTest", ".dat");
+		file.deleteOnExit();
+		Files.write(file.toPath(), new byte[length]);
+		return file;
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://github.com/mickleness/pumpernickel/raw/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.job;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class JobManagerTest extends TestCase {
+
+	static class TestJob extends Job {
+		TestJob(String name, int priority) {
+			super(priority);
+			setName(name);
+		}
+
+		@Override
+		protected void runJob() {
+		}
+	}
+
+	/**
+	 * Create a JobManager and add jobs to it that stay pending, because they
+	 * depend on a job that never finishes.
+	 */
+	private JobManager createManager(boolean lastInFirstOut, Job... jobs) {
+		Job blocker = new TestJob("blocker", Job.PRIORITY_MEDIUM);
+		for (Job job : jobs) {
+			job.setDependencies(blocker);
+		}
+		JobManager manager = new JobManager(1, lastInFirstOut);
+		manager.addJob(jobs);
+		return manager;
+	}
+
+	/**
+	 * On a FIFO manager a job that changes priority goes to the back of its
+	 * new priority.
+	 */
+	@Test
+	public void testSetPriorityFIFO() {
+		Job a = new TestJob("a", Job.PRIORITY_LOW);
+		Job b = new TestJob("b", Job.PRIORITY_LOW);
+		Job c = new TestJob("c", Job.PRIORITY_HIGH);
+		Job d = new TestJob("d", Job.PRIORITY_HIGH);
+		JobManager manager = createManager(false, a, b, c, d);
+		assertEquals(Arrays.asList(a, b, c, d),
+				Arrays.asList(manager.getPendingJobs()));
+
+		assertTrue(manager.setPriority(a, Job.PRIORITY_HIGH));
+		assertEquals(Job.PRIORITY_HIGH, a.getPriority());
+		assertEquals(Arrays.asList(b, c, d, a),
+				Arrays.asList(manager.getPendingJobs()));
+	}
+
+	/**
+	 * Setting a job's current priority must not move it within its priority.
+	 */
+	@Test
+	public void testSetPriorityUnchanged() {
+		for (boolean lastInFirstOut : new boolean[] { false, true }) {
+			Job a = new TestJob("a", Job.PRIORITY_LOW);
+			Job b = new TestJob("b", Job.PRIORITY_LOW);
+			Job c = new TestJob("c", Job.PRIORITY_LOW);
+			JobManager manager = createManager(lastInFirstOut, a, b, c);
+			Job[] pending = manager.getPendingJobs();
+
+			assertTrue(manager.setPriority(a, Job.PRIORITY_LOW));
+			assertTrue(manager.setPriority(c, Job.PRIORITY_LOW));
+			assertEquals(Arrays.asList(pending),
+					Arrays.asList(manager.getPendingJobs()));
+		}
+	}
+
+	/**
+	 * A job that is not pending is not modified.
+	 */
+	@Test
+	public void testSetPriorityNotQueued() {
+		Job a = new TestJob("a", Job.PRIORITY_LOW);
+		JobManager manager = createManager(false, a);
+		Job other = new TestJob("other", Job.PRIORITY_LOW);
+		assertFalse(manager.setPriority(other, Job.PRIORITY_HIGH));
+		assertEquals(Job.PRIORITY_LOW, other.getPriority());
+		assertEquals(Arrays.asList(a),
+				Arrays.asList(manager.getPendingJobs()));
+	}
+}